@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 IBM Corporation and others.
+ * Copyright (c) 2006, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,6 +27,7 @@ import org.eclipse.core.databinding.observable.list.ListDiffEntry;
 import org.eclipse.core.databinding.observable.map.MapDiff;
 import org.eclipse.core.databinding.observable.set.SetDiff;
 import org.eclipse.core.databinding.observable.value.ValueDiff;
+import org.eclipse.core.internal.databinding.observable.IndexedListDiffer;
 import org.eclipse.core.internal.databinding.observable.Util;
 
 /**
@@ -35,6 +36,12 @@ import org.eclipse.core.internal.databinding.observable.Util;
  */
 public class Diffs {
 
+	/**
+	 * Combined size of the old and new list states above which
+	 * {@link #computeListDiff(List, List)} switches to the indexed algorithm.
+	 */
+	private static final int INDEXED_LIST_DIFF_THRESHOLD = 100;
+
 	/**
 	 * Returns a {@link ListDiff} describing the change between the specified
 	 * old and new list states.
@@ -46,6 +53,45 @@ public class Diffs {
 	 * @return the differences between oldList and newList
 	 */
 	public static ListDiff computeListDiff(List oldList, List newList) {
+		return computeListDiff(oldList, newList, oldList.size()
+				+ newList.size() > INDEXED_LIST_DIFF_THRESHOLD);
+	}
+
+	/**
+	 * Returns a {@link ListDiff} describing the change between the specified
+	 * old and new list states, computed with the selected algorithm.
+	 * <p>
+	 * The indexed algorithm matches elements through a hash index and runs in
+	 * O((n+m) log(n+m)) time. It leaves the longest run of elements that keep
+	 * their relative order in place and reports every other element that is
+	 * contained in both lists as a move. The non-indexed algorithm scans the
+	 * lists linearly for every differing element and applies each change to
+	 * a copy of the old list, which is quadratic in the worst case. The
+	 * indexed algorithm relies on equal elements having equal hash codes. The
+	 * resulting diffs may differ, but both transform <code>oldList</code> into
+	 * <code>newList</code>.
+	 * </p>
+	 * <p>
+	 * {@link #computeListDiff(List, List)} uses the indexed algorithm once
+	 * the combined size of both lists exceeds a small threshold.
+	 * </p>
+	 * 
+	 * @param oldList
+	 *            the old list state
+	 * @param newList
+	 *            the new list state
+	 * @param indexed
+	 *            <code>true</code> to use the indexed algorithm,
+	 *            <code>false</code> to use the non-indexed algorithm
+	 * @return the differences between oldList and newList
+	 * @since 1.5
+	 */
+	public static ListDiff computeListDiff(List oldList, List newList,
+			boolean indexed) {
+		if (indexed) {
+			return createListDiff(IndexedListDiffer.computeDifferences(
+					oldList, newList));
+		}
 		List diffEntries = new ArrayList();
 		createListDiffs(new ArrayList(oldList), newList, diffEntries);
 		ListDiff listDiff = createListDiff((ListDiffEntry[]) diffEntries
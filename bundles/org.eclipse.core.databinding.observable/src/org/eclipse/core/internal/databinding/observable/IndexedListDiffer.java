@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+
+/**
+ * Computes the differences between two lists in O((n+m) log(n+m)) time.
+ * <p>
+ * Common leading and trailing elements are skipped. The remaining elements
+ * are matched through a hash index, occurrence by occurrence. The longest run
+ * of matched elements that keep their relative order (the longest increasing
+ * subsequence of their old positions, as in patience diff) stays where it is.
+ * All other matched elements are reported as moves, i.e. as a remove entry
+ * immediately followed by an add entry of the same element. Elements without
+ * a match are reported as removals and additions. Where possible, a removal
+ * and an addition at the same position are emitted as a pair so that
+ * {@link org.eclipse.core.databinding.observable.list.ListDiff#accept} reports
+ * them as a replace.
+ * </p>
+ * <p>
+ * Positions of the emitted entries are computed on a binary indexed tree
+ * over a single ordering of all old and new elements. This avoids applying
+ * the entries to a working copy of the old list.
+ * </p>
+ *
+ * @since 1.5
+ */
+public class IndexedListDiffer {
+
+	private static final ListDiffEntry[] NO_DIFFERENCES = new ListDiffEntry[0];
+
+	/**
+	 * The old list positions of one element value, in ascending order.
+	 */
+	private static class Occurrences {
+		int[] positions = new int[2];
+		int size;
+		int next;
+
+		void add(int position) {
+			if (size == positions.length) {
+				int[] grown = new int[size * 2];
+				System.arraycopy(positions, 0, grown, 0, size);
+				positions = grown;
+			}
+			positions[size++] = position;
+		}
+	}
+
+	/**
+	 * A binary indexed tree counting the elements that are currently present
+	 * in the list being transformed, by rank.
+	 */
+	private static class PresenceTree {
+		private final int[] tree;
+
+		PresenceTree(int size) {
+			tree = new int[size + 1];
+		}
+
+		void update(int rank, int delta) {
+			for (int i = rank + 1; i < tree.length; i += i & -i) {
+				tree[i] += delta;
+			}
+		}
+
+		/**
+		 * Returns the number of present elements ranked before the given rank.
+		 */
+		int countBefore(int rank) {
+			int count = 0;
+			for (int i = rank; i > 0; i -= i & -i) {
+				count += tree[i];
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Returns the entries which transform <code>oldList</code> into
+	 * <code>newList</code>, in the order they are to be processed.
+	 *
+	 * @param oldList
+	 *            the old list state
+	 * @param newList
+	 *            the new list state
+	 * @return the differences between oldList and newList
+	 */
+	public static ListDiffEntry[] computeDifferences(List oldList, List newList) {
+		Object[] oldElements = oldList.toArray();
+		Object[] newElements = newList.toArray();
+
+		int start = 0;
+		int oldEnd = oldElements.length;
+		int newEnd = newElements.length;
+		while (start < oldEnd && start < newEnd
+				&& Util.equals(oldElements[start], newElements[start])) {
+			start++;
+		}
+		while (oldEnd > start && newEnd > start
+				&& Util.equals(oldElements[oldEnd - 1], newElements[newEnd - 1])) {
+			oldEnd--;
+			newEnd--;
+		}
+
+		int oldCount = oldEnd - start;
+		int newCount = newEnd - start;
+		if (oldCount == 0 && newCount == 0) {
+			return NO_DIFFERENCES;
+		}
+
+		List entries = new ArrayList(oldCount + newCount);
+		if (oldCount == 0) {
+			for (int n = 0; n < newCount; n++) {
+				entries.add(Diffs.createListDiffEntry(start + n, true,
+						newElements[start + n]));
+			}
+		} else if (newCount == 0) {
+			for (int o = oldEnd; o > start;) {
+				o--;
+				entries.add(Diffs.createListDiffEntry(o, false, oldElements[o]));
+			}
+		} else {
+			computeDifferences(oldElements, newElements, start, oldCount,
+					newCount, entries);
+		}
+		return (ListDiffEntry[]) entries.toArray(new ListDiffEntry[entries
+				.size()]);
+	}
+
+	private static void computeDifferences(Object[] oldElements,
+			Object[] newElements, int start, int oldCount, int newCount,
+			List entries) {
+		// Match new elements to old elements, occurrence by occurrence
+		Map index = new HashMap();
+		for (int o = 0; o < oldCount; o++) {
+			Object element = oldElements[start + o];
+			Occurrences occurrences = (Occurrences) index.get(element);
+			if (occurrences == null) {
+				occurrences = new Occurrences();
+				index.put(element, occurrences);
+			}
+			occurrences.add(o);
+		}
+		int[] oldMatch = new int[oldCount];
+		for (int o = 0; o < oldCount; o++) {
+			oldMatch[o] = -1;
+		}
+		int[] newMatch = new int[newCount];
+		for (int n = 0; n < newCount; n++) {
+			Occurrences occurrences = (Occurrences) index
+					.get(newElements[start + n]);
+			if (occurrences != null && occurrences.next < occurrences.size) {
+				int o = occurrences.positions[occurrences.next++];
+				newMatch[n] = o;
+				oldMatch[o] = n;
+			} else {
+				newMatch[n] = -1;
+			}
+		}
+		index = null;
+
+		int[] anchors = computeAnchors(newMatch);
+
+		// Rank all elements in a single ordering which is consistent with
+		// both the old and the new list: per gap between two anchors, the new
+		// elements of the gap come first, then its old elements, then the
+		// anchor itself.
+		int[] oldRank = new int[oldCount];
+		int[] newRank = new int[newCount];
+		int rank = 0;
+		for (int gap = 0; gap <= anchors.length; gap++) {
+			int newFrom = gap == 0 ? 0 : anchors[gap - 1] + 1;
+			int newTo = gap == anchors.length ? newCount : anchors[gap];
+			int oldFrom = gap == 0 ? 0 : newMatch[anchors[gap - 1]] + 1;
+			int oldTo = gap == anchors.length ? oldCount
+					: newMatch[anchors[gap]];
+			for (int n = newFrom; n < newTo; n++) {
+				newRank[n] = rank++;
+			}
+			for (int o = oldFrom; o < oldTo; o++) {
+				oldRank[o] = rank++;
+			}
+			if (gap < anchors.length) {
+				newRank[newTo] = oldRank[oldTo] = rank++;
+			}
+		}
+
+		PresenceTree present = new PresenceTree(rank);
+		for (int o = 0; o < oldCount; o++) {
+			present.update(oldRank[o], 1);
+		}
+
+		for (int gap = 0; gap <= anchors.length; gap++) {
+			int newFrom = gap == 0 ? 0 : anchors[gap - 1] + 1;
+			int newTo = gap == anchors.length ? newCount : anchors[gap];
+			int oldFrom = gap == 0 ? 0 : newMatch[anchors[gap - 1]] + 1;
+			int oldTo = gap == anchors.length ? oldCount
+					: newMatch[anchors[gap]];
+
+			int removal = oldFrom;
+			for (int n = newFrom; n < newTo; n++) {
+				Object element = newElements[start + n];
+				int source = newMatch[n];
+				if (source == -1) {
+					while (removal < oldTo && oldMatch[removal] != -1) {
+						removal++;
+					}
+					int addPosition = start + present.countBefore(newRank[n]);
+					if (removal < oldTo
+							&& start + present.countBefore(oldRank[removal]) == addPosition) {
+						// remove and add at the same position: a replace
+						entries.add(Diffs.createListDiffEntry(addPosition,
+								false, oldElements[start + removal]));
+						present.update(oldRank[removal], -1);
+						removal++;
+					}
+					entries.add(Diffs.createListDiffEntry(addPosition, true,
+							element));
+				} else {
+					int removePosition = start
+							+ present.countBefore(oldRank[source]);
+					present.update(oldRank[source], -1);
+					int addPosition = start + present.countBefore(newRank[n]);
+					if (removePosition != addPosition) {
+						entries.add(Diffs.createListDiffEntry(removePosition,
+								false, oldElements[start + source]));
+						entries.add(Diffs.createListDiffEntry(addPosition,
+								true, element));
+					}
+				}
+				present.update(newRank[n], 1);
+			}
+
+			for (int o = removal; o < oldTo; o++) {
+				if (oldMatch[o] == -1) {
+					entries.add(Diffs.createListDiffEntry(start
+							+ present.countBefore(oldRank[o]), false,
+							oldElements[start + o]));
+					present.update(oldRank[o], -1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the new positions of the matched elements which form the
+	 * longest increasing subsequence of old positions, in ascending order.
+	 */
+	private static int[] computeAnchors(int[] newMatch) {
+		int[] tails = new int[newMatch.length];
+		int[] previous = new int[newMatch.length];
+		int length = 0;
+		for (int n = 0; n < newMatch.length; n++) {
+			int o = newMatch[n];
+			if (o == -1) {
+				continue;
+			}
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (newMatch[tails[mid]] < o) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			previous[n] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = n;
+			if (low == length) {
+				length++;
+			}
+		}
+
+		int[] anchors = new int[length];
+		for (int i = length - 1, n = length > 0 ? tails[length - 1] : -1; i >= 0; i--) {
+			anchors[i] = n;
+			n = previous[n];
+		}
+		return anchors;
+	}
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.e4.emf.internal.xpath;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.jxpath.CompiledExpression;
+import org.apache.commons.jxpath.JXPathContext;
+import org.eclipse.e4.emf.xpath.CompiledXPath;
+
+/**
+ * An xpath compiled for JXPath and, if it is a path that can be evaluated
+ * directly on EObjects, for an {@link EObjectPath}. The compiled xpaths are
+ * kept in a least recently used cache.
+ */
+final class CompiledXPathImpl implements CompiledXPath {
+
+	/**
+	 * The maximum number of compiled xpaths cached.
+	 */
+	private static final int CACHE_SIZE = 256;
+
+	private static final Map<String, CompiledXPathImpl> CACHE = new LinkedHashMap<String, CompiledXPathImpl>(
+			CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CompiledXPathImpl> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private final String xpath;
+
+	private final CompiledExpression expression;
+
+	private final EObjectPath path;
+
+	private CompiledXPathImpl(String xpath) {
+		this.xpath = xpath;
+		this.expression = JXPathContext.compile(xpath);
+		this.path = EObjectPath.parse(xpath);
+	}
+
+	/**
+	 * Returns the compiled xpath, compiling it only if it is not cached.
+	 *
+	 * @param xpath
+	 *            the xpath
+	 * @return the compiled xpath
+	 */
+	static CompiledXPathImpl compile(String xpath) {
+		CompiledXPathImpl compiled;
+		synchronized (CACHE) {
+			compiled = CACHE.get(xpath);
+		}
+		if (compiled == null) {
+			compiled = new CompiledXPathImpl(xpath);
+			synchronized (CACHE) {
+				CACHE.put(xpath, compiled);
+			}
+		}
+		return compiled;
+	}
+
+	public String getXPath() {
+		return xpath;
+	}
+
+	/**
+	 * @return the expression evaluated by JXPath
+	 */
+	CompiledExpression getExpression() {
+		return expression;
+	}
+
+	/**
+	 * @return the path evaluated on EObjects, or <code>null</code>
+	 */
+	EObjectPath getPath() {
+		return path;
+	}
+
+	@Override
+	public String toString() {
+		return xpath;
+	}
+}
@@ -0,0 +1,348 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.e4.emf.internal.xpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+/**
+ * A location path evaluated directly on EObjects, without the JXPath pointer
+ * machinery. Only paths made of child and attribute steps with attribute and
+ * position predicates are supported, see
+ * {@link org.eclipse.e4.emf.xpath.XPathContext#compile(String)}.
+ * <p>
+ * The results are the ones of JXPath: the nodes selected from several
+ * context nodes are not merged, a single-valued attribute is selected even if
+ * its value is <code>null</code>, and the first value of a path ending with a
+ * step without predicates is the value of the feature, the list itself for a
+ * many-valued feature. Whenever the model leads JXPath to behave otherwise,
+ * for example when a predicate tests an attribute the node does not have, the
+ * evaluation gives up and the path must be evaluated by JXPath.
+ * </p>
+ */
+final class EObjectPath {
+
+	private static final int SELF = 0;
+	private static final int CHILD = 1;
+	private static final int ATTRIBUTE = 2;
+
+	private static final class Predicate {
+		/** The attribute name, <code>null</code> for a position predicate */
+		final String feature;
+		final String value;
+		final int position;
+
+		Predicate(String feature, String value, int position) {
+			this.feature = feature;
+			this.value = value;
+			this.position = position;
+		}
+	}
+
+	private static final class Step {
+		final int kind;
+		final String name;
+		final Predicate[] predicates;
+
+		Step(int kind, String name, Predicate[] predicates) {
+			this.kind = kind;
+			this.name = name;
+			this.predicates = predicates;
+		}
+	}
+
+	private final Step[] steps;
+
+	private EObjectPath(Step[] steps) {
+		this.steps = steps;
+	}
+
+	/**
+	 * Evaluates the path from the given context bean. Absolute and relative
+	 * paths are evaluated alike, the context bean is the root of the context.
+	 *
+	 * @param contextBean
+	 *            the context bean
+	 * @return the values found, or <code>null</code> if the path must be
+	 *         evaluated by JXPath
+	 */
+	List<Object> evaluate(Object contextBean) {
+		return evaluate(contextBean, steps.length);
+	}
+
+	/**
+	 * Evaluates the first value of the path from the given context bean.
+	 *
+	 * @param contextBean
+	 *            the context bean
+	 * @return an empty list if there is no value, a list of the value
+	 *         otherwise, or <code>null</code> if the path must be evaluated by
+	 *         JXPath
+	 */
+	List<Object> evaluateFirst(Object contextBean) {
+		Step last = steps.length == 0 ? null : steps[steps.length - 1];
+		if (last == null || last.kind == SELF || last.predicates.length > 0) {
+			List<Object> nodes = evaluate(contextBean);
+			return nodes == null || nodes.size() <= 1 ? nodes : nodes.subList(0, 1);
+		}
+		List<Object> nodes = evaluate(contextBean, steps.length - 1);
+		if (nodes == null) {
+			return null;
+		}
+		for (Object node : nodes) {
+			if (node == null) {
+				continue;
+			}
+			if (!(node instanceof EObject)) {
+				return null;
+			}
+			EObject object = (EObject) node;
+			EStructuralFeature feature = object.eClass().getEStructuralFeature(last.name);
+			if (feature != null) {
+				return Collections.singletonList(object.eGet(feature));
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	private List<Object> evaluate(Object contextBean, int stepCount) {
+		if (!(contextBean instanceof EObject)) {
+			return null;
+		}
+		List<Object> nodes = Collections.singletonList(contextBean);
+		for (int i = 0; i < stepCount && nodes != null; i++) {
+			nodes = select(steps[i], nodes);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Selects the nodes of a step from each context node, returns
+	 * <code>null</code> if the step must be evaluated by JXPath.
+	 */
+	private static List<Object> select(Step step, List<Object> nodes) {
+		List<Object> result = new ArrayList<Object>();
+		for (Object node : nodes) {
+			if (node == null && step.kind != SELF) {
+				// a null value has no features
+				continue;
+			}
+			if (!(node instanceof EObject)) {
+				return null;
+			}
+			EObject object = (EObject) node;
+			List<Object> selected;
+			if (step.kind == SELF) {
+				selected = new ArrayList<Object>(1);
+				selected.add(object);
+			} else {
+				EStructuralFeature feature = object.eClass().getEStructuralFeature(step.name);
+				if (feature == null) {
+					continue;
+				}
+				Object value = object.eGet(feature);
+				if (feature.isMany()) {
+					selected = new ArrayList<Object>((List<?>) value);
+				} else if (step.predicates.length > 0) {
+					return null;
+				} else {
+					// JXPath selects null attributes but not null references
+					if (value != null || feature instanceof EAttribute) {
+						result.add(value);
+					}
+					continue;
+				}
+			}
+			if (!filter(step.predicates, selected)) {
+				return null;
+			}
+			result.addAll(selected);
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the nodes not matching the predicates, returns
+	 * <code>false</code> if they must be evaluated by JXPath.
+	 */
+	private static boolean filter(Predicate[] predicates, List<Object> selected) {
+		for (Predicate predicate : predicates) {
+			if (predicate.feature == null) {
+				Object value = predicate.position <= selected.size() ? selected
+						.get(predicate.position - 1) : null;
+				selected.clear();
+				if (value != null) {
+					selected.add(value);
+				}
+				continue;
+			}
+			for (int i = selected.size() - 1; i >= 0; i--) {
+				Object node = selected.get(i);
+				if (!(node instanceof EObject)) {
+					return false;
+				}
+				EObject object = (EObject) node;
+				EStructuralFeature feature = object.eClass().getEStructuralFeature(
+						predicate.feature);
+				if (!(feature instanceof EAttribute) || feature.isMany()) {
+					return false;
+				}
+				Object value = object.eGet(feature);
+				if (value != null && !(value instanceof String)) {
+					return false;
+				}
+				// the string value of null is the empty string
+				if (!predicate.value.equals(value == null ? "" : value)) { //$NON-NLS-1$
+					selected.remove(i);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parses the xpath.
+	 *
+	 * @param xpath
+	 *            the xpath
+	 * @return the path, or <code>null</code> if the xpath is not a path that
+	 *         can be evaluated directly
+	 */
+	static EObjectPath parse(String xpath) {
+		List<Step> steps = new ArrayList<Step>();
+		int length = xpath.length();
+		int pos = 0;
+		if (xpath.startsWith("/")) { //$NON-NLS-1$
+			if (length == 1) {
+				return new EObjectPath(new Step[0]);
+			}
+			pos = 1;
+		}
+		while (true) {
+			if (pos >= length) {
+				return null;
+			}
+			int kind;
+			String name = null;
+			char c = xpath.charAt(pos);
+			if (c == '.') {
+				if (pos + 1 < length && xpath.charAt(pos + 1) == '.') {
+					return null;
+				}
+				kind = SELF;
+				pos++;
+			} else {
+				kind = CHILD;
+				if (c == '@') {
+					kind = ATTRIBUTE;
+					pos++;
+				}
+				int end = scanName(xpath, pos);
+				if (end == pos) {
+					return null;
+				}
+				name = xpath.substring(pos, end);
+				pos = end;
+			}
+
+			List<Predicate> predicates = new ArrayList<Predicate>(1);
+			while (pos < length && xpath.charAt(pos) == '[') {
+				int end = xpath.indexOf(']', pos);
+				if (end == -1) {
+					return null;
+				}
+				Predicate predicate = parsePredicate(xpath.substring(pos + 1, end));
+				if (predicate == null) {
+					return null;
+				}
+				predicates.add(predicate);
+				pos = end + 1;
+			}
+			if (kind == ATTRIBUTE && !predicates.isEmpty()) {
+				return null;
+			}
+			steps.add(new Step(kind, name, predicates
+					.toArray(new Predicate[predicates.size()])));
+
+			if (pos == length) {
+				return new EObjectPath(steps.toArray(new Step[steps.size()]));
+			}
+			// the descendant axis follows references in JXPath
+			if (kind == ATTRIBUTE || xpath.charAt(pos) != '/'
+					|| xpath.startsWith("//", pos)) { //$NON-NLS-1$
+				return null;
+			}
+			pos++;
+		}
+	}
+
+	/**
+	 * Parses <code>@name='value'</code>, <code>@name="value"</code> or a
+	 * position.
+	 */
+	private static Predicate parsePredicate(String predicate) {
+		int length = predicate.length();
+		if (length == 0) {
+			return null;
+		}
+		if (predicate.charAt(0) != '@') {
+			int position = 0;
+			for (int i = 0; i < length; i++) {
+				char c = predicate.charAt(i);
+				if (c < '0' || c > '9' || position > 100000) {
+					return null;
+				}
+				position = position * 10 + (c - '0');
+			}
+			return position == 0 ? null : new Predicate(null, null, position);
+		}
+		int end = scanName(predicate, 1);
+		if (end == 1 || end + 3 > length || predicate.charAt(end) != '=') {
+			return null;
+		}
+		char quote = predicate.charAt(end + 1);
+		if ((quote != '\'' && quote != '"') || predicate.charAt(length - 1) != quote
+				|| predicate.indexOf(quote, end + 2) != length - 1) {
+			return null;
+		}
+		return new Predicate(predicate.substring(1, end), predicate.substring(end + 2,
+				length - 1), 0);
+	}
+
+	/**
+	 * Returns the end of the name starting at the given position, which is the
+	 * position itself if there is no name.
+	 */
+	private static int scanName(String xpath, int pos) {
+		int length = xpath.length();
+		if (pos >= length) {
+			return pos;
+		}
+		char c = xpath.charAt(pos);
+		if (!Character.isLetter(c) && c != '_') {
+			return pos;
+		}
+		int end = pos + 1;
+		while (end < length) {
+			c = xpath.charAt(end);
+			if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.') {
+				break;
+			}
+			end++;
+		}
+		return end;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 BestSolution.at and others.
+ * Copyright (c) 2010, 2013 BestSolution.at and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,13 +11,17 @@
 package org.eclipse.e4.emf.internal.xpath;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.jxpath.ClassFunctions;
 import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathNotFoundException;
 import org.apache.commons.jxpath.NodeSet;
 import org.apache.commons.jxpath.Pointer;
+import org.apache.commons.jxpath.util.TypeUtils;
+import org.eclipse.e4.emf.xpath.CompiledXPath;
 import org.eclipse.e4.emf.xpath.XPathContext;
 import org.eclipse.emf.ecore.EObject;
 
@@ -28,6 +32,8 @@ public final class JXPathContextImpl implements XPathContext {
 
 	private JXPathContext context;
 
+	private final Object contextBean;
+
 	public static class EMFFunctions {
 		public static String eClassName(Object o) {
 			if( o instanceof Collection<?> ) {
@@ -59,6 +65,7 @@ public final class JXPathContextImpl implements XPathContext {
 	 */
 	JXPathContextImpl(Object contextBean) {
 		this.context = JXPathContext.newContext(contextBean);
+		this.contextBean = contextBean;
 		this.context.setFunctions(new ClassFunctions(EMFFunctions.class, "ecore"));
 	}
 
@@ -73,19 +80,77 @@ public final class JXPathContextImpl implements XPathContext {
 	JXPathContextImpl(XPathContext parentContext, Object contextBean) {
 		JXPathContext jContext = ((JXPathContextImpl) parentContext).getJXPathContext();
 		this.context = JXPathContext.newContext(jContext, contextBean);
+		this.contextBean = contextBean;
 	}
 
 	public Object getValue(String xpath) {
-		return context.getValue(xpath);
+		return CompiledXPathImpl.compile(xpath).getExpression().getValue(context);
 	}
 
 	public Object getValue(String xpath, Class<?> requiredType) {
-		return context.getValue(xpath, requiredType);
+		return CompiledXPathImpl.compile(xpath).getExpression().getValue(context, requiredType);
 	}
 
 	@SuppressWarnings("unchecked")
 	public <Type> Iterator<Type> iterate(String xpath) {
-		return context.iterate(xpath);
+		return CompiledXPathImpl.compile(xpath).getExpression().iterate(context);
+	}
+
+	public CompiledXPath compile(String xpath) {
+		return CompiledXPathImpl.compile(xpath);
+	}
+
+	public Object getValue(CompiledXPath xpath) {
+		CompiledXPathImpl compiled = (CompiledXPathImpl) xpath;
+		List<Object> values = evaluateFirst(compiled);
+		if (values == null) {
+			return compiled.getExpression().getValue(context);
+		}
+		return getFirstValue(compiled, values);
+	}
+
+	public Object getValue(CompiledXPath xpath, Class<?> requiredType) {
+		CompiledXPathImpl compiled = (CompiledXPathImpl) xpath;
+		List<Object> values = evaluateFirst(compiled);
+		if (values == null) {
+			return compiled.getExpression().getValue(context, requiredType);
+		}
+		return TypeUtils.convert(getFirstValue(compiled, values), requiredType);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <Type> Iterator<Type> iterate(CompiledXPath xpath) {
+		CompiledXPathImpl compiled = (CompiledXPathImpl) xpath;
+		List<Object> values = evaluate(compiled);
+		if (values == null) {
+			return compiled.getExpression().iterate(context);
+		}
+		return (Iterator<Type>) Collections.unmodifiableList(values).iterator();
+	}
+
+	private static Object getFirstValue(CompiledXPathImpl compiled, List<Object> values) {
+		if (values.isEmpty()) {
+			throw new JXPathNotFoundException("No value for xpath: " + compiled.getXPath()); //$NON-NLS-1$
+		}
+		return values.get(0);
+	}
+
+	/**
+	 * Evaluates the xpath directly on the model, returns <code>null</code> if it
+	 * must be evaluated by JXPath.
+	 */
+	private List<Object> evaluate(CompiledXPathImpl compiled) {
+		EObjectPath path = compiled.getPath();
+		return path == null ? null : path.evaluate(contextBean);
+	}
+
+	/**
+	 * Evaluates the first value of the xpath directly on the model, returns
+	 * <code>null</code> if it must be evaluated by JXPath.
+	 */
+	private List<Object> evaluateFirst(CompiledXPathImpl compiled) {
+		EObjectPath path = compiled.getPath();
+		return path == null ? null : path.evaluateFirst(contextBean);
 	}
 
 	private JXPathContext getJXPathContext() {
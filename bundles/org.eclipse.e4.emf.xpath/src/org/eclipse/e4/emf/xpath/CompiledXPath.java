@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.e4.emf.xpath;
+
+/**
+ * An xpath compiled by {@link XPathContext#compile(String)}. A compiled xpath
+ * is immutable and can be evaluated in any context, from any thread.
+ *
+ * @since 0.2
+ * @noimplement This interface is not intended to be implemented by clients.
+ */
+public interface CompiledXPath {
+
+	/**
+	 * @return the xpath this expression was compiled from
+	 */
+	String getXPath();
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 BestSolution.at and others.
+ * Copyright (c) 2010, 2013 BestSolution.at and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,7 +15,7 @@ import java.util.Iterator;
 /**
  * Context in which the xpath is executed
  * 
- * @since 1.0
+ * @since 0.1
  */
 public interface XPathContext {
 
@@ -54,4 +54,75 @@ public interface XPathContext {
 	 * @return Iterator<Object>
 	 */
 	<O> Iterator<O> iterate(String xpath);
+
+	/**
+	 * Compiles the xpath, so that it is parsed only once when it is evaluated
+	 * repeatedly. The compiled expressions are cached, compiling the same
+	 * xpath again is cheap.
+	 * <p>
+	 * Paths made of child and attribute steps over
+	 * {@link org.eclipse.emf.ecore.EObject}s are evaluated directly on the
+	 * model, with the same results as JXPath, for example
+	 * <code>children[@elementId='id']/children[1]/@label</code>. Such a path
+	 * may only use:
+	 * </p>
+	 * <ul>
+	 * <li><code>name</code> and <code>@name</code>: the values of the
+	 * structural feature with that name</li>
+	 * <li><code>.</code>: the node itself</li>
+	 * <li><code>[@name='value']</code>: the nodes having a string attribute
+	 * with that value</li>
+	 * <li><code>[n]</code>: the n-th node selected from each context node</li>
+	 * </ul>
+	 * <p>
+	 * Other xpaths, and paths evaluated in contexts whose bean is not an
+	 * {@link org.eclipse.emf.ecore.EObject}, are evaluated by JXPath like the
+	 * xpaths passed as strings.
+	 * </p>
+	 * 
+	 * @param xpath
+	 *            to compile
+	 * @return the compiled xpath
+	 * @since 0.2
+	 */
+	CompiledXPath compile(String xpath);
+
+	/**
+	 * Evaluates the compiled xpath and returns the first object found.
+	 * Primitive types are wrapped into objects.
+	 * 
+	 * @param xpath
+	 *            to evaluate
+	 * @return Object found
+	 * @since 0.2
+	 */
+	Object getValue(CompiledXPath xpath);
+
+	/**
+	 * Evaluates the compiled xpath, converts the first object found to the
+	 * specified class and returns it.
+	 * 
+	 * @param xpath
+	 *            to evaluate
+	 * @param requiredType
+	 *            required type
+	 * @return Object found
+	 * @since 0.2
+	 */
+	Object getValue(CompiledXPath xpath, Class<?> requiredType);
+
+	/**
+	 * Evaluates the compiled xpath and returns an Iterator of all results
+	 * found. If the xpath matches nothing the Iterator will be empty, but not
+	 * null.
+	 * 
+	 * @param <O>
+	 *            the expected object type
+	 * 
+	 * @param xpath
+	 *            to iterate
+	 * @return Iterator<Object>
+	 * @since 0.2
+	 */
+	<O> Iterator<O> iterate(CompiledXPath xpath);
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2010 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -48,6 +48,8 @@ public class BindingServiceImpl implements EBindingService {
 
 	private ContextSet contextSet = ContextSet.EMPTY;
 
+	private KeyStrokeTable keyStrokeTable;
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -229,7 +231,22 @@ public class BindingServiceImpl implements EBindingService {
 		for (String id : set) {
 			contexts.add(contextManager.getContext(id));
 		}
-		contextSet = manager.createContextSet(contexts);
+		ContextSet newContextSet = manager.createContextSet(contexts);
+		if (!newContextSet.equals(contextSet)) {
+			// keep the same set so that its compiled key stroke table stays valid
+			contextSet = newContextSet;
+		}
+	}
+
+	/**
+	 * Returns the lookup of the first key strokes of the active bindings. The table is compiled
+	 * when first asked for after the active contexts or bindings change.
+	 * 
+	 * @return the key stroke table of the active contexts
+	 */
+	public KeyStrokeTable getKeyStrokeTable() {
+		keyStrokeTable = manager.getKeyStrokeTable(contextSet, keyStrokeTable);
+		return keyStrokeTable;
 	}
 
 	public Collection<Binding> getActiveBindings() {
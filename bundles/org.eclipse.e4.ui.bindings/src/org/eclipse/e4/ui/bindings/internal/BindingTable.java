@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -128,6 +128,7 @@ public class BindingTable {
 	private Map<TriggerSequence, ArrayList<Binding>> bindingsByPrefix = new HashMap<TriggerSequence, ArrayList<Binding>>();
 	private Map<TriggerSequence, ArrayList<Binding>> conflicts = new HashMap<TriggerSequence, ArrayList<Binding>>();
 	private Map<TriggerSequence, ArrayList<Binding>> orderedBindingsByTrigger = new HashMap<TriggerSequence, ArrayList<Binding>>();
+	private int revision = 0;
 
 	/**
 	 * @param context
@@ -165,6 +166,7 @@ public class BindingTable {
 			throw new IllegalArgumentException("Binding context " + binding.getContextId() //$NON-NLS-1$
 					+ " does not match " + getId()); //$NON-NLS-1$
 		}
+		revision++;
 		ArrayList<Binding> bindingList = orderedBindingsByTrigger.get(binding.getTriggerSequence());
 		Binding possibleConflict = bindingsByTrigger.get(binding.getTriggerSequence());
 		if (bindingList == null || bindingList.isEmpty()) {
@@ -236,6 +238,7 @@ public class BindingTable {
 			throw new IllegalArgumentException("Binding context " + binding.getContextId() //$NON-NLS-1$
 					+ " does not match " + getId()); //$NON-NLS-1$
 		}
+		revision++;
 		ArrayList<Binding> bindingList = orderedBindingsByTrigger.get(binding.getTriggerSequence());
 		Binding possibleConflict = bindingsByTrigger.get(binding.getTriggerSequence());
 		if (possibleConflict == binding) {
@@ -313,6 +316,13 @@ public class BindingTable {
 		}
 	}
 
+	/**
+	 * @return a number that changes whenever a binding is added or removed
+	 */
+	public int getRevision() {
+		return revision;
+	}
+
 	public Binding getPerfectMatch(TriggerSequence trigger) {
 		return bindingsByTrigger.get(trigger);
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,14 +14,19 @@ package org.eclipse.e4.ui.bindings.internal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Set;
 import javax.inject.Inject;
 import org.eclipse.core.commands.ParameterizedCommand;
 import org.eclipse.core.commands.contexts.Context;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.jface.bindings.Binding;
 import org.eclipse.jface.bindings.TriggerSequence;
+import org.eclipse.jface.bindings.keys.KeySequence;
+import org.eclipse.jface.bindings.keys.KeyStroke;
+import org.eclipse.jface.bindings.keys.SWTKeySupport;
 
 /**
  * manage tables of bindings that can be used to look up commands from keys.
@@ -36,6 +41,12 @@ public class BindingTableManager {
 
 	private String[] activeSchemeIds;
 
+	/**
+	 * Incremented whenever a table is added or removed or the active schemes change, to tell
+	 * whether a compiled key stroke table is out of date.
+	 */
+	private int revision = 0;
+
 	public void addTable(BindingTable table) {
 		String contextId = getTableId(table.getId());
 		if (eclipseContext.containsKey(contextId)) {
@@ -43,6 +54,7 @@ public class BindingTableManager {
 			//			throw new IllegalArgumentException("Already contains table " + contextId); //$NON-NLS-1$
 		}
 		eclipseContext.set(contextId, table);
+		revision++;
 		final List<Context> contexts = definedTables.getContexts();
 		if (!contexts.contains(table.getTableId())) {
 			// this is only valid because I'm throwing away the old definedTables contextSet
@@ -61,6 +73,7 @@ public class BindingTableManager {
 			throw new IllegalArgumentException("Does not contains table " + contextId); //$NON-NLS-1$
 		}
 		eclipseContext.remove(contextId);
+		revision++;
 		final List<Context> contexts = definedTables.getContexts();
 		if (contexts.contains(table.getTableId())) {
 			// this is only valid because I'm throwing away the old definedTables contextSet
@@ -234,11 +247,60 @@ public class BindingTableManager {
 		return bindings;
 	}
 
+	/**
+	 * Returns the key stroke table of the given context set, compiling it again only if the
+	 * context set or its bindings changed since the current table was compiled.
+	 * 
+	 * @param contextSet
+	 *            the active contexts
+	 * @param current
+	 *            the table last returned for the context set, or <code>null</code>
+	 * @return the key stroke table of the context set, never <code>null</code>
+	 */
+	public KeyStrokeTable getKeyStrokeTable(ContextSet contextSet, KeyStrokeTable current) {
+		if (current != null && current.isCurrent(contextSet, revision)) {
+			return current;
+		}
+		ArrayList<BindingTable> tables = new ArrayList<BindingTable>();
+		Set<KeySequence> firstStrokes = new HashSet<KeySequence>();
+		for (Context ctx : contextSet.getContexts()) {
+			BindingTable table = getTable(ctx.getId());
+			if (table != null) {
+				tables.add(table);
+				addFirstStrokes(table.getBindings(), firstStrokes);
+				addFirstStrokes(table.getConflicts(), firstStrokes);
+			}
+		}
+		KeyStrokeTable keyStrokeTable = new KeyStrokeTable(contextSet, revision,
+				tables.toArray(new BindingTable[tables.size()]), firstStrokes.size());
+		for (KeySequence sequence : firstStrokes) {
+			int accelerator = SWTKeySupport
+					.convertKeyStrokeToAccelerator(sequence.getKeyStrokes()[0]);
+			Collection<Binding> conflicts = getConflictsFor(contextSet, sequence);
+			keyStrokeTable.put(accelerator, getPerfectMatch(contextSet, sequence),
+					isPartialMatch(contextSet, sequence), conflicts != null);
+		}
+		return keyStrokeTable;
+	}
+
+	private void addFirstStrokes(Collection<Binding> bindings, Set<KeySequence> firstStrokes) {
+		for (Binding binding : bindings) {
+			TriggerSequence sequence = binding.getTriggerSequence();
+			if (sequence instanceof KeySequence) {
+				KeyStroke[] strokes = ((KeySequence) sequence).getKeyStrokes();
+				if (strokes.length > 0) {
+					firstStrokes.add(KeySequence.getInstance(strokes[0]));
+				}
+			}
+		}
+	}
+
 	/**
 	 * @param activeSchemeIds
 	 */
 	public void setActiveSchemes(String[] activeSchemeIds) {
 		this.activeSchemeIds = activeSchemeIds;
+		revision++;
 		BindingTable.BEST_SEQUENCE.setActiveSchemes(activeSchemeIds);
 	}
 
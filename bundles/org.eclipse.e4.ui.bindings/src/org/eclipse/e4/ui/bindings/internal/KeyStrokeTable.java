@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.bindings.internal;
+
+import org.eclipse.jface.bindings.Binding;
+
+/**
+ * An immutable lookup of the first key strokes of the bindings active in a context set, keyed by
+ * their SWT accelerator. It answers whether a single key stroke is bound without creating any key
+ * strokes or sequences, so that the key strokes typed in an editor that are not bound can be
+ * dispatched without any allocation.
+ * <p>
+ * The table is compiled by {@link BindingTableManager#getKeyStrokeTable(ContextSet, KeyStrokeTable)}
+ * and is replaced whenever the context set, the active schemes or the bindings of one of its
+ * tables change.
+ * </p>
+ */
+public final class KeyStrokeTable {
+
+	private static final byte PARTIAL_MATCH = 1;
+
+	private static final byte CONFLICT = 2;
+
+	private final ContextSet contextSet;
+
+	private final int managerRevision;
+
+	private final BindingTable[] tables;
+
+	private final int[] tableRevisions;
+
+	/**
+	 * Open addressing hash table of the accelerators, <code>0</code> marks a free slot.
+	 */
+	private final int[] accelerators;
+
+	private final Binding[] perfectMatches;
+
+	private final byte[] flags;
+
+	private final int mask;
+
+	KeyStrokeTable(ContextSet contextSet, int managerRevision, BindingTable[] tables,
+			int acceleratorCount) {
+		this.contextSet = contextSet;
+		this.managerRevision = managerRevision;
+		this.tables = tables;
+		tableRevisions = new int[tables.length];
+		for (int i = 0; i < tables.length; i++) {
+			tableRevisions[i] = tables[i].getRevision();
+		}
+		int capacity = 8;
+		while (capacity < acceleratorCount * 2) {
+			capacity <<= 1;
+		}
+		accelerators = new int[capacity];
+		perfectMatches = new Binding[capacity];
+		flags = new byte[capacity];
+		mask = capacity - 1;
+	}
+
+	void put(int accelerator, Binding perfectMatch, boolean partialMatch, boolean conflict) {
+		int index = indexOf(accelerator);
+		accelerators[index] = accelerator;
+		perfectMatches[index] = perfectMatch;
+		flags[index] = (byte) ((partialMatch ? PARTIAL_MATCH : 0) | (conflict ? CONFLICT : 0));
+	}
+
+	/**
+	 * Returns whether this table still reflects the bindings of the given context set.
+	 */
+	boolean isCurrent(ContextSet set, int revision) {
+		if (set != contextSet || revision != managerRevision) {
+			return false;
+		}
+		for (int i = 0; i < tables.length; i++) {
+			if (tables[i].getRevision() != tableRevisions[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int indexOf(int accelerator) {
+		int index = (accelerator * 0x9E3779B9 >>> 16) & mask;
+		while (accelerators[index] != 0 && accelerators[index] != accelerator) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	/**
+	 * @param accelerator
+	 *            the SWT accelerator of a key stroke
+	 * @return whether any active binding starts with the key stroke
+	 */
+	public boolean isBound(int accelerator) {
+		return accelerator != 0 && accelerators[indexOf(accelerator)] == accelerator;
+	}
+
+	/**
+	 * @param accelerator
+	 *            the SWT accelerator of a key stroke
+	 * @return the binding the key stroke alone is a perfect match for, or <code>null</code>
+	 */
+	public Binding getPerfectMatch(int accelerator) {
+		return accelerator == 0 ? null : perfectMatches[indexOf(accelerator)];
+	}
+
+	/**
+	 * @param accelerator
+	 *            the SWT accelerator of a key stroke
+	 * @return whether the key stroke is the prefix of a longer sequence
+	 */
+	public boolean isPartialMatch(int accelerator) {
+		return accelerator != 0 && (flags[indexOf(accelerator)] & PARTIAL_MATCH) != 0;
+	}
+
+	/**
+	 * @param accelerator
+	 *            the SWT accelerator of a key stroke
+	 * @return whether the key stroke alone is bound to conflicting bindings
+	 */
+	public boolean hasConflicts(int accelerator) {
+		return accelerator != 0 && (flags[indexOf(accelerator)] & CONFLICT) != 0;
+	}
+}
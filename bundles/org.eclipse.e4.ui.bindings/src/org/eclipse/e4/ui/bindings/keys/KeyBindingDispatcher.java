@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2012 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,7 +26,9 @@ import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.core.services.log.Logger;
 import org.eclipse.e4.ui.bindings.EBindingService;
+import org.eclipse.e4.ui.bindings.internal.BindingServiceImpl;
 import org.eclipse.e4.ui.bindings.internal.KeyAssistDialog;
+import org.eclipse.e4.ui.bindings.internal.KeyStrokeTable;
 import org.eclipse.jface.bindings.Binding;
 import org.eclipse.jface.bindings.keys.KeySequence;
 import org.eclipse.jface.bindings.keys.KeyStroke;
@@ -106,6 +108,9 @@ public class KeyBindingDispatcher {
 	/** The collection of keys that are to be processed out-of-order. */
 	static KeySequence outOfOrderKeys;
 
+	/** The accelerators of the out-of-order keys. */
+	private static final int[] outOfOrderAccelerators;
+
 	static {
 
 		try {
@@ -115,6 +120,12 @@ public class KeyBindingDispatcher {
 			// String message = "Could not parse out-of-order keys definition: 'ESC DEL'.  Continuing with no out-of-order keys."; //$NON-NLS-1$
 			// TODO we need to do some logging here
 		}
+		final KeyStroke[] outOfOrderKeyStrokes = outOfOrderKeys.getKeyStrokes();
+		outOfOrderAccelerators = new int[outOfOrderKeyStrokes.length];
+		for (int i = 0; i < outOfOrderKeyStrokes.length; i++) {
+			outOfOrderAccelerators[i] = SWTKeySupport
+					.convertKeyStrokeToAccelerator(outOfOrderKeyStrokes[i]);
+		}
 	}
 
 	/**
@@ -319,6 +330,10 @@ public class KeyBindingDispatcher {
 			return;
 		}
 
+		if (pressFirstKeyStroke(event)) {
+			return;
+		}
+
 		// Allow special key out-of-order processing.
 		List<KeyStroke> keyStrokes = generatePossibleKeyStrokes(event);
 		if (isOutOfOrderKey(keyStrokes)) {
@@ -369,6 +384,87 @@ public class KeyBindingDispatcher {
 		}
 	}
 
+	/**
+	 * Dispatches the first key stroke of a sequence using the compiled key stroke table of the
+	 * binding service, without generating the possible key strokes and sequences. Key strokes that
+	 * are not bound are thus dispatched without any allocation. Out-of-order keys, key strokes
+	 * that start a longer sequence or are in conflict, and key strokes typed while the key assist
+	 * is open take the regular path.
+	 * 
+	 * @param event
+	 *            The event to process; must not be <code>null</code>.
+	 * @return <code>true</code> if the event was dispatched; <code>false</code> if it must take
+	 *         the regular path.
+	 */
+	private boolean pressFirstKeyStroke(Event event) {
+		if (!state.isEmpty() || (keyAssistDialog != null && keyAssistDialog.getShell() != null)) {
+			return false;
+		}
+		final EBindingService service = getBindingService();
+		if (!(service instanceof BindingServiceImpl)) {
+			return false;
+		}
+		if ((event.stateMask == 0) && (event.keyCode == 0) && (event.character == 0)) {
+			// not a keyboard event, there are no key strokes
+			return true;
+		}
+
+		// The same accelerators as generatePossibleKeyStrokes(Event), in the same order.
+		final int firstAccelerator = SWTKeySupport.convertEventToUnmodifiedAccelerator(event);
+		int secondAccelerator = firstAccelerator;
+		int thirdAccelerator = firstAccelerator;
+		if (event.character != SWT.DEL) {
+			secondAccelerator = SWTKeySupport.convertEventToUnshiftedModifiedAccelerator(event);
+			thirdAccelerator = SWTKeySupport.convertEventToModifiedAccelerator(event);
+		}
+		if (isOutOfOrderAccelerator(firstAccelerator)
+				|| isOutOfOrderAccelerator(secondAccelerator)
+				|| isOutOfOrderAccelerator(thirdAccelerator)) {
+			return false;
+		}
+
+		final KeyStrokeTable table = ((BindingServiceImpl) service).getKeyStrokeTable();
+		Binding match = null;
+		for (int i = 0; i < 3 && match == null; i++) {
+			final int accelerator = i == 0 ? firstAccelerator : (i == 1 ? secondAccelerator
+					: thirdAccelerator);
+			if (!table.isBound(accelerator)) {
+				continue;
+			}
+			if (table.isPartialMatch(accelerator)) {
+				return false;
+			}
+			match = table.getPerfectMatch(accelerator);
+			if (match == null && table.hasConflicts(accelerator)) {
+				return false;
+			}
+		}
+
+		boolean eatKey = false;
+		if (match == null) {
+			resetState(true);
+		} else {
+			try {
+				eatKey = executeCommand(match.getParameterizedCommand(), event);
+			} catch (final CommandException e) {
+				eatKey = true;
+			}
+		}
+		if (eatKey) {
+			eatKey(event);
+		}
+		return true;
+	}
+
+	private static boolean isOutOfOrderAccelerator(int accelerator) {
+		for (int i = 0; i < outOfOrderAccelerators.length; i++) {
+			if (outOfOrderAccelerators[i] == accelerator) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private EBindingService getBindingService() {
 		if (bindingService == null) {
 			bindingService = (EBindingService) context.get(EBindingService.class.getName());
@@ -548,18 +644,22 @@ public class KeyBindingDispatcher {
 		}
 
 		if (eatKey) {
-			switch (event.type) {
-			case SWT.KeyDown:
-				event.doit = false;
-				break;
-			case SWT.Traverse:
-				event.detail = SWT.TRAVERSE_NONE;
-				event.doit = true;
-				break;
-			default:
-			}
-			event.type = SWT.NONE;
+			eatKey(event);
+		}
+	}
+
+	private static void eatKey(Event event) {
+		switch (event.type) {
+		case SWT.KeyDown:
+			event.doit = false;
+			break;
+		case SWT.Traverse:
+			event.detail = SWT.TRAVERSE_NONE;
+			event.doit = true;
+			break;
+		default:
 		}
+		event.type = SWT.NONE;
 	}
 
 	private void resetState(boolean clearRememberedState) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008 Angelo Zerr and others.
+ * Copyright (c) 2008, 2013 Angelo Zerr and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,12 +12,22 @@
 
 package org.eclipse.e4.ui.css.core.impl.dom;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.eclipse.e4.ui.css.core.dom.parsers.CSSParser;
 
 /**
  * Abstract CSS Node.
  */
 public class AbstractCSSNode {
+
+	/**
+	 * Incremented whenever a rule list, a style sheet or the declaration of a
+	 * rule is modified. It is shared by all the style sheets as their rules
+	 * may be shared by several of them, such as the rules of an imported
+	 * style sheet.
+	 */
+	private static final AtomicInteger modificationStamp = new AtomicInteger();
 	
 	public AbstractCSSNode() {
 		super();
@@ -28,4 +38,19 @@ public class AbstractCSSNode {
 		return null;
 	}
 
+	/**
+	 * Returns the current modification stamp of the style sheets, used to
+	 * know whether the information derived from them is still valid.
+	 */
+	static int getModificationStamp() {
+		return modificationStamp.get();
+	}
+
+	/**
+	 * Records that a rule list, a style sheet or the declaration of a rule was
+	 * modified.
+	 */
+	static void modified() {
+		modificationStamp.incrementAndGet();
+	}
 }
@@ -0,0 +1,366 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.dom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
+import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSAndConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSIdConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSPseudoClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.ExtendedSelector;
+import org.w3c.css.sac.CombinatorCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.DescendantSelector;
+import org.w3c.css.sac.ElementSelector;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.css.sac.SiblingSelector;
+import org.w3c.dom.Element;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSStyleRule;
+import org.w3c.dom.css.CSSStyleSheet;
+
+/**
+ * Index of the style rules of a {@link CSSStyleSheet}, used by
+ * {@link ViewCSSImpl} to compute styles.
+ * <p>
+ * Every selector is put in a single bucket, keyed by the id, a class or the
+ * element name of its rightmost compound selector, in that order of
+ * preference. Selectors without any of them go to the universal bucket. The
+ * candidates for an element are the selectors of the buckets matching its id,
+ * classes and name, plus the universal ones; they still have to be matched
+ * against the element.
+ * </p>
+ * <p>
+ * When all candidates only depend on the element name, id, classes and
+ * pseudo classes, the computed style is cached per signature of those
+ * values. The cache lives as long as the index, which is rebuilt whenever
+ * the style sheets of the document change.
+ * </p>
+ */
+final class CSSRuleIndex {
+
+	/**
+	 * A selector of a style rule, with its position in the style sheet.
+	 */
+	static final class IndexedSelector {
+
+		final ExtendedSelector selector;
+		final CSSStyleDeclaration style;
+		final int position;
+
+		/**
+		 * Whether matching only depends on the element name, id, classes and
+		 * pseudo classes.
+		 */
+		final boolean cacheable;
+
+		/**
+		 * The pseudo classes referenced by the selector, or <code>null</code>.
+		 */
+		final String[] pseudoClasses;
+
+		IndexedSelector(ExtendedSelector selector, CSSStyleDeclaration style,
+				int position, boolean cacheable, String[] pseudoClasses) {
+			this.selector = selector;
+			this.style = style;
+			this.position = position;
+			this.cacheable = cacheable;
+			this.pseudoClasses = pseudoClasses;
+		}
+	}
+
+	private static final Comparator<IndexedSelector> POSITION_COMPARATOR = new Comparator<IndexedSelector>() {
+		public int compare(IndexedSelector selector1, IndexedSelector selector2) {
+			return selector1.position - selector2.position;
+		}
+	};
+
+	private static final int MAX_CACHED_STYLES = 1000;
+
+	private final Map<String, List<IndexedSelector>> idSelectors = new HashMap<String, List<IndexedSelector>>();
+	private final Map<String, List<IndexedSelector>> classSelectors = new HashMap<String, List<IndexedSelector>>();
+	private final Map<String, List<IndexedSelector>> elementSelectors = new HashMap<String, List<IndexedSelector>>();
+	private final List<IndexedSelector> universalSelectors = new ArrayList<IndexedSelector>();
+
+	private final Map<String, CSSStyleDeclaration> computedStyles = new LinkedHashMap<String, CSSStyleDeclaration>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(
+				Map.Entry<String, CSSStyleDeclaration> eldest) {
+			return size() > MAX_CACHED_STYLES;
+		}
+	};
+
+	private final CSSRuleList ruleList;
+	private final int ruleCount;
+	private final int modificationStamp;
+
+	CSSRuleIndex(CSSStyleSheet styleSheet) {
+		modificationStamp = AbstractCSSNode.getModificationStamp();
+		ruleList = styleSheet.getCssRules();
+		ruleCount = ruleList.getLength();
+		int position = 0;
+		for (int i = 0; i < ruleCount; i++) {
+			CSSRule rule = ruleList.item(i);
+			if (rule.getType() != CSSRule.STYLE_RULE
+					|| !(rule instanceof ExtendedCSSRule)) {
+				continue;
+			}
+			CSSStyleDeclaration style = ((CSSStyleRule) rule).getStyle();
+			SelectorList selectorList = ((ExtendedCSSRule) rule)
+					.getSelectorList();
+			int l = selectorList.getLength();
+			for (int j = 0; j < l; j++) {
+				Selector selector = selectorList.item(j);
+				if (selector instanceof ExtendedSelector) {
+					add((ExtendedSelector) selector, style, position++);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the index still reflects the rules of its style sheet,
+	 * that is whether no style sheet, rule list or rule declaration was
+	 * modified since it was built.
+	 */
+	boolean isValid(CSSStyleSheet styleSheet) {
+		return AbstractCSSNode.getModificationStamp() == modificationStamp
+				&& styleSheet.getCssRules() == ruleList
+				&& ruleList.getLength() == ruleCount;
+	}
+
+	private void add(ExtendedSelector selector, CSSStyleDeclaration style,
+			int position) {
+		Selector subject = selector;
+		boolean cacheable = true;
+		switch (selector.getSelectorType()) {
+		case Selector.SAC_DESCENDANT_SELECTOR:
+		case Selector.SAC_CHILD_SELECTOR:
+			subject = ((DescendantSelector) selector).getSimpleSelector();
+			cacheable = false;
+			break;
+		case Selector.SAC_DIRECT_ADJACENT_SELECTOR:
+			subject = ((SiblingSelector) selector).getSiblingSelector();
+			cacheable = false;
+			break;
+		}
+
+		String elementName = null;
+		String id = null;
+		String className = null;
+		List<String> pseudoClasses = new ArrayList<String>();
+		if (subject instanceof ConditionalSelector) {
+			ConditionalSelector conditionalSelector = (ConditionalSelector) subject;
+			List<Condition> conditions = new ArrayList<Condition>();
+			collectConditions(conditionalSelector.getCondition(), conditions);
+			for (Condition condition : conditions) {
+				if (condition instanceof CSSIdConditionImpl) {
+					id = ((CSSIdConditionImpl) condition).getValue();
+				} else if (condition instanceof CSSClassConditionImpl) {
+					className = ((CSSClassConditionImpl) condition).getValue();
+				} else if (condition instanceof CSSPseudoClassConditionImpl) {
+					pseudoClasses.add(((CSSPseudoClassConditionImpl) condition)
+							.getValue());
+				} else {
+					cacheable = false;
+				}
+			}
+			subject = conditionalSelector.getSimpleSelector();
+		}
+		switch (subject.getSelectorType()) {
+		case Selector.SAC_ELEMENT_NODE_SELECTOR:
+			elementName = ((ElementSelector) subject).getLocalName();
+			break;
+		case Selector.SAC_PSEUDO_ELEMENT_SELECTOR:
+			break;
+		default:
+			cacheable = false;
+		}
+
+		IndexedSelector indexedSelector = new IndexedSelector(selector, style,
+				position, cacheable, pseudoClasses.isEmpty() ? null
+						: pseudoClasses.toArray(new String[pseudoClasses
+								.size()]));
+		if (id != null) {
+			add(idSelectors, id, indexedSelector);
+		} else if (className != null && className.length() > 0) {
+			add(classSelectors, className, indexedSelector);
+		} else if (elementName != null) {
+			add(elementSelectors, elementName, indexedSelector);
+		} else {
+			universalSelectors.add(indexedSelector);
+		}
+	}
+
+	private static void collectConditions(Condition condition,
+			List<Condition> conditions) {
+		if (condition instanceof CSSAndConditionImpl) {
+			CombinatorCondition combinator = (CombinatorCondition) condition;
+			collectConditions(combinator.getFirstCondition(), conditions);
+			collectConditions(combinator.getSecondCondition(), conditions);
+		} else {
+			conditions.add(condition);
+		}
+	}
+
+	private static void add(Map<String, List<IndexedSelector>> bucket,
+			String key, IndexedSelector selector) {
+		List<IndexedSelector> selectors = bucket.get(key);
+		if (selectors == null) {
+			selectors = new ArrayList<IndexedSelector>(2);
+			bucket.put(key, selectors);
+		}
+		selectors.add(selector);
+	}
+
+	/**
+	 * Computes the style of the given element from the rules of the style
+	 * sheet, or returns <code>null</code> if no rule matches.
+	 */
+	CSSStyleDeclaration getComputedStyle(Element elt, String pseudoElt) {
+		String elementName = elt.getPrefix() == null ? elt.getNodeName() : elt
+				.getLocalName();
+		String id;
+		String classes;
+		if (elt instanceof CSSStylableElement) {
+			CSSStylableElement stylableElement = (CSSStylableElement) elt;
+			id = stylableElement.getCSSId();
+			classes = stylableElement.getCSSClass();
+		} else {
+			id = elt.getAttribute("id");
+			classes = elt.getAttribute("class");
+		}
+
+		List<IndexedSelector> candidates = new ArrayList<IndexedSelector>(
+				universalSelectors);
+		addCandidates(elementSelectors, elementName, candidates);
+		addCandidates(idSelectors, id, candidates);
+		if (classes != null) {
+			int length = classes.length();
+			int start = 0;
+			for (int i = 0; i <= length; i++) {
+				if (i == length || Character.isSpaceChar(classes.charAt(i))) {
+					if (i > start) {
+						addCandidates(classSelectors, classes.substring(start,
+								i), candidates);
+					}
+					start = i + 1;
+				}
+			}
+		}
+		if (candidates.isEmpty()) {
+			return null;
+		}
+		Collections.sort(candidates, POSITION_COMPARATOR);
+
+		String signature = getSignature(elt, elementName, id, classes,
+				pseudoElt, candidates);
+		if (signature == null) {
+			return computeStyle(elt, pseudoElt, candidates);
+		}
+		if (computedStyles.containsKey(signature)) {
+			return computedStyles.get(signature);
+		}
+		CSSStyleDeclaration style = computeStyle(elt, pseudoElt, candidates);
+		computedStyles.put(signature, style);
+		return style;
+	}
+
+	private static void addCandidates(
+			Map<String, List<IndexedSelector>> bucket, String key,
+			List<IndexedSelector> candidates) {
+		if (key != null) {
+			List<IndexedSelector> selectors = bucket.get(key);
+			if (selectors != null) {
+				for (IndexedSelector selector : selectors) {
+					// classes may be repeated on an element
+					if (!candidates.contains(selector)) {
+						candidates.add(selector);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the cache key for the style of the given element, or
+	 * <code>null</code> if one of the candidates is not cacheable.
+	 */
+	private static String getSignature(Element elt, String elementName,
+			String id, String classes, String pseudoElt,
+			List<IndexedSelector> candidates) {
+		StringBuilder signature = new StringBuilder();
+		signature.append(elementName).append('\u0000')
+				.append(elt.getNamespaceURI()).append('\u0000').append(id)
+				.append('\u0000').append(classes).append('\u0000')
+				.append(pseudoElt);
+		for (IndexedSelector candidate : candidates) {
+			if (!candidate.cacheable) {
+				return null;
+			}
+			if (candidate.pseudoClasses != null
+					&& elt instanceof CSSStylableElement) {
+				CSSStylableElement stylableElement = (CSSStylableElement) elt;
+				for (String pseudoClass : candidate.pseudoClasses) {
+					signature.append('\u0000').append(pseudoClass).append(
+							stylableElement.isPseudoInstanceOf(pseudoClass) ? '1'
+									: '0').append(
+							stylableElement.isStaticPseudoInstance(pseudoClass) ? '1'
+									: '0');
+				}
+			}
+		}
+		return signature.toString();
+	}
+
+	private static CSSStyleDeclaration computeStyle(Element elt,
+			String pseudoElt, List<IndexedSelector> candidates) {
+		List<StyleWrapper> styleDeclarations = null;
+		StyleWrapper firstStyleDeclaration = null;
+		for (IndexedSelector candidate : candidates) {
+			if (candidate.selector.match(elt, pseudoElt)) {
+				StyleWrapper wrapper = new StyleWrapper(candidate.style,
+						candidate.selector.getSpecificity(), candidate.position);
+				if (firstStyleDeclaration == null) {
+					firstStyleDeclaration = wrapper;
+				} else {
+					if (styleDeclarations == null) {
+						styleDeclarations = new ArrayList<StyleWrapper>();
+						styleDeclarations.add(firstStyleDeclaration);
+					}
+					styleDeclarations.add(wrapper);
+				}
+			}
+		}
+		if (styleDeclarations != null) {
+			return new CSSComputedStyleImpl(styleDeclarations);
+		}
+		if (firstStyleDeclaration != null) {
+			return firstStyleDeclaration.style;
+		}
+		return null;
+	}
+}
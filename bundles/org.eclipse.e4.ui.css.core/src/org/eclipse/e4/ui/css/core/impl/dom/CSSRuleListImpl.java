@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008 Angelo Zerr and others.
+ * Copyright (c) 2008, 2013 Angelo Zerr and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -53,6 +53,7 @@ public class CSSRuleListImpl implements CSSRuleList, Serializable {
 	 */	
 	public void add(CSSRule rule) {
 		ruleList.add(rule);
+		AbstractCSSNode.modified();
 	}
 
 	/**
@@ -60,5 +61,6 @@ public class CSSRuleListImpl implements CSSRuleList, Serializable {
 	 */	
 	public void remove(int position) {
 		ruleList.remove(position);
+		AbstractCSSNode.modified();
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 Angelo Zerr and others.
+ * Copyright (c) 2008, 2013 Angelo Zerr and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -121,6 +121,7 @@ public class CSSStyleDeclarationImpl extends AbstractCSSNode implements CSSStyle
 			CSSProperty property = properties.get(i);
 			if(CSSPropertyImpl.sameName(property, propertyName)) {
 				properties.remove(i);
+				ruleModified();
 				return property.getValue().toString();
 			}
 		}
@@ -156,6 +157,7 @@ public class CSSStyleDeclarationImpl extends AbstractCSSNode implements CSSStyle
 	
 	public void addProperty(CSSProperty  property) {
 		properties.add(property);
+		ruleModified();
 	}
 
 	public CSSPropertyList getCSSPropertyList() {
@@ -166,6 +168,13 @@ public class CSSStyleDeclarationImpl extends AbstractCSSNode implements CSSStyle
 		return propertyList;
 	}
 	
+	private void ruleModified() {
+		// inline and computed styles are not part of a style sheet
+		if (parentRule != null) {
+			modified();
+		}
+	}
+
 	protected void setReadOnly(boolean readOnly) {
 		//TODO ViewCSS.getComputedStyle() should provide a read only access to the computed values
 		this.readOnly = readOnly;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008 Angelo Zerr and others.
+ * Copyright (c) 2008, 2013 Angelo Zerr and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -149,5 +149,6 @@ public class CSSStyleSheetImpl extends AbstractCSSNode implements CSSStyleSheet,
 
 	public void setRuleList(CSSRuleList rules) {
 		this.rules = rules;
+		modified();
 	}
 }
@@ -42,6 +42,11 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 	 */
 	private Map styleDeclarationMap = null;
 
+	/**
+	 * key=style sheet, value = CSSRuleIndex of the style sheet
+	 */
+	private Map ruleIndexMap = new HashMap();
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.w3c.dom.stylesheets.DocumentStyle#getStyleSheets()
@@ -64,6 +69,10 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 	 */
 	public void addStyleSheet(StyleSheet styleSheet) {
 		styleSheetList.addStyleSheet(styleSheet);
+		if (styleSheet instanceof CSSStyleSheet) {
+			ruleIndexMap.put(styleSheet, new CSSRuleIndex(
+					(CSSStyleSheet) styleSheet));
+		}
 	}
 
 	/*
@@ -73,6 +82,24 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 	public void removeAllStyleSheets() {
 		styleSheetList.removeAllStyleSheets();
 		this.styleDeclarationMap = null;
+		this.ruleIndexMap.clear();
+	}
+
+	/**
+	 * Returns the rule index of the given style sheet of this document,
+	 * rebuilding it if the style sheets were modified since it was indexed.
+	 * 
+	 * @param styleSheet
+	 * @return the rule index, or <code>null</code> if the style sheet was not
+	 *         added to this document
+	 */
+	CSSRuleIndex getRuleIndex(CSSStyleSheet styleSheet) {
+		CSSRuleIndex ruleIndex = (CSSRuleIndex) ruleIndexMap.get(styleSheet);
+		if (ruleIndex != null && !ruleIndex.isValid(styleSheet)) {
+			ruleIndex = new CSSRuleIndex(styleSheet);
+			ruleIndexMap.put(styleSheet, ruleIndex);
+		}
+		return ruleIndex;
 	}
 
 	public List queryConditionSelector(int conditionType) {
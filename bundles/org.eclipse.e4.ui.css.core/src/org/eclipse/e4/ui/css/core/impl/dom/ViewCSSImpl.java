@@ -72,6 +72,14 @@ public class ViewCSSImpl implements ViewCSS {
 
 	public CSSStyleDeclaration getComputedStyle(CSSStyleSheet styleSheet,
 			Element elt, String pseudoElt) {
+		if (documentCSS instanceof DocumentCSSImpl) {
+			// only test the rules which may match the element
+			CSSRuleIndex ruleIndex = ((DocumentCSSImpl) documentCSS)
+					.getRuleIndex(styleSheet);
+			if (ruleIndex != null) {
+				return ruleIndex.getComputedStyle(elt, pseudoElt);
+			}
+		}
 		List styleDeclarations = null;
 		StyleWrapper firstStyleDeclaration = null;
 		CSSRuleList ruleList = styleSheet.getCssRules();
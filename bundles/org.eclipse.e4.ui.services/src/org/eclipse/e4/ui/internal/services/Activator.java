@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.e4.ui.internal.services;
 
+import org.eclipse.e4.ui.services.internal.events.LocalEventDispatcher;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
@@ -26,6 +27,7 @@ public class Activator implements BundleActivator {
 	private ServiceRegistration handlerServiceReg;
 	
 	private ServiceTracker eventAdminTracker;
+	private LocalEventDispatcher eventDispatcher;
 	private BundleContext bundleContext;
 
 	/*
@@ -52,6 +54,17 @@ public class Activator implements BundleActivator {
 		return (EventAdmin) eventAdminTracker.getService();
 	}
 
+	/*
+	 * Return the dispatcher of the events sent through the event brokers, or
+	 * null if the bundle is not active.
+	 */
+	public synchronized LocalEventDispatcher getEventDispatcher() {
+		if (eventDispatcher == null && bundleContext != null) {
+			eventDispatcher = new LocalEventDispatcher(bundleContext);
+		}
+		return eventDispatcher;
+	}
+
 	public void stop(BundleContext context) throws Exception {
 		if (contextServiceReg != null) {
 			contextServiceReg.unregister();
@@ -62,6 +75,12 @@ public class Activator implements BundleActivator {
 			handlerServiceReg = null;
 		}
 		
+		synchronized (this) {
+			if (eventDispatcher != null) {
+				eventDispatcher.dispose();
+				eventDispatcher = null;
+			}
+		}
 		if (eventAdminTracker != null) {
 			eventAdminTracker.close();
 			eventAdminTracker = null;
@@ -18,6 +18,8 @@ public class ServiceMessages extends NLS {
 	// Event broker
 	public static String NO_EVENT_ADMIN;
 	public static String NO_BUNDLE_CONTEXT;
+	public static String INVALID_FILTER;
+	public static String HANDLER_FAILED;
 	
 	static {
 		// load message values from bundle file
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2010 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,11 +24,13 @@ import org.eclipse.e4.core.services.log.Logger;
 import org.eclipse.e4.ui.di.UISynchronize;
 import org.eclipse.e4.ui.internal.services.Activator;
 import org.eclipse.e4.ui.internal.services.ServiceMessages;
+import org.eclipse.e4.ui.services.internal.events.LocalEventDispatcher.Subscription;
 import org.eclipse.osgi.util.NLS;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
-import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.Filter;
+import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
@@ -37,7 +39,7 @@ import org.osgi.service.event.EventHandler;
 public class EventBroker implements IEventBroker {
 	
 	// TBD synchronization
-	private Map<EventHandler, Collection<ServiceRegistration<?>>> registrations = new HashMap<EventHandler, Collection<ServiceRegistration<?>>>();
+	private Map<EventHandler, Collection<Subscription>> registrations = new HashMap<EventHandler, Collection<Subscription>>();
 
 	@Inject
 	Logger logger;
@@ -72,6 +74,15 @@ public class EventBroker implements IEventBroker {
 
 	public boolean send(String topic, Object data) {
 		Event event = constructEvent(topic, data);
+		LocalEventDispatcher dispatcher = getDispatcher();
+		if (dispatcher != null) {
+			dispatcher.dispatch(event);
+			if (!dispatcher.hasExternalHandlers(topic)) {
+				return true;
+			}
+			// other event handler services listen to the topic as well
+			event = dispatcher.markDispatched(event);
+		}
 		EventAdmin eventAdmin = Activator.getDefault().getEventAdmin();
 		if (eventAdmin == null) {
 			logger.error(NLS.bind(ServiceMessages.NO_EVENT_ADMIN, event.toString()));
@@ -115,49 +126,78 @@ public class EventBroker implements IEventBroker {
 	
 	public boolean subscribe(String topic, String filter, EventHandler eventHandler, boolean headless) {
 		BundleContext bundleContext = Activator.getDefault().getBundleContext();
-		if (bundleContext == null) {
+		LocalEventDispatcher dispatcher = getDispatcher();
+		if (bundleContext == null || dispatcher == null) {
 			logger.error(NLS.bind(ServiceMessages.NO_BUNDLE_CONTEXT, topic));
 			return false;
 		}
-		String[] topics = new String[] {topic};
-		Dictionary<String, Object> d = new Hashtable<String, Object>();
-		d.put(EventConstants.EVENT_TOPIC, topics);
-		if (filter != null)
-			d.put(EventConstants.EVENT_FILTER, filter);
+		Filter eventFilter = null;
+		if (filter != null) {
+			try {
+				eventFilter = bundleContext.createFilter(filter);
+			} catch (InvalidSyntaxException e) {
+				logger.error(e, NLS.bind(ServiceMessages.INVALID_FILTER, filter, topic));
+				return false;
+			}
+		}
 		EventHandler wrappedHandler = new UIEventHandler(eventHandler, headless ? null : uiSync);
-		ServiceRegistration<?> registration = bundleContext.registerService(
-				EventHandler.class.getName(), wrappedHandler, d);
-		Collection<ServiceRegistration<?>> handled = registrations
-				.get(eventHandler);
+		Subscription subscription = dispatcher.subscribe(topic, eventFilter, wrappedHandler,
+				logger);
+		Collection<Subscription> handled = registrations.get(eventHandler);
 		if (handled == null) {
-			registrations.put(eventHandler,
-					handled = new ArrayList<ServiceRegistration<?>>());
+			registrations.put(eventHandler, handled = new ArrayList<Subscription>());
 		}
-		handled.add(registration);
+		handled.add(subscription);
 		return true;
 	}
 
 	public boolean unsubscribe(EventHandler eventHandler) {
-		Collection<ServiceRegistration<?>> handled = registrations
-				.remove(eventHandler);
+		Collection<Subscription> handled = registrations.remove(eventHandler);
 		if (handled == null || handled.isEmpty())
 			return false;
-		for (ServiceRegistration<?> r : handled) {
-			r.unregister();
+		LocalEventDispatcher dispatcher = getDispatcher();
+		for (Subscription subscription : handled) {
+			if (dispatcher != null) {
+				dispatcher.unsubscribe(subscription);
+			} else {
+				subscription.disposed = true;
+			}
 		}
 		return true;
 	}
-	
+
+	/**
+	 * Returns whether any handler listens to the given topic. Publishers may
+	 * use this to skip preparing the data of events nobody receives.
+	 * 
+	 * @param topic
+	 *            the event topic
+	 * @return <code>true</code> if an event of the topic would be delivered to
+	 *         at least one handler
+	 */
+	public boolean hasSubscribers(String topic) {
+		LocalEventDispatcher dispatcher = getDispatcher();
+		return dispatcher == null || dispatcher.hasHandlers(topic);
+	}
+
+	private LocalEventDispatcher getDispatcher() {
+		Activator activator = Activator.getDefault();
+		return activator == null ? null : activator.getEventDispatcher();
+	}
+
 	@PreDestroy
 	void dispose() {
-		Collection<Collection<ServiceRegistration<?>>> values = new ArrayList<Collection<ServiceRegistration<?>>>(
+		Collection<Collection<Subscription>> values = new ArrayList<Collection<Subscription>>(
 				registrations.values());
 		registrations.clear();
-		for (Collection<ServiceRegistration<?>> handled : values) {
-			for (ServiceRegistration<?> registration : handled) {
-				// System.out.println("EventBroker dispose:" + registration[i] +
-				// ")");
-				registration.unregister();
+		LocalEventDispatcher dispatcher = getDispatcher();
+		for (Collection<Subscription> handled : values) {
+			for (Subscription subscription : handled) {
+				if (dispatcher != null) {
+					dispatcher.unsubscribe(subscription);
+				} else {
+					subscription.disposed = true;
+				}
 			}
 		}
 	}
@@ -0,0 +1,352 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.services.internal.events;
+
+import java.util.Collection;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.e4.core.services.log.Logger;
+import org.eclipse.e4.ui.internal.services.ServiceMessages;
+import org.eclipse.osgi.util.NLS;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.Filter;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * Delivers events to the handlers subscribed through an {@link EventBroker}
+ * without going through the Event Admin service.
+ * <p>
+ * Events sent by an event broker are delivered to the subscribed handlers
+ * directly. They are only forwarded to the Event Admin if an event handler
+ * service which was not registered by the dispatcher listens to the topic.
+ * Events sent or posted through the Event Admin by other parties, and events
+ * posted by an event broker, reach the subscribed handlers through a single
+ * event handler service registered for the subscribed topics.
+ * </p>
+ */
+public class LocalEventDispatcher {
+
+	/**
+	 * Service property of the event handler registered by the dispatcher.
+	 */
+	private static final String DISPATCHER_PROPERTY = "org.eclipse.e4.ui.services.events.dispatcher"; //$NON-NLS-1$
+
+	/**
+	 * Event property of the events which have already been delivered to the
+	 * subscribed handlers.
+	 */
+	private static final String DISPATCHED_PROPERTY = "org.eclipse.e4.ui.services.events.dispatched"; //$NON-NLS-1$
+
+	/**
+	 * A handler subscribed to a topic.
+	 */
+	static class Subscription {
+		final String topic;
+		final Filter filter;
+		final EventHandler handler;
+		final Logger logger;
+		volatile boolean disposed = false;
+
+		Subscription(String topic, Filter filter, EventHandler handler, Logger logger) {
+			this.topic = topic;
+			this.filter = filter;
+			this.handler = handler;
+			this.logger = logger;
+		}
+	}
+
+	private final BundleContext bundleContext;
+
+	private final TopicTrie<Subscription> subscriptions = new TopicTrie<Subscription>();
+
+	/**
+	 * The number of subscriptions per topic, guarded by itself.
+	 */
+	private final Map<String, Integer> subscribedTopics = new HashMap<String, Integer>();
+
+	private ServiceRegistration<?> dispatcherRegistration;
+
+	private final TopicTrie<ServiceReference<?>> externalHandlers = new TopicTrie<ServiceReference<?>>();
+
+	/**
+	 * The topics of the event handler services which were not registered by
+	 * the dispatcher, guarded by itself.
+	 */
+	private final Map<ServiceReference<?>, String[]> externalTopics = new HashMap<ServiceReference<?>, String[]>();
+
+	private final EventHandler dispatcherHandler = new EventHandler() {
+		public void handleEvent(Event event) {
+			if (event.getProperty(DISPATCHED_PROPERTY) == null) {
+				dispatch(event);
+			}
+		}
+	};
+
+	private final ServiceListener handlerListener = new ServiceListener() {
+		public void serviceChanged(ServiceEvent event) {
+			ServiceReference<?> reference = event.getServiceReference();
+			if (reference.getProperty(DISPATCHER_PROPERTY) != null) {
+				return;
+			}
+			switch (event.getType()) {
+			case ServiceEvent.REGISTERED:
+				addExternalHandler(reference);
+				break;
+			case ServiceEvent.MODIFIED:
+				removeExternalHandler(reference);
+				addExternalHandler(reference);
+				break;
+			case ServiceEvent.MODIFIED_ENDMATCH:
+			case ServiceEvent.UNREGISTERING:
+				removeExternalHandler(reference);
+				break;
+			}
+		}
+	};
+
+	/**
+	 * Creates a dispatcher which tracks the event handler services of the
+	 * given bundle context.
+	 *
+	 * @param bundleContext
+	 *            the bundle context
+	 */
+	public LocalEventDispatcher(BundleContext bundleContext) {
+		this.bundleContext = bundleContext;
+		String filter = '(' + Constants.OBJECTCLASS + '=' + EventHandler.class.getName() + ')';
+		try {
+			bundleContext.addServiceListener(handlerListener, filter);
+			ServiceReference<?>[] references = bundleContext.getServiceReferences(
+					EventHandler.class.getName(), null);
+			if (references != null) {
+				for (ServiceReference<?> reference : references) {
+					addExternalHandler(reference);
+				}
+			}
+		} catch (InvalidSyntaxException e) {
+			// the filter is well formed
+		}
+	}
+
+	/**
+	 * Subscribes a handler to a topic.
+	 *
+	 * @param topic
+	 *            the topic, which may end with a wildcard
+	 * @param filter
+	 *            the filter of the events, or <code>null</code>
+	 * @param handler
+	 *            the handler
+	 * @param logger
+	 *            the logger reporting exceptions of the handler
+	 * @return the subscription
+	 */
+	Subscription subscribe(String topic, Filter filter, EventHandler handler, Logger logger) {
+		Subscription subscription = new Subscription(topic, filter, handler, logger);
+		subscriptions.add(topic, subscription);
+		synchronized (subscribedTopics) {
+			Integer count = subscribedTopics.get(topic);
+			subscribedTopics.put(topic, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+			if (count == null) {
+				updateDispatcherRegistration();
+			}
+		}
+		return subscription;
+	}
+
+	/**
+	 * Removes a subscription. Events which are being dispatched are no longer
+	 * delivered to its handler.
+	 *
+	 * @param subscription
+	 *            the subscription
+	 */
+	void unsubscribe(Subscription subscription) {
+		subscription.disposed = true;
+		if (!subscriptions.remove(subscription.topic, subscription)) {
+			return;
+		}
+		synchronized (subscribedTopics) {
+			Integer count = subscribedTopics.get(subscription.topic);
+			if (count == null || count.intValue() <= 1) {
+				subscribedTopics.remove(subscription.topic);
+				updateDispatcherRegistration();
+			} else {
+				subscribedTopics.put(subscription.topic, Integer.valueOf(count.intValue() - 1));
+			}
+		}
+	}
+
+	/**
+	 * Delivers an event to the handlers subscribed to its topic.
+	 *
+	 * @param event
+	 *            the event
+	 */
+	public void dispatch(Event event) {
+		List<Subscription> matches = subscriptions.match(event.getTopic());
+		for (int i = 0; i < matches.size(); i++) {
+			Subscription subscription = matches.get(i);
+			if (subscription.disposed) {
+				continue;
+			}
+			if (subscription.filter != null && !event.matches(subscription.filter)) {
+				continue;
+			}
+			try {
+				subscription.handler.handleEvent(event);
+			} catch (Exception e) {
+				logHandlerFailure(subscription, event, e);
+			} catch (LinkageError e) {
+				logHandlerFailure(subscription, event, e);
+			}
+		}
+	}
+
+	private void logHandlerFailure(Subscription subscription, Event event, Throwable e) {
+		if (subscription.logger != null) {
+			subscription.logger.error(e, NLS.bind(ServiceMessages.HANDLER_FAILED, event.getTopic(),
+					subscription.handler));
+		}
+	}
+
+	/**
+	 * Returns whether any handler, subscribed through an event broker or
+	 * registered as an event handler service, listens to the given topic.
+	 *
+	 * @param topic
+	 *            the event topic
+	 * @return <code>true</code> if there are handlers for the topic
+	 */
+	public boolean hasHandlers(String topic) {
+		return !subscriptions.match(topic).isEmpty() || hasExternalHandlers(topic);
+	}
+
+	/**
+	 * Returns whether an event handler service which was not registered by
+	 * the dispatcher listens to the given topic. Events of such a topic have
+	 * to be forwarded to the Event Admin.
+	 *
+	 * @param topic
+	 *            the event topic
+	 * @return <code>true</code> if there are event handler services for the
+	 *         topic
+	 */
+	public boolean hasExternalHandlers(String topic) {
+		return !externalHandlers.match(topic).isEmpty();
+	}
+
+	/**
+	 * Returns a copy of the given event which is ignored by the dispatcher
+	 * when it is delivered through the Event Admin.
+	 *
+	 * @param event
+	 *            an event which has been dispatched already
+	 * @return the marked event
+	 */
+	public Event markDispatched(Event event) {
+		String[] names = event.getPropertyNames();
+		Map<String, Object> properties = new HashMap<String, Object>(names.length + 2);
+		for (String name : names) {
+			properties.put(name, event.getProperty(name));
+		}
+		properties.put(DISPATCHED_PROPERTY, Boolean.TRUE);
+		return new Event(event.getTopic(), properties);
+	}
+
+	/**
+	 * Unregisters the event handler service of the dispatcher and stops
+	 * tracking the other event handler services.
+	 */
+	public void dispose() {
+		bundleContext.removeServiceListener(handlerListener);
+		synchronized (subscribedTopics) {
+			subscribedTopics.clear();
+			updateDispatcherRegistration();
+		}
+	}
+
+	/**
+	 * Registers the event handler service of the dispatcher for the
+	 * subscribed topics. Must be called while holding the lock of
+	 * subscribedTopics.
+	 */
+	private void updateDispatcherRegistration() {
+		if (subscribedTopics.isEmpty()) {
+			if (dispatcherRegistration != null) {
+				try {
+					dispatcherRegistration.unregister();
+				} catch (IllegalStateException e) {
+					// already unregistered by the framework
+				}
+				dispatcherRegistration = null;
+			}
+			return;
+		}
+
+		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+		properties.put(EventConstants.EVENT_TOPIC,
+				subscribedTopics.keySet().toArray(new String[subscribedTopics.size()]));
+		properties.put(DISPATCHER_PROPERTY, Boolean.TRUE);
+		if (dispatcherRegistration == null) {
+			dispatcherRegistration = bundleContext.registerService(
+					EventHandler.class.getName(), dispatcherHandler, properties);
+		} else {
+			dispatcherRegistration.setProperties(properties);
+		}
+	}
+
+	private void addExternalHandler(ServiceReference<?> reference) {
+		String[] topics = getTopics(reference.getProperty(EventConstants.EVENT_TOPIC));
+		synchronized (externalTopics) {
+			externalTopics.put(reference, topics);
+			for (String topic : topics) {
+				externalHandlers.add(topic, reference);
+			}
+		}
+	}
+
+	private void removeExternalHandler(ServiceReference<?> reference) {
+		synchronized (externalTopics) {
+			String[] topics = externalTopics.remove(reference);
+			if (topics != null) {
+				for (String topic : topics) {
+					externalHandlers.remove(topic, reference);
+				}
+			}
+		}
+	}
+
+	private static String[] getTopics(Object property) {
+		if (property instanceof String) {
+			return new String[] { (String) property };
+		}
+		if (property instanceof String[]) {
+			return (String[]) property;
+		}
+		if (property instanceof Collection<?>) {
+			Collection<?> collection = (Collection<?>) property;
+			return collection.toArray(new String[collection.size()]);
+		}
+		return new String[0];
+	}
+}
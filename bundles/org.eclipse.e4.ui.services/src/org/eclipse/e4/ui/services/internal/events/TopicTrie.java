@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.services.internal.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Associates values with subscription topics and looks up the values whose
+ * topic matches an event topic. As defined by the OSGi Event Admin
+ * specification, a subscription topic is either an exact topic, a topic
+ * prefix followed by <code>"/*"</code>, or <code>"*"</code> alone.
+ * <p>
+ * The subscription topics are stored in a trie of topic segments. The values
+ * matching an event topic are cached until the subscriptions change, so that
+ * looking up a frequently used topic costs a single hash lookup.
+ * </p>
+ *
+ * @param <T>
+ *            the type of the values
+ */
+public class TopicTrie<T> {
+
+	private static final String WILDCARD = "*"; //$NON-NLS-1$
+
+	private static final char SEPARATOR = '/';
+
+	/**
+	 * Upper bound of the number of cached topics, to not leak memory on
+	 * topics which contain unique ids.
+	 */
+	private static final int MAX_CACHED_TOPICS = 1024;
+
+	private static class Node<T> {
+		private Map<String, Node<T>> children;
+		private List<T> values;
+		private List<T> wildcardValues;
+
+		Node<T> getChild(String segment, boolean create) {
+			Node<T> child = children == null ? null : children.get(segment);
+			if (child == null && create) {
+				if (children == null) {
+					children = new HashMap<String, Node<T>>(4);
+				}
+				child = new Node<T>();
+				children.put(segment, child);
+			}
+			return child;
+		}
+
+		boolean isEmpty() {
+			return (children == null || children.isEmpty())
+					&& (values == null || values.isEmpty())
+					&& (wildcardValues == null || wildcardValues.isEmpty());
+		}
+	}
+
+	private final Node<T> root = new Node<T>();
+
+	private final Map<String, List<T>> matches = new ConcurrentHashMap<String, List<T>>();
+
+	/**
+	 * Adds a value for the given subscription topic.
+	 *
+	 * @param topic
+	 *            the subscription topic
+	 * @param value
+	 *            the value
+	 */
+	public synchronized void add(String topic, T value) {
+		Node<T> node = root;
+		boolean wildcard = false;
+		for (String segment : split(topic)) {
+			if (WILDCARD.equals(segment)) {
+				wildcard = true;
+				break;
+			}
+			node = node.getChild(segment, true);
+		}
+		if (wildcard) {
+			if (node.wildcardValues == null) {
+				node.wildcardValues = new ArrayList<T>(2);
+			}
+			node.wildcardValues.add(value);
+		} else {
+			if (node.values == null) {
+				node.values = new ArrayList<T>(2);
+			}
+			node.values.add(value);
+		}
+		matches.clear();
+	}
+
+	/**
+	 * Removes a value of the given subscription topic.
+	 *
+	 * @param topic
+	 *            the subscription topic
+	 * @param value
+	 *            the value
+	 * @return <code>true</code> if the value was found
+	 */
+	public synchronized boolean remove(String topic, T value) {
+		List<String> segments = split(topic);
+		List<Node<T>> path = new ArrayList<Node<T>>(segments.size() + 1);
+		Node<T> node = root;
+		path.add(node);
+		boolean wildcard = false;
+		for (String segment : segments) {
+			if (WILDCARD.equals(segment)) {
+				wildcard = true;
+				break;
+			}
+			node = node.getChild(segment, false);
+			if (node == null) {
+				return false;
+			}
+			path.add(node);
+		}
+		List<T> values = wildcard ? node.wildcardValues : node.values;
+		if (values == null || !values.remove(value)) {
+			return false;
+		}
+
+		// prune the nodes which are no longer used
+		for (int i = path.size() - 1; i > 0 && path.get(i).isEmpty(); i--) {
+			path.get(i - 1).children.remove(segments.get(i - 1));
+		}
+		matches.clear();
+		return true;
+	}
+
+	/**
+	 * Returns the values whose subscription topic matches the given event
+	 * topic. The returned list must not be modified.
+	 *
+	 * @param topic
+	 *            the event topic
+	 * @return the matching values, never <code>null</code>
+	 */
+	public List<T> match(String topic) {
+		List<T> result = matches.get(topic);
+		if (result == null) {
+			synchronized (this) {
+				result = computeMatch(topic);
+				if (matches.size() >= MAX_CACHED_TOPICS) {
+					matches.clear();
+				}
+				matches.put(topic, result);
+			}
+		}
+		return result;
+	}
+
+	private List<T> computeMatch(String topic) {
+		List<T> result = null;
+		Node<T> node = root;
+		for (String segment : split(topic)) {
+			result = addAll(result, node.wildcardValues);
+			node = node.getChild(segment, false);
+			if (node == null) {
+				break;
+			}
+		}
+		if (node != null) {
+			result = addAll(result, node.values);
+		}
+		if (result == null) {
+			return Collections.emptyList();
+		}
+		return result;
+	}
+
+	private static <T> List<T> addAll(List<T> result, List<T> values) {
+		if (values == null || values.isEmpty()) {
+			return result;
+		}
+		if (result == null) {
+			result = new ArrayList<T>(values.size());
+		}
+		result.addAll(values);
+		return result;
+	}
+
+	private static List<String> split(String topic) {
+		List<String> segments = new ArrayList<String>();
+		int start = 0;
+		int end;
+		while ((end = topic.indexOf(SEPARATOR, start)) != -1) {
+			segments.add(topic.substring(start, end));
+			start = end + 1;
+		}
+		segments.add(topic.substring(start));
+		return segments;
+	}
+}
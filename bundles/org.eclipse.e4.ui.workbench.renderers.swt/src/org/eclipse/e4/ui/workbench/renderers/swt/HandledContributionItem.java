@@ -15,9 +15,15 @@ package org.eclipse.e4.ui.workbench.renderers.swt;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.inject.Inject;
+import org.eclipse.core.commands.Command;
+import org.eclipse.core.commands.CommandEvent;
+import org.eclipse.core.commands.ICommandListener;
+import org.eclipse.core.commands.IHandlerListener;
 import org.eclipse.core.commands.IStateListener;
 import org.eclipse.core.commands.ParameterizedCommand;
 import org.eclipse.core.commands.State;
@@ -26,9 +32,11 @@ import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.e4.core.commands.ECommandService;
 import org.eclipse.e4.core.commands.EHandlerService;
+import org.eclipse.e4.core.commands.internal.HandlerServiceImpl;
 import org.eclipse.e4.core.contexts.EclipseContextFactory;
 import org.eclipse.e4.core.contexts.IContextFunction;
 import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.contexts.RunAndTrack;
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.core.services.log.Logger;
 import org.eclipse.e4.ui.bindings.EBindingService;
@@ -48,6 +56,7 @@ import org.eclipse.e4.ui.model.application.ui.menu.MMenu;
 import org.eclipse.e4.ui.model.application.ui.menu.MMenuElement;
 import org.eclipse.e4.ui.model.application.ui.menu.MRenderedMenu;
 import org.eclipse.e4.ui.model.application.ui.menu.MToolItem;
+import org.eclipse.e4.ui.services.IServiceConstants;
 import org.eclipse.e4.ui.workbench.IPresentationEngine;
 import org.eclipse.e4.ui.workbench.IResourceUtilities;
 import org.eclipse.e4.ui.workbench.modeling.EModelService;
@@ -113,13 +122,135 @@ public class HandledContributionItem extends ContributionItem {
 
 	}
 
+	/**
+	 * Keeps the enabled state of the registered tool items up to date. The
+	 * enablement of an item is only recomputed after its handler, the active
+	 * leaf of its context, one of the {@link #TRACKED_VARIABLES} or the enabled
+	 * or handled state of its command changed. The items which need an update
+	 * are collected and processed in a single pass on the UI thread.
+	 * <p>
+	 * Handlers wrapping an <code>org.eclipse.core.commands.IHandler</code>
+	 * report their enablement changes through handler events, which the
+	 * command reports in turn. Other handlers may base their enablement on any
+	 * other state, such as the dirty state of a part or the clipboard, so their
+	 * items, and the items without a command or a context, are also updated
+	 * every {@link #FALLBACK_INTERVAL} milliseconds.
+	 * </p>
+	 */
 	public static class ToolItemUpdateTimer implements Runnable {
+		/**
+		 * The context variables that handlers commonly base their enablement
+		 * on.
+		 */
+		private static final String[] TRACKED_VARIABLES = {
+				IServiceConstants.ACTIVE_SELECTION,
+				IServiceConstants.ACTIVE_PART, IServiceConstants.ACTIVE_SHELL };
+
+		/**
+		 * The interval in which the enablement of all tool items used to be
+		 * polled, used to compute the number of avoided evaluations.
+		 */
+		private static final long POLLING_INTERVAL = 400;
+
+		/**
+		 * The interval in which the untracked tool items are updated, for the
+		 * handlers whose enablement depends on untracked state.
+		 */
+		private static final int FALLBACK_INTERVAL = 1000;
+
 		Display display = Display.getCurrent();
 		RunnableRunner runner = new RunnableRunner();
 
-		List<HandledContributionItem> itemsToCheck = new ArrayList<HandledContributionItem>();
+		Map<HandledContributionItem, EnablementTracker> itemsToCheck = new HashMap<HandledContributionItem, EnablementTracker>();
 		List<Runnable> windowRunnables = new ArrayList<Runnable>();
-		final List<HandledContributionItem> orphanedToolItems = new ArrayList<HandledContributionItem>();
+
+		/**
+		 * The items to update in the next pass, guarded by itself as context
+		 * changes may be reported from any thread.
+		 */
+		private final Set<HandledContributionItem> dirtyItems = new LinkedHashSet<HandledContributionItem>();
+		private boolean updateScheduled = false;
+
+		private boolean fallbackScheduled = false;
+		private final Runnable fallbackUpdate = new Runnable() {
+			public void run() {
+				fallbackScheduled = false;
+				// rescheduled by the update while there are untracked items
+				for (EnablementTracker tracker : itemsToCheck.values()) {
+					if (tracker.untracked) {
+						fallbackEvaluations++;
+						markDirty(tracker.item);
+					}
+				}
+			}
+		};
+
+		private long evaluations = 0;
+		private long fallbackEvaluations = 0;
+		private long pollingEvaluations = 0;
+		private long pollingTime;
+
+		/**
+		 * Marks its item as dirty whenever the handler of the item's command,
+		 * the active leaf or a tracked variable changes, or when the command
+		 * reports a change of its enabled or handled state.
+		 */
+		private class EnablementTracker extends RunAndTrack implements
+				ICommandListener {
+			private final HandledContributionItem item;
+			private final Command command;
+			private boolean disposed = false;
+
+			/**
+			 * Whether the enablement of the item may change without any event,
+			 * in which case it is updated by the fallback update.
+			 */
+			volatile boolean untracked = true;
+
+			EnablementTracker(HandledContributionItem item) {
+				this.item = item;
+				ParameterizedCommand parmCmd = item.model.getWbCommand();
+				command = parmCmd == null ? null : parmCmd.getCommand();
+				if (command != null) {
+					command.addCommandListener(this);
+				}
+			}
+
+			@Override
+			public boolean changed(IEclipseContext context) {
+				if (disposed) {
+					return false;
+				}
+				IEclipseContext leaf = context.getActiveLeaf();
+				if (command != null) {
+					Object handler = leaf.get(HandlerServiceImpl.H_ID
+							+ command.getId());
+					// Only the handlers wrapping an IHandler listen to its
+					// handler events
+					untracked = handler != null
+							&& !(handler instanceof IHandlerListener);
+				}
+				for (String variable : TRACKED_VARIABLES) {
+					leaf.get(variable);
+				}
+				markDirty(item);
+				return true;
+			}
+
+			public void commandChanged(CommandEvent commandEvent) {
+				if (commandEvent.isEnabledChanged()
+						|| commandEvent.isHandledChanged()) {
+					markDirty(item);
+				}
+			}
+
+			void dispose() {
+				disposed = true;
+				if (command != null) {
+					command.removeCommandListener(this);
+				}
+			}
+		}
 
 		public void addWindowRunnable(Runnable r) {
 			windowRunnables.add(r);
@@ -130,32 +261,132 @@ public class HandledContributionItem extends ContributionItem {
 		}
 
 		void registerItem(HandledContributionItem item) {
-			if (!itemsToCheck.contains(item)) {
-				itemsToCheck.add(item);
+			if (!itemsToCheck.containsKey(item)) {
+				accountPolling();
+				if (itemsToCheck.isEmpty()) {
+					pollingTime = System.currentTimeMillis();
+				}
+				EnablementTracker tracker = new EnablementTracker(item);
+				itemsToCheck.put(item, tracker);
 
-				// Start the timer on the first item registered
-				if (itemsToCheck.size() == 1)
-					display.timerExec(400, this);
+				IEclipseContext context = item.getContext(item.model);
+				if (context != null) {
+					context.runAndTrack(tracker);
+				} else {
+					markDirty(item);
+				}
+			}
+		}
+
+		private void scheduleFallbackUpdate() {
+			if (!fallbackScheduled && display != null && !display.isDisposed()) {
+				fallbackScheduled = true;
+				display.timerExec(FALLBACK_INTERVAL, fallbackUpdate);
 			}
 		}
 
 		void removeItem(HandledContributionItem item) {
-			itemsToCheck.remove(item);
+			accountPolling();
+			EnablementTracker tracker = itemsToCheck.remove(item);
+			if (tracker != null) {
+				tracker.dispose();
+			}
+		}
+
+		/**
+		 * Schedules an update of the enablement of all registered tool items,
+		 * for handlers that change their enablement without notifying their
+		 * command. The untracked items are also updated periodically.
+		 */
+		public void updateAll() {
+			for (HandledContributionItem hci : itemsToCheck.keySet()) {
+				markDirty(hci);
+			}
+		}
+
+		void markDirty(HandledContributionItem item) {
+			synchronized (dirtyItems) {
+				if (!dirtyItems.add(item) || updateScheduled) {
+					return;
+				}
+				updateScheduled = true;
+			}
+			if (display != null && !display.isDisposed()) {
+				display.asyncExec(this);
+			}
+		}
+
+		/**
+		 * Returns the number of <code>canExecute</code> evaluations performed
+		 * to update the enablement of tool items.
+		 * 
+		 * @return the number of evaluations
+		 */
+		public long getEvaluationCount() {
+			return evaluations;
+		}
+
+		/**
+		 * Returns the number of <code>canExecute</code> evaluations of the
+		 * untracked tool items requested by the fallback update.
+		 * 
+		 * @return the number of fallback evaluations
+		 */
+		public long getFallbackEvaluationCount() {
+			return fallbackEvaluations;
+		}
+
+		/**
+		 * Returns the number of <code>canExecute</code> evaluations avoided
+		 * compared to polling the enablement of every registered tool item
+		 * every 400 ms. The evaluations requested by the fallback update are
+		 * not avoided.
+		 * 
+		 * @return the number of avoided evaluations
+		 */
+		public long getAvoidedEvaluationCount() {
+			accountPolling();
+			return Math.max(0, pollingEvaluations - evaluations);
+		}
+
+		private void accountPolling() {
+			if (itemsToCheck.isEmpty()) {
+				return;
+			}
+			long ticks = (System.currentTimeMillis() - pollingTime)
+					/ POLLING_INTERVAL;
+			pollingEvaluations += ticks * itemsToCheck.size();
+			pollingTime += ticks * POLLING_INTERVAL;
 		}
 
 		public void run() {
+			HandledContributionItem[] items;
+			synchronized (dirtyItems) {
+				items = dirtyItems.toArray(new HandledContributionItem[dirtyItems
+						.size()]);
+				dirtyItems.clear();
+				updateScheduled = false;
+			}
 
-			for (final HandledContributionItem hci : itemsToCheck) {
+			int updated = 0;
+			boolean untracked = false;
+			for (final HandledContributionItem hci : items) {
+				EnablementTracker tracker = itemsToCheck.get(hci);
+				if (tracker == null) {
+					continue;
+				}
 				// HACK. Remove orphaned entries. See bug 388516.
 				if (hci.model != null && hci.model.getParent() != null) {
 					hci.updateItemEnablement();
+					updated++;
+					untracked |= tracker.untracked;
 				} else {
-					orphanedToolItems.add(hci);
+					removeItem(hci);
 				}
 			}
-			if (!orphanedToolItems.isEmpty()) {
-				itemsToCheck.removeAll(orphanedToolItems);
-				orphanedToolItems.clear();
+			evaluations += updated;
+			if (untracked) {
+				scheduleFallbackUpdate();
 			}
 
 			if (windowRunnables.size() > 0) {
@@ -167,13 +398,14 @@ public class HandledContributionItem extends ContributionItem {
 				}
 			}
 
-			// repeat until the list goes empty
-			if (itemsToCheck.size() > 0)
-				display.timerExec(400, this);
+			Activator.trace(Policy.DEBUG_MENUS, "tool item enablement: " //$NON-NLS-1$
+					+ updated + " updated, " + getAvoidedEvaluationCount() //$NON-NLS-1$
+					+ " evaluations avoided, " + fallbackEvaluations //$NON-NLS-1$
+					+ " fallback evaluations", null); //$NON-NLS-1$
 		}
 	}
 
-	// HACK!! local 'static' timerExec...should move out of this class post 4.1
+	// HACK!! local 'static' updater...should move out of this class post 4.1
 	public static ToolItemUpdateTimer toolItemUpdater = new ToolItemUpdateTimer();
 
 	private static final String FORCE_TEXT = "FORCE_TEXT"; //$NON-NLS-1$
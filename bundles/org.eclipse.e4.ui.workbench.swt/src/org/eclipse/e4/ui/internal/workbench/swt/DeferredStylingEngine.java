@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.internal.workbench.swt;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.eclipse.e4.ui.css.swt.dom.WidgetElement;
+import org.eclipse.e4.ui.services.IStylingEngine;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Widget;
+
+/**
+ * A styling engine that does not restyle a widget as soon as its class or id
+ * changes. The widget is marked dirty instead, and the dirty widgets are
+ * restyled together once per turn of the event loop, or as soon as a widget is
+ * about to be shown, so that nothing is ever painted unstyled.
+ * <p>
+ * Restyling a widget restyles its whole subtree, so a dirty control is skipped
+ * when one of its ancestors is dirty too: building a window restyles each
+ * widget once rather than once per styling request in its subtree.
+ * </p>
+ * <p>
+ * The engine must only be used from the UI thread.
+ * </p>
+ */
+public abstract class DeferredStylingEngine implements IStylingEngine {
+
+	private final Display display;
+
+	private Set<Widget> dirtyWidgets = new LinkedHashSet<Widget>();
+
+	private boolean flushScheduled = false;
+
+	private boolean disposed = false;
+
+	private final Runnable flushRunnable = new Runnable() {
+		public void run() {
+			flushScheduled = false;
+			flush();
+		}
+	};
+
+	private final Runnable disposeRunnable = new Runnable() {
+		public void run() {
+			dispose();
+		}
+	};
+
+	private final Listener showFilter = new Listener() {
+		public void handleEvent(Event event) {
+			if (!dirtyWidgets.isEmpty()) {
+				flush();
+			}
+		}
+	};
+
+	// statistics, since the creation of the engine
+	private long requestCount = 0;
+
+	private long styledCount = 0;
+
+	private long flushCount = 0;
+
+	private long stylingTime = 0;
+
+	// statistics of the last flush
+	private int frameRequestCount = 0;
+
+	private int lastFrameRequestCount = 0;
+
+	private int lastFrameStyledCount = 0;
+
+	private long lastFrameStylingTime = 0;
+
+	/**
+	 * Creates an engine for the widgets of the given display. The engine is
+	 * disposed along with the display.
+	 *
+	 * @param display
+	 *            the display
+	 */
+	public DeferredStylingEngine(Display display) {
+		this.display = display;
+		display.addFilter(SWT.Show, showFilter);
+		display.disposeExec(disposeRunnable);
+	}
+
+	/**
+	 * Stops listening to the display. The widgets still dirty are styled, and
+	 * the widgets marked dirty afterwards are styled right away.
+	 */
+	public void dispose() {
+		if (disposed) {
+			return;
+		}
+		flush();
+		disposed = true;
+		dirtyWidgets.clear();
+		if (!display.isDisposed()) {
+			display.removeFilter(SWT.Show, showFilter);
+		}
+	}
+
+	/**
+	 * Applies the styles to the given widget and its children.
+	 *
+	 * @param widget
+	 *            the widget to style
+	 */
+	protected abstract void applyStyles(Widget widget);
+
+	public void setClassname(Object widget, String classname) {
+		WidgetElement.setCSSClass((Widget) widget, classname);
+		markDirty((Widget) widget);
+	}
+
+	public void setId(Object widget, String id) {
+		WidgetElement.setID((Widget) widget, id);
+		markDirty((Widget) widget);
+	}
+
+	public void setClassnameAndId(Object widget, String classname, String id) {
+		WidgetElement.setCSSClass((Widget) widget, classname);
+		WidgetElement.setID((Widget) widget, id);
+		markDirty((Widget) widget);
+	}
+
+	/**
+	 * Styles the given widget right away, along with the other dirty widgets.
+	 */
+	public void style(Object widget) {
+		markDirty((Widget) widget);
+		flush();
+	}
+
+	/**
+	 * Marks the given widget to be restyled with its children.
+	 *
+	 * @param widget
+	 *            the widget
+	 */
+	public void markDirty(Widget widget) {
+		if (widget.isDisposed()) {
+			return;
+		}
+		requestCount++;
+		frameRequestCount++;
+		dirtyWidgets.add(widget);
+		if (disposed) {
+			flush();
+			return;
+		}
+		if (!flushScheduled && !display.isDisposed()) {
+			flushScheduled = true;
+			display.asyncExec(flushRunnable);
+		}
+	}
+
+	/**
+	 * Restyles the dirty widgets.
+	 */
+	public void flush() {
+		if (dirtyWidgets.isEmpty()) {
+			return;
+		}
+		// styling may dirty widgets again, they are styled in the next flush
+		Set<Widget> widgets = dirtyWidgets;
+		dirtyWidgets = new LinkedHashSet<Widget>();
+
+		long start = System.nanoTime();
+		int styled = 0;
+		for (Widget widget : widgets) {
+			if (widget.isDisposed() || hasDirtyAncestor(widget, widgets)) {
+				continue;
+			}
+			applyStyles(widget);
+			styled++;
+			if (widget instanceof Control && !(widget instanceof Shell)) {
+				// the styles may change the size of the control
+				Control control = (Control) widget;
+				if (!control.isDisposed() && control.getParent() != null) {
+					control.getParent().layout(new Control[] { control },
+							SWT.DEFER);
+				}
+			}
+		}
+		long time = System.nanoTime() - start;
+
+		flushCount++;
+		styledCount += styled;
+		stylingTime += time;
+		lastFrameRequestCount = frameRequestCount;
+		lastFrameStyledCount = styled;
+		lastFrameStylingTime = time;
+		frameRequestCount = 0;
+
+		WorkbenchSWTActivator.trace(Policy.DEBUG_STYLING, "Styled " + styled //$NON-NLS-1$
+				+ " of " + widgets.size() + " widgets for " //$NON-NLS-1$ //$NON-NLS-2$
+				+ lastFrameRequestCount + " requests in " + time / 1000000 //$NON-NLS-1$
+				+ " ms", null); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns whether an ancestor of the widget will be styled, which styles
+	 * the widget as well. The children of a composite are its controls, the
+	 * styling of a shell does not reach the shells it owns.
+	 */
+	private static boolean hasDirtyAncestor(Widget widget, Set<Widget> widgets) {
+		if (!(widget instanceof Control) || widget instanceof Shell) {
+			return false;
+		}
+		Composite parent = ((Control) widget).getParent();
+		while (parent != null) {
+			if (widgets.contains(parent) && !parent.isDisposed()) {
+				return true;
+			}
+			if (parent instanceof Shell) {
+				return false;
+			}
+			parent = parent.getParent();
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of styling requests since the engine was created.
+	 *
+	 * @return the number of requests
+	 */
+	public long getRequestCount() {
+		return requestCount;
+	}
+
+	/**
+	 * Returns the number of widgets styled along with their children since the
+	 * engine was created.
+	 *
+	 * @return the number of styled widgets
+	 */
+	public long getStyledCount() {
+		return styledCount;
+	}
+
+	/**
+	 * Returns the number of times the dirty widgets were styled.
+	 *
+	 * @return the number of flushes
+	 */
+	public long getFlushCount() {
+		return flushCount;
+	}
+
+	/**
+	 * Returns the time spent styling since the engine was created.
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public long getStylingTime() {
+		return stylingTime;
+	}
+
+	/**
+	 * Returns the number of styling requests handled by the last flush.
+	 *
+	 * @return the number of requests
+	 */
+	public int getLastFrameRequestCount() {
+		return lastFrameRequestCount;
+	}
+
+	/**
+	 * Returns the number of widgets styled by the last flush.
+	 *
+	 * @return the number of styled widgets
+	 */
+	public int getLastFrameStyledCount() {
+		return lastFrameStyledCount;
+	}
+
+	/**
+	 * Returns the time spent in the last flush.
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public long getLastFrameStylingTime() {
+		return lastFrameStylingTime;
+	}
+}
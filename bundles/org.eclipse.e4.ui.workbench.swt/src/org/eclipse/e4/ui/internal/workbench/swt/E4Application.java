@@ -365,6 +365,11 @@ public class E4Application implements IApplication {
 		eclipseContext.set(E4Workbench.DELTA_RESTORE,
 				Boolean.valueOf(deltaRestore));
 
+		// Cache of the assembled model, off unless requested
+		value = getArgValue(E4Workbench.MODEL_ASSEMBLY_CACHE, appContext, false);
+		eclipseContext.set(E4Workbench.MODEL_ASSEMBLY_CACHE,
+				Boolean.valueOf(value != null && Boolean.parseBoolean(value)));
+
 		String resourceHandler = getArgValue(
 				E4Workbench.MODEL_RESOURCE_HANDLER, appContext, false);
 
@@ -104,6 +104,8 @@ public class PartRenderingEngine implements IPresentationEngine {
 
 	org.eclipse.swt.widgets.Listener keyListener;
 
+	private DeferredStylingEngine stylingEngine;
+
 	// Life Cycle handlers
 	private EventHandler toBeRenderedHandler = new EventHandler() {
 		public void handleEvent(Event event) {
@@ -993,6 +995,10 @@ public class PartRenderingEngine implements IPresentationEngine {
 
 			public void run() {
 				initializeStyling(display, runContext);
+				Object styling = runContext.get(IStylingEngine.SERVICE_NAME);
+				if (styling instanceof DeferredStylingEngine) {
+					stylingEngine = (DeferredStylingEngine) styling;
+				}
 
 				// Register an SWT resource handler
 				runContext.set(IResourceUtilities.class.getName(),
@@ -1199,6 +1205,10 @@ public class PartRenderingEngine implements IPresentationEngine {
 				keyListener = null;
 			}
 		}
+		if (stylingEngine != null) {
+			stylingEngine.dispose();
+			stylingEngine = null;
+		}
 	}
 
 	public static void initializeStyling(Display display,
@@ -1206,6 +1216,12 @@ public class PartRenderingEngine implements IPresentationEngine {
 		String cssTheme = (String) appContext.get(E4Application.THEME_ID);
 		String cssURI = (String) appContext.get(E4Workbench.CSS_URI_ARG);
 
+		// styling again replaces the engine of a previous run
+		Object previous = appContext.getLocal(IStylingEngine.SERVICE_NAME);
+		if (previous instanceof DeferredStylingEngine) {
+			((DeferredStylingEngine) previous).dispose();
+		}
+
 		if (cssTheme != null) {
 			String cssResourcesURI = (String) appContext
 					.get(E4Workbench.CSS_RESOURCE_URI_ARG);
@@ -1236,33 +1252,16 @@ public class PartRenderingEngine implements IPresentationEngine {
 
 			appContext.set(IThemeEngine.class.getName(), engine);
 
-			appContext.set(IStylingEngine.SERVICE_NAME, new IStylingEngine() {
-				public void setClassname(Object widget, String classname) {
-					WidgetElement.setCSSClass((Widget) widget, classname);
-					engine.applyStyles((Widget) widget, true);
-				}
-
-				public void setId(Object widget, String id) {
-					WidgetElement.setID((Widget) widget, id);
-					engine.applyStyles((Widget) widget, true);
-				}
-
-				public void style(Object widget) {
-					engine.applyStyles((Widget) widget, true);
-				}
-
-				public CSSStyleDeclaration getStyle(Object widget) {
-					return engine.getStyle((Widget) widget);
-				}
-
-				public void setClassnameAndId(Object widget, String classname,
-						String id) {
-					WidgetElement.setCSSClass((Widget) widget, classname);
-					WidgetElement.setID((Widget) widget, id);
-					engine.applyStyles((Widget) widget, true);
-				}
+			appContext.set(IStylingEngine.SERVICE_NAME,
+					new DeferredStylingEngine(display) {
+						protected void applyStyles(Widget widget) {
+							engine.applyStyles(widget, true);
+						}
 
-			});
+						public CSSStyleDeclaration getStyle(Object widget) {
+							return engine.getStyle((Widget) widget);
+						}
+					});
 		} else if (cssURI != null) {
 			String cssResourcesURI = (String) appContext
 					.get(E4Workbench.CSS_RESOURCE_URI_ARG);
@@ -1274,38 +1273,22 @@ public class PartRenderingEngine implements IPresentationEngine {
 			}
 			// FIXME: is this needed?
 			display.setData("org.eclipse.e4.ui.css.context", appContext); //$NON-NLS-1$
-			appContext.set(IStylingEngine.SERVICE_NAME, new IStylingEngine() {
-				public void setClassname(Object widget, String classname) {
-					WidgetElement.setCSSClass((Widget) widget, classname);
-					engine.applyStyles((Widget) widget, true);
-				}
-
-				public void setId(Object widget, String id) {
-					WidgetElement.setID((Widget) widget, id);
-					engine.applyStyles((Widget) widget, true);
-				}
-
-				public void style(Object widget) {
-					engine.applyStyles((Widget) widget, true);
-				}
-
-				public CSSStyleDeclaration getStyle(Object widget) {
-					Element e = engine.getCSSElementContext(widget)
-							.getElement();
-					if (e == null) {
-						return null;
-					}
-					return engine.getViewCSS().getComputedStyle(e, null);
-				}
-
-				public void setClassnameAndId(Object widget, String classname,
-						String id) {
-					WidgetElement.setCSSClass((Widget) widget, classname);
-					WidgetElement.setID((Widget) widget, id);
-					engine.applyStyles((Widget) widget, true);
-				}
+			appContext.set(IStylingEngine.SERVICE_NAME,
+					new DeferredStylingEngine(display) {
+						protected void applyStyles(Widget widget) {
+							engine.applyStyles(widget, true);
+						}
 
-			});
+						public CSSStyleDeclaration getStyle(Object widget) {
+							Element e = engine.getCSSElementContext(widget)
+									.getElement();
+							if (e == null) {
+								return null;
+							}
+							return engine.getViewCSS().getComputedStyle(e,
+									null);
+						}
+					});
 
 			URL url;
 			InputStream stream = null;
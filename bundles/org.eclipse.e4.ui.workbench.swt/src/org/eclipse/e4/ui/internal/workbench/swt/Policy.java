@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,4 +13,5 @@ package org.eclipse.e4.ui.internal.workbench.swt;
 public class Policy {
 	public static final String DEBUG_RENDERER = "/trace/renderer"; //$NON-NLS-1$
 	public static final String MENUS = "/trace/menus"; //$NON-NLS-1$
+	public static final String DEBUG_STYLING = "/trace/styling"; //$NON-NLS-1$
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2012 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -155,7 +155,11 @@ public class Activator implements BundleActivator {
 	}
 
 	public static void trace(String option, String msg, Throwable error) {
-		final DebugOptions debugOptions = activator.getDebugOptions();
+		final DebugOptions debugOptions = activator == null ? null : activator.getDebugOptions();
+		if (debugOptions == null) {
+			// not running in a framework
+			return;
+		}
 		if (debugOptions.isDebugEnabled()
 				&& debugOptions.getBooleanOption(PI_WORKBENCH + option, false)) {
 			System.out.println(msg);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 BestSolution.at and others.
+ * Copyright (c) 2008, 2013 BestSolution.at and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -42,6 +42,7 @@ public class E4Workbench implements IWorkbench {
 
 	public static final String CLEAR_PERSISTED_STATE = "clearPersistedState"; //$NON-NLS-1$
 	public static final String DELTA_RESTORE = "deltaRestore"; //$NON-NLS-1$
+	public static final String MODEL_ASSEMBLY_CACHE = "modelAssemblyCache"; //$NON-NLS-1$
 
 	public static final String RTL_MODE = "dir"; //$NON-NLS-1$
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2010 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,27 +11,138 @@
 
 package org.eclipse.e4.ui.internal.workbench;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.WeakHashMap;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMLResource;
 import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
 
 public class E4XMIResource extends XMIResourceImpl {
 
+	/**
+	 * The suffix of the file a resource is written to before it replaces the saved file.
+	 */
+	private static final String TEMP_FILE_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+	/**
+	 * The suffix of the file the saved file is moved to while it is replaced, where it cannot be
+	 * replaced atomically.
+	 */
+	private static final String BACKUP_FILE_SUFFIX = ".bak"; //$NON-NLS-1$
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The number of characters after which the serialized model is written to the file, instead
+	 * of keeping the whole document in memory.
+	 */
+	private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+	/**
+	 * The object of an id, which is removed from the id map once the object is garbage collected.
+	 */
+	private static class IdReference extends WeakReference<EObject> {
+		final String id;
+
+		IdReference(String id, EObject object, ReferenceQueue<EObject> queue) {
+			super(object, queue);
+			this.id = id;
+		}
+	}
+
+	/**
+	 * Counts the bytes written to a stream.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		long count = 0;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
 	private Map<EObject, String> objectMap = new WeakHashMap<EObject, String>();
 
+	/**
+	 * The reverse of objectMap, to check whether an id is in use in constant time.
+	 */
+	private Map<String, IdReference> idMap = new HashMap<String, IdReference>();
+
+	private ReferenceQueue<EObject> collectedObjects = new ReferenceQueue<EObject>();
+
 	public E4XMIResource() {
+		initDefaultSaveOptions();
 	}
 
 	public E4XMIResource(URI uri) {
 		super(uri);
+		initDefaultSaveOptions();
+	}
+
+	private void initDefaultSaveOptions() {
+		Map<Object, Object> options = getDefaultSaveOptions();
+		options.put(XMLResource.OPTION_FLUSH_THRESHOLD, Integer.valueOf(FLUSH_THRESHOLD));
+		options.put(XMLResource.OPTION_USE_CACHED_LOOKUP_TABLE, new ArrayList<Object>());
+		options.put(XMLResource.OPTION_CONFIGURATION_CACHE, Boolean.TRUE);
 	}
 
 	public void setInternalId(EObject object, String id) {
-		objectMap.put(object, id);
+		putInternalId(object, id);
+	}
+
+	private void putInternalId(EObject object, String id) {
+		removeCollectedIds();
+		String oldId = objectMap.put(object, id);
+		if (oldId != null && !oldId.equals(id)) {
+			IdReference reference = idMap.get(oldId);
+			if (reference != null && reference.get() == object) {
+				idMap.remove(oldId);
+			}
+		}
+		idMap.put(id, new IdReference(id, object, collectedObjects));
+	}
+
+	private boolean isIdInUse(String id) {
+		removeCollectedIds();
+		IdReference reference = idMap.get(id);
+		return reference != null && reference.get() != null;
+	}
+
+	private void removeCollectedIds() {
+		Reference<? extends EObject> reference;
+		while ((reference = collectedObjects.poll()) != null) {
+			String id = ((IdReference) reference).id;
+			if (idMap.get(id) == reference) {
+				idMap.remove(id);
+			}
+		}
 	}
 
 	public String getInternalId(EObject object) {
@@ -49,7 +160,7 @@ public class E4XMIResource extends XMIResourceImpl {
 
 	private String getUniqueId() {
 		String id = createId();
-		while (objectMap.values().contains(id)) {
+		while (isIdInUse(id)) {
 			id = createId();
 		}
 		return id;
@@ -62,7 +173,7 @@ public class E4XMIResource extends XMIResourceImpl {
 			if (internalId != null) {
 				super.setID(eObject, internalId);
 			}
-			objectMap.put(eObject, id);
+			putInternalId(eObject, id);
 		}
 		super.setID(eObject, id);
 	}
@@ -87,4 +198,90 @@ public class E4XMIResource extends XMIResourceImpl {
 		setID(eObject, id);
 		return id;
 	}
+
+	/**
+	 * Returns the file the resource is saved to, or <code>null</code> if its URI, normalized by the
+	 * URI converter of the resource set, is not a file URI.
+	 */
+	private File getFile() {
+		URI uri = getURI();
+		if (uri == null) {
+			return null;
+		}
+		uri = getURIConverter().normalize(uri);
+		return uri.isFile() ? new File(uri.toFileString()) : null;
+	}
+
+	/**
+	 * Restores the saved file from its backup if saving was interrupted before it was replaced.
+	 */
+	@Override
+	public void load(Map<?, ?> options) throws IOException {
+		File file = getFile();
+		if (file != null && !file.exists()) {
+			File backupFile = new File(file.getPath() + BACKUP_FILE_SUFFIX);
+			if (backupFile.exists()) {
+				backupFile.renameTo(file);
+			}
+		}
+		super.load(options);
+	}
+
+	/**
+	 * Saves the resource to a temporary file which then replaces the file of the resource, so that
+	 * the saved model is never left partially written. The model is streamed to the file instead of
+	 * being serialized in memory first. Resources whose URI does not map to a file are saved through
+	 * the URI converter.
+	 */
+	@Override
+	public void save(Map<?, ?> options) throws IOException {
+		File file = getFile();
+		if (file == null
+				|| (options != null && options.containsKey(Resource.OPTION_SAVE_ONLY_IF_CHANGED))) {
+			super.save(options);
+			return;
+		}
+
+		long start = System.currentTimeMillis();
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		File tempFile = new File(parent, file.getName() + TEMP_FILE_SUFFIX);
+
+		CountingOutputStream outputStream = new CountingOutputStream(new BufferedOutputStream(
+				new FileOutputStream(tempFile), BUFFER_SIZE));
+		boolean saved = false;
+		try {
+			save(outputStream, options);
+			saved = true;
+		} finally {
+			try {
+				outputStream.close();
+			} finally {
+				if (!saved) {
+					tempFile.delete();
+				}
+			}
+		}
+
+		// rename() replaces the file atomically where the platform supports it, elsewhere the
+		// previous file is kept as a backup until it is replaced
+		if (!tempFile.renameTo(file)) {
+			File backupFile = new File(parent, file.getName() + BACKUP_FILE_SUFFIX);
+			backupFile.delete();
+			if (file.exists() && !file.renameTo(backupFile)) {
+				throw new IOException("Unable to back up " + file + " to " + backupFile); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			if (!tempFile.renameTo(file)) {
+				backupFile.renameTo(file);
+				throw new IOException("Unable to replace " + file + " with " + tempFile); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			backupFile.delete();
+		}
+		setTimeStamp(file.lastModified());
+
+		Activator.trace(Policy.DEBUG_WORKBENCH, "Saved " + file + ": " + outputStream.count //$NON-NLS-1$ //$NON-NLS-2$
+				+ " bytes in " + (System.currentTimeMillis() - start) + " ms", null); //$NON-NLS-1$ //$NON-NLS-2$
+	}
 }
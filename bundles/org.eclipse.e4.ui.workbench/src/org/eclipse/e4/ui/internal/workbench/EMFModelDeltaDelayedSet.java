@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,6 @@
 
 package org.eclipse.e4.ui.internal.workbench;
 
-import java.util.List;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.emf.ecore.EStructuralFeature;
@@ -36,8 +35,7 @@ public class EMFModelDeltaDelayedSet extends EMFModelDeltaSet {
 
 	@Override
 	public IStatus apply() {
-		List<Object> references = XMLModelReconciler.getReferences(root);
-		value = XMLModelReconciler.findReference(references, id);
+		value = XMLModelReconciler.findReference(root, id);
 		if (value == null) {
 			return Status.CANCEL_STATUS;
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2011 BestSolution.at and others.
+ * Copyright (c) 2010, 2013 BestSolution.at and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,14 +11,21 @@
 
 package org.eclipse.e4.ui.internal.workbench;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import javax.inject.Inject;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IContributor;
@@ -40,6 +47,7 @@ import org.eclipse.e4.ui.model.fragment.impl.FragmentPackageImpl;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.common.util.WrappedException;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.resource.Resource;
@@ -63,7 +71,27 @@ public class ModelAssembler {
 	@Inject
 	private IEclipseContext context;
 
-	final private static String extensionPointID = "org.eclipse.e4.workbench.model"; //$NON-NLS-1$
+	final static String extensionPointID = "org.eclipse.e4.workbench.model"; //$NON-NLS-1$
+
+	/**
+	 * The maximum number of threads parsing fragments.
+	 */
+	private static final int MAX_LOADER_THREADS = 4;
+
+	/**
+	 * A fragment contributed to the model extension point.
+	 */
+	private static class FragmentContribution {
+		final IContributor contributor;
+		final URI uri;
+		Resource resource;
+		Exception error;
+
+		FragmentContribution(IContributor contributor, URI uri) {
+			this.contributor = contributor;
+			this.uri = uri;
+		}
+	}
 
 	/**
 	 * Process the model
@@ -89,6 +117,97 @@ public class ModelAssembler {
 			}
 		}
 
+		List<FragmentContribution> contributions = collectFragments(extensions);
+		// Parse the fragments in parallel, they are merged in order below
+		loadFragments(resourceSet, contributions);
+
+		for (FragmentContribution contribution : contributions) {
+			IContributor contributor = contribution.contributor;
+			if (contribution.error != null) {
+				logger.warn(contribution.error, "Unable to read model extension"); //$NON-NLS-1$
+				continue;
+			}
+
+			String contributorURI = URIHelper.constructPlatformURI(contributor);
+			Resource resource = contribution.resource;
+
+			EList<?> contents = resource.getContents();
+			if (contents.isEmpty()) {
+				continue;
+			}
+
+			Object extensionRoot = contents.get(0);
+
+			if (!(extensionRoot instanceof MModelFragments)) {
+				logger.warn("Unable to create model extension \"{0}\"", //$NON-NLS-1$
+						contributor.getName());
+				continue;
+			}
+
+			MModelFragments fragmentsContainer = (MModelFragments) extensionRoot;
+			List<MModelFragment> fragments = fragmentsContainer.getFragments();
+			boolean evalImports = false;
+			for (MModelFragment fragment : fragments) {
+				List<MApplicationElement> elements = fragment.getElements();
+				if (elements.size() == 0) {
+					continue;
+				}
+
+				for (MApplicationElement el : elements) {
+					EObject o = (EObject) el;
+
+					E4XMIResource r = (E4XMIResource) o.eResource();
+					applicationResource.setID(o, r.getID(o));
+
+					if (contributorURI != null)
+						el.setContributorURI(contributorURI);
+
+					// Remember IDs of subitems
+					TreeIterator<EObject> treeIt = EcoreUtil.getAllContents(o, true);
+					while (treeIt.hasNext()) {
+						EObject eObj = treeIt.next();
+						r = (E4XMIResource) eObj.eResource();
+						if (contributorURI != null && (eObj instanceof MApplicationElement))
+							((MApplicationElement) eObj).setContributorURI(contributorURI);
+						applicationResource.setID(eObj, r.getInternalId(eObj));
+					}
+				}
+
+				List<MApplicationElement> merged = fragment.merge(application);
+
+				if (merged.size() > 0) {
+					evalImports = true;
+					addedElements.addAll(merged);
+				}
+			}
+
+			if (evalImports) {
+				List<MApplicationElement> localImports = fragmentsContainer.getImports();
+				if (localImports != null) {
+					imports.addAll(localImports);
+				}
+			}
+		}
+
+		for (IExtension extension : extensions) {
+			IConfigurationElement[] ces = extension.getConfigurationElements();
+			for (IConfigurationElement ce : ces) {
+				if (!"processor".equals(ce.getName()) || Boolean.parseBoolean(ce.getAttribute("beforefragment"))) { //$NON-NLS-1$ //$NON-NLS-2$
+					continue;
+				}
+
+				runProcessor(ce);
+			}
+		}
+
+		resolveImports(imports, addedElements);
+	}
+
+	/**
+	 * Returns the fragments of the given extensions, in order.
+	 */
+	private List<FragmentContribution> collectFragments(IExtension[] extensions) {
+		List<FragmentContribution> contributions = new ArrayList<FragmentContribution>();
 		for (IExtension extension : extensions) {
 			IConfigurationElement[] ces = extension.getConfigurationElements();
 			for (IConfigurationElement ce : ces) {
@@ -112,87 +231,101 @@ public class ModelAssembler {
 					logger.warn(e, "Model extension has invalid location"); //$NON-NLS-1$
 					continue;
 				}
+				contributions.add(new FragmentContribution(contributor, uri));
+			}
+		}
+		return contributions;
+	}
 
-				String contributorURI = URIHelper.constructPlatformURI(contributor);
-				Resource resource;
-				try {
-					resource = resourceSet.getResource(uri, true);
-				} catch (RuntimeException e) {
-					logger.warn(e, "Unable to read model extension"); //$NON-NLS-1$
-					continue;
+	/**
+	 * Loads the resources of the given fragments. The resources are created in the resource set on
+	 * the calling thread, only their parsing is spread over a few threads.
+	 */
+	private void loadFragments(ResourceSet resourceSet, List<FragmentContribution> contributions) {
+		// Initialize what the parsers share before they run
+		if (resourceSet.getPackageRegistry().getEPackage(FragmentPackageImpl.eNS_URI) == null) {
+			resourceSet.getPackageRegistry().put(FragmentPackageImpl.eNS_URI,
+					FragmentPackageImpl.eINSTANCE);
+		}
+		resourceSet.getURIConverter();
+		final Map<Object, Object> loadOptions = resourceSet.getLoadOptions();
+
+		List<Resource> toLoad = new ArrayList<Resource>();
+		for (FragmentContribution contribution : contributions) {
+			Resource resource;
+			try {
+				resource = resourceSet.getResource(contribution.uri, false);
+				if (resource == null) {
+					resource = resourceSet.createResource(contribution.uri);
+					if (resource == null) {
+						throw new IllegalArgumentException(
+								"Cannot create a resource for '" + contribution.uri + "'"); //$NON-NLS-1$ //$NON-NLS-2$
+					}
 				}
+			} catch (RuntimeException e) {
+				contribution.error = e;
+				continue;
+			}
+			contribution.resource = resource;
+			if (!resource.isLoaded() && !toLoad.contains(resource)) {
+				toLoad.add(resource);
+			}
+		}
 
-				EList<?> contents = resource.getContents();
-				if (contents.isEmpty()) {
-					continue;
+		Map<Resource, Exception> errors = new IdentityHashMap<Resource, Exception>();
+		int threads = Math.min(toLoad.size(),
+				Math.min(MAX_LOADER_THREADS, Runtime.getRuntime().availableProcessors()));
+		if (threads <= 1) {
+			for (Resource resource : toLoad) {
+				try {
+					resource.load(loadOptions);
+				} catch (Exception e) {
+					errors.put(resource, e);
 				}
-
-				Object extensionRoot = contents.get(0);
-
-				if (!(extensionRoot instanceof MModelFragments)) {
-					logger.warn("Unable to create model extension \"{0}\"", //$NON-NLS-1$
-							contributor.getName());
-					continue;
+			}
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Model Fragment Loader"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
 				}
-
-				MModelFragments fragmentsContainer = (MModelFragments) extensionRoot;
-				List<MModelFragment> fragments = fragmentsContainer.getFragments();
-				boolean evalImports = false;
-				for (MModelFragment fragment : fragments) {
-					List<MApplicationElement> elements = fragment.getElements();
-					if (elements.size() == 0) {
-						continue;
-					}
-
-					for (MApplicationElement el : elements) {
-						EObject o = (EObject) el;
-
-						E4XMIResource r = (E4XMIResource) o.eResource();
-						applicationResource.setID(o, r.getID(o));
-
-						if (contributorURI != null)
-							el.setContributorURI(contributorURI);
-
-						// Remember IDs of subitems
-						TreeIterator<EObject> treeIt = EcoreUtil.getAllContents(o, true);
-						while (treeIt.hasNext()) {
-							EObject eObj = treeIt.next();
-							r = (E4XMIResource) eObj.eResource();
-							if (contributorURI != null && (eObj instanceof MApplicationElement))
-								((MApplicationElement) eObj).setContributorURI(contributorURI);
-							applicationResource.setID(eObj, r.getInternalId(eObj));
+			});
+			try {
+				List<Future<?>> futures = new ArrayList<Future<?>>(toLoad.size());
+				for (final Resource resource : toLoad) {
+					futures.add(executor.submit(new Runnable() {
+						public void run() {
+							try {
+								resource.load(loadOptions);
+							} catch (IOException e) {
+								throw new WrappedException(e);
+							}
 						}
-					}
-
-					List<MApplicationElement> merged = fragment.merge(application);
-
-					if (merged.size() > 0) {
-						evalImports = true;
-						addedElements.addAll(merged);
-					}
+					}));
 				}
-
-				if (evalImports) {
-					List<MApplicationElement> localImports = fragmentsContainer.getImports();
-					if (localImports != null) {
-						imports.addAll(localImports);
+				for (int i = 0; i < futures.size(); i++) {
+					try {
+						futures.get(i).get();
+					} catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						errors.put(toLoad.get(i), cause instanceof Exception ? (Exception) cause
+								: new WrappedException(e));
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						errors.put(toLoad.get(i), e);
 					}
 				}
+			} finally {
+				executor.shutdown();
 			}
 		}
 
-		for (IExtension extension : extensions) {
-			IConfigurationElement[] ces = extension.getConfigurationElements();
-			for (IConfigurationElement ce : ces) {
-				if (!"processor".equals(ce.getName()) || Boolean.parseBoolean(ce.getAttribute("beforefragment"))) { //$NON-NLS-1$ //$NON-NLS-2$
-					continue;
-				}
-
-				runProcessor(ce);
+		for (FragmentContribution contribution : contributions) {
+			if (contribution.resource != null) {
+				contribution.error = errors.get(contribution.resource);
 			}
 		}
-
-		resolveImports(imports, addedElements);
 	}
 
 	private void runProcessor(IConfigurationElement ce) {
@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtension;
+import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.RegistryFactory;
+import org.eclipse.e4.core.services.log.Logger;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.osgi.framework.Bundle;
+
+/**
+ * Keeps the application model assembled by the {@link ModelAssembler} on disk, so that it can be
+ * reused as long as the application definition and the bundles contributing to the model extension
+ * point do not change.
+ * <p>
+ * The key of the cached model is a digest of the application definition and its time stamp and
+ * of the version, time stamp and contributions of every contributing bundle. Model processors are
+ * only run when the model is assembled, the cache must not be used if their results depend on
+ * anything else.
+ * </p>
+ */
+public class ModelAssemblyCache {
+
+	private static final String MODEL_FILE = "assembled.xmi"; //$NON-NLS-1$
+
+	private static final String KEY_FILE = "assembled.key"; //$NON-NLS-1$
+
+	private static final String KEY_ENCODING = "UTF-8"; //$NON-NLS-1$
+
+	private final File modelFile;
+
+	private final File keyFile;
+
+	private final Logger logger;
+
+	/**
+	 * Creates a cache stored in the given directory.
+	 *
+	 * @param location
+	 *            the directory of the cache files
+	 * @param logger
+	 *            the logger, or <code>null</code>
+	 */
+	public ModelAssemblyCache(File location, Logger logger) {
+		this.modelFile = new File(location, MODEL_FILE);
+		this.keyFile = new File(location, KEY_FILE);
+		this.logger = logger;
+	}
+
+	/**
+	 * Computes the key of the model assembled from the given application definition in the current
+	 * installation.
+	 *
+	 * @param applicationDefinition
+	 *            the URI of the application definition
+	 * @param definitionTimeStamp
+	 *            the time stamp of the application definition
+	 * @return the key
+	 */
+	public String computeKey(URI applicationDefinition, long definitionTimeStamp) {
+		List<String> contributions = new ArrayList<String>();
+		IExtensionPoint extPoint = RegistryFactory.getRegistry().getExtensionPoint(
+				ModelAssembler.extensionPointID);
+		IExtension[] extensions = extPoint == null ? new IExtension[0] : extPoint.getExtensions();
+		for (IExtension extension : extensions) {
+			StringBuilder contribution = new StringBuilder();
+			String bundleName = extension.getContributor().getName();
+			contribution.append(bundleName).append(' ');
+			Bundle bundle = Activator.getDefault().getBundleForName(bundleName);
+			if (bundle != null) {
+				contribution.append(bundle.getVersion()).append(' ')
+						.append(bundle.getLastModified()).append(' ');
+			}
+			contribution.append(extension.getUniqueIdentifier());
+			for (IConfigurationElement ce : extension.getConfigurationElements()) {
+				contribution.append(' ').append(ce.getName());
+				String[] names = ce.getAttributeNames();
+				Arrays.sort(names);
+				for (String name : names) {
+					contribution.append(' ').append(name).append('=')
+							.append(ce.getAttribute(name));
+				}
+			}
+			contributions.add(contribution.toString());
+		}
+		// The key must not depend on the order of the registry
+		Collections.sort(contributions);
+
+		StringBuilder key = new StringBuilder();
+		key.append(applicationDefinition).append(' ').append(definitionTimeStamp);
+		for (String contribution : contributions) {
+			key.append('\n').append(contribution);
+		}
+		return digest(key.toString());
+	}
+
+	private static String digest(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(KEY_ENCODING)); //$NON-NLS-1$
+			StringBuilder result = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				result.append(Character.forDigit((b >> 4) & 0xf, 16));
+				result.append(Character.forDigit(b & 0xf, 16));
+			}
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			return key;
+		} catch (UnsupportedEncodingException e) {
+			return key;
+		}
+	}
+
+	/**
+	 * Loads the cached model if it was stored with the given key. The application is moved to a
+	 * new resource created at the given location, keeping the ids of its elements.
+	 *
+	 * @param key
+	 *            the key of the current installation
+	 * @param resourceSet
+	 *            the resource set to load the model into
+	 * @param location
+	 *            the URI of the resource to create for the application
+	 * @return the resource of the application, or <code>null</code> if no model is cached for the
+	 *         key
+	 */
+	public Resource load(String key, ResourceSet resourceSet, URI location) {
+		if (!key.equals(readKey()) || !modelFile.isFile()) {
+			return null;
+		}
+		URI cacheURI = URI.createFileURI(modelFile.getAbsolutePath());
+		Resource cached;
+		try {
+			cached = resourceSet.getResource(cacheURI, true);
+		} catch (RuntimeException e) {
+			if (logger != null) {
+				logger.warn(e, "Unable to read the cached application model"); //$NON-NLS-1$
+			}
+			Resource failed = resourceSet.getResource(cacheURI, false);
+			if (failed != null) {
+				resourceSet.getResources().remove(failed);
+			}
+			clear();
+			return null;
+		}
+		if (cached.getContents().isEmpty()
+				|| !(cached.getContents().get(0) instanceof MApplication)) {
+			resourceSet.getResources().remove(cached);
+			clear();
+			return null;
+		}
+
+		EObject application = cached.getContents().get(0);
+		// The ids are held by the resource, remember them before moving the model
+		Map<EObject, String> ids = new IdentityHashMap<EObject, String>();
+		if (cached instanceof E4XMIResource) {
+			TreeIterator<EObject> it = EcoreUtil.getAllContents(cached.getContents());
+			while (it.hasNext()) {
+				EObject o = it.next();
+				String id = ((E4XMIResource) cached).getID(o);
+				if (id != null) {
+					ids.put(o, id);
+				}
+			}
+		}
+
+		Resource resource = resourceSet.createResource(location);
+		resource.getContents().add(application);
+		resourceSet.getResources().remove(cached);
+		if (resource instanceof E4XMIResource) {
+			E4XMIResource e4Resource = (E4XMIResource) resource;
+			for (Map.Entry<EObject, String> entry : ids.entrySet()) {
+				e4Resource.setID(entry.getKey(), entry.getValue());
+			}
+		}
+		return resource;
+	}
+
+	/**
+	 * Stores the model of the given resource with the given key.
+	 *
+	 * @param key
+	 *            the key of the current installation
+	 * @param resource
+	 *            the resource of the assembled application
+	 */
+	public void store(String key, Resource resource) {
+		// Invalidate the cache first, so that it is never used half written
+		keyFile.delete();
+		File parent = modelFile.getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		try {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(modelFile));
+			try {
+				resource.save(out, null);
+			} finally {
+				out.close();
+			}
+			out = new FileOutputStream(keyFile);
+			try {
+				out.write(key.getBytes(KEY_ENCODING));
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			if (logger != null) {
+				logger.warn(e, "Unable to cache the application model"); //$NON-NLS-1$
+			}
+			clear();
+		}
+	}
+
+	/**
+	 * Discards the cached model.
+	 */
+	public void clear() {
+		keyFile.delete();
+		modelFile.delete();
+	}
+
+	private String readKey() {
+		if (!keyFile.isFile()) {
+			return null;
+		}
+		try {
+			InputStream in = new FileInputStream(keyFile);
+			try {
+				byte[] bytes = new byte[(int) keyFile.length()];
+				int read = 0;
+				while (read < bytes.length) {
+					int count = in.read(bytes, read, bytes.length - read);
+					if (count < 0) {
+						return null;
+					}
+					read += count;
+				}
+				return new String(bytes, KEY_ENCODING);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,596 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.impl.ApplicationPackageImpl;
+import org.eclipse.e4.ui.model.application.ui.MElementContainer;
+import org.eclipse.e4.ui.model.application.ui.MUIElement;
+import org.eclipse.e4.ui.model.application.ui.advanced.MArea;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPerspectiveStack;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPlaceholder;
+import org.eclipse.e4.ui.model.application.ui.advanced.impl.AdvancedPackageImpl;
+import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicPackageImpl;
+import org.eclipse.e4.ui.model.application.ui.impl.UiPackageImpl;
+import org.eclipse.e4.ui.workbench.modeling.EModelService;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+
+/**
+ * Indexes the UI elements of an application by id, by type and by tag, so that
+ * {@link EModelService#findElements(MUIElement, String, Class, List, int)} does
+ * not have to walk the whole model.
+ * <p>
+ * The index only provides the candidates of a search. A candidate is part of
+ * the result if the search would have reached it, and the result is ordered
+ * the same way as the traversal of the model. To do so, the path from the
+ * search root to each candidate is computed by walking up the containment and
+ * placeholder references, following the rules of the traversal, and the
+ * candidates are sorted by their path.
+ * </p>
+ * <p>
+ * The index is only used when it is more selective than a traversal and when
+ * all the elements reachable from the search root are indexed.
+ * </p>
+ */
+public class ModelElementIndex extends EContentAdapter {
+
+	/*
+	 * The steps of a path, the kind of step being stored in the upper bits and
+	 * the index of the element in the list of its container in the lower bits.
+	 * The steps are ordered like the traversal visits the references.
+	 */
+	private static final int END = 0;
+	private static final int CHILD = 1 << 24;
+	private static final int TRIM = 2 << 24;
+	private static final int WINDOW = 3 << 24;
+	private static final int REF = 4 << 24;
+	private static final int AREA = 5 << 24;
+
+	private static final int[] ROOT_PATH = new int[0];
+	private static final int[] UNREACHABLE = new int[0];
+	private static final int[] VISITING = new int[0];
+
+	/**
+	 * Searches by type or by tag fall back to a traversal if the candidates
+	 * are more than this fraction of the indexed elements.
+	 */
+	private static final int MAX_CANDIDATES_RATIO = 4;
+
+	private static final Comparator<int[]> PATH_COMPARATOR = new Comparator<int[]>() {
+		public int compare(int[] path1, int[] path2) {
+			int length = Math.min(path1.length, path2.length);
+			for (int i = 0; i < length; i++) {
+				if (path1[i] != path2[i]) {
+					return path1[i] < path2[i] ? -1 : 1;
+				}
+			}
+			return path1.length - path2.length;
+		}
+	};
+
+	private final Set<MUIElement> elements = new HashSet<MUIElement>();
+
+	private final Map<String, Set<MUIElement>> elementsById = new HashMap<String, Set<MUIElement>>();
+
+	private final Map<String, Set<MUIElement>> elementsByTag = new HashMap<String, Set<MUIElement>>();
+
+	private final Map<Class<?>, Set<MUIElement>> elementsByClass = new HashMap<Class<?>, Set<MUIElement>>();
+
+	/**
+	 * The indexed classes which are assignable to a searched type.
+	 */
+	private final Map<Class<?>, List<Class<?>>> assignableClasses = new HashMap<Class<?>, List<Class<?>>>();
+
+	/**
+	 * The tags under which each element is indexed.
+	 */
+	private final Map<MUIElement, String[]> indexedTags = new HashMap<MUIElement, String[]>();
+
+	/**
+	 * The placeholders referencing each element.
+	 */
+	private final Map<MUIElement, Set<MPlaceholder>> placeholders = new HashMap<MUIElement, Set<MPlaceholder>>();
+
+	/**
+	 * Whether a placeholder may reference an element which is not indexed.
+	 */
+	private boolean checkReferences = true;
+
+	private boolean externalReferences;
+
+	/**
+	 * Returns the index of the given application, creating it on first use.
+	 *
+	 * @param application
+	 *            the application
+	 * @return the index of the application
+	 */
+	public static ModelElementIndex getIndex(MApplication application) {
+		EObject eObject = (EObject) application;
+		for (Adapter adapter : eObject.eAdapters()) {
+			if (adapter instanceof ModelElementIndex) {
+				return (ModelElementIndex) adapter;
+			}
+		}
+		ModelElementIndex index = new ModelElementIndex();
+		eObject.eAdapters().add(index);
+		return index;
+	}
+
+	/**
+	 * Returns the elements reachable from the search root which match the
+	 * given criteria, in the order of
+	 * {@link EModelService#findElements(MUIElement, String, Class, List, int)}
+	 * , or <code>null</code> if the index cannot answer the search and the
+	 * model has to be traversed.
+	 *
+	 * @param searchRoot
+	 *            the element to start the search from, which must be
+	 *            contained in the indexed application
+	 * @param id
+	 *            the id of the elements, or <code>null</code>
+	 * @param clazz
+	 *            the type of the elements, or <code>null</code>
+	 * @param tagsToMatch
+	 *            the tags all the elements must have, or <code>null</code>
+	 * @param searchFlags
+	 *            the search flags
+	 * @return the matching elements, or <code>null</code>
+	 */
+	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
+			List<String> tagsToMatch, int searchFlags) {
+		if (searchFlags == 0 || !elements.contains(searchRoot) || hasExternalReferences())
+			return null;
+		if ((searchFlags & EModelService.IN_ACTIVE_PERSPECTIVE) != 0
+				&& (searchFlags & EModelService.IN_ANY_PERSPECTIVE) == 0
+				&& hasForeignSelection())
+			return null;
+
+		Collection<? extends Collection<MUIElement>> candidates = getCandidates(id, clazz,
+				tagsToMatch);
+		if (candidates == null)
+			return null;
+
+		List<MUIElement> matches = new ArrayList<MUIElement>();
+		for (Collection<MUIElement> collection : candidates) {
+			for (MUIElement candidate : collection) {
+				if (match(candidate, id, clazz, tagsToMatch)) {
+					matches.add(candidate);
+				}
+			}
+		}
+		if (matches.isEmpty())
+			return new ArrayList<T>(0);
+
+		final Map<MUIElement, int[]> paths = new HashMap<MUIElement, int[]>();
+		paths.put(searchRoot, ROOT_PATH);
+		List<MUIElement> reachable = new ArrayList<MUIElement>(matches.size());
+		for (MUIElement match : matches) {
+			if (getPath(match, searchRoot, searchFlags, paths) != null) {
+				reachable.add(match);
+			}
+		}
+		if (reachable.size() > 1) {
+			Collections.sort(reachable, new Comparator<MUIElement>() {
+				public int compare(MUIElement element1, MUIElement element2) {
+					return PATH_COMPARATOR.compare(paths.get(element1), paths.get(element2));
+				}
+			});
+		}
+
+		List<T> result = new ArrayList<T>(reachable.size());
+		for (MUIElement element : reachable) {
+			result.add((T) element);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the most selective sets of candidates for the given criteria, or
+	 * <code>null</code> if a traversal is cheaper.
+	 */
+	private Collection<? extends Collection<MUIElement>> getCandidates(String id, Class<?> clazz,
+			List<String> tagsToMatch) {
+		if (id != null) {
+			return Collections.singletonList(getSet(elementsById, id));
+		}
+
+		int maxCandidates = elements.size() / MAX_CANDIDATES_RATIO;
+		if (tagsToMatch != null && !tagsToMatch.isEmpty()) {
+			Set<MUIElement> smallest = null;
+			for (String tag : tagsToMatch) {
+				Set<MUIElement> tagged = getSet(elementsByTag, tag);
+				if (smallest == null || tagged.size() < smallest.size()) {
+					smallest = tagged;
+				}
+			}
+			return smallest.size() > maxCandidates ? null : Collections.singletonList(smallest);
+		}
+
+		if (clazz != null && clazz != MUIElement.class && clazz != Object.class) {
+			List<Set<MUIElement>> sets = new ArrayList<Set<MUIElement>>();
+			int size = 0;
+			for (Class<?> indexedClass : getAssignableClasses(clazz)) {
+				Set<MUIElement> set = elementsByClass.get(indexedClass);
+				size += set.size();
+				sets.add(set);
+			}
+			return size > maxCandidates ? null : sets;
+		}
+		return null;
+	}
+
+	private List<Class<?>> getAssignableClasses(Class<?> clazz) {
+		List<Class<?>> classes = assignableClasses.get(clazz);
+		if (classes == null) {
+			classes = new ArrayList<Class<?>>();
+			for (Class<?> indexedClass : elementsByClass.keySet()) {
+				if (clazz.isAssignableFrom(indexedClass)) {
+					classes.add(indexedClass);
+				}
+			}
+			assignableClasses.put(clazz, classes);
+		}
+		return classes;
+	}
+
+	private static boolean match(MUIElement element, String id, Class<?> clazz,
+			List<String> tagsToMatch) {
+		if (id != null && !id.equals(element.getElementId()))
+			return false;
+		if (clazz != null && !clazz.isInstance(element))
+			return false;
+		if (tagsToMatch != null && !element.getTags().containsAll(tagsToMatch))
+			return false;
+		return true;
+	}
+
+	/**
+	 * Returns the path along which a search from the given root first visits
+	 * the element, or <code>null</code> if the search does not reach it. The
+	 * paths are memoized in the given map.
+	 */
+	private int[] getPath(MUIElement element, MUIElement searchRoot, int searchFlags,
+			Map<MUIElement, int[]> paths) {
+		if (element == searchRoot)
+			return ROOT_PATH;
+		int[] path = paths.get(element);
+		if (path != null)
+			return path == UNREACHABLE || path == VISITING ? null : path;
+
+		paths.put(element, VISITING);
+		int[] best = null;
+
+		// the reference from the container
+		EObject eObject = (EObject) element;
+		EObject container = eObject.eContainer();
+		if (container instanceof MUIElement) {
+			int step = getContainmentStep(eObject, (MUIElement) container, searchFlags);
+			if (step != -1) {
+				best = min(best, append(getPath((MUIElement) container, searchRoot, searchFlags,
+						paths), step));
+			}
+		}
+
+		// the references from placeholders
+		Set<MPlaceholder> references = placeholders.get(element);
+		if (references != null
+				&& (!(element instanceof MArea) || (searchFlags & EModelService.IN_SHARED_AREA) != 0)) {
+			for (MPlaceholder placeholder : references) {
+				best = min(best, append(getPath(placeholder, searchRoot, searchFlags, paths), REF));
+			}
+		}
+
+		// the shared areas of the perspective stacks
+		if (element instanceof MArea && isSharedAreaSearch(searchFlags)) {
+			for (MPerspectiveStack stack : getPerspectiveStacks(element)) {
+				int[] stackPath = getPath(stack, searchRoot, searchFlags, paths);
+				if (stackPath == null)
+					continue;
+				int[] areaPath = getPath(element, stack, EModelService.ANYWHERE,
+						new HashMap<MUIElement, int[]>());
+				if (areaPath == null)
+					continue;
+				int[] candidate = new int[stackPath.length + areaPath.length + 2];
+				System.arraycopy(stackPath, 0, candidate, 0, stackPath.length);
+				candidate[stackPath.length] = AREA;
+				System.arraycopy(areaPath, 0, candidate, stackPath.length + 1, areaPath.length);
+				candidate[candidate.length - 1] = END;
+				best = min(best, candidate);
+			}
+		}
+
+		paths.put(element, best == null ? UNREACHABLE : best);
+		return best;
+	}
+
+	/**
+	 * Returns the step from the container to the element, or <code>-1</code>
+	 * if the search does not follow the containment reference.
+	 */
+	private static int getContainmentStep(EObject element, MUIElement container, int searchFlags) {
+		EStructuralFeature feature = element.eContainingFeature();
+		int kind;
+		if (feature == UiPackageImpl.Literals.ELEMENT_CONTAINER__CHILDREN) {
+			if (container instanceof MPerspectiveStack) {
+				if ((searchFlags & EModelService.IN_ANY_PERSPECTIVE) == 0
+						&& ((searchFlags & EModelService.IN_ACTIVE_PERSPECTIVE) == 0 || ((MPerspectiveStack) container)
+								.getSelectedElement() != element))
+					return -1;
+			}
+			kind = CHILD;
+		} else if (feature == BasicPackageImpl.Literals.TRIMMED_WINDOW__TRIM_BARS) {
+			if ((searchFlags & EModelService.IN_TRIM) == 0)
+				return -1;
+			kind = TRIM;
+		} else if (feature == BasicPackageImpl.Literals.WINDOW__WINDOWS
+				|| feature == AdvancedPackageImpl.Literals.PERSPECTIVE__WINDOWS) {
+			kind = WINDOW;
+		} else {
+			return -1;
+		}
+		return kind | ((List<?>) ((EObject) container).eGet(feature)).indexOf(element);
+	}
+
+	/**
+	 * Returns whether perspective stacks are only searched for their shared
+	 * areas.
+	 */
+	private static boolean isSharedAreaSearch(int searchFlags) {
+		return (searchFlags & (EModelService.IN_ANY_PERSPECTIVE | EModelService.IN_ACTIVE_PERSPECTIVE)) == 0
+				&& (searchFlags & EModelService.IN_SHARED_AREA) != 0;
+	}
+
+	/**
+	 * Returns the perspective stacks from which a search of any element
+	 * reaches the given element.
+	 */
+	private List<MPerspectiveStack> getPerspectiveStacks(MUIElement element) {
+		List<MPerspectiveStack> stacks = new ArrayList<MPerspectiveStack>();
+		Set<MUIElement> visited = new HashSet<MUIElement>();
+		LinkedList<MUIElement> queue = new LinkedList<MUIElement>();
+		queue.add(element);
+		while (!queue.isEmpty()) {
+			MUIElement current = queue.removeFirst();
+			if (!visited.add(current))
+				continue;
+			if (current instanceof MPerspectiveStack) {
+				stacks.add((MPerspectiveStack) current);
+			}
+			EObject container = ((EObject) current).eContainer();
+			if (container instanceof MUIElement
+					&& getContainmentStep((EObject) current, (MUIElement) container,
+							EModelService.ANYWHERE) != -1) {
+				queue.add((MUIElement) container);
+			}
+			Set<MPlaceholder> references = placeholders.get(current);
+			if (references != null) {
+				queue.addAll(references);
+			}
+		}
+		return stacks;
+	}
+
+	private static int[] append(int[] path, int step) {
+		if (path == null)
+			return null;
+		int[] result = new int[path.length + 1];
+		System.arraycopy(path, 0, result, 0, path.length);
+		result[path.length] = step;
+		return result;
+	}
+
+	private static int[] min(int[] path1, int[] path2) {
+		if (path1 == null)
+			return path2;
+		if (path2 == null)
+			return path1;
+		return PATH_COMPARATOR.compare(path1, path2) <= 0 ? path1 : path2;
+	}
+
+	/**
+	 * Returns whether a placeholder references an element which is not
+	 * indexed, in which case a search may reach elements the index does not
+	 * know about.
+	 */
+	private boolean hasExternalReferences() {
+		if (checkReferences) {
+			externalReferences = false;
+			for (Set<MPlaceholder> references : placeholders.values()) {
+				for (MPlaceholder placeholder : references) {
+					MUIElement ref = placeholder.getRef();
+					if (ref != null && !elements.contains(ref)) {
+						externalReferences = true;
+						break;
+					}
+				}
+			}
+			checkReferences = false;
+		}
+		return externalReferences;
+	}
+
+	/**
+	 * Returns whether a perspective stack selects an element which is not one
+	 * of its children, which the search of the active perspective would reach
+	 * outside of the containment references.
+	 */
+	private boolean hasForeignSelection() {
+		for (Class<?> indexedClass : getAssignableClasses(MPerspectiveStack.class)) {
+			for (MUIElement stack : elementsByClass.get(indexedClass)) {
+				MUIElement selected = ((MElementContainer<?>) stack).getSelectedElement();
+				if (selected != null && ((EObject) selected).eContainer() != stack)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	public void notifyChanged(Notification notification) {
+		super.notifyChanged(notification);
+
+		Object notifier = notification.getNotifier();
+		if (!(notifier instanceof MUIElement) || !elements.contains(notifier))
+			return;
+
+		MUIElement element = (MUIElement) notifier;
+		Object feature = notification.getFeature();
+		if (feature == ApplicationPackageImpl.Literals.APPLICATION_ELEMENT__ELEMENT_ID) {
+			remove(elementsById, notification.getOldStringValue(), element);
+			add(elementsById, element.getElementId(), element);
+		} else if (feature == ApplicationPackageImpl.Literals.APPLICATION_ELEMENT__TAGS) {
+			unindexTags(element);
+			indexTags(element);
+		} else if (feature == AdvancedPackageImpl.Literals.PLACEHOLDER__REF) {
+			MPlaceholder placeholder = (MPlaceholder) element;
+			removeReference(placeholder, (MUIElement) notification.getOldValue());
+			addReference(placeholder, placeholder.getRef());
+		}
+	}
+
+	protected void setTarget(EObject target) {
+		super.setTarget(target);
+		if (target instanceof MUIElement) {
+			index((MUIElement) target);
+		}
+	}
+
+	protected void unsetTarget(EObject target) {
+		super.unsetTarget(target);
+		if (target instanceof MUIElement) {
+			unindex((MUIElement) target);
+		}
+	}
+
+	private void index(MUIElement element) {
+		if (!elements.add(element))
+			return;
+		add(elementsById, element.getElementId(), element);
+		indexTags(element);
+		Class<?> elementClass = element.getClass();
+		Set<MUIElement> set = elementsByClass.get(elementClass);
+		if (set == null) {
+			set = new HashSet<MUIElement>();
+			elementsByClass.put(elementClass, set);
+			assignableClasses.clear();
+		}
+		set.add(element);
+		if (element instanceof MPlaceholder) {
+			addReference((MPlaceholder) element, ((MPlaceholder) element).getRef());
+		}
+		checkReferences = true;
+	}
+
+	private void unindex(MUIElement element) {
+		if (!elements.remove(element))
+			return;
+		remove(elementsById, element.getElementId(), element);
+		unindexTags(element);
+		Set<MUIElement> set = elementsByClass.get(element.getClass());
+		if (set != null) {
+			set.remove(element);
+		}
+		if (element instanceof MPlaceholder) {
+			removeReference((MPlaceholder) element, ((MPlaceholder) element).getRef());
+		}
+		checkReferences = true;
+	}
+
+	private void indexTags(MUIElement element) {
+		List<String> tags = element.getTags();
+		if (tags.isEmpty())
+			return;
+		String[] copy = tags.toArray(new String[tags.size()]);
+		for (String tag : copy) {
+			add(elementsByTag, tag, element);
+		}
+		indexedTags.put(element, copy);
+	}
+
+	private void unindexTags(MUIElement element) {
+		String[] tags = indexedTags.remove(element);
+		if (tags != null) {
+			for (String tag : tags) {
+				remove(elementsByTag, tag, element);
+			}
+		}
+	}
+
+	private void addReference(MPlaceholder placeholder, MUIElement ref) {
+		if (ref != null) {
+			Set<MPlaceholder> references = placeholders.get(ref);
+			if (references == null) {
+				references = new HashSet<MPlaceholder>(2);
+				placeholders.put(ref, references);
+			}
+			references.add(placeholder);
+		}
+		checkReferences = true;
+	}
+
+	private void removeReference(MPlaceholder placeholder, MUIElement ref) {
+		if (ref != null) {
+			Set<MPlaceholder> references = placeholders.get(ref);
+			if (references != null && references.remove(placeholder) && references.isEmpty()) {
+				placeholders.remove(ref);
+			}
+		}
+		checkReferences = true;
+	}
+
+	private static Set<MUIElement> getSet(Map<String, Set<MUIElement>> map, String key) {
+		Set<MUIElement> set = map.get(key);
+		return set == null ? Collections.<MUIElement> emptySet() : set;
+	}
+
+	private static void add(Map<String, Set<MUIElement>> map, String key, MUIElement element) {
+		if (key == null)
+			return;
+		Set<MUIElement> set = map.get(key);
+		if (set == null) {
+			set = new HashSet<MUIElement>(2);
+			map.put(key, set);
+		}
+		set.add(element);
+	}
+
+	private static void remove(Map<String, Set<MUIElement>> map, String key, MUIElement element) {
+		if (key == null)
+			return;
+		Set<MUIElement> set = map.get(key);
+		if (set != null && set.remove(element) && set.isEmpty()) {
+			map.remove(key);
+		}
+	}
+
+	/**
+	 * Returns the number of indexed elements.
+	 *
+	 * @return the number of indexed elements
+	 */
+	public int size() {
+		return elements.size();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2011 IBM Corporation and others.
+ * Copyright (c) 2010, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -213,18 +213,39 @@ public class ModelServiceImpl implements EModelService {
 	 */
 	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch) {
-		List<T> elements = new ArrayList<T>();
-		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, ANYWHERE);
-		return elements;
+		return findElements(searchRoot, id, clazz, tagsToMatch, ANYWHERE);
 	}
 
 	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch, int searchFlags) {
+		// Look the elements up in the index of the application, if it can answer the search
+		ModelElementIndex index = getIndex(searchRoot);
+		if (index != null) {
+			List<T> elements = index.findElements(searchRoot, id, clazz, tagsToMatch, searchFlags);
+			if (elements != null)
+				return elements;
+		}
+
 		List<T> elements = new ArrayList<T>();
 		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, searchFlags);
 		return elements;
 	}
 
+	/**
+	 * Returns the index of the application containing the given element.
+	 * 
+	 * @param element
+	 *            The element
+	 * @return the index, or <code>null</code> if the element is not contained in an application
+	 */
+	private ModelElementIndex getIndex(MUIElement element) {
+		Assert.isLegal(element != null);
+		EObject root = EcoreUtil.getRootContainer((EObject) element);
+		if (!(root instanceof MApplication))
+			return null;
+		return ModelElementIndex.getIndex((MApplication) root);
+	}
+
 	private <T> List<T> findPerspectiveElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch) {
 		List<T> elements = new ArrayList<T>();
@@ -29,6 +29,7 @@ import org.eclipse.core.internal.runtime.PlatformURLPluginConnection;
 import org.eclipse.core.runtime.URIUtil;
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.core.services.log.Logger;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.e4.ui.model.application.MApplicationElement;
@@ -84,6 +85,15 @@ public class ResourceHandler implements IModelResourceHandler {
 	final private boolean saveAndRestore;
 	final private boolean clearPersistedState;
 
+	/**
+	 * Whether the model assembled from the application definition is cached, see
+	 * {@link ModelAssemblyCache}.
+	 */
+	@Inject
+	@Optional
+	@Named(E4Workbench.MODEL_ASSEMBLY_CACHE)
+	private Boolean cacheModelAssembly;
+
 	/**
 	 * Constructor.
 	 * 
@@ -125,6 +135,8 @@ public class ResourceHandler implements IModelResourceHandler {
 	}
 
 	public Resource loadMostRecentModel() {
+		long start = System.currentTimeMillis();
+		long phase = start;
 		File baseLocation = getBaseLocation();
 		// This is temporary code to migrate existing delta files into full models
 		if (deltaRestore && saveAndRestore && !clearPersistedState) {
@@ -139,11 +151,13 @@ public class ResourceHandler implements IModelResourceHandler {
 
 					Resource oldResource = loadResource(applicationDefinitionInstance);
 					appElement = (MApplication) oldResource.getContents().get(0);
+					phase = tracePhase("Load application definition", phase); //$NON-NLS-1$
 
 					context.set(MApplication.class, appElement);
 					ModelAssembler contribProcessor = ContextInjectionFactory.make(
 							ModelAssembler.class, context);
 					contribProcessor.processModel();
+					phase = tracePhase("Assemble model", phase); //$NON-NLS-1$
 
 					File deltaOldFile = new File(baseLocation, "deltas_42M7migration.xml"); //$NON-NLS-1$
 					deltaFile.renameTo(deltaOldFile);
@@ -158,9 +172,12 @@ public class ResourceHandler implements IModelResourceHandler {
 						ModelReconciler modelReconciler = modelReconcilingService
 								.createModelReconciler();
 						document.normalizeDocument();
+						phase = tracePhase("Parse deltas", phase); //$NON-NLS-1$
 						Collection<ModelDelta> deltas = modelReconciler.constructDeltas(oldResource
 								.getContents().get(0), document);
+						phase = tracePhase("Construct " + deltas.size() + " deltas", phase); //$NON-NLS-1$ //$NON-NLS-2$
 						modelReconcilingService.applyDeltas(deltas);
+						phase = tracePhase("Apply deltas", phase); //$NON-NLS-1$
 					}
 				} catch (Exception e) {
 					if (logger != null) {
@@ -169,6 +186,7 @@ public class ResourceHandler implements IModelResourceHandler {
 				}
 				if (appElement != null)
 					resource.getContents().add((EObject) appElement);
+				tracePhase("Restore model from deltas", start); //$NON-NLS-1$
 				return resource;
 			}
 		}
@@ -194,11 +212,31 @@ public class ResourceHandler implements IModelResourceHandler {
 		resource = null;
 		if (restore && saveAndRestore) {
 			resource = loadResource(restoreLocation);
+			phase = tracePhase("Load saved model", phase); //$NON-NLS-1$
 		}
+		ModelAssemblyCache assemblyCache = null;
+		String assemblyKey = null;
 		if (resource == null) {
+			if (cacheModelAssembly != null && cacheModelAssembly.booleanValue()) {
+				// The assembly only depends on the installation when starting from the definition
+				assemblyCache = new ModelAssemblyCache(baseLocation, logger);
+				assemblyKey = assemblyCache.computeKey(applicationDefinitionInstance,
+						getLastApplicationModification());
+				resource = assemblyCache.load(assemblyKey, resourceSetImpl,
+						URI.createFileURI(workbenchData.getAbsolutePath()));
+				if (resource != null) {
+					this.context.set(MApplication.class,
+							(MApplication) resource.getContents().get(0));
+					tracePhase("Load cached assembled model", phase); //$NON-NLS-1$
+					tracePhase("Load model", start); //$NON-NLS-1$
+					return resource;
+				}
+				phase = tracePhase("Check assembled model cache", phase); //$NON-NLS-1$
+			}
 			Resource applicationResource = loadResource(applicationDefinitionInstance);
 			MApplication theApp = (MApplication) applicationResource.getContents().get(0);
 			resource = createResourceWithApp(theApp);
+			phase = tracePhase("Load application definition", phase); //$NON-NLS-1$
 		}
 
 		// Add model items described in the model extension point
@@ -209,10 +247,32 @@ public class ResourceHandler implements IModelResourceHandler {
 		ModelAssembler contribProcessor = ContextInjectionFactory.make(ModelAssembler.class,
 				context);
 		contribProcessor.processModel();
+		phase = tracePhase("Assemble model", phase); //$NON-NLS-1$
 
+		if (assemblyCache != null) {
+			assemblyCache.store(assemblyKey, resource);
+			tracePhase("Cache assembled model", phase); //$NON-NLS-1$
+		}
+
+		tracePhase("Load model", start); //$NON-NLS-1$
 		return resource;
 	}
 
+	/**
+	 * Traces the time spent in a phase of loading the model.
+	 * 
+	 * @param phase
+	 *            the name of the phase
+	 * @param start
+	 *            when the phase started
+	 * @return when the phase ended
+	 */
+	private long tracePhase(String phase, long start) {
+		long end = System.currentTimeMillis();
+		Activator.trace(Policy.DEBUG_WORKBENCH, phase + ": " + (end - start) + " ms", null); //$NON-NLS-1$ //$NON-NLS-2$
+		return end;
+	}
+
 	public void save() throws IOException {
 		if (saveAndRestore)
 			resource.save(null);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2012 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,9 +12,11 @@ package org.eclipse.e4.ui.internal.workbench;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.services.events.IEventBroker;
+import org.eclipse.e4.ui.services.internal.events.EventBroker;
 import org.eclipse.e4.ui.model.application.MApplicationElement;
 import org.eclipse.e4.ui.model.application.impl.StringToObjectMapImpl;
 import org.eclipse.e4.ui.model.application.impl.StringToStringMapImpl;
@@ -34,6 +36,12 @@ public class UIEventPublisher extends EContentAdapter {
 
 	private IEclipseContext context;
 
+	/**
+	 * The topics per feature, or per attribute name for map changes, indexed
+	 * by notification type.
+	 */
+	private Map<Object, String[]> topics = new ConcurrentHashMap<Object, String[]>();
+
 	/**
 	 * @param e4Context
 	 */
@@ -48,15 +56,36 @@ public class UIEventPublisher extends EContentAdapter {
 		if (notification.isTouch())
 			return;
 
+		String topic = getTopic(notification);
+		if (topic == null)
+			return;
+
+		// Skip formatting the event if nobody listens to it
+		IEventBroker eventManager = context.get(IEventBroker.class);
+		if (eventManager instanceof EventBroker
+				&& !((EventBroker) eventManager).hasSubscribers(topic))
+			return;
+
 		// Format the EMF event as an E4 UIEvent
 		Map<String, Object> argMap = new HashMap<String, Object>();
+		formatData(notification, argMap);
+		eventManager.send(topic, argMap);
+	}
 
-		String topic = formatData(notification, argMap);
-
-		if (topic != null) {
-			IEventBroker eventManager = context.get(IEventBroker.class);
-			eventManager.send(topic, argMap);
+	/**
+	 * Returns the topic of the event for the given notification, or
+	 * <code>null</code> if the notification is not published.
+	 */
+	private String getTopic(Notification notification) {
+		Object notifier = notification.getNotifier();
+		if (notifier instanceof MApplicationElement) {
+			return getTopic((EStructuralFeature) notification.getFeature(), notification);
+		} else if (notifier instanceof StringToObjectMapImpl) {
+			return getTopic(UIEvents.ApplicationElement.TRANSIENTDATA, notification);
+		} else if (notifier instanceof StringToStringMapImpl) {
+			return getTopic(UIEvents.ApplicationElement.PERSISTEDSTATE, notification);
 		}
+		return null;
 	}
 
 	/**
@@ -97,11 +126,10 @@ public class UIEventPublisher extends EContentAdapter {
 	 * Likely there is some "simple" EMF wisdom we are missing to make this work with a couple of
 	 * annotations, a white swan and a full moon.
 	 */
-	private String formatData(final Notification notification, Map<String, Object> argMap) {
+	private void formatData(final Notification notification, Map<String, Object> argMap) {
 		MApplicationElement appElement = null;
 		EStructuralFeature feature = null;
 		String attributeName = null;
-		String topic = null;
 
 		Object notifier = notification.getNotifier();
 		Object oldValue = null;
@@ -113,7 +141,6 @@ public class UIEventPublisher extends EContentAdapter {
 			appElement = (MApplicationElement) notifier;
 			feature = (EStructuralFeature) notification.getFeature();
 			attributeName = feature.getName();
-			topic = getTopic(feature, getEventType(notification));
 			switch (notification.getEventType()) {
 			case Notification.MOVE:
 				// for MOVE, oldValue is actually the source position
@@ -163,7 +190,6 @@ public class UIEventPublisher extends EContentAdapter {
 			}
 
 			attributeName = UIEvents.ApplicationElement.TRANSIENTDATA;
-			topic = getTopic(attributeName, getEventType(notification));
 
 			// We need to send MapEntries for the old and new values.
 			oldValue = createMapEntry(key, notification.getOldValue());
@@ -186,12 +212,11 @@ public class UIEventPublisher extends EContentAdapter {
 			}
 
 			attributeName = UIEvents.ApplicationElement.PERSISTEDSTATE;
-			topic = getTopic(attributeName, getEventType(notification));
 			oldValue = createMapEntry(key, notification.getOldValue());
 			newValue = createMapEntry(key, notification.getNewValue());
 		} else {
 			// Unhandled notification type. Ignore event
-			return null;
+			return;
 		}
 
 		argMap.put(EventTags.TYPE, getEventType(notification));
@@ -219,8 +244,6 @@ public class UIEventPublisher extends EContentAdapter {
 		if (appElement instanceof MUIElement) {
 			argMap.put(EventTags.WIDGET, ((MUIElement) appElement).getWidget());
 		}
-
-		return topic;
 	}
 
 	private String getEventType(Notification notification) {
@@ -264,16 +287,38 @@ public class UIEventPublisher extends EContentAdapter {
 		};
 	}
 
-	private String getTopic(EStructuralFeature eFeature, String type) {
-		EClass eContainingClass = eFeature.getEContainingClass();
-		return UIEvents.UIModelTopicBase + UIEvents.TOPIC_SEP
-				+ eContainingClass.getEPackage().getName() + UIEvents.TOPIC_SEP
-				+ eContainingClass.getName() + UIEvents.TOPIC_SEP + eFeature.getName()
-				+ UIEvents.TOPIC_SEP + type;
+	/**
+	 * Returns the topic for a feature and the type of a notification. The
+	 * topics of each feature are computed once and cached.
+	 */
+	private String getTopic(Object feature, Notification notification) {
+		int eventType = notification.getEventType();
+		if (eventType < 0 || eventType >= Notification.EVENT_TYPE_COUNT) {
+			return computeTopic(feature, getEventType(notification));
+		}
+		String[] featureTopics = topics.get(feature);
+		if (featureTopics == null) {
+			featureTopics = new String[Notification.EVENT_TYPE_COUNT];
+			topics.put(feature, featureTopics);
+		}
+		String topic = featureTopics[eventType];
+		if (topic == null) {
+			topic = computeTopic(feature, getEventType(notification));
+			featureTopics[eventType] = topic;
+		}
+		return topic;
 	}
 
-	private String getTopic(String attributeName, String type) {
+	private String computeTopic(Object feature, String type) {
+		if (feature instanceof EStructuralFeature) {
+			EStructuralFeature eFeature = (EStructuralFeature) feature;
+			EClass eContainingClass = eFeature.getEContainingClass();
+			return UIEvents.UIModelTopicBase + UIEvents.TOPIC_SEP
+					+ eContainingClass.getEPackage().getName() + UIEvents.TOPIC_SEP
+					+ eContainingClass.getName() + UIEvents.TOPIC_SEP + eFeature.getName()
+					+ UIEvents.TOPIC_SEP + type;
+		}
 		String topicBase = "org/eclipse/e4/ui/model/application/ApplicationElement/"; //$NON-NLS-1$
-		return topicBase + attributeName + UIEvents.TOPIC_SEP + type;
+		return topicBase + feature + UIEvents.TOPIC_SEP + type;
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2012 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -81,7 +81,6 @@ import org.eclipse.emf.ecore.xmi.XMLResource;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 public class XMLModelReconciler extends ModelReconciler {
 
@@ -174,19 +173,57 @@ public class XMLModelReconciler extends ModelReconciler {
 		record();
 	}
 
-	static List<Object> getReferences(Object object) {
+	/**
+	 * Returns the application elements contained by the specified object by their id. When
+	 * several elements have the same id, the first one in depth-first order is kept, as a linear
+	 * search would find it.
+	 * 
+	 * @param object
+	 *            the root object
+	 * @return the contained application elements by id
+	 */
+	static Map<String, Object> getReferences(Object object) {
 		Iterator<EObject> it = ((EObject) object).eAllContents();
-		List<Object> references = new LinkedList<Object>();
+		Map<String, Object> references = new HashMap<String, Object>();
 		while (it.hasNext()) {
-			Object reference = it.next();
-			references.add(reference);
+			EObject reference = it.next();
+			if (reference instanceof MApplicationElement) {
+				String id = getLocalId(reference);
+				if (!references.containsKey(id)) {
+					references.put(id, reference);
+				}
+			}
 		}
 		return references;
 	}
 
+	/**
+	 * Returns the first application element contained by the specified object with the given id.
+	 * Used to resolve a single reference, when building the map of all references would cost
+	 * more than a search.
+	 * 
+	 * @param object
+	 *            the root object
+	 * @param id
+	 *            the id of the element
+	 * @return the element, or <code>null</code> if there is none
+	 */
+	static Object findReference(Object object, String id) {
+		Iterator<EObject> it = ((EObject) object).eAllContents();
+		while (it.hasNext()) {
+			EObject reference = it.next();
+			if (reference instanceof MApplicationElement && getLocalId(reference).equals(id)) {
+				return reference;
+			}
+		}
+		return null;
+	}
+
 	public Collection<ModelDelta> constructDeltas(Object object, Object serializedState) {
 		rootObject = (EObject) object;
-		List<Object> references = getReferences(rootObject);
+		Map<String, Object> references = getReferences(rootObject);
+		Map<String, EObject> targets = new HashMap<String, EObject>();
+		collectDeltaTargets(targets, rootObject);
 
 		Document document = (Document) serializedState;
 
@@ -204,13 +241,14 @@ public class XMLModelReconciler extends ModelReconciler {
 			return deltas;
 		}
 
-		NodeList rootNodeList = (NodeList) rootElement;
-		for (int i = 0; i < rootNodeList.getLength(); i++) {
-			Node node = rootNodeList.item(i);
+		for (Node node = rootElement.getFirstChild(); node != null; node = node.getNextSibling()) {
 			if (node instanceof Element) {
 				Element element = (Element) node;
-				constructDeltas(deltas, references, rootObject, element,
-						element.getAttribute(APPLICATIONELEMENT_ELEMENTID_ATTNAME));
+				EObject target = targets.get(element
+						.getAttribute(APPLICATIONELEMENT_ELEMENTID_ATTNAME));
+				if (target != null) {
+					constructDeltas(deltas, references, target, element);
+				}
 			}
 		}
 
@@ -242,84 +280,74 @@ public class XMLModelReconciler extends ModelReconciler {
 		return null;
 	}
 
-	static Object findReference(List<Object> references, String id) {
-		for (Object reference : references) {
-			if (reference instanceof MApplicationElement && getLocalId(reference).equals(id)) {
-				return reference;
-			}
-		}
-
-		return null;
+	static Object findReference(Map<String, Object> references, String id) {
+		return references.get(id);
 	}
 
-	private boolean constructDeltas(Collection<ModelDelta> deltas, List<Object> references,
-			EObject object, Element element, String id) {
+	/**
+	 * Collects the objects that deltas may apply to by their id, in the order in which they were
+	 * searched for each delta, so that the first object of an id is kept.
+	 * 
+	 * @param targets
+	 *            the map to add the objects to
+	 * @param object
+	 *            the object to collect, along with its children
+	 */
+	private void collectDeltaTargets(Map<String, EObject> targets, EObject object) {
+		if (object == null) {
+			return;
+		}
+
 		if (object instanceof MApplicationElement || object instanceof MKeyBinding) {
-			if (getLocalId(object).equals(id)) {
-				constructDeltas(deltas, references, object, element);
-				return true;
+			String id = getLocalId(object);
+			if (!targets.containsKey(id)) {
+				targets.put(id, object);
 			}
 		}
 
 		if (object instanceof MElementContainer<?>) {
 			for (Object child : ((MElementContainer<?>) object).getChildren()) {
-				if (constructDeltas(deltas, references, (EObject) child, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) child);
 			}
 		}
 
 		if (object instanceof MPerspective) {
 			for (MWindow window : ((MPerspective) object).getWindows()) {
-				if (constructDeltas(deltas, references, (EObject) window, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) window);
 			}
 		}
 
 		if (object instanceof MBindingTableContainer) {
 			for (MBindingTable bindingTable : ((MBindingTableContainer) object).getBindingTables()) {
-				if (constructDeltas(deltas, references, (EObject) bindingTable, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) bindingTable);
 			}
 		}
 
 		if (object instanceof MBindingTable) {
 			for (MKeyBinding keyBinding : ((MBindingTable) object).getBindings()) {
-				if (constructDeltas(deltas, references, (EObject) keyBinding, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) keyBinding);
 			}
 		}
 
 		if (object instanceof MHandlerContainer) {
 			for (MHandler handler : ((MHandlerContainer) object).getHandlers()) {
-				if (constructDeltas(deltas, references, (EObject) handler, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) handler);
 			}
 		}
 
 		if (object instanceof MApplication) {
 			for (MCommand command : ((MApplication) object).getCommands()) {
-				if (constructDeltas(deltas, references, (EObject) command, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) command);
 			}
 
 			for (MAddon addon : ((MApplication) object).getAddons()) {
-				if (constructDeltas(deltas, references, (EObject) addon, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) addon);
 			}
 		}
 
 		if (object instanceof MPartDescriptorContainer) {
 			for (MPartDescriptor descriptor : ((MPartDescriptorContainer) object).getDescriptors()) {
-				if (constructDeltas(deltas, references, (EObject) descriptor, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) descriptor);
 			}
 		}
 
@@ -327,74 +355,56 @@ public class XMLModelReconciler extends ModelReconciler {
 			MPart part = (MPart) object;
 
 			for (MMenu menu : part.getMenus()) {
-				if (constructDeltas(deltas, references, (EObject) menu, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) menu);
 			}
 
 			MToolBar toolBar = part.getToolbar();
 			if (toolBar != null) {
-				if (constructDeltas(deltas, references, (EObject) toolBar, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) toolBar);
 			}
 		}
 
 		if (object instanceof MMenuContributions) {
 			for (MMenuContribution contribution : ((MMenuContributions) object)
 					.getMenuContributions()) {
-				if (constructDeltas(deltas, references, (EObject) contribution, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) contribution);
 			}
 		}
 
 		if (object instanceof MToolBarContributions) {
 			for (MToolBarContribution contribution : ((MToolBarContributions) object)
 					.getToolBarContributions()) {
-				if (constructDeltas(deltas, references, (EObject) contribution, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) contribution);
 			}
 		}
 
 		if (object instanceof MTrimContributions) {
 			for (MTrimContribution contribution : ((MTrimContributions) object)
 					.getTrimContributions()) {
-				if (constructDeltas(deltas, references, (EObject) contribution, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) contribution);
 			}
 		}
 
 		if (object instanceof MWindow) {
 			MWindow window = (MWindow) object;
-			if (constructDeltas(deltas, references, (EObject) window.getMainMenu(), element, id)) {
-				return true;
-			}
+			collectDeltaTargets(targets, (EObject) window.getMainMenu());
 
 			if (object instanceof MTrimmedWindow) {
 				MTrimmedWindow trimmedWindow = (MTrimmedWindow) object;
 				for (MTrimBar trimBar : trimmedWindow.getTrimBars()) {
-					if (constructDeltas(deltas, references, (EObject) trimBar, element, id)) {
-						return true;
-					}
+					collectDeltaTargets(targets, (EObject) trimBar);
 				}
 			}
 		}
 
 		if (object instanceof MHandledItem) {
 			for (MParameter parameter : ((MHandledItem) object).getParameters()) {
-				if (constructDeltas(deltas, references, (EObject) parameter, element, id)) {
-					return true;
-				}
+				collectDeltaTargets(targets, (EObject) parameter);
 			}
 		}
-
-		return false;
 	}
 
-	private void constructDeltas(Collection<ModelDelta> deltas, List<Object> references,
+	private void constructDeltas(Collection<ModelDelta> deltas, Map<String, Object> references,
 			EObject object, Element element) {
 		String elementName = element.getNodeName();
 		if (elementName.equals(CONTEXT_PROPERTIES_ATTNAME)) {
@@ -423,11 +433,9 @@ public class XMLModelReconciler extends ModelReconciler {
 		}
 	}
 
-	private void constructObjectDeltas(Collection<ModelDelta> deltas, List<Object> references,
+	private void constructObjectDeltas(Collection<ModelDelta> deltas, Map<String, Object> references,
 			EObject object, Element element) {
-		NodeList nodeList = (NodeList) element;
-		for (int i = 0; i < nodeList.getLength(); i++) {
-			Node node = nodeList.item(i);
+		for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
 			if (!(node instanceof Element)) {
 				continue;
 			}
@@ -468,9 +476,8 @@ public class XMLModelReconciler extends ModelReconciler {
 	}
 
 	private ModelDelta createDirectReferenceDelta(Collection<ModelDelta> deltas,
-			List<Object> references, EObject eObject, EStructuralFeature feature, Element node) {
-		NodeList referencedIds = (NodeList) node;
-		Element reference = getFirstElement(referencedIds);
+			Map<String, Object> references, EObject eObject, EStructuralFeature feature, Element node) {
+		Element reference = getFirstElement(node);
 		String referenceId = reference.getAttribute(APPLICATIONELEMENT_ELEMENTID_ATTNAME);
 
 		Object match = findReference(references, referenceId);
@@ -482,9 +489,8 @@ public class XMLModelReconciler extends ModelReconciler {
 		return new EMFModelDeltaSet(eObject, feature, match);
 	}
 
-	private static Element getFirstElement(NodeList list) {
-		for (int i = 0; i < list.getLength(); i++) {
-			Node item = list.item(i);
+	private static Element getFirstElement(Node parent) {
+		for (Node item = parent.getFirstChild(); item != null; item = item.getNextSibling()) {
 			if (item instanceof Element) {
 				return (Element) item;
 			}
@@ -492,11 +498,9 @@ public class XMLModelReconciler extends ModelReconciler {
 		return null;
 	}
 
-	private ModelDelta createIndirectReferenceDelta(List<Object> references, EObject eObject,
+	private ModelDelta createIndirectReferenceDelta(Map<String, Object> references, EObject eObject,
 			EStructuralFeature feature, Element node) {
-		NodeList referencedIds = (NodeList) node;
-
-		Element reference = getFirstElement(referencedIds);
+		Element reference = getFirstElement(node);
 		String referenceId = reference.getAttribute(APPLICATIONELEMENT_ELEMENTID_ATTNAME);
 
 		Object match = findReference(references, referenceId);
@@ -510,9 +514,8 @@ public class XMLModelReconciler extends ModelReconciler {
 	private ModelDelta createMapDelta(EObject object, Element innerElement,
 			EStructuralFeature feature) {
 		Map<String, String> deltaMap = new HashMap<String, String>();
-		NodeList attributes = (NodeList) innerElement;
-		for (int j = 0; j < attributes.getLength(); j++) {
-			Node entry = attributes.item(j);
+		for (Node entry = innerElement.getFirstChild(); entry != null; entry = entry
+				.getNextSibling()) {
 			if (entry instanceof Element) {
 				Element keyValue = (Element) entry;
 				String key = keyValue.getAttribute(ENTRY_ATTVALUE_KEY);
@@ -537,7 +540,7 @@ public class XMLModelReconciler extends ModelReconciler {
 		if (userSize == 0) {
 			// the user removed all the original parts
 			List<Object> collectedReferences = new ArrayList<Object>(currentReferences);
-			collectedReferences.removeAll(originalReferences);
+			collectedReferences.removeAll(new HashSet<Object>(originalReferences));
 			return collectedReferences;
 		} else if (originalSize == 0) {
 			List<Object> collectedReferences = new ArrayList<Object>(userReferences);
@@ -546,16 +549,22 @@ public class XMLModelReconciler extends ModelReconciler {
 		} else if (currentReferences.isEmpty()) {
 			// currently not referencing anything, so just return what the user had exactly
 			return userReferences;
-		} else if (currentReferences.size() == originalSize
-				&& currentReferences.containsAll(originalReferences)) {
+		}
+
+		// the lists are searched through these rather than through indexOf() and containsAll()
+		Set<Object> originalSet = new HashSet<Object>(originalReferences);
+		Map<Object, Integer> currentIndices = indexOf(currentReferences);
+
+		if (currentReferences.size() == originalSize
+				&& currentIndices.keySet().containsAll(originalSet)) {
 			// since both versions contain the same thing, just use whatever the user had
 			return userReferences;
 		}
 
-		if (originalReferences.containsAll(userReferences)
-				&& !userReferences.containsAll(originalReferences)) {
-			List<Object> collectedReferences2 = new ArrayList<Object>(originalReferences);
-			collectedReferences2.removeAll(userReferences);
+		Set<Object> userSet = new HashSet<Object>(userReferences);
+		if (originalSet.containsAll(userSet) && !userSet.containsAll(originalSet)) {
+			Set<Object> collectedReferences2 = new HashSet<Object>(originalReferences);
+			collectedReferences2.removeAll(userSet);
 
 			List<Object> collectedReferences = new ArrayList<Object>(currentReferences);
 			collectedReferences.removeAll(collectedReferences2);
@@ -568,7 +577,7 @@ public class XMLModelReconciler extends ModelReconciler {
 		for (int i = 0; i < userReferences.size(); i++) {
 			Object user = userReferences.get(i);
 
-			Position p = getPosition(originalReferences, userReferences, currentReferences, user, i);
+			Position p = getPosition(originalSet, userReferences, currentIndices, user, i);
 			if (p != null) {
 				positions.add(p);
 			}
@@ -579,13 +588,13 @@ public class XMLModelReconciler extends ModelReconciler {
 		for (Position position : positions) {
 			Object after = position.getAfter();
 			if (after != null) {
-				int index = currentReferences.indexOf(after);
+				int index = currentIndices.get(after).intValue();
 				collectedRefs.add(index + 1, position.getObject());
 			}
 
 			Object before = position.getBefore();
 			if (before != null) {
-				int index = currentReferences.indexOf(before);
+				int index = currentIndices.get(before).intValue();
 				collectedRefs.add(index, position.getObject());
 			}
 		}
@@ -593,15 +602,28 @@ public class XMLModelReconciler extends ModelReconciler {
 		return collectedRefs;
 	}
 
-	private static Position getPosition(List<?> originalReferences, List<?> userReferences,
-			List<?> currentReferences, Object object, int originalIndex) {
-		int index = originalReferences.indexOf(object);
-		if (index == -1) {
+	/**
+	 * Returns the index of the first occurrence of every element of the list.
+	 */
+	private static Map<Object, Integer> indexOf(List<?> list) {
+		Map<Object, Integer> indices = new HashMap<Object, Integer>();
+		int index = 0;
+		for (Object element : list) {
+			if (!indices.containsKey(element)) {
+				indices.put(element, Integer.valueOf(index));
+			}
+			index++;
+		}
+		return indices;
+	}
+
+	private static Position getPosition(Set<?> originalReferences, List<?> userReferences,
+			Map<Object, Integer> currentIndices, Object object, int originalIndex) {
+		if (!originalReferences.contains(object)) {
 			Object after = null;
 			for (int i = originalIndex - 1; i > -1; i--) {
 				Object afterCandidate = userReferences.get(i);
-				int afterIndex = currentReferences.indexOf(afterCandidate);
-				if (afterIndex != -1) {
+				if (currentIndices.containsKey(afterCandidate)) {
 					after = afterCandidate;
 					break;
 				}
@@ -610,8 +632,7 @@ public class XMLModelReconciler extends ModelReconciler {
 			Object before = null;
 			for (int i = originalIndex + 1; i < userReferences.size(); i++) {
 				Object beforeCandidate = userReferences.get(i);
-				int beforeIndex = currentReferences.indexOf(beforeCandidate);
-				if (beforeIndex != -1) {
+				if (currentIndices.containsKey(beforeCandidate)) {
 					before = beforeCandidate;
 					break;
 				}
@@ -649,14 +670,12 @@ public class XMLModelReconciler extends ModelReconciler {
 	}
 
 	private ModelDelta createMultiReferenceDelta(Collection<ModelDelta> deltas,
-			List<Object> references, EObject eObject, EStructuralFeature feature, Element node) {
-		NodeList referencedIds = (NodeList) node;
+			Map<String, Object> references, EObject eObject, EStructuralFeature feature, Element node) {
 		List<Object> originalReferences = new ArrayList<Object>();
 		List<Object> userReferences = new ArrayList<Object>();
 		List<?> currentReferences = (List<?>) eObject.eGet(feature);
 
-		for (int i = 0; i < referencedIds.getLength(); i++) {
-			Node item = referencedIds.item(i);
+		for (Node item = node.getFirstChild(); item != null; item = item.getNextSibling()) {
 			if (item instanceof Element) {
 				Element reference = (Element) item;
 				if (isUnset(reference)) {
@@ -696,7 +715,7 @@ public class XMLModelReconciler extends ModelReconciler {
 	}
 
 	private Object getReference(Collection<ModelDelta> deltas, Element element,
-			List<Object> references) {
+			Map<String, Object> references) {
 		String id = element.getAttribute(APPLICATIONELEMENT_ELEMENTID_ATTNAME);
 		if (!id.equals("")) { //$NON-NLS-1$
 			return findReference(references, id);
@@ -705,7 +724,7 @@ public class XMLModelReconciler extends ModelReconciler {
 	}
 
 	private Object createObject(Collection<ModelDelta> deltas, Element element,
-			List<Object> references) {
+			Map<String, Object> references) {
 		String typeName = element.getAttribute(TYPE_ATTNAME);
 		String namespace = element.getAttribute(NAMESPACE_ATTNAME);
 
@@ -715,9 +734,7 @@ public class XMLModelReconciler extends ModelReconciler {
 		E4XMIResource resource = (E4XMIResource) rootObject.eResource();
 		resource.setInternalId(object, element.getAttribute(XMIID_ATTNAME));
 
-		NodeList elementAttributes = (NodeList) element;
-		for (int i = 0; i < elementAttributes.getLength(); i++) {
-			Node node = elementAttributes.item(i);
+		for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
 			if (node instanceof Element) {
 				Element item = (Element) node;
 				if (!isUnset(item)) {
@@ -730,7 +747,7 @@ public class XMLModelReconciler extends ModelReconciler {
 							Object objectReference = findReference(references, id);
 							if (objectReference == null) {
 								objectReference = createObject(deltas,
-										getFirstElement((NodeList) item), references);
+										getFirstElement(item), references);
 							}
 
 							IDelta delta = new EMFModelDeltaSet(object, attributeFeature,
@@ -740,8 +757,7 @@ public class XMLModelReconciler extends ModelReconciler {
 							String id = item.getAttribute(attributeName);
 							Object objectReference = findReference(references, id);
 							if (objectReference == null) {
-								NodeList list = (NodeList) item;
-								Element refElement = getFirstElement(list);
+								Element refElement = getFirstElement(item);
 								if (refElement != null) {
 									ModelDelta delta = createDelayedDelta(object, attributeFeature,
 											refElement);
@@ -754,10 +770,8 @@ public class XMLModelReconciler extends ModelReconciler {
 							}
 						} else if (isChainedReference(attributeName)) {
 							List<Object> objectReferences = new ArrayList<Object>();
-							NodeList objectReferenceNodes = (NodeList) item;
-
-							for (int j = 0; j < objectReferenceNodes.getLength(); j++) {
-								Node refNode = objectReferenceNodes.item(j);
+							for (Node refNode = item.getFirstChild(); refNode != null; refNode = refNode
+									.getNextSibling()) {
 								if (refNode instanceof Element) {
 									Object objectReference = getReference(deltas,
 											(Element) refNode, references);
@@ -778,9 +792,8 @@ public class XMLModelReconciler extends ModelReconciler {
 							EStructuralFeature feature = getStructuralFeature(object, attributeName);
 							EMap map = (EMap) object.eGet(feature);
 
-							NodeList attributes = (NodeList) item;
-							for (int j = 0; j < attributes.getLength(); j++) {
-								Node entry = attributes.item(j);
+							for (Node entry = item.getFirstChild(); entry != null; entry = entry
+									.getNextSibling()) {
 								if (entry instanceof Element) {
 									Element keyValue = (Element) entry;
 									map.put(keyValue.getAttribute(ENTRY_ATTVALUE_KEY),
@@ -806,9 +819,7 @@ public class XMLModelReconciler extends ModelReconciler {
 	private ModelDelta createUnorderedChainedAttributeDelta(EObject object,
 			EStructuralFeature feature, Element node, String featureName) {
 		Set<Object> values = new HashSet<Object>();
-		NodeList attributes = (NodeList) node;
-		for (int j = 0; j < attributes.getLength(); j++) {
-			Node item = attributes.item(j);
+		for (Node item = node.getFirstChild(); item != null; item = item.getNextSibling()) {
 			if (item instanceof Element) {
 				Element attribute = (Element) item;
 				Object value = getValue(feature, attribute.getAttribute(featureName));
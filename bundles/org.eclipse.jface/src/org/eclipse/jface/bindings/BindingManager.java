@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2008 IBM Corporation and others.
+ * Copyright (c) 2004, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -219,6 +219,26 @@ public final class BindingManager extends HandleObjectManager implements
 	 */
 	private Binding[] bindings = null;
 
+	/**
+	 * The layers of the bindings that match the current locale, platform and
+	 * scheme, and that are not deleted. This is a map of context identifiers (
+	 * <code>String</code>) to the ascending indices (<code>int[]</code>) in
+	 * <code>matchingBindings</code> of the bindings defined for that context.
+	 * This value is <code>null</code> if the layers have not been computed
+	 * since the bindings changed.
+	 */
+	private Map bindingLayers = null;
+
+	/**
+	 * The locales, platforms and scheme identifiers for which the binding
+	 * layers were computed.
+	 */
+	private String[] bindingLayersLocales = null;
+
+	private String[] bindingLayersPlatforms = null;
+
+	private String[] bindingLayersSchemeIds = null;
+
 	/**
 	 * A cache of the bindings previously computed by this manager. This value
 	 * may be empty, but it is never <code>null</code>. This is a map of
@@ -240,6 +260,14 @@ public final class BindingManager extends HandleObjectManager implements
 	 */
 	private final ContextManager contextManager;
 
+	/**
+	 * The bindings that match the current locale, platform and scheme, and
+	 * that are not deleted, in the order in which they were provided to this
+	 * manager. This value is <code>null</code> if <code>bindingLayers</code>
+	 * is.
+	 */
+	private Binding[] matchingBindings = null;
+
 	/**
 	 * The locale for this manager. This defaults to the current locale. The
 	 * value will never be <code>null</code>.
@@ -428,6 +456,8 @@ public final class BindingManager extends HandleObjectManager implements
 			Tracing.printTrace("BINDINGS", "Clearing cache"); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 		cachedBindings.clear();
+		bindingLayers = null;
+		matchingBindings = null;
 		clearSolution();
 	}
 
@@ -515,51 +545,21 @@ public final class BindingManager extends HandleObjectManager implements
 			final Map bindingsByTrigger, final Map triggersByCommandId, 
 			final Map conflictsByTrigger) {
 		/*
-		 * FIRST PASS: Remove all of the bindings that are marking deletions.
+		 * FIRST PASS: Select the bindings of the active contexts among the
+		 * bindings that are not deleted and match the current state.
 		 */
-		final Binding[] trimmedBindings = removeDeletions(bindings);
+		computeBindingLayers();
+		final Binding[] candidates = (activeContextTree == null) ? matchingBindings
+				: getLayeredBindings(activeContextTree.keySet());
 
 		/*
 		 * SECOND PASS: Just throw in bindings that match the current state. If
 		 * there is more than one match for a binding, then create a list.
 		 */
 		final Map possibleBindings = new HashMap();
-		final int length = trimmedBindings.length;
+		final int length = candidates.length;
 		for (int i = 0; i < length; i++) {
-			final Binding binding = trimmedBindings[i];
-			boolean found;
-
-			// Check the context.
-			final String contextId = binding.getContextId();
-			if ((activeContextTree != null)
-					&& (!activeContextTree.containsKey(contextId))) {
-				continue;
-			}
-
-			// Check the locale.
-			if (!localeMatches(binding)) {
-				continue;
-			}
-
-			// Check the platform.
-			if (!platformMatches(binding)) {
-				continue;
-			}
-
-			// Check the scheme ids.
-			final String schemeId = binding.getSchemeId();
-			found = false;
-			if (activeSchemeIds != null) {
-				for (int j = 0; j < activeSchemeIds.length; j++) {
-					if (Util.equals(schemeId, activeSchemeIds[j])) {
-						found = true;
-						break;
-					}
-				}
-			}
-			if (!found) {
-				continue;
-			}
+			final Binding binding = candidates[i];
 
 			// Insert the match into the list of possible matches.
 			final TriggerSequence trigger = binding.getTriggerSequence();
@@ -673,6 +673,130 @@ public final class BindingManager extends HandleObjectManager implements
 		}
 	}
 
+	/**
+	 * <p>
+	 * Computes the layers of bindings, unless they are up to date. The
+	 * bindings that are not deleted and that match the current locale,
+	 * platform and scheme are grouped by context, so that a change of the
+	 * active contexts only looks at the bindings of the active contexts.
+	 * </p>
+	 * <p>
+	 * This method completes in <code>O(n)</code>, where <code>n</code> is
+	 * the number of bindings.
+	 * </p>
+	 */
+	private final void computeBindingLayers() {
+		if ((bindingLayers != null) && (bindingLayersLocales == locales)
+				&& (bindingLayersPlatforms == platforms)
+				&& (bindingLayersSchemeIds == activeSchemeIds)) {
+			return;
+		}
+
+		final Binding[] trimmedBindings = removeDeletions(bindings);
+		final List matches = new ArrayList(trimmedBindings.length);
+		final Map indicesByContextId = new HashMap();
+		for (int i = 0; i < trimmedBindings.length; i++) {
+			final Binding binding = trimmedBindings[i];
+
+			// Check the locale and the platform.
+			if (!localeMatches(binding) || !platformMatches(binding)) {
+				continue;
+			}
+
+			// Check the scheme ids.
+			final String schemeId = binding.getSchemeId();
+			boolean found = false;
+			if (activeSchemeIds != null) {
+				for (int j = 0; j < activeSchemeIds.length; j++) {
+					if (Util.equals(schemeId, activeSchemeIds[j])) {
+						found = true;
+						break;
+					}
+				}
+			}
+			if (!found) {
+				continue;
+			}
+
+			final String contextId = binding.getContextId();
+			List indices = (List) indicesByContextId.get(contextId);
+			if (indices == null) {
+				indices = new ArrayList();
+				indicesByContextId.put(contextId, indices);
+			}
+			indices.add(new Integer(matches.size()));
+			matches.add(binding);
+		}
+
+		final Map layers = new HashMap();
+		final Iterator entryItr = indicesByContextId.entrySet().iterator();
+		while (entryItr.hasNext()) {
+			final Map.Entry entry = (Map.Entry) entryItr.next();
+			final List indices = (List) entry.getValue();
+			final int[] layer = new int[indices.size()];
+			for (int i = 0; i < layer.length; i++) {
+				layer[i] = ((Integer) indices.get(i)).intValue();
+			}
+			layers.put(entry.getKey(), layer);
+		}
+
+		matchingBindings = (Binding[]) matches.toArray(new Binding[matches
+				.size()]);
+		bindingLayers = layers;
+		bindingLayersLocales = locales;
+		bindingLayersPlatforms = platforms;
+		bindingLayersSchemeIds = activeSchemeIds;
+		if (DEBUG) {
+			Tracing.printTrace("BINDINGS", "Computed " + layers.size() //$NON-NLS-1$ //$NON-NLS-2$
+					+ " binding layers of " + matchingBindings.length //$NON-NLS-1$
+					+ " bindings"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * <p>
+	 * Returns the bindings of the layers of the given contexts. The bindings
+	 * are in the order in which they were provided to this manager, so that
+	 * conflicts are resolved the same way whatever the active contexts.
+	 * </p>
+	 * <p>
+	 * This method completes in <code>O(m log m)</code>, where <code>m</code>
+	 * is the number of bindings in the given contexts.
+	 * </p>
+	 * 
+	 * @param contextIds
+	 *            The identifiers of the contexts; must not be
+	 *            <code>null</code>.
+	 * @return The bindings of the contexts; never <code>null</code>.
+	 */
+	private final Binding[] getLayeredBindings(final Set contextIds) {
+		final int[][] layers = new int[contextIds.size()][];
+		int layerCount = 0;
+		int total = 0;
+		final Iterator contextIdItr = contextIds.iterator();
+		while (contextIdItr.hasNext()) {
+			final int[] layer = (int[]) bindingLayers.get(contextIdItr.next());
+			if (layer != null) {
+				layers[layerCount++] = layer;
+				total += layer.length;
+			}
+		}
+
+		final int[] indices = new int[total];
+		int index = 0;
+		for (int i = 0; i < layerCount; i++) {
+			System.arraycopy(layers[i], 0, indices, index, layers[i].length);
+			index += layers[i].length;
+		}
+		Arrays.sort(indices);
+
+		final Binding[] result = new Binding[total];
+		for (int i = 0; i < total; i++) {
+			result[i] = matchingBindings[indices[i]];
+		}
+		return result;
+	}
+
 	/**
 	 * <p>
 	 * Notifies this manager that the context manager has changed. This method
@@ -998,6 +1122,7 @@ public final class BindingManager extends HandleObjectManager implements
 		}
 
 		// Compute the active bindings.
+		final long startTime = DEBUG ? System.currentTimeMillis() : 0;
 		commandIdsByTrigger = new HashMap();
 		final Map triggersByParameterizedCommand = new HashMap();
 		final Map conflictsByTrigger = new HashMap();
@@ -1006,6 +1131,12 @@ public final class BindingManager extends HandleObjectManager implements
 		existingCache.setBindingsByTrigger(commandIdsByTrigger);
 		existingCache.setTriggersByCommandId(triggersByParameterizedCommand);
 		existingCache.setConflictsByTrigger(conflictsByTrigger);
+		if (DEBUG) {
+			Tracing.printTrace("BINDINGS", "Computed " //$NON-NLS-1$ //$NON-NLS-2$
+					+ commandIdsByTrigger.size()
+					+ " bindings disregarding context in " //$NON-NLS-1$
+					+ (System.currentTimeMillis() - startTime) + "ms"); //$NON-NLS-1$
+		}
 		return Collections.unmodifiableMap(commandIdsByTrigger);
 	}
 
@@ -1751,6 +1882,7 @@ public final class BindingManager extends HandleObjectManager implements
 		}
 
 		// Compute the active bindings.
+		final long startTime = DEBUG ? System.currentTimeMillis() : 0;
 		commandIdsByTrigger = new HashMap();
 		final Map triggersByParameterizedCommand = new HashMap();
 		final Map conflictsByTrigger = new HashMap();
@@ -1763,6 +1895,12 @@ public final class BindingManager extends HandleObjectManager implements
 				buildPrefixTable(commandIdsByTrigger),
 				conflictsByTrigger);
 		existingCache.setPrefixTable(prefixTable);
+		if (DEBUG) {
+			Tracing.printTrace("BINDINGS", "Computed " //$NON-NLS-1$ //$NON-NLS-2$
+					+ commandIdsByTrigger.size() + " active bindings for " //$NON-NLS-1$
+					+ activeContextTree.size() + " contexts in " //$NON-NLS-1$
+					+ (System.currentTimeMillis() - startTime) + "ms"); //$NON-NLS-1$
+		}
 	}
 
 	/**
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.jface.internal;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.graphics.ImageData;
+
+/**
+ * Internal cache of the image data of the image descriptors drawn into
+ * composite images, so that the image of a descriptor that is drawn into many
+ * composite images, such as a decoration overlay, is only decoded once.
+ * <p>
+ * The cache is bounded and does not keep the descriptors alive. The cached
+ * image data is shared and must not be modified.
+ * </p>
+ *
+ * @since 3.9
+ */
+public final class ImageDataCache {
+
+	/**
+	 * The maximum number of descriptors whose image data is cached.
+	 */
+	private static final int MAX_SIZE = 256;
+
+	/**
+	 * Map of ImageDescriptor onto ImageData.
+	 */
+	private static final Map cache = new WeakHashMap();
+
+	private static long hitCount = 0;
+
+	private static long missCount = 0;
+
+	private ImageDataCache() {
+		// not instantiated
+	}
+
+	/**
+	 * Returns the image data of the given descriptor, decoding it only if it
+	 * is not cached.
+	 *
+	 * @param descriptor
+	 *            the image descriptor
+	 * @return the shared image data, or <code>null</code> if the descriptor
+	 *         has none
+	 */
+	public static ImageData getImageData(ImageDescriptor descriptor) {
+		synchronized (cache) {
+			ImageData data = (ImageData) cache.get(descriptor);
+			if (data != null) {
+				hitCount++;
+				return data;
+			}
+			missCount++;
+		}
+		ImageData data = descriptor.getImageData();
+		if (data != null) {
+			synchronized (cache) {
+				if (cache.size() >= MAX_SIZE) {
+					Iterator iterator = cache.keySet().iterator();
+					if (iterator.hasNext()) {
+						iterator.next();
+						iterator.remove();
+					}
+				}
+				cache.put(descriptor, data);
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * Removes all the cached image data.
+	 */
+	public static void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of requests answered from the cache.
+	 *
+	 * @return the number of hits
+	 */
+	public static long getHitCount() {
+		synchronized (cache) {
+			return hitCount;
+		}
+	}
+
+	/**
+	 * Returns the number of requests that decoded the image data.
+	 *
+	 * @return the number of misses
+	 */
+	public static long getMissCount() {
+		synchronized (cache) {
+			return missCount;
+		}
+	}
+
+	/**
+	 * Returns the ratio of the requests answered from the cache.
+	 *
+	 * @return the hit rate, between 0 and 1
+	 */
+	public static double getHitRate() {
+		synchronized (cache) {
+			long requests = hitCount + missCount;
+			return requests == 0 ? 0 : (double) hitCount / requests;
+		}
+	}
+
+	/**
+	 * Resets the hit and miss counts.
+	 */
+	public static void resetStatistics() {
+		synchronized (cache) {
+			hitCount = 0;
+			missCount = 0;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.eclipse.jface.resource;
 
+import org.eclipse.jface.internal.ImageDataCache;
 import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.PaletteData;
 import org.eclipse.swt.graphics.Point;
@@ -156,6 +157,24 @@ public abstract class CompositeImageDescriptor extends ImageDescriptor {
 		}
 	}
 
+	/**
+	 * Returns the image data of the given descriptor to draw into this
+	 * composite image. The image data of the descriptors drawn into composite
+	 * images is cached, so that a descriptor drawn into many composite images,
+	 * such as an overlay, is only decoded once.
+	 * <p>
+	 * The returned image data is shared and must not be modified.
+	 * </p>
+	 * 
+	 * @param descriptor
+	 *            the image descriptor
+	 * @return the image data, or <code>null</code> if the descriptor has none
+	 * @since 3.9
+	 */
+	final protected ImageData getCachedImageData(ImageDescriptor descriptor) {
+		return ImageDataCache.getImageData(descriptor);
+	}
+
 	/*
 	 * (non-Javadoc) Method declared on ImageDesciptor.
 	 */
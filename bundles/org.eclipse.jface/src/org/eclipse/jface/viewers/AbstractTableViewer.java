@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -208,6 +208,30 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 
 	private VirtualManager virtualManager;
 
+	/**
+	 * Marks the selected elements not found yet in setSelectionToWidget.
+	 */
+	private static final Object NOT_FOUND = new Object();
+
+	/**
+	 * The number of items from which the viewer finds the items of elements
+	 * through an index when it does not use hash lookup.
+	 */
+	static final int ITEM_INDEX_THRESHOLD = 1000;
+
+	/**
+	 * The items by element, built on demand for large tables when the viewer
+	 * does not use hash lookup and then kept in step with the element mapping.
+	 * <code>null</code> when not built.
+	 */
+	private ElementItemTable itemIndex;
+
+	/**
+	 * Whether some items of the item index show the same element, in which
+	 * case the index only holds one of them.
+	 */
+	private boolean itemIndexHasDuplicates;
+
 	/**
 	 * Create the new viewer for table like widgets
 	 */
@@ -223,6 +247,7 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 	protected void handleDispose(DisposeEvent event) {
 		super.handleDispose(event);
 		virtualManager = null;
+		itemIndex = null;
 	}
 
 	/**
@@ -335,6 +360,19 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 	 */
 	protected Widget doFindItem(Object element) {
 
+		ElementItemTable index = getItemIndex();
+		if (index != null) {
+			Item item = (Item) index.get(element);
+			if (item != null) {
+				if (isShowing(item, element)) {
+					return item;
+				}
+				// the item was disposed or reused without being unmapped
+				itemIndex = null;
+			}
+			// elements whose hash code changed are only found by a scan
+		}
+
 		Item[] children = doGetItems();
 		for (int i = 0; i < children.length; i++) {
 			Item item = children[i];
@@ -347,6 +385,105 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 		return null;
 	}
 
+	/**
+	 * Returns the index of the items by element, building it if the table is
+	 * large enough. The index is not used when the viewer uses hash lookup.
+	 *
+	 * @return the index or <code>null</code>
+	 */
+	private ElementItemTable getItemIndex() {
+		if (usingElementMap()) {
+			itemIndex = null;
+			return null;
+		}
+		if (itemIndex != null && itemIndex.getComparer() == getComparer()) {
+			return itemIndex;
+		}
+		itemIndex = null;
+		if (doGetItemCount() < ITEM_INDEX_THRESHOLD) {
+			return null;
+		}
+		Item[] items = doGetItems();
+		ElementItemTable index = new ElementItemTable(items.length,
+				getComparer());
+		itemIndexHasDuplicates = false;
+		// index the first item showing each element, as a scan would find
+		for (int i = items.length - 1; i >= 0; i--) {
+			Object data = items[i].getData();
+			if (data != null && index.put(data, items[i]) != null) {
+				itemIndexHasDuplicates = true;
+			}
+		}
+		itemIndex = index;
+		return index;
+	}
+
+	private boolean isShowing(Item item, Object element) {
+		if (item.isDisposed()) {
+			return false;
+		}
+		Object data = item.getData();
+		return data != null && equals(data, element);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.viewers.StructuredViewer#mapElement(java.lang.Object,
+	 *      org.eclipse.swt.widgets.Widget)
+	 */
+	protected void mapElement(Object element, Widget item) {
+		super.mapElement(element, item);
+		if (itemIndex != null && item instanceof Item) {
+			Item previous = (Item) itemIndex.get(element);
+			if (previous == null || previous == item
+					|| !isShowing(previous, element)) {
+				itemIndex.put(element, item);
+			} else {
+				itemIndexHasDuplicates = true;
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.viewers.StructuredViewer#unmapElement(java.lang.Object,
+	 *      org.eclipse.swt.widgets.Widget)
+	 */
+	protected void unmapElement(Object element, Widget item) {
+		super.unmapElement(element, item);
+		if (itemIndex != null && itemIndex.get(element) == item) {
+			if (itemIndexHasDuplicates) {
+				// another item may show the element
+				itemIndex = null;
+			} else {
+				itemIndex.remove(element);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.viewers.StructuredViewer#unmapElement(java.lang.Object)
+	 */
+	protected void unmapElement(Object element) {
+		super.unmapElement(element);
+		// the items still show the element
+		itemIndex = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.viewers.StructuredViewer#unmapAllElements()
+	 */
+	protected void unmapAllElements() {
+		super.unmapAllElements();
+		itemIndex = null;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -910,18 +1047,39 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 			if( ! list.isEmpty() ) {
 				int[] indices = new int[list.size()];
 
+				// Find the first item of every element in a single pass
+				ElementItemTable positions = new ElementItemTable(list.size(),
+						getComparer());
 				Iterator it = list.iterator();
+				while (it.hasNext()) {
+					Object modelElement = it.next();
+					if (modelElement != null) {
+						positions.put(modelElement, NOT_FOUND);
+					}
+				}
 				Item[] items = doGetItems();
-				Object modelElement;
+				for (int i = 0; i < items.length; i++) {
+					Object data = items[i].getData();
+					if (data != null && positions.get(data) == NOT_FOUND) {
+						positions.put(data, new Integer(i));
+					}
+				}
 
+				it = list.iterator();
 				int count = 0;
 				while( it.hasNext() ) {
-					modelElement = it.next();
-					boolean found = false;
-					for (int i = 0; i < items.length && !found; i++) {
-						if (equals(modelElement, items[i].getData())) {
-							indices[count++] = i;
-							found = true;
+					Object modelElement = it.next();
+					Object position = modelElement == null ? null : positions
+							.get(modelElement);
+					if (position instanceof Integer) {
+						indices[count++] = ((Integer) position).intValue();
+					} else {
+						// not found by hash code, fall back to a scan
+						for (int i = 0; i < items.length; i++) {
+							if (equals(modelElement, items[i].getData())) {
+								indices[count++] = i;
+								break;
+							}
 						}
 					}
 				}
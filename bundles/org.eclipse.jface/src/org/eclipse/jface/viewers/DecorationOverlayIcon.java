@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2008 IBM Corporation and others.
+ * Copyright (c) 2006, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -37,6 +37,10 @@ public class DecorationOverlayIcon extends CompositeImageDescriptor {
     // the size
     private Point size;
 
+    // the image data of the base image, only kept while the image data of
+    // the receiver is created
+    private ImageData baseData;
+
     /**
      * Create the decoration overlay for the base image using the array of
      * provided overlays. The indices of the array correspond to the values
@@ -109,11 +113,11 @@ public class DecorationOverlayIcon extends CompositeImageDescriptor {
             if (overlay == null) {
 				continue;
 			}
-            ImageData overlayData = overlay.getImageData();
+            ImageData overlayData = getCachedImageData(overlay);
             //Use the missing descriptor if it is not there.
             if (overlayData == null) {
-				overlayData = ImageDescriptor.getMissingImageDescriptor()
-                        .getImageData();
+				overlayData = getCachedImageData(ImageDescriptor
+						.getMissingImageDescriptor());
 			}
             switch (i) {
             case IDecoration.TOP_LEFT:
@@ -141,7 +145,7 @@ public class DecorationOverlayIcon extends CompositeImageDescriptor {
 			return false;
 		}
         DecorationOverlayIcon other = (DecorationOverlayIcon) o;
-        return base.equals(other.base)
+        return base.equals(other.base) && size.equals(other.size)
                 && Arrays.equals(overlays, other.overlays);
     }
 
@@ -149,7 +153,7 @@ public class DecorationOverlayIcon extends CompositeImageDescriptor {
      * @see java.lang.Object#hashCode()
      */
     public int hashCode() {
-        int code = System.identityHashCode(base);
+        int code = System.identityHashCode(base) ^ size.hashCode();
         for (int i = 0; i < overlays.length; i++) {
             if (overlays[i] != null) {
 				code ^= overlays[i].hashCode();
@@ -165,17 +169,30 @@ public class DecorationOverlayIcon extends CompositeImageDescriptor {
     	if (overlays.length > IDecoration.UNDERLAY) {
 	        ImageDescriptor underlay = overlays[IDecoration.UNDERLAY];
 	        if (underlay != null) {
-				drawImage(underlay.getImageData(), 0, 0);
+				drawImage(getCachedImageData(underlay), 0, 0);
 			}
     	}
     	if (overlays.length > IDecoration.REPLACE && overlays[IDecoration.REPLACE] != null) {
-    		drawImage(overlays[IDecoration.REPLACE].getImageData(), 0, 0);
+    		drawImage(getCachedImageData(overlays[IDecoration.REPLACE]), 0, 0);
     	} else {
-    		drawImage(base.getImageData(), 0, 0);
+    		drawImage(getBaseImageData(), 0, 0);
     	}
         drawOverlays(overlays);
     }
 
+    /* (non-Javadoc)
+     * @see org.eclipse.jface.resource.CompositeImageDescriptor#getImageData()
+     */
+    public ImageData getImageData() {
+    	try {
+    		return super.getImageData();
+    	} finally {
+    		// the descriptor is kept as long as the decorated image, do not
+    		// keep a copy of the base image along with it
+    		baseData = null;
+    	}
+    }
+
     /* (non-Javadoc)
      * @see org.eclipse.jface.resource.CompositeImageDescriptor#getSize()
      */
@@ -187,7 +204,21 @@ public class DecorationOverlayIcon extends CompositeImageDescriptor {
      * @see org.eclipse.jface.resource.CompositeImageDescriptor#getTransparentPixel()
      */
     protected int getTransparentPixel() {
-    	return base.getImageData().transparentPixel;
+    	return getBaseImageData().transparentPixel;
+    }
+
+    /**
+     * Return the image data of the base image, which is only read from the
+     * image once while the image data of the receiver is created.
+     * @return ImageData
+     */
+    private ImageData getBaseImageData() {
+    	ImageData data = baseData;
+    	if (data == null) {
+    		data = base.getImageData();
+    		baseData = data;
+    	}
+    	return data;
     }
 
 }
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.viewers;
+
+/**
+ * ElementItemTable associates elements with values, comparing the elements
+ * with an optional <code>IElementComparer</code>. Keys and values cannot be
+ * null.
+ * <p>
+ * Unlike <code>CustomHashtable</code>, the table uses open addressing with
+ * linear probing: the keys and values are stored in a single array, without an
+ * entry object per association.
+ * </p>
+ *
+ * @since 3.9
+ */
+/* package */final class ElementItemTable {
+
+	private static final int MIN_CAPACITY = 16;
+
+	/**
+	 * Keys at even indices, their values at the following odd indices.
+	 */
+	private Object[] table;
+
+	private int size;
+
+	private final IElementComparer comparer;
+
+	/**
+	 * Creates a table for the given number of associations.
+	 *
+	 * @param expectedSize
+	 *            the number of associations expected
+	 * @param comparer
+	 *            the element comparer to use to compare keys and obtain hash
+	 *            codes for keys, or <code>null</code> to use the normal
+	 *            <code>equals</code> and <code>hashCode</code> methods
+	 */
+	public ElementItemTable(int expectedSize, IElementComparer comparer) {
+		int capacity = MIN_CAPACITY;
+		// keep the load factor under 2/3
+		while (capacity * 2 < expectedSize * 3) {
+			capacity <<= 1;
+		}
+		table = new Object[capacity * 2];
+		this.comparer = comparer;
+	}
+
+	/**
+	 * Returns the comparer used to compare the keys.
+	 *
+	 * @return the element comparer, or <code>null</code>
+	 */
+	public IElementComparer getComparer() {
+		return comparer;
+	}
+
+	/**
+	 * Returns the value associated with the given key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value, or <code>null</code> if there is none
+	 */
+	public Object get(Object key) {
+		int index = indexOf(key);
+		return index < 0 ? null : table[index + 1];
+	}
+
+	/**
+	 * Associates the given value with the given key.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return the value previously associated with the key, or
+	 *         <code>null</code>
+	 */
+	public Object put(Object key, Object value) {
+		int mask = table.length - 2;
+		int index = (hash(key) << 1) & mask;
+		Object next;
+		while ((next = table[index]) != null) {
+			if (keyEquals(next, key)) {
+				Object old = table[index + 1];
+				table[index + 1] = value;
+				return old;
+			}
+			index = (index + 2) & mask;
+		}
+		table[index] = key;
+		table[index + 1] = value;
+		if (++size * 3 > table.length) {
+			rehash();
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the association of the given key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value that was associated with the key, or
+	 *         <code>null</code>
+	 */
+	public Object remove(Object key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		Object old = table[index + 1];
+		delete(index);
+		return old;
+	}
+
+	/**
+	 * Returns the number of associations.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return size;
+	}
+
+	private int indexOf(Object key) {
+		int mask = table.length - 2;
+		int index = (hash(key) << 1) & mask;
+		Object next;
+		while ((next = table[index]) != null) {
+			if (keyEquals(next, key)) {
+				return index;
+			}
+			index = (index + 2) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Empties the slot at the given index, moving back the following entries
+	 * of the probe sequence so that no deleted markers are needed.
+	 */
+	private void delete(int index) {
+		int mask = table.length - 2;
+		int hole = index;
+		int next = (hole + 2) & mask;
+		Object key;
+		while ((key = table[next]) != null) {
+			int home = (hash(key) << 1) & mask;
+			// move the entry if its home is not between the hole and itself
+			if (hole <= next ? (home <= hole || home > next)
+					: (home <= hole && home > next)) {
+				table[hole] = key;
+				table[hole + 1] = table[next + 1];
+				hole = next;
+			}
+			next = (next + 2) & mask;
+		}
+		table[hole] = null;
+		table[hole + 1] = null;
+		size--;
+	}
+
+	private void rehash() {
+		Object[] old = table;
+		table = new Object[old.length * 2];
+		int mask = table.length - 2;
+		for (int i = 0; i < old.length; i += 2) {
+			Object key = old[i];
+			if (key != null) {
+				int index = (hash(key) << 1) & mask;
+				while (table[index] != null) {
+					index = (index + 2) & mask;
+				}
+				table[index] = key;
+				table[index + 1] = old[i + 1];
+			}
+		}
+	}
+
+	private int hash(Object key) {
+		int hash = comparer == null ? key.hashCode() : comparer.hashCode(key);
+		// spread the bits, the low ones select the slot
+		hash ^= (hash >>> 16);
+		return hash ^ (hash >>> 8);
+	}
+
+	private boolean keyEquals(Object a, Object b) {
+		if (comparer == null) {
+			return a.equals(b);
+		}
+		return comparer.equals(a, b);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2006 IBM Corporation and others.
+ * Copyright (c) 2004, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -303,7 +303,7 @@ package org.eclipse.jface.viewers.deferred;
         	// Resize the table if necessary
 	        if (sentObjects.length != knownObjects.length) {
 	        	Object[] newSentObjects = new Object[knownObjects.length];
-	        	System.arraycopy(newSentObjects, 0, sentObjects, 0, 
+	        	System.arraycopy(sentObjects, 0, newSentObjects, 0, 
 	        			Math.min(newSentObjects.length, sentObjects.length));
 	        	sentObjects = newSentObjects;
 	            table.setItemCount(newSentObjects.length);
@@ -361,9 +361,9 @@ package org.eclipse.jface.viewers.deferred;
 	        	int row = idx + start;
 	        	
 	        	Object obj = knownObjects[row];
-	        	if (obj != null && obj != sentObjects[idx]) {
+	        	if (obj != null && obj != sentObjects[row]) {
 	        		table.replace(obj, row);
-	        		sentObjects[idx] = obj;
+	        		sentObjects[row] = obj;
 	        	}
 	        }
 	        
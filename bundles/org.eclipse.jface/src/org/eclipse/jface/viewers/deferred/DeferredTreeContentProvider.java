@@ -0,0 +1,451 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers.deferred;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.jface.viewers.AcceptAllFilter;
+import org.eclipse.jface.viewers.IFilter;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.ITreeViewerListener;
+import org.eclipse.jface.viewers.TreeExpansionEvent;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
+
+/**
+ * Content provider that performs sorting and filtering in a background thread
+ * for a tree. Requires a <code>TreeViewer</code> created with the
+ * <code>SWT.VIRTUAL</code> flag and an <code>IConcurrentTreeModel</code> as
+ * input.
+ * <p>
+ * The children of an element are only requested from the model once the
+ * element is expanded, and are sorted and filtered the same way as the
+ * elements of a <code>DeferredContentProvider</code>: the visible children are
+ * sorted first and only they are sent to the tree. The children of an element
+ * are released when it is collapsed.
+ * </p>
+ * <p>
+ * The sorter and filter must be set directly on the content provider. Any
+ * sorter or filter on the TreeViewer will be ignored.
+ * </p>
+ *
+ * @see DeferredContentProvider
+ * @since 3.9
+ */
+public class DeferredTreeContentProvider implements ILazyTreeContentProvider {
+
+	private int limit = -1;
+	private Comparator sortOrder;
+	private IFilter filter = AcceptAllFilter.getInstance();
+	private TreeViewer viewer;
+	private IConcurrentTreeModel model;
+
+	/**
+	 * The nodes of the expanded elements, by element. Only accessed in the UI
+	 * thread.
+	 */
+	private Map nodes = new HashMap();
+
+	private ITreeViewerListener expansionListener = new ITreeViewerListener() {
+		/* (non-Javadoc)
+		 * @see org.eclipse.jface.viewers.ITreeViewerListener#treeCollapsed(org.eclipse.jface.viewers.TreeExpansionEvent)
+		 */
+		public void treeCollapsed(TreeExpansionEvent event) {
+			disposeNodes(event.getElement());
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.jface.viewers.ITreeViewerListener#treeExpanded(org.eclipse.jface.viewers.TreeExpansionEvent)
+		 */
+		public void treeExpanded(TreeExpansionEvent event) {
+			getNode(event.getElement());
+		}
+	};
+
+	/**
+	 * The children of an expanded element, seen as a virtual table. The
+	 * visible range is the neighborhood of the child last requested by the
+	 * tree, as the position of the children in the tree depends on the
+	 * expanded elements above them.
+	 */
+	private final class TreeNodeAdapter extends AbstractVirtualTable {
+
+		private Object parent;
+		private BackgroundContentProvider provider;
+		private int itemCount = -1;
+		private int topIndex;
+		/**
+		 * The items showing the parent when they were last looked up, or
+		 * <code>null</code>.
+		 */
+		private TreeItem[] parentItems;
+
+		/**
+		 * @param parent
+		 */
+		public TreeNodeAdapter(Object parent) {
+			this.parent = parent;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.jface.viewers.deferred.AbstractVirtualTable#clear(int)
+		 */
+		public void clear(int index) {
+			if (parent == model) {
+				Tree tree = viewer.getTree();
+				if (index < tree.getItemCount()) {
+					tree.clear(index, false);
+				}
+				return;
+			}
+			TreeItem[] items = getParentItems();
+			for (int i = 0; i < items.length; i++) {
+				if (index < items[i].getItemCount()) {
+					items[i].clear(index, false);
+				}
+			}
+		}
+
+		/**
+		 * Returns the items showing the parent. They are looked up again when
+		 * one of the items last found was disposed or now shows another
+		 * element.
+		 *
+		 * @return the items of the parent
+		 */
+		private TreeItem[] getParentItems() {
+			if (parentItems != null) {
+				for (int i = 0; i < parentItems.length; i++) {
+					if (parentItems[i].isDisposed()
+							|| !parent.equals(parentItems[i].getData())) {
+						parentItems = null;
+						break;
+					}
+				}
+			}
+			if (parentItems == null || parentItems.length == 0) {
+				List items = findItems(parent);
+				parentItems = (TreeItem[]) items.toArray(new TreeItem[items
+						.size()]);
+			}
+			return parentItems;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.jface.viewers.deferred.AbstractVirtualTable#replace(java.lang.Object, int)
+		 */
+		public void replace(Object element, int itemIndex) {
+			viewer.replace(parent, itemIndex, element);
+			if (!nodes.containsKey(element)) {
+				viewer.setHasChildren(element, model.hasChildren(element));
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.jface.viewers.deferred.AbstractVirtualTable#setItemCount(int)
+		 */
+		public void setItemCount(int total) {
+			itemCount = total;
+			viewer.setChildCount(parent, total);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.jface.viewers.deferred.AbstractVirtualTable#getItemCount()
+		 */
+		public int getItemCount() {
+			return Math.max(itemCount, 0);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.jface.viewers.deferred.AbstractVirtualTable#getTopIndex()
+		 */
+		public int getTopIndex() {
+			return topIndex;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.jface.viewers.deferred.AbstractVirtualTable#getVisibleItemCount()
+		 */
+		public int getVisibleItemCount() {
+			// A page on each side of the child last requested
+			return 2 * getPageSize();
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.jface.viewers.deferred.AbstractVirtualTable#getControl()
+		 */
+		public Control getControl() {
+			return viewer.getControl();
+		}
+
+		/**
+		 * Moves the visible range if it does not include the given child.
+		 *
+		 * @param index
+		 *            index of the child requested by the tree
+		 */
+		void include(int index) {
+			int pageSize = getPageSize();
+			if (index < topIndex || index >= topIndex + 2 * pageSize) {
+				topIndex = Math.max(index - pageSize, 0);
+			}
+		}
+
+		/**
+		 * Sets the child count of the parent again if the tree does not have
+		 * the one last set.
+		 *
+		 * @param currentChildCount
+		 */
+		void updateChildCount(int currentChildCount) {
+			if (itemCount != -1 && itemCount != currentChildCount) {
+				viewer.setChildCount(parent, itemCount);
+			}
+		}
+
+		private int getPageSize() {
+			Tree tree = viewer.getTree();
+			int itemHeight = Math.max(tree.getItemHeight(), 1);
+			return tree.getClientArea().height / itemHeight + 1;
+		}
+	}
+
+	/**
+	 * Create a DeferredTreeContentProvider with the given sort order.
+	 * @param sortOrder a comparator that sorts the children of each element.
+	 */
+	public DeferredTreeContentProvider(Comparator sortOrder) {
+		this.sortOrder = sortOrder;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.viewers.IContentProvider#dispose()
+	 */
+	public void dispose() {
+		setViewer(null, null);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.viewers.IContentProvider#inputChanged(org.eclipse.jface.viewers.Viewer, java.lang.Object, java.lang.Object)
+	 */
+	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		if (newInput == null) {
+			setViewer(null, null);
+			return;
+		}
+
+		Assert.isTrue(newInput instanceof IConcurrentTreeModel);
+		Assert.isTrue(viewer instanceof TreeViewer);
+		setViewer((TreeViewer) viewer, (IConcurrentTreeModel) newInput);
+	}
+
+	/**
+	 * Sets the sort order for this content provider. This sort order takes priority
+	 * over anything that was supplied to the <code>TreeViewer</code>.
+	 *
+	 * @param sortOrder new sort order. The comparator must be able to support being
+	 * used in a background thread.
+	 */
+	public void setSortOrder(Comparator sortOrder) {
+		Assert.isNotNull(sortOrder);
+		this.sortOrder = sortOrder;
+		for (Iterator i = nodes.values().iterator(); i.hasNext();) {
+			((TreeNodeAdapter) i.next()).provider.setSortOrder(sortOrder);
+		}
+	}
+
+	/**
+	 * Sets the filter for this content provider. This filter takes priority over
+	 * anything that was supplied to the <code>TreeViewer</code>. The filter
+	 * must be capable of being used in a background thread. It applies to the
+	 * children of each element, the children of an element which is filtered
+	 * out are not requested.
+	 *
+	 * @param toSet filter to set
+	 */
+	public void setFilter(IFilter toSet) {
+		this.filter = toSet;
+		for (Iterator i = nodes.values().iterator(); i.hasNext();) {
+			((TreeNodeAdapter) i.next()).provider.setFilter(toSet);
+		}
+	}
+
+	/**
+	 * Sets the maximum number of children shown for each element. If an
+	 * element has more children than this number, only the top children will
+	 * be shown based on the current sort order.
+	 *
+	 * @param limit maximum number of children to show or -1 if unbounded
+	 */
+	public void setLimit(int limit) {
+		this.limit = limit;
+		for (Iterator i = nodes.values().iterator(); i.hasNext();) {
+			((TreeNodeAdapter) i.next()).provider.setLimit(limit);
+		}
+	}
+
+	/**
+	 * Returns the current maximum number of children or -1 if unbounded
+	 *
+	 * @return the current maximum number of children or -1 if unbounded
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.viewers.ILazyTreeContentProvider#updateElement(java.lang.Object, int)
+	 */
+	public void updateElement(Object parent, int index) {
+		TreeNodeAdapter node = getNode(parent);
+		if (node != null) {
+			node.include(index);
+			node.provider.checkVisibleRange(index);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.viewers.ILazyTreeContentProvider#updateChildCount(java.lang.Object, int)
+	 */
+	public void updateChildCount(Object element, int currentChildCount) {
+		if (model == null) {
+			return;
+		}
+		TreeNodeAdapter node = element == model ? getNode(element)
+				: (TreeNodeAdapter) nodes.get(element);
+		if (node != null) {
+			node.updateChildCount(currentChildCount);
+			return;
+		}
+		// Collapsed elements only show whether they have children
+		boolean hasChildren = element != model && model.hasChildren(element);
+		if (hasChildren != currentChildCount > 0) {
+			viewer.setHasChildren(element, hasChildren);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.viewers.ILazyTreeContentProvider#getParent(java.lang.Object)
+	 */
+	public Object getParent(Object element) {
+		if (model == null) {
+			return null;
+		}
+		return model.getParent(element);
+	}
+
+	/**
+	 * Returns the node of the given element, requesting its children from the
+	 * model if it has none.
+	 *
+	 * @param parent the element or the model
+	 * @return the node or <code>null</code> if the element has no children
+	 */
+	private TreeNodeAdapter getNode(Object parent) {
+		if (model == null) {
+			return null;
+		}
+		TreeNodeAdapter node = (TreeNodeAdapter) nodes.get(parent);
+		if (node != null) {
+			return node;
+		}
+		IConcurrentModel children = model.getChildren(parent);
+		if (children == null) {
+			return null;
+		}
+		node = new TreeNodeAdapter(parent);
+		node.provider = new BackgroundContentProvider(node, children,
+				sortOrder);
+		nodes.put(parent, node);
+
+		node.provider.setLimit(limit);
+		node.provider.setFilter(filter);
+		return node;
+	}
+
+	/**
+	 * Returns the items showing the given element, found by following the
+	 * path of the element in the model from the root of the tree.
+	 *
+	 * @param element the element
+	 * @return the items of the element
+	 */
+	private List findItems(Object element) {
+		List result = new ArrayList(1);
+		Object parent = model.getParent(element);
+		if (parent == null || parent == model) {
+			addItems(viewer.getTree().getItems(), element, result);
+		} else {
+			for (Iterator i = findItems(parent).iterator(); i.hasNext();) {
+				addItems(((TreeItem) i.next()).getItems(), element, result);
+			}
+		}
+		return result;
+	}
+
+	private static void addItems(TreeItem[] items, Object element, List result) {
+		for (int i = 0; i < items.length; i++) {
+			if (element.equals(items[i].getData())) {
+				result.add(items[i]);
+			}
+		}
+	}
+
+	/**
+	 * Disposes the nodes of the given element and of its descendants.
+	 *
+	 * @param element the collapsed element
+	 */
+	private void disposeNodes(Object element) {
+		List toDispose = new ArrayList();
+		for (Iterator i = nodes.keySet().iterator(); i.hasNext();) {
+			Object next = i.next();
+			Object ancestor = next;
+			while (ancestor != null && ancestor != model
+					&& !ancestor.equals(element)) {
+				ancestor = model.getParent(ancestor);
+			}
+			if (ancestor != null && ancestor != model) {
+				toDispose.add(next);
+			}
+		}
+		for (Iterator i = toDispose.iterator(); i.hasNext();) {
+			TreeNodeAdapter node = (TreeNodeAdapter) nodes.remove(i.next());
+			node.provider.dispose();
+		}
+	}
+
+	private void setViewer(TreeViewer newViewer, IConcurrentTreeModel newModel) {
+		for (Iterator i = nodes.values().iterator(); i.hasNext();) {
+			((TreeNodeAdapter) i.next()).provider.dispose();
+		}
+		nodes.clear();
+
+		if (viewer != null) {
+			viewer.removeTreeListener(expansionListener);
+		}
+		viewer = newViewer;
+		model = newModel;
+		if (viewer != null) {
+			viewer.addTreeListener(expansionListener);
+		}
+	}
+
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.viewers.deferred;
+
+/**
+ * Interface for a tree of elements whose children are returned asynchronously.
+ * The children of each element form an unordered <code>IConcurrentModel</code>,
+ * which is only requested once the element is expanded, so that the tree can be
+ * arbitrarily large.
+ * <p>
+ * The tree model itself stands for the invisible root of the tree: its
+ * children are the top-level elements.
+ * </p>
+ *
+ * @see DeferredTreeContentProvider
+ * @since 3.9
+ */
+public interface IConcurrentTreeModel {
+
+	/**
+	 * Returns the model of the children of the given element. Called in the UI
+	 * thread when the element is expanded, the children themselves are
+	 * expected to be sent from the returned model at its earliest convenience.
+	 *
+	 * @param parent
+	 *            the element, or the receiver for the top-level elements
+	 * @return the model of the children or <code>null</code> if the element
+	 *         has no children
+	 */
+	public IConcurrentModel getChildren(Object parent);
+
+	/**
+	 * Returns whether the given element has children. Called in the UI thread
+	 * for every element shown, so it must return without computing the
+	 * children.
+	 *
+	 * @param element
+	 *            the element
+	 * @return <code>true</code> if the element may have children
+	 */
+	public boolean hasChildren(Object element);
+
+	/**
+	 * Returns the parent of the given element.
+	 *
+	 * @param element
+	 *            the element
+	 * @return the parent element, the receiver for a top-level element, or
+	 *         <code>null</code> if the parent cannot be computed
+	 */
+	public Object getParent(Object element);
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,7 +16,11 @@ import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Hashtable;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTException;
@@ -55,6 +59,7 @@ import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Canvas;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Layout;
 import org.eclipse.swt.widgets.Listener;
@@ -218,6 +223,12 @@ public class FormText extends Canvas {
 
 	private SelectionData selData;
 
+	/*
+	 * Incremented whenever the text is set, so that the text parsed by an
+	 * earlier call to setTextInBackground is not shown over it.
+	 */
+	private int textRevision;
+
 	private static final String INTERNAL_MENU = "__internal_menu__"; //$NON-NLS-1$
 
 	private static final String CONTROL_KEY = "__segment__"; //$NON-NLS-1$
@@ -265,46 +276,36 @@ public class FormText extends Canvas {
 			Paragraph[] paragraphs = model.getParagraphs();
 			GC gc = new GC(FormText.this);
 			gc.setFont(getFont());
-			Locator loc = new Locator();
 			int width = wHint != SWT.DEFAULT ? wHint : 0;
 			FontMetrics fm = gc.getFontMetrics();
 			int lineHeight = fm.getHeight();
+			int height = 0;
 			boolean selectableInTheLastRow = false;
 			for (int i = 0; i < paragraphs.length; i++) {
 				Paragraph p = paragraphs[i];
 				if (i > 0 && getParagraphsSeparated()
 						&& p.getAddVerticalSpace())
-					loc.y += getParagraphSpacing(lineHeight);
-				loc.rowHeight = 0;
-				loc.indent = p.getIndent();
-				loc.x = p.getIndent();
+					height += getParagraphSpacing(lineHeight);
 				ParagraphSegment[] segments = p.getSegments();
 				if (segments.length > 0) {
 					selectableInTheLastRow = false;
-					int pwidth = 0;
 					for (int j = 0; j < segments.length; j++) {
-						ParagraphSegment segment = segments[j];
-						segment.advanceLocator(gc, wHint, loc, resourceTable, false);
-						if (wHint != SWT.DEFAULT) {
-							width = Math.max(width, loc.width);
-						} else {
-							pwidth = Math.max(pwidth, loc.width);
-						}
-						if (segment instanceof IFocusSelectable)
+						if (segments[j] instanceof IFocusSelectable)
 							selectableInTheLastRow = true;
 					}
-					if (wHint == SWT.DEFAULT)
-						width = Math.max(width, pwidth);
-					loc.y += loc.rowHeight;
+					// the paragraph caches its size for each width hint
+					Point psize = p.computeSize(gc, wHint, resourceTable);
+					width = Math.max(width, psize.x);
+					height += psize.y;
 				} else {
 					// empty new line
-					loc.y += lineHeight;
+					height += lineHeight;
 				}
 			}
 			gc.dispose();
 			if (selectableInTheLastRow)
-				loc.y += 1;
-			return new Point(width, loc.y);
+				height += 1;
+			return new Point(width, height);
 		}
 
 		protected void layout(Composite composite, boolean flushCache) {
@@ -340,7 +341,8 @@ public class FormText extends Canvas {
 				loc.indent = p.getIndent();
 				loc.resetCaret();
 				loc.rowHeight = 0;
-				p.layout(gc, carea.width, loc, lineHeight, resourceTable,
+				// only the paragraphs that moved or changed are laid out again
+				p.reflow(gc, carea.width, loc, lineHeight, resourceTable,
 						selectedLink);
 			}
 			gc.dispose();
@@ -561,7 +563,9 @@ public class FormText extends Canvas {
 	 *            an object of a type <samp>Image </samp>.
 	 */
 	public void setImage(String key, Image image) {
-		resourceTable.put("i." + key, image); //$NON-NLS-1$
+		String fullKey = "i." + key; //$NON-NLS-1$
+		resourceTable.put(fullKey, image);
+		model.clearCache(fullKey);
 	}
 
 	/**
@@ -667,6 +671,7 @@ public class FormText extends Canvas {
 	 *            converted into hyperlinks.
 	 */
 	public void setText(String text, boolean parseTags, boolean expandURLs) {
+		textRevision++;
 		disposeResourceTable(false);
 		entered = null;
 		if (parseTags)
@@ -690,6 +695,7 @@ public class FormText extends Canvas {
 	 *            converted into hyperlinks.
 	 */
 	public void setContents(InputStream is, boolean expandURLs) {
+		textRevision++;
 		entered = null;
 		disposeResourceTable(false);
 		model.parseInputStream(is, expandURLs);
@@ -698,6 +704,68 @@ public class FormText extends Canvas {
 		redraw();
 	}
 
+	/**
+	 * Sets the provided text like {@link #setText(String, boolean, boolean)},
+	 * but parses it in a background job. The current text is rendered until
+	 * the new text has been parsed. This is useful for large content, whose
+	 * parsing would otherwise block the user interface. The text is not
+	 * rendered if another text is set before it has been parsed.
+	 * 
+	 * @param text
+	 *            the text to render
+	 * @param parseTags
+	 *            if <samp>true </samp>, formatting tags will be parsed.
+	 *            Otherwise, text will be rendered as-is.
+	 * @param expandURLs
+	 *            if <samp>true </samp>, URLs found in the untagged text will be
+	 *            converted into hyperlinks.
+	 * @since 3.6
+	 */
+	public void setTextInBackground(final String text, final boolean parseTags,
+			final boolean expandURLs) {
+		checkWidget();
+		final int revision = ++textRevision;
+		final Display display = getDisplay();
+		final FormTextModel parsedModel = new FormTextModel();
+		// the settings can only be created in the UI thread
+		parsedModel.setHyperlinkSettings(model.getHyperlinkSettings());
+		parsedModel.setWhitespaceNormalized(model.isWhitespaceNormalized());
+		Job job = new Job(Messages.FormText_parsing) {
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					if (parseTags)
+						parsedModel.parseTaggedText(text, expandURLs);
+					else
+						parsedModel.parseRegularText(text, expandURLs);
+				} catch (RuntimeException e) {
+					return new Status(IStatus.ERROR, FormUtil.PLUGIN_ID, e
+							.getMessage(), e);
+				}
+				if (display.isDisposed())
+					return Status.OK_STATUS;
+				display.asyncExec(new Runnable() {
+					public void run() {
+						if (!isDisposed() && revision == textRevision)
+							setModel(parsedModel);
+					}
+				});
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.schedule();
+	}
+
+	private void setModel(FormTextModel newModel) {
+		disposeResourceTable(false);
+		entered = null;
+		model.dispose();
+		model = newModel;
+		hookControlSegmentFocus();
+		layout();
+		redraw();
+	}
+
 	private void hookControlSegmentFocus() {
 		Paragraph[] paragraphs = model.getParagraphs();
 		if (paragraphs == null)
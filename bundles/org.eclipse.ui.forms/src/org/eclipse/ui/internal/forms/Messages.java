@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2007 IBM Corporation and others.
+ * Copyright (c) 2006, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,6 +25,7 @@ public class Messages extends NLS {
 
 	public static String FormDialog_defaultTitle;
 	public static String FormText_copy;
+	public static String FormText_parsing;
 	public static String Form_tooltip_minimize;
 	public static String Form_tooltip_restore;
 	/* 
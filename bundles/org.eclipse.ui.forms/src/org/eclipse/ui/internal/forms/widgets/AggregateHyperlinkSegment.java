@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2005 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -186,6 +186,15 @@ public class AggregateHyperlinkSegment extends ParagraphSegment implements
 		}
 	}
 
+	public boolean usesResource(String resourceId) {
+		for (int i = 0; i < segments.size(); i++) {
+			ParagraphSegment segment = (ParagraphSegment) segments.get(i);
+			if (segment.usesResource(resourceId))
+				return true;
+		}
+		return false;
+	}
+
 	public String getTooltipText() {
 		if (segments.size() > 0)
 			return ((ParagraphSegment) segments.get(0)).getTooltipText();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2005 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -92,6 +92,12 @@ public class BulletParagraph extends Paragraph {
 		this.bindent = bindent;
 	}
 
+	public boolean usesResource(String resourceId) {
+		if (style == IMAGE && text != null && text.equals(resourceId))
+			return true;
+		return super.usesResource(resourceId);
+	}
+
 	/*
 	 * @see IBulletParagraph#getBulletText()
 	 */
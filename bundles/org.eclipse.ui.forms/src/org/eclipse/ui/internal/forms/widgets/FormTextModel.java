@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -97,8 +97,12 @@ public class FormTextModel {
 		return sbuf.toString();
 	}
 
-	/*
-	 * @see ITextModel#parse(String)
+	/**
+	 * Parses the tagged text into paragraphs. Parsing does not access the
+	 * display once the hyperlink settings are set, so a model can be parsed in
+	 * a background thread and handed over to the widget when done.
+	 * 
+	 * @see #setHyperlinkSettings(HyperlinkSettings)
 	 */
 	public void parseTaggedText(String taggedText, boolean expandURLs) {
 		if (taggedText == null) {
@@ -115,14 +119,15 @@ public class FormTextModel {
 	}
 
 	public void parseInputStream(InputStream is, boolean expandURLs) {
-
-		documentBuilderFactory.setNamespaceAware(true);
-		documentBuilderFactory.setIgnoringComments(true);
-
 		reset();
 		try {
-			DocumentBuilder parser = documentBuilderFactory
-					.newDocumentBuilder();
+			DocumentBuilder parser;
+			// the factory is shared by the models parsed in other threads
+			synchronized (documentBuilderFactory) {
+				documentBuilderFactory.setNamespaceAware(true);
+				documentBuilderFactory.setIgnoringComments(true);
+				parser = documentBuilderFactory.newDocumentBuilder();
+			}
 			parser.setErrorHandler(new ParseErrorHandler());
 			InputSource source = new InputSource(is);
 			Document doc = parser.parse(source);
@@ -651,10 +656,12 @@ public class FormTextModel {
 		return null;
 	}
 	
-	public void clearCache(String fontId) {
+	public void clearCache(String resourceId) {
+		if (paragraphs == null)
+			return;
 		for (int i = 0; i < paragraphs.size(); i++) {
 			Paragraph p = (Paragraph) paragraphs.get(i);
-			p.clearCache(fontId);
+			p.clearCache(resourceId);
 		}
 	}
 
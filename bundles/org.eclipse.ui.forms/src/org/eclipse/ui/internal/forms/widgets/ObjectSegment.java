@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -46,6 +46,10 @@ public abstract class ObjectSegment extends ParagraphSegment {
 	
 	protected abstract Point getObjectSize(Hashtable resourceTable, int wHint);
 
+	public boolean usesResource(String resourceId) {
+		return objectId != null && objectId.equals(resourceId);
+	}
+
 	public boolean advanceLocator(GC gc, int wHint, Locator loc,
 			Hashtable objectTable, boolean computeHeightOnly) {
 		Point objectSize = getObjectSize(objectTable, wHint);
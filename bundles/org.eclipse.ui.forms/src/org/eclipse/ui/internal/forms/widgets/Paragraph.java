@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,34 @@ public class Paragraph {
 
 	private boolean addVerticalSpace = true;
 
+	private static final int MAX_CACHED_SIZES = 8;
+
+	private boolean hasControls;
+
+	/*
+	 * The measurements below are kept until a segment is added, a resource
+	 * used by the paragraph changes or the paragraph is measured with another
+	 * font. Paragraphs with controls are always measured again, since the size
+	 * of a control can change at any time.
+	 */
+	private Font cacheFont;
+
+	private Hashtable sizeCache;
+
+	private ArrayList rowHeights;
+
+	private int rowHeightsWidth;
+
+	private int rowHeightsX;
+
+	private int layoutWidth = -1;
+
+	private int layoutX;
+
+	private int layoutY;
+
+	private int layoutBottom;
+
 	public Paragraph(boolean addVerticalSpace) {
 		this.addVerticalSpace = addVerticalSpace;
 	}
@@ -56,6 +84,9 @@ public class Paragraph {
 		if (segments == null)
 			segments = new Vector();
 		segments.add(segment);
+		if (segment instanceof ControlSegment)
+			hasControls = true;
+		flushCache();
 	}
 
 	public void parseRegularText(String text, boolean expandURLs, boolean wrapAllowed,
@@ -125,27 +156,99 @@ public class Paragraph {
 		addSegment(hs);
 	}
 
-	protected void computeRowHeights(GC gc, int width, Locator loc,
-			int lineHeight, Hashtable resourceTable) {
+	/**
+	 * Computes the size of the segments of this paragraph for the provided
+	 * width hint. The sizes are cached by width hint, so the returned point
+	 * must not be modified.
+	 * 
+	 * @param gc
+	 *            the GC with the default font set
+	 * @param wHint
+	 *            the width hint, or <code>SWT.DEFAULT</code>
+	 * @param resourceTable
+	 *            the fonts, images and controls referenced by the segments
+	 * @return the width and height of the segments
+	 */
+	public Point computeSize(GC gc, int wHint, Hashtable resourceTable) {
+		validateCache(gc);
+		Integer key = new Integer(wHint);
+		if (sizeCache != null) {
+			Point size = (Point) sizeCache.get(key);
+			if (size != null)
+				return size;
+		}
 		ParagraphSegment[] segments = getSegments();
-		// compute heights
-		Locator hloc = loc.create();
-		ArrayList heights = new ArrayList();
-		hloc.heights = heights;
-		hloc.rowCounter = 0;
+		Locator loc = new Locator();
+		loc.indent = getIndent();
+		loc.x = getIndent();
+		int width = 0;
 		for (int j = 0; j < segments.length; j++) {
 			ParagraphSegment segment = segments[j];
-			segment.advanceLocator(gc, width, hloc, resourceTable, true);
+			segment.advanceLocator(gc, wHint, loc, resourceTable, false);
+			width = Math.max(width, loc.width);
+		}
+		Point size = new Point(width, loc.y + loc.rowHeight);
+		if (!hasControls) {
+			if (sizeCache == null || sizeCache.size() >= MAX_CACHED_SIZES)
+				sizeCache = new Hashtable();
+			sizeCache.put(key, size);
 		}
-		if (hloc.rowHeight == 0) {
-			FontMetrics fm = gc.getFontMetrics();
-			hloc.rowHeight = fm.getHeight();
+		return size;
+	}
+
+	protected void computeRowHeights(GC gc, int width, Locator loc,
+			int lineHeight, Hashtable resourceTable) {
+		validateCache(gc);
+		if (rowHeights == null || rowHeightsWidth != width
+				|| rowHeightsX != loc.x || hasControls) {
+			ParagraphSegment[] segments = getSegments();
+			// compute heights
+			Locator hloc = loc.create();
+			ArrayList heights = new ArrayList();
+			hloc.heights = heights;
+			hloc.rowCounter = 0;
+			for (int j = 0; j < segments.length; j++) {
+				ParagraphSegment segment = segments[j];
+				segment.advanceLocator(gc, width, hloc, resourceTable, true);
+			}
+			if (hloc.rowHeight == 0) {
+				FontMetrics fm = gc.getFontMetrics();
+				hloc.rowHeight = fm.getHeight();
+			}
+			hloc.collectHeights();
+			rowHeights = heights;
+			rowHeightsWidth = width;
+			rowHeightsX = loc.x;
 		}
-		hloc.collectHeights();
-		loc.heights = heights;
+		loc.heights = rowHeights;
 		loc.rowCounter = 0;
 	}
 
+	/**
+	 * Lays out this paragraph, unless it was last laid out at the same
+	 * position and width and nothing it depends on has changed since. In that
+	 * case the bounds of the segments are still valid and the locator is only
+	 * moved past the paragraph.
+	 * 
+	 * @see #layout(GC, int, Locator, int, Hashtable, IHyperlinkSegment)
+	 */
+	public void reflow(GC gc, int width, Locator loc, int lineHeight,
+			Hashtable resourceTable, IHyperlinkSegment selectedLink) {
+		validateCache(gc);
+		if (!hasControls && layoutWidth == width && layoutX == loc.x
+				&& layoutY == loc.y) {
+			loc.y = layoutBottom;
+			return;
+		}
+		int x = loc.x;
+		int y = loc.y;
+		layout(gc, width, loc, lineHeight, resourceTable, selectedLink);
+		layoutWidth = width;
+		layoutX = x;
+		layoutY = y;
+		layoutBottom = loc.y;
+	}
+
 	public void layout(GC gc, int width, Locator loc, int lineHeight,
 			Hashtable resourceTable, IHyperlinkSegment selectedLink) {
 		ParagraphSegment[] segments = getSegments();
@@ -228,12 +331,56 @@ public class Paragraph {
 		}
 		return null;
 	}
-	public void clearCache(String fontId) {
+
+	/**
+	 * Clears the cached measurements that depend on the provided resource.
+	 * 
+	 * @param resourceId
+	 *            the id of the font, image or control that changed, or
+	 *            <code>null</code> if the default font changed
+	 */
+	public void clearCache(String resourceId) {
+		if (segments != null) {
+			for (int i = 0; i < segments.size(); i++) {
+				ParagraphSegment segment = (ParagraphSegment) segments.get(i);
+				segment.clearCache(resourceId);
+			}
+		}
+		if (resourceId == null || usesResource(resourceId))
+			flushCache();
+	}
+
+	/**
+	 * Tests if the size or the layout of this paragraph depends on the font,
+	 * image or control registered with the provided id.
+	 * 
+	 * @param resourceId
+	 *            the id of the resource
+	 * @return <code>true</code> if the paragraph uses the resource,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean usesResource(String resourceId) {
 		if (segments != null) {
 			for (int i = 0; i < segments.size(); i++) {
 				ParagraphSegment segment = (ParagraphSegment) segments.get(i);
-				segment.clearCache(fontId);
+				if (segment.usesResource(resourceId))
+					return true;
 			}
 		}
+		return false;
+	}
+
+	private void validateCache(GC gc) {
+		Font font = gc.getFont();
+		if (!font.equals(cacheFont)) {
+			flushCache();
+			cacheFont = font;
+		}
+	}
+
+	private void flushCache() {
+		sizeCache = null;
+		rowHeights = null;
+		layoutWidth = -1;
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -86,4 +86,13 @@ public abstract class ParagraphSegment {
 	 */
 	public void clearCache(String fontId) {
 	}
+	/**
+	 * Tests if the size of this segment depends on the font, image or control
+	 * registered with the provided id.
+	 * @param resourceId the id of the resource
+	 * @return <code>true</code> if the segment uses the resource, <code>false</code> otherwise.
+	 */
+	public boolean usesResource(String resourceId) {
+		return false;
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -255,6 +255,9 @@ public class TextSegment extends ParagraphSegment {
 			locator.width = locator.x;
 			locator.rowHeight = Math.max(locator.rowHeight, extent.y);
 			locator.leading = Math.max(locator.leading, fm.getLeading());
+			if (oldFont != null) {
+				gc.setFont(oldFont);
+			}
 			return newLine;
 		}
 
@@ -727,4 +730,8 @@ public class TextSegment extends ParagraphSegment {
 		else if (fontId!=null && this.fontId!=null && fontId.equals(this.fontId))
 			textFragments = null;
 	}
+
+	public boolean usesResource(String resourceId) {
+		return fontId != null && fontId.equals(resourceId);
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,9 @@ import java.util.List;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IResourceProxy;
 import org.eclipse.core.resources.IResourceProxyVisitor;
 import org.eclipse.core.resources.IWorkspace;
@@ -119,6 +122,23 @@ public class FilteredResourcesSelectionDialog extends
 
 	private boolean isDerived;
 
+	/**
+	 * The number of changes of the workspace that added, removed or changed
+	 * the derived flag of resources since the dialog was created. The items
+	 * of a search are only kept for the filters created before the next
+	 * change.
+	 */
+	private volatile int resourceChanges = 0;
+
+	private IResourceChangeListener resourceChangeListener = new IResourceChangeListener() {
+		public void resourceChanged(IResourceChangeEvent event) {
+			IResourceDelta delta = event.getDelta();
+			if (delta != null && hasSearchedItemChanges(delta)) {
+				resourceChanges++;
+			}
+		}
+	};
+
 	/**
 	 * Creates a new instance of the class
 	 * 
@@ -409,6 +429,52 @@ public class FilteredResourcesSelectionDialog extends
 		return super.open();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.jface.window.Window#create()
+	 */
+	public void create() {
+		super.create();
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(
+				resourceChangeListener, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.ui.dialogs.FilteredItemsSelectionDialog#close()
+	 */
+	public boolean close() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(
+				resourceChangeListener);
+		return super.close();
+	}
+
+	/**
+	 * Returns whether the delta adds or removes resources, or changes their
+	 * derived flag, which changes the resources the dialog searches.
+	 * 
+	 * @param delta
+	 *            the resource delta
+	 * @return <code>true</code> if the searched resources may have changed
+	 */
+	private static boolean hasSearchedItemChanges(IResourceDelta delta) {
+		if (delta.getKind() != IResourceDelta.CHANGED
+				|| (delta.getFlags() & (IResourceDelta.DERIVED_CHANGED
+						| IResourceDelta.MOVED_FROM | IResourceDelta.MOVED_TO
+						| IResourceDelta.OPEN | IResourceDelta.REPLACED)) != 0) {
+			return true;
+		}
+		IResourceDelta[] children = delta.getAffectedChildren();
+		for (int i = 0; i < children.length; i++) {
+			if (hasSearchedItemChanges(children[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -913,6 +979,11 @@ public class FilteredResourcesSelectionDialog extends
 		
 		private int filterTypeMask;
 
+		/**
+		 * The number of workspace changes when the filter was created.
+		 */
+		private final int filterResourceChanges = resourceChanges;
+
 		/**
 		 * Creates new ResourceFilter instance
 		 * 
@@ -1104,6 +1175,36 @@ public class FilteredResourcesSelectionDialog extends
 			return false;
 		}
 
+		/**
+		 * All the resources of the container are searched, except the members
+		 * of derived folders when derived resources are not shown. The same
+		 * resources are searched unless resources were added or removed, or
+		 * their derived flag changed, in between the creation of the filters.
+		 * 
+		 * @see org.eclipse.ui.dialogs.FilteredItemsSelectionDialog.ItemsFilter#hasSameItems(org.eclipse.ui.dialogs.FilteredItemsSelectionDialog.ItemsFilter)
+		 * @since 3.9
+		 */
+		public boolean hasSameItems(ItemsFilter filter) {
+			if (!(filter instanceof ResourceFilter)) {
+				return false;
+			}
+			ResourceFilter resourceFilter = (ResourceFilter) filter;
+			return this.showDerived == resourceFilter.showDerived
+					&& this.filterResourceChanges == resourceFilter.filterResourceChanges;
+		}
+
+		/**
+		 * Resources are matched by name, unless the file name pattern has an
+		 * extension: the name and extension parts are then matched separately
+		 * too.
+		 * 
+		 * @see org.eclipse.ui.dialogs.FilteredItemsSelectionDialog.ItemsFilter#matchesNamesOnly()
+		 * @since 3.9
+		 */
+		public boolean matchesNamesOnly() {
+			return namePattern == null;
+		}
+
 		/**
 		 * Check show derived flag for a filter
 		 * 
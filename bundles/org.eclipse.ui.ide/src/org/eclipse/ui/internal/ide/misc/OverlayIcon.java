@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -45,7 +45,7 @@ public class OverlayIcon extends CompositeImageDescriptor {
         int x = 0;
         for (int i = 0; i < 3; i++) {
             if (i < length && overlays[i] != null) {
-                ImageData id = overlays[i].getImageData();
+                ImageData id = getCachedImageData(overlays[i]);
                 drawImage(id, x, getSize().y - id.height);
                 x += id.width;
             }
@@ -60,7 +60,7 @@ public class OverlayIcon extends CompositeImageDescriptor {
         int x = getSize().x;
         for (int i = 2; i >= 0; i--) {
             if (i < length && overlays[i] != null) {
-                ImageData id = overlays[i].getImageData();
+                ImageData id = getCachedImageData(overlays[i]);
                 x -= id.width;
                 drawImage(id, x, getSize().y - id.height);
             }
@@ -72,7 +72,7 @@ public class OverlayIcon extends CompositeImageDescriptor {
      */
     protected void drawCompositeImage(int width, int height) {
         ImageData bg;
-        if (fBase == null || (bg = fBase.getImageData()) == null) {
+        if (fBase == null || (bg = getCachedImageData(fBase)) == null) {
 			bg = DEFAULT_IMAGE_DATA;
 		}
         drawImage(bg, 0, 0);
@@ -104,7 +104,7 @@ public class OverlayIcon extends CompositeImageDescriptor {
         int x = 0;
         for (int i = 0; i < 3; i++) {
             if (i < length && overlays[i] != null) {
-                ImageData id = overlays[i].getImageData();
+                ImageData id = getCachedImageData(overlays[i]);
                 drawImage(id, x, 0);
                 x += id.width;
             }
@@ -119,7 +119,7 @@ public class OverlayIcon extends CompositeImageDescriptor {
         int x = getSize().x;
         for (int i = 2; i >= 0; i--) {
             if (i < length && overlays[i] != null) {
-                ImageData id = overlays[i].getImageData();
+                ImageData id = getCachedImageData(overlays[i]);
                 x -= id.width;
                 drawImage(id, x, 0);
             }
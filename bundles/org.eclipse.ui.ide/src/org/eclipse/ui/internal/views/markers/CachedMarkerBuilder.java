@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -466,11 +466,14 @@ public class CachedMarkerBuilder {
 				// ensure cancellation before calling the method
 				// updateJob.cancel();
 			} else {
-				/*
-				 * updateJob = isIncremental() ? new IncrementUpdateJob(this):
-				 * new MarkerUpdateJob(this);
-				 */
-				updateJob = new MarkerUpdateJob(this);
+				if (isIncremental()) {
+					incrementJob = new IncrementUpdateJob(this);
+					// nothing gathered yet
+					incrementJob.setClean();
+					updateJob = incrementJob;
+				} else {
+					updateJob = new MarkerUpdateJob(this);
+				}
 				updateJob.setPriority(Job.LONG);
 				updateJob.setSystem(true);
 			}
@@ -613,20 +616,17 @@ public class CachedMarkerBuilder {
 	}
 	 
 ///////	<Incremental update code>///////
-		private IncrementUpdateJob incrementJob;
+	private IncrementUpdateJob incrementJob;
 	/**
-	 * Checks whether the builder should perform incrementally Note : Incremental
-	 * updating method is NOT used and tested yet but left out for further
-	 * investigation(*).
+	 * Checks whether the builder should perform incrementally. When it does,
+	 * markers are gathered again only when a clean update is requested, for
+	 * instance when filters change, and marker changes are merged into the
+	 * gathered markers.
 	 * 
 	 * @return Returns true if we should collect markers incrementally.
 	 */
 	boolean isIncremental() {
-		/*
-		 * We do not update incrementally. We have 
-		 * code for further investigation(*) for this anyway.
-		 */
-		return false;
+		return true;
 	}
 	
 	/**
@@ -656,12 +656,17 @@ public class CachedMarkerBuilder {
 	 * @param update
 	 */
 	void incrementalUpdate(MarkerUpdate update) {
+		IncrementUpdateJob job;
 		synchronized (getUpdateScheduler().getSchedulingLock()) {
 			if (incrementJob == null) {
 				scheduleUpdateJob(MarkerUpdateScheduler.SHORT_DELAY, true);
 			}
+			job = incrementJob;
+		}
+		// without a job the update is covered by the clean once active
+		if (job != null) {
+			job.addUpdate(update);
 		}
-		incrementJob.addUpdate(update);
 	}
 ///////	</Incremental update code>///////
 	
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,81 +11,88 @@
 
 package org.eclipse.ui.internal.views.markers;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
+import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.ui.views.markers.internal.MarkerMessages;
 
 /**
- * The job that performs incremental update. Once the processing is complete it
- * schedules an UI update. If it'll be possible and beneficial switch to
- * incremental updatation, this has been left out for further investigation(*).
- * only, and not used currently.
- * 
+ * The job that performs incremental update. The markers are gathered once,
+ * when a clean is requested, and the marker changes queued since are then
+ * applied to the gathered entries and merged into the {@link Markers}. Once
+ * the processing is complete it schedules an UI update.
+ *
  * @since 3.6
- * 
+ *
  */
 class IncrementUpdateJob extends MarkerUpdateJob {
 
-	private LinkedList incrementEntryList;
+	// the entries selected for the view by their marker
+	private Map incrementEntryMap;
 	private LinkedList updateQueue;
+	// the Markers have to be sorted and grouped again
+	private boolean resort;
 
 	/**
 	 * @param builder
 	 */
 	public IncrementUpdateJob(CachedMarkerBuilder builder) {
 		super(builder);
-		incrementEntryList = new LinkedList();
+		incrementEntryMap = new HashMap();
 	}
 
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @seeorg.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.
 	 * IProgressMonitor)
 	 */
 	protected IStatus run(IProgressMonitor monitor) {
 		monitor.beginTask(MarkerMessages.MarkerView_processUpdates,
 				IProgressMonitor.UNKNOWN);
-		boolean clean= isClean();
-		if (clean) {
-			clearEntries();
-		}
-		Collection markerEntries = incrementalEntries();
-		if (clean) {
+		if (isClean()) {
 			/*
-			 * Unfortunately we cannot lock marker operations between gathering
-			 * and updation. We have this code in place only for further
-			 * investigation
+			 * Marker operations cannot be locked while gathering, the changes
+			 * queued from now on are applied after gathering. Applying a
+			 * change to markers gathered after it is harmless.
 			 */
-			clean = !clean(markerEntries, monitor);
 			LinkedList queue = getUpdatesQueue();
 			synchronized (queue) {
 				queue.clear();
 			}
-		}
-		if (monitor.isCanceled()) {
-			return Status.CANCEL_STATUS;
-		}
-		if (!clean) {
-			builder.registerTypesToListener();
-			if (!processUpdates(monitor)) {
+			Collection markerEntries = new ArrayList();
+			if (!clean(markerEntries, monitor)) {
 				return Status.CANCEL_STATUS;
 			}
-		}
-		if (!processMarkerEntries(markerEntries, monitor)) {
-			return Status.CANCEL_STATUS;
+			setEntries(markerEntries);
 		}
 		if (monitor.isCanceled()) {
 			return Status.CANCEL_STATUS;
 		}
-		// update with sorted entries
-		updateIncrementalList(markerEntries);
+		List removed = new ArrayList();
+		List added = new ArrayList();
+		processUpdates(removed, added);
 
+		Markers markers = builder.getMarkers();
+		if (!resort && (!removed.isEmpty() || !added.isEmpty())
+				&& !markers.applyUpdates(removed, added)) {
+			resort = true;
+		}
+		if (resort) {
+			if (!processMarkerEntries(incrementalEntries(), monitor)) {
+				return Status.CANCEL_STATUS;
+			}
+			resort = false;
+		}
 		if (monitor.isCanceled()) {
 			return Status.CANCEL_STATUS;
 		}
@@ -100,32 +107,37 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 	}
 
 	/**
-	 * Update the list
-	 * 
+	 * Replace the entries with freshly gathered ones.
+	 *
 	 * @param markerEntries
 	 */
-	private boolean updateIncrementalList(Collection markerEntries) {
-		markerEntries.clear();
-		Markers clone = builder.getMarkers();
-		synchronized (clone) {
-			clone = clone.getClone();
-		}
-		MarkerEntry[] entries = clone.getMarkerEntryArray();
-		for (int i = 0; i < entries.length; i++) {
-			markerEntries.add(entries[i]);
+	private void setEntries(Collection markerEntries) {
+		Map entries = new HashMap(markerEntries.size() * 4 / 3 + 1);
+		Iterator iterator = markerEntries.iterator();
+		while (iterator.hasNext()) {
+			MarkerEntry entry = (MarkerEntry) iterator.next();
+			entries.put(entry.getMarker(), entry);
 		}
-		return true;
+		incrementEntryMap = entries;
+		resetClean();
+		resort = true;
 	}
 
 	/**
-	 * Process the incremental updates
-	 * 
-	 * @param monitor
+	 * Process the incremental updates queued, collecting the net changes to
+	 * the entries. The updates are applied as a whole, as they are dequeued.
+	 *
+	 * @param removed
+	 *            the entries no longer selected
+	 * @param added
+	 *            the entries newly selected
 	 */
-	private boolean processUpdates(IProgressMonitor monitor) {
-		Collection markerEntries = incrementalEntries();
-		int addCount = 0, removedCount = 0, changedCount = 0, size = 0, newSize = 0;
+	private void processUpdates(Collection removed, Collection added) {
+		Map entries = incrementEntryMap;
+		// the entry of each changed marker before the updates
+		Map previous = new HashMap();
 		LinkedList queue = getUpdatesQueue();
+		int changedCount = 0;
 		MarkerUpdate next = null;
 		do {
 			synchronized (queue) {
@@ -135,120 +147,98 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 					next = null;
 				}
 			}
-			if (monitor.isCanceled() || next == null) {
+			if (next == null) {
 				break;
 			}
-			/**
-			 * The following performs incremental updation of the markers that
-			 * were gathered intially, and keeps them synched at any point with
-			 * the markers of interest in Workspace
-			 */
-			// unfortunately marker operations cannot be locked
-			// so locking between gathering of markers and
-			// marker deltas is not possible
-			size = markerEntries.size();
-			handleRemovedEntries(markerEntries, next.removed, monitor);
-			newSize = markerEntries.size();
-			removedCount += size - newSize;
-
-			handleChangedEntries(markerEntries, next.changed, monitor);
+			handleRemovedEntries(entries, previous, next.removed);
+			handleChangedEntries(entries, previous, next.changed);
+			handleAddedEntries(entries, previous, next.added);
 			changedCount += next.changed.size();
-
-			size = newSize;
-			handleAddedEntries(markerEntries, next.added, monitor);
-			newSize = markerEntries.size();
-			removedCount += newSize - size;
 		} while (next != null);
-		boolean[] changeFlags = new boolean[] { addCount > 0, removedCount > 0,
-				changedCount > 0 };
-		for (int i = 0; i < changeFlags.length; i++) {
-			if (changeFlags[i]) {
-				builder.updateChangeFlags(changeFlags);
-				return true;
+
+		Iterator iterator = previous.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry change = (Map.Entry) iterator.next();
+			Object oldEntry = change.getValue();
+			Object newEntry = entries.get(change.getKey());
+			if (oldEntry == newEntry) {
+				continue;
+			}
+			if (oldEntry != null) {
+				removed.add(oldEntry);
+			}
+			if (newEntry != null) {
+				added.add(newEntry);
 			}
 		}
-		return false;
+		builder.updateChangeFlags(new boolean[] { !added.isEmpty(),
+				!removed.isEmpty(), changedCount > 0 });
 	}
 
 	/**
+	 * Remember the entry of a marker before the updates, the first time it
+	 * changes.
+	 */
+	private static void recordPrevious(Map entries, Map previous,
+			IMarker marker) {
+		if (!previous.containsKey(marker)) {
+			previous.put(marker, entries.get(marker));
+		}
+	}
+
+	/**
+	 * @param entries
+	 * @param previous
 	 * @param added
-	 * @param monitor
 	 */
-	private void handleAddedEntries(Collection markerEntries, Collection added,
-			IProgressMonitor monitor) {
+	private void handleAddedEntries(Map entries, Map previous,
+			Collection added) {
 		MarkerContentGenerator generator = builder.getGenerator();
 		Iterator iterator = added.iterator();
 		while (iterator.hasNext()) {
 			MarkerEntry entry = (MarkerEntry) iterator.next();
-			if (generator.select(entry)) {
-				markerEntries.add(entry);
+			IMarker marker = entry.getMarker();
+			if (marker.exists() && generator.select(entry)) {
+				recordPrevious(entries, previous, marker);
+				entries.put(marker, entry);
 			}
 		}
 	}
 
 	/**
+	 * @param entries
+	 * @param previous
 	 * @param changed
-	 * @param monitor
 	 */
-	private void handleChangedEntries(Collection markerEntries,
-			Collection changed, IProgressMonitor monitor) {
+	private void handleChangedEntries(Map entries, Map previous,
+			Collection changed) {
 		MarkerContentGenerator generator = builder.getGenerator();
 		Iterator iterator = changed.iterator();
 		while (iterator.hasNext()) {
 			MarkerEntry entry = (MarkerEntry) iterator.next();
-			Iterator iterator2 = markerEntries.iterator();
-			while (iterator2.hasNext()) {
-				MarkerEntry oldEntry = (MarkerEntry) iterator2.next();
-				if (oldEntry.getMarker().equals(entry.getMarker())) {
-					iterator2.remove();
-				}
-			}
-			if (!generator.select(entry)) {
-				iterator.remove();
+			IMarker marker = entry.getMarker();
+			recordPrevious(entries, previous, marker);
+			if (marker.exists() && generator.select(entry)) {
+				entries.put(marker, entry);
+			} else {
+				entries.remove(marker);
 			}
 		}
-		markerEntries.addAll(changed);
 	}
 
 	/**
+	 * @param entries
+	 * @param previous
 	 * @param removed
-	 * @param monitor
 	 */
-	private void handleRemovedEntries(Collection markerEntries,
-			Collection removed, IProgressMonitor monitor) {
-		boolean found = false;
-		Iterator iterator = markerEntries.iterator();
+	private void handleRemovedEntries(Map entries, Map previous,
+			Collection removed) {
+		Iterator iterator = removed.iterator();
 		while (iterator.hasNext()) {
-			MarkerEntry entry = (MarkerEntry) iterator.next();
-			found = entry.getStaleState();
-			if (found) {
-				iterator.remove();
-			}
-			if (removed.isEmpty()) {
-				continue;
-			}
-			Iterator iterator2 = removed.iterator();
-			while (iterator2.hasNext()) {
-				MarkerEntry stale = (MarkerEntry) iterator2.next();
-				if (stale.getMarker().equals(entry.getMarker())) {
-					iterator2.remove();
-					if (!found) {
-						iterator.remove();
-					}
-					break;
-				}
-			}
-		}
-		if (removed.isEmpty()) {
-			// TODO: do we check for residuals?
-			return;
-		}
-		// TODO: do we check for residuals?
-		iterator = markerEntries.iterator();
-		while (iterator.hasNext()) {
-			MarkerEntry entry = (MarkerEntry) iterator.next();
-			if (entry.getMarker() != null && !entry.getMarker().exists()) {
-				iterator.remove();
+			IMarker marker = ((MarkerEntry) iterator.next()).getMarker();
+			if (entries.containsKey(marker)) {
+				recordPrevious(entries, previous, marker);
+				entries.remove(marker);
 			}
 		}
 	}
@@ -257,14 +247,14 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 	 * Clean
 	 */
 	void clearEntries() {
-		incrementEntryList = new LinkedList();
+		incrementEntryMap = new HashMap();
 	}
 
 	/**
 	 * @return Returns the incrementEntryies.
 	 */
 	Collection incrementalEntries() {
-		return incrementEntryList;
+		return incrementEntryMap.values();
 	}
 
 	/**
@@ -281,7 +271,7 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 
 	/**
 	 * Add update to the list
-	 * 
+	 *
 	 * @param update
 	 */
 	void addUpdate(MarkerUpdate update) {
@@ -293,7 +283,7 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @see org.eclipse.core.runtime.jobs.Job#belongsTo(java.lang.Object)
 	 */
 	public boolean belongsTo(Object family) {
@@ -302,4 +292,4 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 		}
 		return super.belongsTo(family);
 	}
-}
\ No newline at end of file
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 IBM Corporation and others.
+ * Copyright (c) 2007, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,12 +24,18 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.mapping.ResourceMapping;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
@@ -44,6 +50,7 @@ import org.eclipse.ui.views.markers.FilterConfigurationArea;
 import org.eclipse.ui.views.markers.MarkerField;
 import org.eclipse.ui.views.markers.internal.ContentGeneratorDescriptor;
 import org.eclipse.ui.views.markers.internal.MarkerGroup;
+import org.eclipse.ui.views.markers.internal.MarkerMessages;
 import org.eclipse.ui.views.markers.internal.MarkerSupportRegistry;
 import org.eclipse.ui.views.markers.internal.MarkerType;
 import org.eclipse.ui.views.markers.internal.MarkerTypesModel;
@@ -1064,7 +1071,9 @@ public class MarkerContentGenerator {
 	}
 
 	/**
-	 * Gather markers into result.
+	 * Gather markers into result. The markers of each project are gathered
+	 * separately, in parallel, and added to result in the order of the
+	 * resources and types.
 	 * @param typeIds
 	 * @param includeSubTypes
 	 * @param result
@@ -1074,28 +1083,27 @@ public class MarkerContentGenerator {
 			Collection result, IProgressMonitor monitor) {
 		try {
 			Collection resources = getResourcesForBuild();
+			String[] gatheredTypes = typeIds;
 			if (includeSubTypes) {
 				// Optimize and calculate super types
-				String[] superTypes = MarkerResourceUtil
+				gatheredTypes = MarkerResourceUtil
 						.getMutuallyExclusiveSupersIds(typeIds);
 				if (monitor.isCanceled()) {
 					return false;
 				}
-				for (int i = 0; i < superTypes.length; i++) {
-					boolean success = internalGatherMarkers(resources,superTypes[i],
-							includeSubTypes, result, monitor);
-					if (!success || monitor.isCanceled()) {
-						return false;
-					}
-				}
-			} else {
-				for (int i = 0; i < typeIds.length; i++) {
-					boolean success = internalGatherMarkers(resources,typeIds[i],
-							includeSubTypes, result, monitor);
-					if (!success || monitor.isCanceled()) {
-						return false;
-					}
-				}
+			}
+			List tasks = new ArrayList();
+			for (int i = 0; i < gatheredTypes.length; i++) {
+				addGatheringTasks(tasks, resources, gatheredTypes[i],
+						includeSubTypes);
+			}
+			GatheringTask[] gatheringTasks = new GatheringTask[tasks.size()];
+			tasks.toArray(gatheringTasks);
+			if (!internalGatherMarkers(gatheringTasks, monitor)) {
+				return false;
+			}
+			for (int i = 0; i < gatheringTasks.length; i++) {
+				result.addAll(gatheringTasks[i].result);
 			}
 		} catch (Exception e) {
 			//do not propagate but do show the error
@@ -1107,58 +1115,211 @@ public class MarkerContentGenerator {
 	}
 
 	/**
-	 * A helper to the
-	 * {@link #gatherMarkers(String[], boolean, Collection, IProgressMonitor)}
+	 * Add the tasks gathering the markers of a type on resources, splitting
+	 * the workspace root into its projects.
 	 * 
+	 * @param tasks
 	 * @param resources
 	 * @param typeId
 	 * @param includeSubTypes
-	 * @param result
+	 */
+	private void addGatheringTasks(List tasks, Collection resources,
+			String typeId, boolean includeSubTypes) {
+		Iterator iterator = resources.iterator();
+		while (iterator.hasNext()) {
+			IResource resource = (IResource) iterator.next();
+			if (resource.getType() == IResource.ROOT) {
+				tasks.add(new GatheringTask(resource, IResource.DEPTH_ZERO,
+						typeId, includeSubTypes));
+				IProject[] projects = ((IWorkspaceRoot) resource)
+						.getProjects(IContainer.INCLUDE_HIDDEN);
+				for (int i = 0; i < projects.length; i++) {
+					tasks.add(new GatheringTask(projects[i],
+							IResource.DEPTH_INFINITE, typeId, includeSubTypes));
+				}
+			} else {
+				tasks.add(new GatheringTask(resource, IResource.DEPTH_INFINITE,
+						typeId, includeSubTypes));
+			}
+		}
+	}
+
+	/**
+	 * A helper to the
+	 * {@link #gatherMarkers(String[], boolean, Collection, IProgressMonitor)}.
+	 * Runs the tasks with a job for each available processor but one, and in
+	 * the calling thread. Only finding the markers runs concurrently, the
+	 * filters select them one at a time.
+	 * 
+	 * @param tasks
 	 * @param monitor
+	 * @return <code>false</code> if cancelled
 	 */
-	private boolean internalGatherMarkers(Collection resources, String typeId,
-			boolean includeSubTypes, Collection result, IProgressMonitor monitor) {
+	private boolean internalGatherMarkers(GatheringTask[] tasks,
+			IProgressMonitor monitor) throws InterruptedException {
 		if (monitor.isCanceled()) {
 			return false;
 		}
 		IResource[] selected = getSelectedResources();
 		Collection filters = getEnabledFilters();
-		boolean andFilters = andFilters();
-		Iterator iterator = resources.iterator();
+		Iterator iterator = filters.iterator();
 		while (iterator.hasNext()) {
+			((MarkerFieldFilterGroup) iterator.next()).prepareSelection();
+		}
+		GatheringContext context = new GatheringContext(tasks, selected,
+				filters, andFilters(), monitor);
+		int jobCount = Math.min(Runtime.getRuntime().availableProcessors(),
+				tasks.length) - 1;
+		GatheringJob[] jobs = new GatheringJob[Math.max(jobCount, 0)];
+		for (int i = 0; i < jobs.length; i++) {
+			jobs[i] = new GatheringJob(context);
+			jobs[i].schedule();
+		}
+		try {
+			context.gather();
+		} finally {
+			// the jobs which did not start have nothing left to do
+			for (int i = 0; i < jobs.length; i++) {
+				if (!jobs[i].cancel()) {
+					jobs[i].join();
+				}
+			}
+		}
+		RuntimeException failure = context.getFailure();
+		if (failure != null) {
+			throw failure;
+		}
+		return !monitor.isCanceled();
+	}
+
+	/**
+	 * The markers of a type on a resource, to gather.
+	 */
+	private static class GatheringTask {
+		final IResource resource;
+		final int depth;
+		final String typeId;
+		final boolean includeSubTypes;
+		final List result = new ArrayList();
+
+		GatheringTask(IResource resource, int depth, String typeId,
+				boolean includeSubTypes) {
+			this.resource = resource;
+			this.depth = depth;
+			this.typeId = typeId;
+			this.includeSubTypes = includeSubTypes;
+		}
+	}
+
+	/**
+	 * The state shared by the threads gathering markers.
+	 */
+	private class GatheringContext {
+		private final GatheringTask[] tasks;
+		private final IResource[] selected;
+		private final Collection filters;
+		private final boolean andFilters;
+		private final IProgressMonitor monitor;
+		/**
+		 * Markers are found in parallel but selected one at a time, since
+		 * {@link org.eclipse.ui.views.markers.MarkerFieldFilter#select(MarkerItem)}
+		 * implementations contributed by clients are not required to be
+		 * thread safe.
+		 */
+		private final Object selectionLock = new Object();
+		private int nextTask;
+		private RuntimeException failure;
+
+		GatheringContext(GatheringTask[] tasks, IResource[] selected,
+				Collection filters, boolean andFilters,
+				IProgressMonitor monitor) {
+			this.tasks = tasks;
+			this.selected = selected;
+			this.filters = filters;
+			this.andFilters = andFilters;
+			this.monitor = monitor;
+		}
+
+		synchronized RuntimeException getFailure() {
+			return failure;
+		}
+
+		private synchronized GatheringTask next() {
+			if (nextTask == tasks.length || failure != null) {
+				return null;
+			}
+			return tasks[nextTask++];
+		}
+
+		/**
+		 * Run tasks until none are left or gathering is cancelled.
+		 */
+		void gather() {
+			try {
+				GatheringTask task = next();
+				while (task != null && !monitor.isCanceled()) {
+					gather(task);
+					task = next();
+				}
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					failure = e;
+				}
+			}
+		}
+
+		private void gather(GatheringTask task) {
 			IMarker[] markers = null;
 			try {
-				IResource resource = (IResource) iterator.next();
-				if (!resource.isAccessible()) {
-					continue;
+				if (!task.resource.isAccessible()) {
+					return;
 				}
-				markers = resource.findMarkers(typeId, includeSubTypes,
-						IResource.DEPTH_INFINITE);
+				markers = task.resource.findMarkers(task.typeId,
+						task.includeSubTypes, task.depth);
 			} catch (CoreException e) {
 				MarkerSupportInternalUtilities.logViewError(e);
 			}
 			if (markers == null) {
-				continue;
-			}
-			if (monitor.isCanceled()) {
-				return false;
+				return;
 			}
 			MarkerEntry entry = null;
-			int lenght =  markers.length;
+			int lenght = markers.length;
 			for (int i = 0; i < lenght; i++) {
 				entry = new MarkerEntry(markers[i]);
-				if (select(entry, selected, filters, andFilters)) {
-					result.add(entry);
+				boolean selectEntry;
+				synchronized (selectionLock) {
+					selectEntry = select(entry, selected, filters, andFilters);
+				}
+				if (selectEntry) {
+					task.result.add(entry);
 				}
 				entry.clearCache();
 				if (i % 500 == 0) {
 					if (monitor.isCanceled()) {
-						return false;
+						return;
 					}
 				}
 			}
 		}
-		return true;
+	}
+
+	/**
+	 * The job gathering markers along with the thread of the update.
+	 */
+	private static class GatheringJob extends Job {
+		private final GatheringContext context;
+
+		GatheringJob(GatheringContext context) {
+			super(MarkerMessages.MarkerView_searching_for_markers);
+			this.context = context;
+			setSystem(true);
+			setPriority(Job.LONG);
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			context.gather();
+			return Status.OK_STATUS;
+		}
 	}
 
 	void dispose() {
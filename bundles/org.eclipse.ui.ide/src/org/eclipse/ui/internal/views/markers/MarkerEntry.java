@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -75,6 +75,16 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 * @since 3.6
 	 */
 	private boolean stale;
+
+	/**
+	 * The severity the receiver was counted with in the marker counts, or
+	 * {@link #UNKNOWN_SEVERITY}. Kept so that the counts can be updated when
+	 * the marker is gone.
+	 */
+	private int countedSeverity = UNKNOWN_SEVERITY;
+
+	static final int UNKNOWN_SEVERITY = -2;
+
 	/**
 	 * Important:
 	 * access to these fields must be via methods, they must be in sync and their
@@ -451,6 +461,22 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	boolean getStaleState() {
 		return stale;
 	}
+
+	/**
+	 * @return the severity the receiver was counted with, or
+	 *         {@link #UNKNOWN_SEVERITY} if it was not counted
+	 */
+	int getCountedSeverity() {
+		return countedSeverity;
+	}
+
+	/**
+	 * @param severity
+	 *            the severity the receiver is counted with
+	 */
+	void setCountedSeverity(int severity) {
+		countedSeverity = severity;
+	}
 	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#hashCode()
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 IBM Corporation and others.
+ * Copyright (c) 2007, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -702,6 +702,19 @@ class MarkerFieldFilterGroup {
 		}
 	}
 	
+	/**
+	 * Compute the state used for selecting markers up front, so that it is not
+	 * computed lazily by the threads gathering markers. The selection itself
+	 * is still serialized by the gathering, since the field filters are not
+	 * required to be thread safe.
+	 */
+	void prepareSelection() {
+		getFieldFilters();
+		if (getScope() == ON_WORKING_SET && wSetResources == null) {
+			computeWorkingSetResources();
+		}
+	}
+
 	public boolean selectByFilters(MarkerEntry entry) {
 		return select(entry);
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,17 +12,21 @@
 package org.eclipse.ui.internal.views.markers;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.ui.views.markers.MarkerItem;
 import org.eclipse.ui.views.markers.internal.MarkerGroup;
 import org.eclipse.ui.views.markers.internal.MarkerGroupingEntry;
@@ -54,6 +58,14 @@ class Markers {
 	private Map markerToEntryMap = null;
 	private Integer[] markerCounts;
 
+	// the group the categories were made with and the grouping entry of each
+	// category, used to add entries to the categories incrementally
+	private MarkerGroup categoryGroup;
+	private MarkerGroupingEntry[] categoryKeys;
+	// the number of entries sorted at the start of each category, or of all
+	// entries when they are not grouped; null if the sort was not completed
+	private int[] sortedCounts;
+
 	Markers(CachedMarkerBuilder builder) {
 		this.builder = builder;
 		inChange = false;
@@ -78,9 +90,14 @@ class Markers {
 				markerToEntryMap = null;
 			}
 			markerCounts = null;
+			sortedCounts = null;
 			if (markerEntries.size() == 0) {
 				categories = EMPTY_CATEGORY_ARRAY;
 				markerEntryArray = EMPTY_ENTRY_ARRAY;
+				categoryGroup = builder.getCategoryGroup();
+				categoryKeys = new MarkerGroupingEntry[0];
+				sortedCounts = categoryGroup == null ? new int[] { 0 }
+						: new int[0];
 				return true;
 			}
 			if (monitor.isCanceled()) {
@@ -116,13 +133,16 @@ class Markers {
 		try {
 			inChange = true;
 			// Sort by Category first
+			sortedCounts = null;
 			if (builder.isShowingHierarchy()) {
 				MarkerCategory[] markerCategories = groupIntoCategories(
 						monitor, markerEntryArray);
 				categories = markerCategories;
 			} else {
 				categories = EMPTY_CATEGORY_ARRAY;
+				categoryKeys = null;
 			}
+			categoryGroup = builder.getCategoryGroup();
 
 			if (monitor.isCanceled()) {
 				return false;
@@ -145,9 +165,12 @@ class Markers {
 		boolean initialVal = inChange;
 		try {
 			inChange = true;
+			sortedCounts = null;
+			int[] counts;
 			if (builder.isShowingHierarchy()) {
 				Comparator comparator = builder.getComparator()
 						.getFieldsComparator();
+				counts = new int[categories.length];
 				for (int i = 0; i < categories.length; i++) {
 					if (monitor.isCanceled()) {
 						return false;
@@ -160,6 +183,7 @@ class Markers {
 					MarkerSortUtil.sortStartingKElement(markerEntryArray,
 							comparator, category.start, category.end, effLimit,
 							monitor);
+					counts[i] = getSortedCount(avaliable, effLimit);
 				}
 			} else {
 				if (monitor.isCanceled()) {
@@ -169,10 +193,13 @@ class Markers {
 				int effLimit = getShowingLimit(avaialble);
 				MarkerSortUtil.sortStartingKElement(markerEntryArray,
 						builder.getComparator(), effLimit, monitor);
+				counts = new int[] { getSortedCount(markerEntryArray.length,
+						effLimit) };
 			}
 			if (monitor.isCanceled()) {
 				return false;
 			}
+			sortedCounts = counts;
 			monitor.worked(50);
 			return true;
 		} finally {
@@ -180,6 +207,160 @@ class Markers {
 		}
 	}
 
+	/**
+	 * Update incrementally by removing and adding marker entries. The
+	 * remaining entries keep their categories and order, and the new entries
+	 * are merged into the sorted entries of their categories, so only the
+	 * categories that changed are sorted again, if at all.
+	 * 
+	 * @param removed
+	 *            the {@link MarkerEntry}(s) to remove
+	 * @param added
+	 *            the {@link MarkerEntry}(s) to add, which are not in the
+	 *            receiver
+	 * @return <code>true</code> if updated, <code>false</code> if the entries
+	 *         have to be sorted and grouped with
+	 *         {@link #updateWithNewMarkers(Collection, boolean, IProgressMonitor)}
+	 *         instead
+	 */
+	synchronized boolean applyUpdates(Collection removed, Collection added) {
+		if (sortedCounts == null || categoryGroup != builder.getCategoryGroup()) {
+			return false;
+		}
+		boolean initialVal = inChange;
+		try {
+			inChange = true;
+			boolean hierarchy = categoryGroup != null;
+			Comparator comparator = hierarchy ? builder.getComparator()
+					.getFieldsComparator() : builder.getComparator();
+
+			// the ranges of entries to update, by grouping entry
+			Map ranges;
+			if (hierarchy) {
+				ranges = new TreeMap(categoryGroup.getEntriesComparator());
+				for (int i = 0; i < categories.length; i++) {
+					ranges.put(categoryKeys[i], new Range(categories[i],
+							sortedCounts[i]));
+				}
+			} else {
+				ranges = new HashMap();
+				ranges.put(null, new Range(0, markerEntryArray.length - 1,
+						sortedCounts[0]));
+			}
+			Iterator iterator = added.iterator();
+			while (iterator.hasNext()) {
+				MarkerEntry entry = (MarkerEntry) iterator.next();
+				Object key = null;
+				if (hierarchy) {
+					IMarker marker = entry.getMarker();
+					try {
+						key = categoryGroup.findGroupValue(marker.getType(),
+								marker);
+					} catch (CoreException e) {
+						entry.checkIfMarkerStale();
+						continue;// skip stale markers
+					}
+				}
+				Range range = (Range) ranges.get(key);
+				if (range == null) {
+					range = new Range(0, -1, 0);
+					ranges.put(key, range);
+				}
+				range.added.add(entry);
+			}
+
+			Set removedSet = new HashSet(removed);
+			List removedEntries = new ArrayList();
+			List addedEntries = new ArrayList();
+			MarkerEntry[] newEntries = new MarkerEntry[markerEntryArray.length
+					+ added.size()];
+			List newCategories = new ArrayList();
+			List newKeys = new ArrayList();
+			int[] newSortedCounts = new int[ranges.size()];
+			int position = 0;
+			iterator = ranges.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry mapEntry = (Map.Entry) iterator.next();
+				Range range = (Range) mapEntry.getValue();
+				int start = position;
+				position += range.merge(markerEntryArray, removedSet,
+						comparator, newEntries, start, removedEntries,
+						addedEntries);
+				int sortedCount = position == start ? 0 : sortRange(
+						newEntries, start, position - 1, range.sortedCount,
+						comparator, hierarchy);
+				if (hierarchy) {
+					if (position == start) {
+						continue;// no entries left
+					}
+					String name = range.category == null ? categoryGroup
+							.getMarkerField().getValue(newEntries[start])
+							: range.category.getName();
+					newSortedCounts[newCategories.size()] = sortedCount;
+					newCategories.add(new MarkerCategory(this, start,
+							position - 1, name));
+					newKeys.add(mapEntry.getKey());
+				} else {
+					newSortedCounts[0] = sortedCount;
+				}
+			}
+
+			if (position < newEntries.length) {
+				MarkerEntry[] trimmed = new MarkerEntry[position];
+				System.arraycopy(newEntries, 0, trimmed, 0, position);
+				newEntries = trimmed;
+			}
+			markerEntryArray = newEntries;
+			if (hierarchy) {
+				categories = (MarkerCategory[]) newCategories
+						.toArray(new MarkerCategory[newCategories.size()]);
+				categoryKeys = (MarkerGroupingEntry[]) newKeys
+						.toArray(new MarkerGroupingEntry[newKeys.size()]);
+				int[] counts = new int[categories.length];
+				System.arraycopy(newSortedCounts, 0, counts, 0, counts.length);
+				newSortedCounts = counts;
+			} else {
+				newSortedCounts = new int[] { newSortedCounts[0] };
+			}
+			sortedCounts = newSortedCounts;
+			if (markerToEntryMap != null) {
+				markerToEntryMap.clear();
+				markerToEntryMap = null;
+			}
+			updateMarkerCounts(removedEntries, addedEntries);
+			return true;
+		} finally {
+			inChange = initialVal;
+		}
+	}
+
+	/**
+	 * Sort the start of a range of merged entries as far as it is shown, if
+	 * more entries than the ones in order are shown.
+	 * 
+	 * @param entries
+	 * @param start
+	 * @param end
+	 * @param sortedCount
+	 *            the number of entries in order at the start of the range
+	 * @param comparator
+	 * @param hierarchy
+	 * @return the number of entries in order at the start of the range
+	 */
+	private int sortRange(MarkerEntry[] entries, int start, int end,
+			int sortedCount, Comparator comparator, boolean hierarchy) {
+		int size = end - start + 1;
+		// limits apply as in sortMarkerEntries(IProgressMonitor)
+		int effLimit = getShowingLimit(hierarchy ? size : size - 1);
+		int required = getSortedCount(size, effLimit);
+		if (sortedCount >= required) {
+			return sortedCount;
+		}
+		MarkerSortUtil.sortStartingKElement(entries, comparator, start, end,
+				effLimit, new NullProgressMonitor());
+		return required;
+	}
+
 	/**
 	 * get marker limit to show, if any.
 	 * 
@@ -199,6 +380,20 @@ class Markers {
 		return effLimit;
 	}
 
+	/**
+	 * Return the number of entries that are in order at the start of a range
+	 * once its first <code>k</code> entries are sorted.
+	 * 
+	 * @param size
+	 *            the number of entries in the range
+	 * @param k
+	 */
+	private static int getSortedCount(int size, int k) {
+		// the entry following the first size - 1 sorted entries is the
+		// greatest one
+		return k >= size - 1 ? size : k;
+	}
+
 	/**
 	 * Sort Markers according to groups, and Group them into categories
 	 * 
@@ -214,16 +409,19 @@ class Markers {
 		int start = 0;
 		MarkerCategory[] markerCategories = new MarkerCategory[boundaryInfoMap
 				.size()];
+		MarkerGroupingEntry[] keys = new MarkerGroupingEntry[markerCategories.length];
 		int i = 0;
 		int end = 0;
 		while (iterator.hasNext()) {
 			Object key = iterator.next();
 			end = ((Integer) boundaryInfoMap.get(key)).intValue();
+			keys[i] = (MarkerGroupingEntry) key;
 			markerCategories[i++] = new MarkerCategory(this, start, end,
 					builder.getCategoryGroup().getMarkerField()
 							.getValue(newMarkers[start]));
 			start = end + 1;
 		}
+		categoryKeys = keys;
 		return markerCategories;
 	}
 
@@ -309,28 +507,81 @@ class Markers {
 	static Integer[] getMarkerCounts(MarkerEntry[] entries) {
 		int[] ints = new int[] { 0, 0, 0, 0 };
 		for (int idx = 0; idx < entries.length; idx++) {
-			IMarker marker = entries[idx].getMarker();
-			int severity = -1;
-			Object value = null;
-			try {
-				value = marker.getAttribute(IMarker.SEVERITY);
-			} catch (CoreException e) {
-				entries[idx].checkIfMarkerStale();
-			}
-			if (value instanceof Integer) {
-				severity = ((Integer) value).intValue();
-			}
-			if (severity >= IMarker.SEVERITY_INFO) {
-				ints[severity]++;
-			} else {
-				ints[3]++;
-			}
+			ints[countSeverity(entries[idx])]++;
 		}
 
+		return toMarkerCounts(ints);
+	}
+
+	/**
+	 * Return the index of the count the entry is counted in, remembering its
+	 * severity in the entry.
+	 * 
+	 * @param entry
+	 * @return the severity for errors, warnings and infos, 3 for others
+	 */
+	private static int countSeverity(MarkerEntry entry) {
+		IMarker marker = entry.getMarker();
+		int severity = -1;
+		Object value = null;
+		try {
+			value = marker.getAttribute(IMarker.SEVERITY);
+		} catch (CoreException e) {
+			entry.checkIfMarkerStale();
+		}
+		if (value instanceof Integer) {
+			severity = ((Integer) value).intValue();
+		}
+		if (severity < IMarker.SEVERITY_INFO
+				|| severity > IMarker.SEVERITY_ERROR) {
+			severity = 3;
+		}
+		entry.setCountedSeverity(severity);
+		return severity;
+	}
+
+	/**
+	 * @param ints
+	 *            the counts indexed by severity
+	 * @return the counts as returned by {@link #getMarkerCounts()}
+	 */
+	private static Integer[] toMarkerCounts(int[] ints) {
 		return new Integer[] { new Integer(ints[2]), new Integer(ints[1]),
 				new Integer(ints[0]), new Integer(ints[3]) };
 	}
 
+	/**
+	 * Update the marker counts for the removed and added entries, or discard
+	 * them if the severity of a removed entry is unknown.
+	 * 
+	 * @param removed
+	 * @param added
+	 */
+	private void updateMarkerCounts(Collection removed, Collection added) {
+		if (markerCounts == null) {
+			return;
+		}
+		int[] ints = new int[] { markerCounts[2].intValue(),
+				markerCounts[1].intValue(), markerCounts[0].intValue(),
+				markerCounts[3].intValue() };
+		Iterator iterator = removed.iterator();
+		while (iterator.hasNext()) {
+			int severity = ((MarkerEntry) iterator.next())
+					.getCountedSeverity();
+			if (severity == MarkerEntry.UNKNOWN_SEVERITY) {
+				// counted before the severity was kept, count again lazily
+				markerCounts = null;
+				return;
+			}
+			ints[severity]--;
+		}
+		iterator = added.iterator();
+		while (iterator.hasNext()) {
+			ints[countSeverity((MarkerEntry) iterator.next())]++;
+		}
+		markerCounts = toMarkerCounts(ints);
+	}
+
 	/**
 	 * Return the {@link MarkerItem} that maps to marker.
 	 * 
@@ -440,4 +691,119 @@ class Markers {
 		}
 		return true;
 	}
+
+	/**
+	 * A range of the entries, either a category or all the entries, and the
+	 * entries to add to it.
+	 */
+	private static class Range {
+		final MarkerCategory category;
+		final int start;
+		final int end;
+		// the number of entries in order at the start of the range
+		int sortedCount;
+		final List added = new ArrayList();
+
+		Range(MarkerCategory category, int sortedCount) {
+			this(category, category.start, category.end, sortedCount);
+		}
+
+		Range(int start, int end, int sortedCount) {
+			this(null, start, end, sortedCount);
+		}
+
+		private Range(MarkerCategory category, int start, int end,
+				int sortedCount) {
+			this.category = category;
+			this.start = start;
+			this.end = end;
+			this.sortedCount = sortedCount;
+		}
+
+		/**
+		 * Copy the entries of the range which are not removed to result,
+		 * merging the added entries with the entries in order, and update
+		 * the number of entries in order.
+		 * 
+		 * @return the number of entries copied to result
+		 */
+		int merge(MarkerEntry[] entries, Set removed, Comparator comparator,
+				MarkerEntry[] result, int position, List removedEntries,
+				List addedEntries) {
+			int size = end - start + 1;
+			if (added.isEmpty() && removed.isEmpty()) {
+				System.arraycopy(entries, start, result, position, size);
+				return size;
+			}
+			// keep the entries which are not removed, the ones in order first
+			MarkerEntry[] kept = new MarkerEntry[size];
+			int keptCount = 0;
+			int keptSorted = 0;
+			for (int i = start; i <= end; i++) {
+				if (removed.contains(entries[i])) {
+					removedEntries.add(entries[i]);
+					continue;
+				}
+				if (i - start < sortedCount) {
+					keptSorted++;
+				}
+				kept[keptCount++] = entries[i];
+			}
+			MarkerEntry[] newEntries = (MarkerEntry[]) added
+					.toArray(new MarkerEntry[added.size()]);
+			Arrays.sort(newEntries, comparator);
+			addedEntries.addAll(added);
+
+			// the new entries which sort before the last entry in order are
+			// merged with the entries in order, the others follow the entries
+			// out of order
+			int merged = newEntries.length;
+			if (keptSorted < keptCount) {
+				merged = 0;
+				if (keptSorted > 0) {
+					MarkerEntry last = kept[keptSorted - 1];
+					int high = newEntries.length;
+					while (merged < high) {
+						int middle = (merged + high) >>> 1;
+						if (comparator.compare(newEntries[middle], last) <= 0) {
+							merged = middle + 1;
+						} else {
+							high = middle;
+						}
+					}
+				}
+			}
+			int i = 0;
+			int j = 0;
+			int k = position;
+			while (i < keptSorted && j < merged) {
+				if (comparator.compare(newEntries[j], kept[i]) < 0) {
+					result[k++] = newEntries[j++];
+				} else {
+					result[k++] = kept[i++];
+				}
+			}
+			while (i < keptSorted) {
+				result[k++] = kept[i++];
+			}
+			while (j < merged) {
+				result[k++] = newEntries[j++];
+			}
+			// done comparing
+			for (int c = position; c < k; c++) {
+				result[c].clearCache();
+			}
+			System.arraycopy(kept, keptSorted, result, k, keptCount
+					- keptSorted);
+			k += keptCount - keptSorted;
+			System.arraycopy(newEntries, merged, result, k, newEntries.length
+					- merged);
+			k += newEntries.length - merged;
+			for (int c = merged; c < newEntries.length; c++) {
+				newEntries[c].clearCache();
+			}
+			sortedCount = getSortedCount(k - position, keptSorted + merged);
+			return k - position;
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -184,10 +184,8 @@ class MarkersChangeListener implements IResourceChangeListener {
 	 * of the markers that were gathered initially, and keeps them synched at
 	 * any point with the markers of interest in Workspace. Unfortunately marker
 	 * operations cannot be locked so locking between gathering of markers and
-	 * marker deltas is not possible.
-	 * 
-	 * Note : this method of updating is NOT used and tested yet and has holes
-	 * but left out SOLELY for further investigation(*).
+	 * marker deltas is not possible, the {@link IncrementUpdateJob} applies
+	 * the changes queued while gathering after it.
 	 * 
 	 * @param event
 	 */
@@ -231,7 +229,7 @@ class MarkersChangeListener implements IResourceChangeListener {
 		if (removed.size() > 0 || added.size() > 0 || changed.size() > 0) {
 			MarkerUpdate update = new MarkerUpdate(added, removed, changed);
 			builder.incrementalUpdate(update);
-			builder.getUpdateScheduler().scheduleUpdate();
+			builder.getUpdateScheduler().scheduleIncrementalUpdate();
 		} else {
 			handleNoMarkerChange();
 		}
@@ -534,6 +532,13 @@ class MarkerUpdateScheduler {
 	 * Schedule marker update.
 	 */
 	void scheduleUpdate(long delay, boolean cancelPrevious) {
+		scheduleUpdate(delay, cancelPrevious, true);
+	}
+
+	/**
+	 * Schedule marker update, gathering the markers again if clean.
+	 */
+	void scheduleUpdate(long delay, boolean cancelPrevious, boolean clean) {
 		//we do not need to make this atomic (?)
 		builder.setBuilding(true);
 		if (cancelPrevious) {
@@ -541,7 +546,7 @@ class MarkerUpdateScheduler {
 			cancelUpdate();
 		}
 		// indicateStatus(MarkerMessages.MarkerView_queueing_updates, true);
-		updateJob = builder.scheduleUpdateJob(delay, true);
+		updateJob = builder.scheduleUpdateJob(delay, clean);
 		// updateTimer.reset();
 	}
 
@@ -572,6 +577,16 @@ class MarkerUpdateScheduler {
 		}
 	}
 
+	/**
+	 * Schedule marker update for queued marker changes, which does not gather
+	 * the markers again unless a clean update is pending.
+	 */
+	void scheduleIncrementalUpdate() {
+		synchronized (updateTimer) {
+			updateTimer.update(false);
+		}
+	}
+
 	/**
 	 * Schedule pending updates to happen quickly.
 	 */
@@ -693,7 +708,15 @@ class MarkerUpdateScheduler {
 
 		private long timerValidStart;
 
+		// whether the updates scheduled gather the markers again
+		private boolean clean = true;
+
 		void update() {
+			update(true);
+		}
+
+		void update(boolean clean) {
+			this.clean = clean;
 			long startTime = view.getLastUIRefreshTime();
 			long currentTime = System.currentTimeMillis();
 			long updateTimeGap = currentTime - startTime;
@@ -762,7 +785,7 @@ class MarkerUpdateScheduler {
 			 */
 			if (updatesPending()) {
 				timeB4Update = -1;
-				update();
+				update(clean);
 			}
 			/*
 			 * Else wait for next change(Post-Change?), it will be scheduled
@@ -808,7 +831,7 @@ class MarkerUpdateScheduler {
 
 		private void go(long delay, boolean cancelPrevious) {
 			timeB4Update = System.currentTimeMillis() + delay;
-			scheduleUpdate(delay + AFTER_MARGIN, cancelPrevious);
+			scheduleUpdate(delay + AFTER_MARGIN, cancelPrevious, clean);
 		}
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -223,6 +223,7 @@ public class ArchiveFileExportOperation implements IRunnableWithProgress {
                 }
             }
 
+            prepareFiles(children, leadupDepth + 1);
             for (int i = 0; i < children.length; i++) {
 				exportResource(children[i], leadupDepth + 1);
 			}
@@ -230,11 +231,41 @@ public class ArchiveFileExportOperation implements IRunnableWithProgress {
         }
     }
 
+    /**
+     * Lets the exporter read and compress ahead the files among the given
+     * resources, which are exported next.
+     *
+     * @param resources the resources about to be exported
+     * @param leadupDepth the number of resource levels to be included in
+     *                    the path of the resources
+     */
+    private void prepareFiles(IResource[] resources, int leadupDepth) {
+        if (!(exporter instanceof ZipFileExporter)) {
+            return;
+        }
+        List files = new ArrayList();
+        List destinationNames = new ArrayList();
+        for (int i = 0; i < resources.length; i++) {
+            IResource resource = resources[i];
+            if (resource.getType() == IResource.FILE && resource.isAccessible()) {
+                files.add(resource);
+                destinationNames.add(createDestinationName(leadupDepth, resource));
+            }
+        }
+        if (!files.isEmpty()) {
+            ((ZipFileExporter) exporter).prepare((IFile[]) files
+                    .toArray(new IFile[files.size()]), (String[]) destinationNames
+                    .toArray(new String[destinationNames.size()]));
+        }
+    }
+
     /**
      *	Export the resources contained in the previously-defined
      *	resourcesToExport collection
      */
     protected void exportSpecifiedResources() throws InterruptedException {
+        prepareFiles((IResource[]) resourcesToExport
+                .toArray(new IResource[resourcesToExport.size()]), 1);
         Iterator resources = resourcesToExport.iterator();
 
         while (resources.hasNext()) {
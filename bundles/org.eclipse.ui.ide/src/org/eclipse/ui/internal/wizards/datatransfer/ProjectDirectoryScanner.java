@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.wizards.datatransfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.ui.internal.ide.StatusUtil;
+import org.eclipse.ui.statushandlers.StatusManager;
+
+/**
+ * Searches a directory tree for project description files.
+ * <p>
+ * The directories are listed by a few jobs along with the calling thread, so
+ * that the slow file system calls of a large tree overlap. Directories that
+ * cannot hold projects, such as workspace metadata and version control
+ * folders, are not searched. The projects found are reported to
+ * {@link #projectFileFound(File)} as soon as they are found.
+ * </p>
+ */
+public class ProjectDirectoryScanner {
+
+	/**
+	 * The names of the directories that are not searched.
+	 */
+	private static final Set SKIPPED_DIRECTORIES = new HashSet(Arrays
+			.asList(new String[] { WizardProjectsImportPage.METADATA_FOLDER,
+					".git", ".hg", ".svn", ".bzr", "CVS", "node_modules" })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+
+	/**
+	 * How often the calling thread checks the monitor, in milliseconds.
+	 */
+	private static final long POLL_INTERVAL = 100;
+
+	private final File root;
+
+	private final boolean nestedProjects;
+
+	/**
+	 * The directories still to be listed.
+	 */
+	private final LinkedList pendingDirectories = new LinkedList();
+
+	/**
+	 * The number of directories being listed.
+	 */
+	private int activeDirectories = 0;
+
+	/**
+	 * Canonical paths of the directories queued, used as recursion guard for
+	 * recursive symbolic links.
+	 */
+	private final Set directoriesVisited = new HashSet();
+
+	private final List projectFiles = new ArrayList();
+
+	/**
+	 * The modification times of the directories listed, keyed by directory.
+	 */
+	private final Map directoryStamps = new HashMap();
+
+	private volatile boolean canceled = false;
+
+	private volatile String currentDirectory;
+
+	/**
+	 * Creates a scanner of the given directory.
+	 *
+	 * @param root
+	 *            the directory to search
+	 * @param nestedProjects
+	 *            whether to search for projects inside of projects
+	 */
+	public ProjectDirectoryScanner(File root, boolean nestedProjects) {
+		this.root = root;
+		this.nestedProjects = nestedProjects;
+	}
+
+	/**
+	 * Searches the directory tree. The method returns once the whole tree is
+	 * searched or the monitor is canceled.
+	 *
+	 * @param monitor
+	 *            the monitor to report to, only used by the calling thread
+	 * @return <code>false</code> if the root directory could not be listed
+	 *         or the search was canceled
+	 */
+	public boolean scan(IProgressMonitor monitor) {
+		addStamp(root);
+		File[] contents = root.listFiles();
+		if (contents == null) {
+			return false;
+		}
+		addVisited(root);
+		synchronized (pendingDirectories) {
+			activeDirectories++;
+		}
+		processDirectory(contents);
+
+		int jobCount = Math.max(1, Math.min(4, Runtime.getRuntime()
+				.availableProcessors())) - 1;
+		for (int i = 0; i < jobCount; i++) {
+			createScanJob().schedule();
+		}
+		while (!isDone()) {
+			if (monitor.isCanceled()) {
+				canceled = true;
+				break;
+			}
+			String directory = currentDirectory;
+			if (directory != null) {
+				monitor.subTask(NLS.bind(
+						DataTransferMessages.WizardProjectsImportPage_CheckingMessage,
+						directory));
+			}
+			// the calling thread lists directories too
+			File next = takeDirectory(POLL_INTERVAL);
+			if (next != null) {
+				listDirectory(next);
+			}
+		}
+		synchronized (pendingDirectories) {
+			// stop the jobs, they finish the directories they are listing
+			pendingDirectories.clear();
+			pendingDirectories.notifyAll();
+		}
+		return !canceled;
+	}
+
+	/**
+	 * Returns the project description files found, sorted by path.
+	 *
+	 * @return the files found
+	 */
+	public File[] getProjectFiles() {
+		File[] files;
+		synchronized (projectFiles) {
+			files = (File[]) projectFiles.toArray(new File[projectFiles.size()]);
+		}
+		Arrays.sort(files, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				return ((File) o1).getPath().compareTo(((File) o2).getPath());
+			}
+		});
+		return files;
+	}
+
+	/**
+	 * Returns the modification times of the directories listed, keyed by
+	 * directory. The projects found are the same as long as none of these
+	 * directories is modified.
+	 *
+	 * @return the modification times of the directories
+	 * @see #isUnchanged(Map)
+	 */
+	public Map getDirectoryStamps() {
+		synchronized (directoryStamps) {
+			return new HashMap(directoryStamps);
+		}
+	}
+
+	/**
+	 * Returns whether none of the given directories was modified since their
+	 * modification times were recorded.
+	 *
+	 * @param directoryStamps
+	 *            the modification times returned by
+	 *            {@link #getDirectoryStamps()}
+	 * @return <code>true</code> if a new search would find the same projects
+	 */
+	public static boolean isUnchanged(Map directoryStamps) {
+		for (Iterator it = directoryStamps.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			if (((File) entry.getKey()).lastModified() != ((Long) entry
+					.getValue()).longValue()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Called when a project description file is found. This method is called
+	 * from the scanning threads, possibly concurrently. The default
+	 * implementation does nothing.
+	 *
+	 * @param projectFile
+	 *            the project description file
+	 */
+	protected void projectFileFound(File projectFile) {
+		// nothing by default
+	}
+
+	private Job createScanJob() {
+		Job job = new Job(DataTransferMessages.WizardProjectsImportPage_SearchingMessage) {
+			protected IStatus run(IProgressMonitor monitor) {
+				File directory;
+				while ((directory = takeDirectory(0)) != null) {
+					listDirectory(directory);
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		return job;
+	}
+
+	private boolean isDone() {
+		synchronized (pendingDirectories) {
+			return pendingDirectories.isEmpty() && activeDirectories == 0;
+		}
+	}
+
+	/**
+	 * Returns the next directory to list, waiting for one while other
+	 * directories are being listed. Returns <code>null</code> once the search
+	 * is over, or, if a timeout is given, when it expires.
+	 */
+	private File takeDirectory(long timeout) {
+		synchronized (pendingDirectories) {
+			while (pendingDirectories.isEmpty()) {
+				if (activeDirectories == 0 || canceled) {
+					return null;
+				}
+				try {
+					pendingDirectories.wait(timeout);
+				} catch (InterruptedException e) {
+					return null;
+				}
+				if (timeout > 0 && pendingDirectories.isEmpty()) {
+					return null;
+				}
+			}
+			activeDirectories++;
+			return (File) pendingDirectories.removeFirst();
+		}
+	}
+
+	private void listDirectory(File directory) {
+		currentDirectory = directory.getPath();
+		File[] contents = null;
+		if (!canceled) {
+			addStamp(directory);
+			contents = directory.listFiles();
+		}
+		if (contents == null) {
+			synchronized (pendingDirectories) {
+				activeDirectories--;
+				pendingDirectories.notifyAll();
+			}
+			return;
+		}
+		processDirectory(contents);
+	}
+
+	/**
+	 * Looks for a project description in the listed directory and queues its
+	 * sub-directories.
+	 */
+	private void processDirectory(File[] contents) {
+		List subDirectories = new ArrayList();
+		try {
+			// first look for project description files
+			final String dotProject = IProjectDescription.DESCRIPTION_FILE_NAME;
+			for (int i = 0; i < contents.length; i++) {
+				File file = contents[i];
+				if (file.getName().equals(dotProject) && file.isFile()) {
+					synchronized (projectFiles) {
+						projectFiles.add(file);
+					}
+					projectFileFound(file);
+					if (!nestedProjects) {
+						// don't search sub-directories since we can't have
+						// nested projects
+						return;
+					}
+				}
+			}
+			// no project description found or search for nested projects
+			// enabled, so recurse into sub-directories
+			for (int i = 0; i < contents.length; i++) {
+				if (canceled) {
+					return;
+				}
+				if (!SKIPPED_DIRECTORIES.contains(contents[i].getName())
+						&& contents[i].isDirectory() && addVisited(contents[i])) {
+					subDirectories.add(contents[i]);
+				}
+			}
+		} finally {
+			synchronized (pendingDirectories) {
+				if (!canceled) {
+					pendingDirectories.addAll(subDirectories);
+				}
+				activeDirectories--;
+				pendingDirectories.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Records the modification time of the directory before it is listed, so
+	 * that a modification while it is listed is not missed.
+	 */
+	private void addStamp(File directory) {
+		Long stamp = new Long(directory.lastModified());
+		synchronized (directoryStamps) {
+			directoryStamps.put(directory, stamp);
+		}
+	}
+
+	/**
+	 * Records the directory as visited, returns <code>false</code> if it
+	 * already was.
+	 */
+	private boolean addVisited(File directory) {
+		try {
+			String canonicalPath = directory.getCanonicalPath();
+			synchronized (directoriesVisited) {
+				return directoriesVisited.add(canonicalPath);
+			}
+		} catch (IOException exception) {
+			StatusManager.getManager().handle(
+					StatusUtil.newStatus(IStatus.ERROR, exception
+							.getLocalizedMessage(), exception));
+			return true;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2006 IBM Corporation and others.
+ * Copyright (c) 2004, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,7 +20,7 @@ public class TarEntry implements Cloneable
 	private String name;
 	private long mode, time, size;
 	private int type;
-	int filepos;
+	long filepos;
 
 	/**
 	 * Entry type for normal files.
@@ -39,7 +39,7 @@ public class TarEntry implements Cloneable
 	 * @param name filename
 	 * @param pos position in the file in bytes
 	 */
-	TarEntry(String name, int pos) {
+	TarEntry(String name, long pos) {
 		this.name = name;
 		mode = 0644;
 		type = FILE;
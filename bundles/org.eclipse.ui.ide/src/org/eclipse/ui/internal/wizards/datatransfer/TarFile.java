@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2008 IBM Corporation and others.
+ * Copyright (c) 2004, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,7 +15,13 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.zip.GZIPInputStream;
 
 
@@ -23,16 +29,28 @@ import java.util.zip.GZIPInputStream;
  * Reads a .tar or .tar.gz archive file, providing an index enumeration
  * and allows for accessing an InputStream for arbitrary files in the
  * archive.
+ * <p>
+ * The entries are indexed as the archive is enumerated. The files of an
+ * uncompressed archive are then read directly at their position. A
+ * compressed archive can only be read forward, reading its files in the
+ * order of the archive decompresses it once.
+ * </p>
  * 
  * @since 3.1
  */
 public class TarFile {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
 	private File file;
+	private boolean compressed;
 	private TarInputStream entryEnumerationStream;
 	private TarEntry curEntry;
+	private List entryIndex = new ArrayList();
 	private TarInputStream entryStream;
 
 	private InputStream internalEntryStream;
+
+	private RandomAccessFile randomAccessFile;
 	
 	/**
 	 * Create a new TarFile for the given file.
@@ -47,7 +65,8 @@ public class TarFile {
 		InputStream in = new FileInputStream(file);
 		// First, check if it's a GZIPInputStream.
 		try {
-			in = new GZIPInputStream(in);
+			in = new GZIPInputStream(in, BUFFER_SIZE);
+			compressed = true;
 		} catch(IOException e) {
 			//If it is not compressed we close
 			//the old one and recreate
@@ -73,6 +92,8 @@ public class TarFile {
 			entryEnumerationStream.close();
 		if (internalEntryStream != null)
 			internalEntryStream.close();
+		if (randomAccessFile != null)
+			randomAccessFile.close();
 	}
 
 	/**
@@ -93,24 +114,50 @@ public class TarFile {
 	 */
 	public Enumeration entries() {
 		return new Enumeration() {
+			private int index = 0;
+
 			public boolean hasMoreElements() {
-				return (curEntry != null);
+				return index < entryIndex.size() || indexNextEntry();
 			}
 			
 			public Object nextElement() {
-				TarEntry oldEntry = curEntry;
-				try {
-					curEntry = entryEnumerationStream.getNextEntry();
-				} catch(TarException e) {
-					curEntry = null;
-				} catch(IOException e) {
-					curEntry = null;
+				if (!hasMoreElements()) {
+					throw new NoSuchElementException();
 				}
-				return oldEntry;
+				return entryIndex.get(index++);
 			}
 		};
 	}
 
+	/**
+	 * Adds the next entry of the archive to the index.
+	 * 
+	 * @return <code>false</code> if all the entries are indexed
+	 */
+	private boolean indexNextEntry() {
+		if (curEntry == null) {
+			return false;
+		}
+		entryIndex.add(curEntry);
+		try {
+			curEntry = entryEnumerationStream.getNextEntry();
+		} catch(TarException e) {
+			curEntry = null;
+		} catch(IOException e) {
+			curEntry = null;
+		}
+		if (curEntry == null) {
+			// The whole archive is indexed, release the stream
+			try {
+				entryEnumerationStream.close();
+			} catch (IOException e) {
+				// ignore
+			}
+			entryEnumerationStream = null;
+		}
+		return true;
+	}
+
 	/**
 	 * Returns a new InputStream for the given file in the tar archive.
 	 * 
@@ -120,20 +167,20 @@ public class TarFile {
 	 * @throws IOException
 	 */
 	public InputStream getInputStream(TarEntry entry) throws TarException, IOException {
+		if (!compressed) {
+			if (randomAccessFile == null) {
+				randomAccessFile = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+			}
+			// The data of the file follows its header
+			return new EntryInputStream(randomAccessFile.getChannel(),
+					entry.filepos + 512, entry.getSize());
+		}
 		if(entryStream == null || !entryStream.skipToEntry(entry)) {
 			if (internalEntryStream != null) {
 				internalEntryStream.close();
 			}
-			internalEntryStream = new FileInputStream(file);
-			// First, check if it's a GZIPInputStream.
-			try {
-				internalEntryStream = new GZIPInputStream(internalEntryStream);
-			} catch(IOException e) {
-				//If it is not compressed we close
-				//the old one and recreate
-				internalEntryStream.close();
-				internalEntryStream = new FileInputStream(file);
-			}
+			internalEntryStream = new GZIPInputStream(new FileInputStream(file),
+					BUFFER_SIZE);
 			entryStream = new TarInputStream(internalEntryStream, entry) {
 				public void close() {
 					// Ignore close() since we want to reuse the stream.
@@ -143,6 +190,16 @@ public class TarFile {
 		return entryStream;
 	}
 
+	/**
+	 * Returns whether this archive is compressed. The files of a compressed
+	 * archive should be read in the order of the archive.
+	 * 
+	 * @return <code>true</code> for a .tar.gz archive
+	 */
+	public boolean isCompressed() {
+		return compressed;
+	}
+
 	/**
 	 * Returns the path name of the file this archive represents.
 	 * 
@@ -159,4 +216,59 @@ public class TarFile {
 	protected void finalize() throws Throwable {
 		close();
 	}
+
+	/**
+	 * Reads the data of a file of an uncompressed archive with positioned
+	 * reads, independently of the other streams on the archive.
+	 */
+	private static class EntryInputStream extends InputStream {
+		private final FileChannel channel;
+		private long position;
+		private long remaining;
+		private final byte[] single = new byte[1];
+
+		EntryInputStream(FileChannel channel, long position, long size) {
+			this.channel = channel;
+			this.position = position;
+			this.remaining = size;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			if (len > remaining) {
+				len = (int) remaining;
+			}
+			int count = channel.read(ByteBuffer.wrap(b, off, len), position);
+			if (count < 0) {
+				throw new IOException("early end of stream"); //$NON-NLS-1$
+			}
+			position += count;
+			remaining -= count;
+			return count;
+		}
+
+		public int read() throws IOException {
+			int size = read(single, 0, 1);
+			if (size < 0) {
+				return size;
+			}
+			return single[0] & 0xff;
+		}
+
+		public long skip(long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+			long skipped = Math.min(n, remaining);
+			position += skipped;
+			remaining -= skipped;
+			return skipped;
+		}
+
+		public int available() throws IOException {
+			return (int) Math.min(remaining, Integer.MAX_VALUE);
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -31,6 +31,8 @@ import org.eclipse.core.runtime.CoreException;
  * @since 3.1
  */
 public class TarFileExporter implements IFileExporter {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
     private TarOutputStream outputStream;
     private GZIPOutputStream gzipOutputStream;
     
@@ -44,10 +46,11 @@ public class TarFileExporter implements IFileExporter {
      */
     public TarFileExporter(String filename, boolean compress) throws IOException {
     	if(compress) {
-    		gzipOutputStream = new GZIPOutputStream(new FileOutputStream(filename));
-    		outputStream = new TarOutputStream(new BufferedOutputStream(gzipOutputStream));
+    		gzipOutputStream = new GZIPOutputStream(new BufferedOutputStream(
+    				new FileOutputStream(filename), BUFFER_SIZE), BUFFER_SIZE);
+    		outputStream = new TarOutputStream(new BufferedOutputStream(gzipOutputStream, BUFFER_SIZE));
     	} else {
-    		outputStream = new TarOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+    		outputStream = new TarOutputStream(new BufferedOutputStream(new FileOutputStream(filename), BUFFER_SIZE));
     	}
     }
 
@@ -83,7 +86,7 @@ public class TarFileExporter implements IFileExporter {
     	outputStream.putNextEntry(entry);
         try {
             int n;
-            byte[] readBuffer = new byte[4096];
+            byte[] readBuffer = new byte[BUFFER_SIZE];
             while ((n = contentStream.read(readBuffer)) > 0) {
                 outputStream.write(readBuffer, 0, n);
             }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2006 IBM Corporation and others.
+ * Copyright (c) 2004, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,10 +23,10 @@ import java.io.InputStream;
  */
 public class TarInputStream extends FilterInputStream
 {
-	private int nextEntry = 0;
-	private int nextEOF = 0;
-	private int filepos = 0;
-	private int bytesread = 0;
+	private long nextEntry = 0;
+	private long nextEOF = 0;
+	private long filepos = 0;
+	private long bytesread = 0;
 	private TarEntry firstEntry = null;
 	private String longLinkName = null;
 
@@ -83,7 +83,7 @@ public class TarInputStream extends FilterInputStream
 	 * @throws IOException
 	 */
 	boolean skipToEntry(TarEntry entry) throws TarException, IOException {
-		int bytestoskip = entry.filepos - bytesread;
+		long bytestoskip = entry.filepos - bytesread;
 		if(bytestoskip < 0) {
 			return false;
 		}
@@ -260,9 +260,9 @@ public class TarInputStream extends FilterInputStream
 		if(size.charAt(0) != '0') {
 			size.insert(0, '0');
 		}
-		int fileSize;
+		long fileSize;
 		try {
-			fileSize = Integer.decode(size.toString()).intValue();
+			fileSize = Long.decode(size.toString()).longValue();
 		} catch(NumberFormatException nfe) {
 			throw new TarException(DataTransferMessages.TarImport_invalid_tar_format, nfe);
 		}
@@ -321,7 +321,7 @@ public class TarInputStream extends FilterInputStream
 			return -1;
 		}
 		if(len > nextEOF) {
-			len = nextEOF;
+			len = (int) nextEOF;
 		}
 		int size = super.read(b, off, len);
 		nextEntry -= size;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2006 IBM Corporation and others.
+ * Copyright (c) 2004, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,7 +22,7 @@ import java.io.OutputStream;
  */
 public class TarOutputStream extends FilterOutputStream {
 	
-	private int byteswritten = 0;
+	private long byteswritten = 0;
 	private int datapos = 0;
 	private long cursize = 0;
 
@@ -47,7 +47,7 @@ public class TarOutputStream extends FilterOutputStream {
 		// Default block size for tar files is 10240, so we have to
 		// pad the end of the file to be a multiple of this size.
 		if((byteswritten % 10240) != 0) {
-			int length = 10240 - (byteswritten % 10240);
+			int length = (int) (10240 - (byteswritten % 10240));
 			cursize = length;
 			zeros = new byte[length];
 			write(zeros, 0, length);
@@ -217,7 +217,8 @@ public class TarOutputStream extends FilterOutputStream {
 	 * Writes data for the current file into the archive.
 	 */
 	public void write(byte[] b, int off, int len) throws IOException {
-		super.write(b, off, len);
+		// FilterOutputStream would write the bytes one by one
+		out.write(b, off, len);
 		datapos = (datapos + len) % 512;
 		byteswritten += len;
 		cursize -= len;
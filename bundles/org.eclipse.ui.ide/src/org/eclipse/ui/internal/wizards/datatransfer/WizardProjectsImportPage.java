@@ -28,11 +28,14 @@ import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
@@ -91,8 +94,6 @@ import org.eclipse.ui.actions.WorkspaceModifyOperation;
 import org.eclipse.ui.dialogs.WizardDataTransferPage;
 import org.eclipse.ui.dialogs.WorkingSetGroup;
 import org.eclipse.ui.internal.ide.IDEWorkbenchPlugin;
-import org.eclipse.ui.internal.ide.StatusUtil;
-import org.eclipse.ui.statushandlers.StatusManager;
 import org.eclipse.ui.wizards.datatransfer.FileSystemStructureProvider;
 import org.eclipse.ui.wizards.datatransfer.ImportOperation;
 
@@ -314,6 +315,19 @@ public class WizardProjectsImportPage extends WizardDataTransferPage {
 
 	private ProjectRecord[] selectedProjects = new ProjectRecord[0];
 
+	/**
+	 * The project description files found under the directories searched,
+	 * keyed by directory and search options. The values are the modification
+	 * times of the directories listed by the search and the files found.
+	 */
+	private Map projectFilesCache = new HashMap();
+
+	private boolean foundProjectsUpdatePending = false;
+
+	// Whether a search for projects is running and shows the projects found
+	// so far, only changed while holding the projectFilesCache lock
+	private volatile boolean searching = false;
+
 	// Keep track of the directory that we browsed to last time
 	// the wizard was invoked.
 	private static String previouslyBrowsedDirectory = ""; //$NON-NLS-1$
@@ -628,6 +642,11 @@ public class WizardProjectsImportPage extends WizardDataTransferPage {
 			 * .swt.events.SelectionEvent)
 			 */
 			public void widgetSelected(SelectionEvent e) {
+				// search again even if nothing changed at the top level
+				synchronized (projectFilesCache) {
+					projectFilesCache.clear();
+				}
+				lastPath = null;
 				if (projectFromDirectoryRadio.getSelection()) {
 					updateProjectsList(directoryPathField.getText().trim());
 				} else {
@@ -906,6 +925,9 @@ public class WizardProjectsImportPage extends WizardDataTransferPage {
 		// status beforehand
 		final boolean dirSelected = this.projectFromDirectoryRadio
 				.getSelection();
+		synchronized (projectFilesCache) {
+			searching = true;
+		}
 		try {
 			getContainer().run(true, true, new IRunnableWithProgress() {
 
@@ -977,22 +999,40 @@ public class WizardProjectsImportPage extends WizardDataTransferPage {
 					}
 
 					else if (dirSelected && directory.isDirectory()) {
-
-						if (!collectProjectFilesFromDirectory(files, directory,
-								null, monitor)) {
-							return;
+						File[] projectFiles = getCachedProjectFiles(directory);
+						final Map foundRecords = Collections
+								.synchronizedMap(new HashMap());
+						if (projectFiles == null) {
+							ProjectDirectoryScanner scanner = new ProjectDirectoryScanner(
+									directory, nestedProjects) {
+								protected void projectFileFound(File projectFile) {
+									foundRecords.put(projectFile,
+											new ProjectRecord(projectFile));
+									showFoundProjects(foundRecords);
+								}
+							};
+							boolean completed = scanner.scan(monitor);
+							stopShowingFoundProjects();
+							if (!completed) {
+								selectedProjects = new ProjectRecord[0];
+								return;
+							}
+							projectFiles = scanner.getProjectFiles();
+							cacheProjectFiles(directory, scanner
+									.getDirectoryStamps(), projectFiles);
 						}
-						Iterator filesIterator = files.iterator();
-						selectedProjects = new ProjectRecord[files.size()];
-						int index = 0;
+						ProjectRecord[] records = new ProjectRecord[projectFiles.length];
 						monitor.worked(50);
 						monitor
 								.subTask(DataTransferMessages.WizardProjectsImportPage_ProcessingMessage);
-						while (filesIterator.hasNext()) {
-							File file = (File) filesIterator.next();
-							selectedProjects[index] = new ProjectRecord(file);
-							index++;
+						for (int i = 0; i < projectFiles.length; i++) {
+							records[i] = (ProjectRecord) foundRecords
+									.get(projectFiles[i]);
+							if (records[i] == null) {
+								records[i] = new ProjectRecord(projectFiles[i]);
+							}
 						}
+						selectedProjects = records;
 					} else {
 						monitor.worked(60);
 					}
@@ -1004,6 +1044,8 @@ public class WizardProjectsImportPage extends WizardDataTransferPage {
 			IDEWorkbenchPlugin.log(e.getMessage(), e);
 		} catch (InterruptedException e) {
 			// Nothing to do if the user interrupts.
+		} finally {
+			stopShowingFoundProjects();
 		}
 
 		projectsList.refresh(true);
@@ -1076,77 +1118,74 @@ public class WizardProjectsImportPage extends WizardDataTransferPage {
 	}
 
 	/**
-	 * Collect the list of .project files that are under directory into files.
-	 * 
-	 * @param files
-	 * @param directory
-	 * @param directoriesVisited
-	 * 		Set of canonical paths of directories, used as recursion guard
-	 * @param monitor
-	 * 		The monitor to report to
-	 * @return boolean <code>true</code> if the operation was completed.
+	 * Returns the project description files found by the last search of the
+	 * directory, or <code>null</code> if the directory has to be searched.
+	 * The directory is searched again when one of the directories listed by
+	 * the last search is modified or when the search options change.
 	 */
-	private boolean collectProjectFilesFromDirectory(Collection files,
-			File directory, Set directoriesVisited, IProgressMonitor monitor) {
+	private File[] getCachedProjectFiles(File directory) {
+		Object[] cached;
+		synchronized (projectFilesCache) {
+			cached = (Object[]) projectFilesCache.get(getCacheKey(directory));
+		}
+		if (cached == null
+				|| !ProjectDirectoryScanner.isUnchanged((Map) cached[0])) {
+			return null;
+		}
+		return (File[]) cached[1];
+	}
 
-		if (monitor.isCanceled()) {
-			return false;
+	private void cacheProjectFiles(File directory, Map directoryStamps,
+			File[] projectFiles) {
+		synchronized (projectFilesCache) {
+			projectFilesCache.put(getCacheKey(directory), new Object[] {
+					directoryStamps, projectFiles });
 		}
-		monitor.subTask(NLS.bind(
-				DataTransferMessages.WizardProjectsImportPage_CheckingMessage,
-				directory.getPath()));
-		File[] contents = directory.listFiles();
-		if (contents == null)
-			return false;
+	}
 
-		// Initialize recursion guard for recursive symbolic links
-		if (directoriesVisited == null) {
-			directoriesVisited = new HashSet();
-			try {
-				directoriesVisited.add(directory.getCanonicalPath());
-			} catch (IOException exception) {
-				StatusManager.getManager().handle(
-						StatusUtil.newStatus(IStatus.ERROR, exception
-								.getLocalizedMessage(), exception));
-			}
+	private String getCacheKey(File directory) {
+		return directory.getAbsolutePath() + File.pathSeparator
+				+ nestedProjects;
+	}
+
+	/**
+	 * Stops showing the projects found so far. The updates still pending are
+	 * discarded, so that they do not replace the final list of projects.
+	 */
+	private void stopShowingFoundProjects() {
+		synchronized (projectFilesCache) {
+			searching = false;
 		}
+	}
 
-		// first look for project description files
-		final String dotProject = IProjectDescription.DESCRIPTION_FILE_NAME;
-		for (int i = 0; i < contents.length; i++) {
-			File file = contents[i];
-			if (file.isFile() && file.getName().equals(dotProject)) {
-				files.add(file);
-				if (!nestedProjects) {
-					// don't search sub-directories since we can't have nested
-					// projects
-					return true;
-				}
+	/**
+	 * Shows the projects found so far while the search goes on. Called from
+	 * the search threads.
+	 */
+	private void showFoundProjects(final Map foundRecords) {
+		synchronized (projectFilesCache) {
+			if (foundProjectsUpdatePending) {
+				return;
 			}
+			foundProjectsUpdatePending = true;
 		}
-		// no project description found or search for nested projects enabled,
-		// so recurse into sub-directories
-		for (int i = 0; i < contents.length; i++) {
-			if (contents[i].isDirectory()) {
-				if (!contents[i].getName().equals(METADATA_FOLDER)) {
-					try {
-						String canonicalPath = contents[i].getCanonicalPath();
-						if (!directoriesVisited.add(canonicalPath)) {
-							// already been here --> do not recurse
-							continue;
-						}
-					} catch (IOException exception) {
-						StatusManager.getManager().handle(
-								StatusUtil.newStatus(IStatus.ERROR, exception
-										.getLocalizedMessage(), exception));
-
+		projectsList.getControl().getDisplay().asyncExec(new Runnable() {
+			public void run() {
+				synchronized (projectFilesCache) {
+					foundProjectsUpdatePending = false;
+					// the search may be over and the final list set already
+					if (!searching || projectsList.getControl().isDisposed()) {
+						return;
+					}
+					synchronized (foundRecords) {
+						selectedProjects = (ProjectRecord[]) foundRecords
+								.values().toArray(
+										new ProjectRecord[foundRecords.size()]);
 					}
-					collectProjectFilesFromDirectory(files, contents[i],
-							directoriesVisited, monitor);
 				}
+				projectsList.refresh(true);
 			}
-		}
-		return true;
+		});
 	}
 
 	/**
@@ -1263,6 +1302,7 @@ public class WizardProjectsImportPage extends WizardDataTransferPage {
 		saveWidgetValues();
 		
 		final Object[] selected = projectsList.getCheckedElements();
+		sortInArchiveOrder(selected);
 		createdProjects = new ArrayList();
 		WorkspaceModifyOperation op = new WorkspaceModifyOperation() {
 			protected void execute(IProgressMonitor monitor)
@@ -1309,6 +1349,28 @@ public class WizardProjectsImportPage extends WizardDataTransferPage {
 		return true;
 	}
 
+	/**
+	 * Sorts the project records in the order of their files in a compressed
+	 * tar archive, which is then read once while importing the projects.
+	 * 
+	 * @param records
+	 *            the records to sort
+	 */
+	private void sortInArchiveOrder(Object[] records) {
+		if (!(structureProvider instanceof TarLeveledStructureProvider)
+				|| !((TarLeveledStructureProvider) structureProvider)
+						.getTarFile().isCompressed()) {
+			return;
+		}
+		Arrays.sort(records, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				long pos1 = ((TarEntry) ((ProjectRecord) o1).projectArchiveFile).filepos;
+				long pos2 = ((TarEntry) ((ProjectRecord) o2).projectArchiveFile).filepos;
+				return pos1 < pos2 ? -1 : (pos1 == pos2 ? 0 : 1);
+			}
+		});
+	}
+
 	List createdProjects;
 	
 	private void addToWorkingSets() {
@@ -0,0 +1,412 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.wizards.datatransfer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Output stream for writing zip archive files. Unlike
+ * <code>java.util.zip.ZipOutputStream</code>, entries can be written from
+ * data that was already compressed, so that the entries of an archive can be
+ * compressed concurrently. Entries of unknown size are written in a single
+ * pass, followed by a data descriptor. The zip64 extensions are used for
+ * archives and entries that need them; an entry of unknown size can only be
+ * that large if its expected size was given when it was started.
+ *
+ * @since 3.9
+ */
+public class ZipArchiveOutputStream extends FilterOutputStream {
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+	private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+	private static final int VERSION = 20;
+	private static final int ZIP64_VERSION = 45;
+
+	private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+	private static final int FLAG_UTF8 = 0x800;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The central directory record of an entry.
+	 */
+	private static class Entry {
+		byte[] name;
+		int flags;
+		int method;
+		int dosTime;
+		long crc;
+		long compressedSize;
+		long size;
+		long offset;
+		// whether the sizes of the data descriptor are zip64 ones
+		boolean zip64Descriptor;
+	}
+
+	private List entries = new ArrayList();
+	private long written = 0;
+	private Calendar calendar = Calendar.getInstance();
+
+	// the entry being streamed, if any
+	private Entry current;
+	private CRC32 crc = new CRC32();
+	private Deflater deflater;
+	private byte[] deflateBuffer;
+	private long currentSize;
+	private long currentCompressedSize;
+
+	/**
+	 * Creates a new zip output stream.
+	 *
+	 * @param out the stream to write to
+	 */
+	public ZipArchiveOutputStream(OutputStream out) {
+		super(out);
+	}
+
+	/**
+	 * Writes an entry whose data is complete.
+	 *
+	 * @param name the name of the entry, ending with '/' for a folder
+	 * @param time the modification time of the entry
+	 * @param method <code>ZipEntry.STORED</code> or
+	 *            <code>ZipEntry.DEFLATED</code>
+	 * @param data the data of the entry, raw deflated if the method is
+	 *            <code>ZipEntry.DEFLATED</code>
+	 * @param length the length of the data
+	 * @param checksum the CRC-32 of the uncompressed data
+	 * @param size the size of the uncompressed data
+	 * @throws IOException
+	 */
+	public void putEntry(String name, long time, int method, byte[] data,
+			int length, long checksum, long size) throws IOException {
+		Entry entry = createEntry(name, time, method, 0);
+		entry.crc = checksum;
+		entry.compressedSize = length;
+		entry.size = size;
+		writeLocalHeader(entry);
+		out.write(data, 0, length);
+		written += length;
+	}
+
+	/**
+	 * Begins to write an entry whose data is written next.
+	 * <code>ZipEntry.DEFLATED</code> entries are compressed as they are
+	 * written and followed by a data descriptor.
+	 * <code>ZipEntry.STORED</code> entries need their checksum and size
+	 * first.
+	 * <p>
+	 * The data descriptor of a deflated entry uses the zip64 sizes only when
+	 * its expected size is large enough to need them, since readers rely on
+	 * the local header to tell. A deflated entry which was not expected that
+	 * large fails when it is closed.
+	 * </p>
+	 *
+	 * @param name the name of the entry
+	 * @param time the modification time of the entry
+	 * @param method <code>ZipEntry.STORED</code> or
+	 *            <code>ZipEntry.DEFLATED</code>
+	 * @param checksum the CRC-32 of a stored entry, ignored otherwise
+	 * @param size the size of a stored entry, or the expected size of a
+	 *            deflated entry, <code>-1</code> if unknown
+	 * @throws IOException
+	 */
+	public void putNextEntry(String name, long time, int method,
+			long checksum, long size) throws IOException {
+		if (current != null) {
+			closeEntry();
+		}
+		if (method == ZipEntry.DEFLATED) {
+			current = createEntry(name, time, method, FLAG_DATA_DESCRIPTOR);
+			// deflating can expand incompressible data slightly
+			current.zip64Descriptor = size >= 0
+					&& size + (size >>> 10) + 64 >= ZIP64_MAGIC;
+			if (deflater == null) {
+				deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+				deflateBuffer = new byte[BUFFER_SIZE];
+			}
+		} else {
+			current = createEntry(name, time, method, 0);
+			current.crc = checksum;
+			current.compressedSize = size;
+			current.size = size;
+		}
+		writeLocalHeader(current);
+		crc.reset();
+		currentSize = 0;
+		currentCompressedSize = 0;
+	}
+
+	/**
+	 * Writes data of the current entry.
+	 */
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (current == null) {
+			throw new ZipException("no current entry"); //$NON-NLS-1$
+		}
+		crc.update(b, off, len);
+		currentSize += len;
+		if (current.method == ZipEntry.DEFLATED) {
+			deflater.setInput(b, off, len);
+			while (!deflater.needsInput()) {
+				deflate();
+			}
+		} else {
+			out.write(b, off, len);
+			written += len;
+			currentCompressedSize += len;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.FilterOutputStream#write(int)
+	 */
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	private void deflate() throws IOException {
+		int count = deflater.deflate(deflateBuffer, 0, deflateBuffer.length);
+		if (count > 0) {
+			out.write(deflateBuffer, 0, count);
+			written += count;
+			currentCompressedSize += count;
+		}
+	}
+
+	/**
+	 * Closes the current entry.
+	 *
+	 * @throws IOException if the data of a stored entry does not match its
+	 *             size or checksum
+	 */
+	public void closeEntry() throws IOException {
+		if (current == null) {
+			return;
+		}
+		Entry entry = current;
+		current = null;
+		if (entry.method == ZipEntry.DEFLATED) {
+			deflater.finish();
+			while (!deflater.finished()) {
+				deflate();
+			}
+			deflater.reset();
+			entry.crc = crc.getValue();
+			entry.compressedSize = currentCompressedSize;
+			entry.size = currentSize;
+			if (!entry.zip64Descriptor
+					&& (entry.compressedSize >= ZIP64_MAGIC || entry.size >= ZIP64_MAGIC)) {
+				throw new ZipException("entry too large for its announced size"); //$NON-NLS-1$
+			}
+			writeInt(DATA_DESCRIPTOR_SIGNATURE);
+			writeInt(entry.crc);
+			if (entry.zip64Descriptor) {
+				writeLong(entry.compressedSize);
+				writeLong(entry.size);
+			} else {
+				writeInt(entry.compressedSize);
+				writeInt(entry.size);
+			}
+		} else if (entry.size != currentSize) {
+			throw new ZipException("invalid entry size (expected " //$NON-NLS-1$
+					+ entry.size + " but got " + currentSize + " bytes)"); //$NON-NLS-1$ //$NON-NLS-2$
+		} else if (entry.crc != crc.getValue()) {
+			throw new ZipException("invalid entry crc-32"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Writes the central directory and closes the stream.
+	 */
+	public void close() throws IOException {
+		closeEntry();
+		long directoryOffset = written;
+		for (Iterator it = entries.iterator(); it.hasNext();) {
+			writeCentralHeader((Entry) it.next());
+		}
+		long directorySize = written - directoryOffset;
+		int count = entries.size();
+		if (count >= ZIP64_MAGIC_COUNT || directoryOffset >= ZIP64_MAGIC
+				|| directorySize >= ZIP64_MAGIC) {
+			long zip64EndOffset = written;
+			writeInt(ZIP64_END_SIGNATURE);
+			writeLong(44);
+			writeShort(ZIP64_VERSION);
+			writeShort(ZIP64_VERSION);
+			writeInt(0);
+			writeInt(0);
+			writeLong(count);
+			writeLong(count);
+			writeLong(directorySize);
+			writeLong(directoryOffset);
+			writeInt(ZIP64_LOCATOR_SIGNATURE);
+			writeInt(0);
+			writeLong(zip64EndOffset);
+			writeInt(1);
+		}
+		writeInt(END_SIGNATURE);
+		writeShort(0);
+		writeShort(0);
+		writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+		writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+		writeInt(Math.min(directorySize, ZIP64_MAGIC));
+		writeInt(Math.min(directoryOffset, ZIP64_MAGIC));
+		writeShort(0);
+		if (deflater != null) {
+			deflater.end();
+		}
+		super.close();
+	}
+
+	private Entry createEntry(String name, long time, int method, int flags)
+			throws UnsupportedEncodingException {
+		Entry entry = new Entry();
+		entry.name = name.getBytes("UTF8"); //$NON-NLS-1$
+		entry.flags = flags | FLAG_UTF8;
+		entry.method = method;
+		entry.dosTime = toDosTime(time);
+		entry.offset = written;
+		entries.add(entry);
+		return entry;
+	}
+
+	private void writeLocalHeader(Entry entry) throws IOException {
+		boolean descriptor = (entry.flags & FLAG_DATA_DESCRIPTOR) != 0;
+		boolean zip64 = descriptor ? entry.zip64Descriptor
+				: entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+		writeInt(LOCAL_HEADER_SIGNATURE);
+		writeShort(zip64 ? ZIP64_VERSION : VERSION);
+		writeShort(entry.flags);
+		writeShort(entry.method);
+		writeInt(entry.dosTime);
+		if (descriptor) {
+			// sizes and checksum follow the data
+			writeInt(0);
+			writeInt(zip64 ? ZIP64_MAGIC : 0);
+			writeInt(zip64 ? ZIP64_MAGIC : 0);
+		} else if (zip64) {
+			writeInt(entry.crc);
+			writeInt(ZIP64_MAGIC);
+			writeInt(ZIP64_MAGIC);
+		} else {
+			writeInt(entry.crc);
+			writeInt(entry.compressedSize);
+			writeInt(entry.size);
+		}
+		writeShort(entry.name.length);
+		writeShort(zip64 ? 20 : 0);
+		writeBytes(entry.name);
+		if (zip64) {
+			writeShort(ZIP64_EXTRA_ID);
+			writeShort(16);
+			writeLong(entry.size);
+			writeLong(entry.compressedSize);
+		}
+	}
+
+	private void writeCentralHeader(Entry entry) throws IOException {
+		boolean sizeZip64 = entry.size >= ZIP64_MAGIC;
+		boolean compressedSizeZip64 = entry.compressedSize >= ZIP64_MAGIC;
+		boolean offsetZip64 = entry.offset >= ZIP64_MAGIC;
+		int extraLength = (sizeZip64 ? 8 : 0) + (compressedSizeZip64 ? 8 : 0)
+				+ (offsetZip64 ? 8 : 0);
+		int version = extraLength > 0 ? ZIP64_VERSION : VERSION;
+		writeInt(CENTRAL_HEADER_SIGNATURE);
+		writeShort(version);
+		writeShort(version);
+		writeShort(entry.flags);
+		writeShort(entry.method);
+		writeInt(entry.dosTime);
+		writeInt(entry.crc);
+		writeInt(Math.min(entry.compressedSize, ZIP64_MAGIC));
+		writeInt(Math.min(entry.size, ZIP64_MAGIC));
+		writeShort(entry.name.length);
+		writeShort(extraLength > 0 ? extraLength + 4 : 0);
+		writeShort(0); // comment length
+		writeShort(0); // disk number
+		writeShort(0); // internal attributes
+		writeInt(0); // external attributes
+		writeInt(Math.min(entry.offset, ZIP64_MAGIC));
+		writeBytes(entry.name);
+		if (extraLength > 0) {
+			writeShort(ZIP64_EXTRA_ID);
+			writeShort(extraLength);
+			if (sizeZip64) {
+				writeLong(entry.size);
+			}
+			if (compressedSizeZip64) {
+				writeLong(entry.compressedSize);
+			}
+			if (offsetZip64) {
+				writeLong(entry.offset);
+			}
+		}
+	}
+
+	/**
+	 * Converts a Java time to the MS-DOS date and time format.
+	 */
+	private int toDosTime(long time) {
+		calendar.setTimeInMillis(time);
+		int year = calendar.get(Calendar.YEAR);
+		if (year < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+		return (year - 1980) << 25
+				| (calendar.get(Calendar.MONTH) + 1) << 21
+				| calendar.get(Calendar.DAY_OF_MONTH) << 16
+				| calendar.get(Calendar.HOUR_OF_DAY) << 11
+				| calendar.get(Calendar.MINUTE) << 5
+				| calendar.get(Calendar.SECOND) >> 1;
+	}
+
+	private void writeShort(int value) throws IOException {
+		out.write(value & 0xff);
+		out.write((value >>> 8) & 0xff);
+		written += 2;
+	}
+
+	private void writeInt(long value) throws IOException {
+		writeShort((int) (value & 0xffff));
+		writeShort((int) ((value >>> 16) & 0xffff));
+	}
+
+	private void writeLong(long value) throws IOException {
+		writeInt(value & ZIP64_MAGIC);
+		writeInt(value >>> 32);
+	}
+
+	private void writeBytes(byte[] bytes) throws IOException {
+		out.write(bytes, 0, bytes.length);
+		written += bytes.length;
+	}
+}
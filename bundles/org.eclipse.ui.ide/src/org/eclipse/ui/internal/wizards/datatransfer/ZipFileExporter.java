@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,27 +10,158 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.wizards.datatransfer;
 
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
+import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 
 /**
  *	Exports resources to a .zip file
+ *  <p>
+ *  Each file is read once. The files announced with
+ *  {@link #prepare(IFile[], String[])} are read, checksummed and compressed
+ *  ahead by a few jobs, and are still written to the archive in the order of
+ *  the calls to {@link #write(IFile, String)}. Files too large to be kept in
+ *  memory are compressed while they are written.
+ *  </p>
  */
 public class ZipFileExporter implements IFileExporter {
-    private ZipOutputStream outputStream;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The size of the largest file compressed ahead in memory.
+	 */
+	private static final int SPOOL_LIMIT = 1024 * 1024;
+
+	/**
+	 * The number of files that are compressed ahead for each job.
+	 */
+	private static final int ENTRIES_PER_JOB = 4;
+
+    private ZipArchiveOutputStream outputStream;
 
     private boolean useCompression = true;
 
+    private Job[] compressionJobs;
+
+    /**
+     * The prepared entries in the order they will be written.
+     */
+    private LinkedList preparedEntries = new LinkedList();
+
+    /**
+     * The number of prepared entries started by a job and not written yet.
+     */
+    private int startedEntries = 0;
+
+    private int maxStartedEntries;
+
+    /**
+     * The data of a file to be written to the archive.
+     */
+    private static class PreparedEntry {
+    	final IFile file;
+    	final String destinationPath;
+    	boolean started;
+    	boolean done;
+    	boolean tooLarge;
+    	byte[] data;
+    	int length;
+    	long crc;
+    	long size;
+    	IOException ioException;
+    	CoreException coreException;
+
+    	PreparedEntry(IFile file, String destinationPath) {
+    		this.file = file;
+    		this.destinationPath = destinationPath;
+    	}
+
+    	/**
+    	 * Reads the file and compresses it if required.
+    	 */
+    	void compute(boolean compress) {
+    		try {
+    			InputStream contentStream = file.getContents(false);
+    			byte[] buffer = new byte[8192];
+    			int count = 0;
+    			try {
+    				int n;
+    				while (true) {
+    					if (count == buffer.length) {
+    						if (count > SPOOL_LIMIT) {
+    							tooLarge = true;
+    							return;
+    						}
+    						byte[] newBuffer = new byte[Math.min(count * 2, SPOOL_LIMIT + 1)];
+    						System.arraycopy(buffer, 0, newBuffer, 0, count);
+    						buffer = newBuffer;
+    					}
+    					n = contentStream.read(buffer, count, buffer.length - count);
+    					if (n < 0) {
+    						break;
+    					}
+    					count += n;
+    				}
+    			} finally {
+    				contentStream.close();
+    			}
+    			CRC32 checksumCalculator = new CRC32();
+    			checksumCalculator.update(buffer, 0, count);
+    			crc = checksumCalculator.getValue();
+    			size = count;
+    			if (compress) {
+    				deflate(buffer, count);
+    			} else {
+    				data = buffer;
+    				length = count;
+    			}
+    		} catch (IOException e) {
+    			ioException = e;
+    		} catch (CoreException e) {
+    			coreException = e;
+    		}
+    	}
+
+    	private void deflate(byte[] buffer, int count) {
+    		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    		try {
+    			deflater.setInput(buffer, 0, count);
+    			deflater.finish();
+    			data = new byte[count / 2 + 64];
+    			length = 0;
+    			while (!deflater.finished()) {
+    				if (length == data.length) {
+    					byte[] newData = new byte[data.length * 2];
+    					System.arraycopy(data, 0, newData, 0, length);
+    					data = newData;
+    				}
+    				length += deflater.deflate(data, length, data.length - length);
+    			}
+    		} finally {
+    			deflater.end();
+    		}
+    	}
+    }
+
     /**
      *	Create an instance of this class.
      *
@@ -39,8 +170,141 @@ public class ZipFileExporter implements IFileExporter {
      *	@exception java.io.IOException
      */
     public ZipFileExporter(String filename, boolean compress) throws IOException {
-        outputStream = new ZipOutputStream(new FileOutputStream(filename));
+        outputStream = new ZipArchiveOutputStream(new BufferedOutputStream(
+        		new FileOutputStream(filename), BUFFER_SIZE));
         useCompression = compress;
+        int jobCount = Math.max(1, Math.min(4, Runtime.getRuntime()
+        		.availableProcessors()));
+        maxStartedEntries = jobCount * ENTRIES_PER_JOB;
+        compressionJobs = new Job[jobCount];
+        for (int i = 0; i < jobCount; i++) {
+        	compressionJobs[i] = createCompressionJob();
+        }
+    }
+
+    private Job createCompressionJob() {
+    	Job job = new Job(DataTransferMessages.DataTransfer_exportingTitle) {
+    		protected IStatus run(IProgressMonitor monitor) {
+    			PreparedEntry entry;
+    			while (!monitor.isCanceled() && (entry = startNextEntry()) != null) {
+    				entry.compute(useCompression);
+    				synchronized (preparedEntries) {
+    					entry.done = true;
+    					preparedEntries.notifyAll();
+    				}
+    			}
+    			return Status.OK_STATUS;
+    		}
+    	};
+    	job.setSystem(true);
+    	return job;
+    }
+
+    /**
+     * Returns the next entry to compute, or <code>null</code> if there is
+     * none or enough entries are already computed ahead.
+     */
+    private PreparedEntry startNextEntry() {
+    	synchronized (preparedEntries) {
+    		if (startedEntries >= maxStartedEntries) {
+    			return null;
+    		}
+    		for (Iterator it = preparedEntries.iterator(); it.hasNext();) {
+    			PreparedEntry entry = (PreparedEntry) it.next();
+    			if (!entry.started) {
+    				entry.started = true;
+    				startedEntries++;
+    				return entry;
+    			}
+    		}
+    		return null;
+    	}
+    }
+
+    private void scheduleCompression() {
+    	for (int i = 0; i < compressionJobs.length; i++) {
+    		// a running job is scheduled again, it may have missed the entry
+    		if (compressionJobs[i].getState() != Job.WAITING) {
+    			compressionJobs[i].schedule();
+    		}
+    	}
+    }
+
+    /**
+     * Announces files that will be written next, in the given order and
+     * before the files announced earlier, so that the files of a folder can
+     * be announced before the folders it contains are visited. Their contents
+     * are read and compressed ahead.
+     *
+     * @param resources the files
+     * @param destinationPaths the paths of the files in the archive
+     */
+    public void prepare(IFile[] resources, String[] destinationPaths) {
+    	synchronized (preparedEntries) {
+    		for (int i = resources.length - 1; i >= 0; i--) {
+    			preparedEntries.addFirst(new PreparedEntry(resources[i],
+    					destinationPaths[i]));
+    		}
+    	}
+    	scheduleCompression();
+    }
+
+    /**
+     * Returns the prepared entry of the given file, dropping the prepared
+     * entries before it, which were skipped. The entry is computed when
+     * this method returns.
+     */
+    private PreparedEntry takePreparedEntry(IFile resource, String destinationPath)
+    		throws IOException {
+    	PreparedEntry entry = null;
+    	boolean computeHere = false;
+    	synchronized (preparedEntries) {
+    		boolean found = false;
+    		for (Iterator it = preparedEntries.iterator(); it.hasNext();) {
+    			PreparedEntry prepared = (PreparedEntry) it.next();
+    			if (prepared.file.equals(resource)
+    					&& prepared.destinationPath.equals(destinationPath)) {
+    				found = true;
+    				break;
+    			}
+    		}
+    		if (!found) {
+    			entry = new PreparedEntry(resource, destinationPath);
+    			computeHere = true;
+    		} else {
+    			while (entry == null) {
+    				PreparedEntry prepared = (PreparedEntry) preparedEntries.removeFirst();
+    				if (prepared.started) {
+    					startedEntries--;
+    				}
+    				if (prepared.file.equals(resource)
+    						&& prepared.destinationPath.equals(destinationPath)) {
+    					entry = prepared;
+    				}
+    			}
+    			if (!entry.started) {
+    				entry.started = true;
+    				computeHere = true;
+    			}
+    		}
+    	}
+    	// a slot is free for the jobs
+    	scheduleCompression();
+
+    	if (computeHere) {
+    		entry.compute(useCompression);
+    		return entry;
+    	}
+    	synchronized (preparedEntries) {
+    		while (!entry.done) {
+    			try {
+    				preparedEntries.wait();
+    			} catch (InterruptedException e) {
+    				throw new IOException(e.getMessage());
+    			}
+    		}
+    	}
+    	return entry;
     }
 
     /**
@@ -50,7 +314,22 @@ public class ZipFileExporter implements IFileExporter {
      *	@exception java.io.IOException
      */
     public void finished() throws IOException {
-        outputStream.close();
+    	synchronized (preparedEntries) {
+    		preparedEntries.clear();
+    		startedEntries = 0;
+    	}
+    	try {
+    		for (int i = 0; i < compressionJobs.length; i++) {
+    			compressionJobs[i].cancel();
+    		}
+    		for (int i = 0; i < compressionJobs.length; i++) {
+    			compressionJobs[i].join();
+    		}
+    	} catch (InterruptedException e) {
+    		throw new IOException(e.getMessage());
+    	} finally {
+    		outputStream.close();
+    	}
     }
 
     /**
@@ -61,37 +340,56 @@ public class ZipFileExporter implements IFileExporter {
      *  @exception java.io.IOException
      *  @exception org.eclipse.core.runtime.CoreException
      */
-    private void write(ZipEntry entry, IFile contents) throws IOException, CoreException {
-        byte[] readBuffer = new byte[4096];
+    private void write(PreparedEntry entry, IFile contents) throws IOException, CoreException {
+    	if (entry.ioException != null) {
+    		throw entry.ioException;
+    	}
+    	if (entry.coreException != null) {
+    		throw entry.coreException;
+    	}
 
-        // If the contents are being compressed then we get the below for free.
-        if (!useCompression) {
-            entry.setMethod(ZipEntry.STORED);
-        	InputStream contentStream = contents.getContents(false);
-        	int length = 0;
-            CRC32 checksumCalculator = new CRC32();
-            try {
-                int n;
-                while ((n = contentStream.read(readBuffer)) > 0) {
-                    checksumCalculator.update(readBuffer, 0, n);
-                    length += n;
-                }
-            } finally {
-                if (contentStream != null) {
-					contentStream.close();
-				}
-            }
+        // set the timestamp
+        long localTimeStamp = contents.getLocalTimeStamp();
+        if (localTimeStamp == IResource.NULL_STAMP) {
+        	localTimeStamp = System.currentTimeMillis();
+        }
+        int method = useCompression ? ZipEntry.DEFLATED : ZipEntry.STORED;
 
-            entry.setSize(length);
-            entry.setCrc(checksumCalculator.getValue());
+        if (!entry.tooLarge) {
+        	outputStream.putEntry(entry.destinationPath, localTimeStamp,
+        			method, entry.data, entry.length, entry.crc, entry.size);
+        	return;
         }
 
-        // set the timestamp
-        long localTimeStamp = contents.getLocalTimeStamp();
-        if(localTimeStamp != IResource.NULL_STAMP)
-        	entry.setTime(localTimeStamp);
-        
-        outputStream.putNextEntry(entry);
+        // Too large to be kept in memory, stream it.
+        byte[] readBuffer = new byte[BUFFER_SIZE];
+        long checksum = 0;
+        long length = 0;
+        if (useCompression) {
+        	// the expected size tells whether the entry needs zip64 sizes
+        	URI location = contents.getLocationURI();
+        	if (location == null) {
+        		throw new FileNotFoundException(contents.getFullPath().toOSString());
+        	}
+        	length = EFS.getStore(location).fetchInfo().getLength();
+        } else {
+        	// The checksum of a stored entry is written before its data
+        	InputStream contentStream = contents.getContents(false);
+        	CRC32 checksumCalculator = new CRC32();
+        	try {
+        		int n;
+        		while ((n = contentStream.read(readBuffer)) > 0) {
+        			checksumCalculator.update(readBuffer, 0, n);
+        			length += n;
+        		}
+        	} finally {
+        		contentStream.close();
+        	}
+        	checksum = checksumCalculator.getValue();
+        }
+
+        outputStream.putNextEntry(entry.destinationPath, localTimeStamp, method,
+        		checksum, length);
     	InputStream contentStream = contents.getContents(false);
         try {
             int n;
@@ -108,8 +406,8 @@ public class ZipFileExporter implements IFileExporter {
 
     public void write(IContainer container, String destinationPath)
             throws IOException {
-        ZipEntry newEntry = new ZipEntry(destinationPath);
-        outputStream.putNextEntry(newEntry);
+        outputStream.putEntry(destinationPath, System.currentTimeMillis(),
+        		ZipEntry.STORED, new byte[0], 0, 0, 0);
     }
 
     /**
@@ -122,7 +420,6 @@ public class ZipFileExporter implements IFileExporter {
      */
     public void write(IFile resource, String destinationPath)
             throws IOException, CoreException {
-        ZipEntry newEntry = new ZipEntry(destinationPath);
-        write(newEntry, resource);
+        write(takePreparedEntry(resource, destinationPath), resource);
     }
 }
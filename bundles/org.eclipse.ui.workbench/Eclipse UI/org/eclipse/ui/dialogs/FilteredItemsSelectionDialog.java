@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -122,6 +122,7 @@ import org.eclipse.ui.internal.IWorkbenchGraphicConstants;
 import org.eclipse.ui.internal.WorkbenchImages;
 import org.eclipse.ui.internal.WorkbenchMessages;
 import org.eclipse.ui.internal.WorkbenchPlugin;
+import org.eclipse.ui.internal.dialogs.FilteredItemsIndex;
 import org.eclipse.ui.progress.UIJob;
 import org.eclipse.ui.statushandlers.StatusManager;
 
@@ -213,6 +214,22 @@ public abstract class FilteredItemsSelectionDialog extends
 
 	private ItemsFilter lastCompletedFilter;
 
+	/**
+	 * Items offered by the last complete search of the dialog, kept until
+	 * they are indexed, or <code>null</code>.
+	 */
+	private Object[] searchedItems;
+
+	/**
+	 * Index of the items of the last complete search, or <code>null</code>.
+	 */
+	private FilteredItemsIndex searchedItemsIndex;
+
+	/**
+	 * Filter of the last complete search, which offered the searched items.
+	 */
+	private ItemsFilter searchedItemsFilter;
+
 	private String initialPatternText;
 
 	private int selectionMode;
@@ -404,6 +421,9 @@ public abstract class FilteredItemsSelectionDialog extends
 		this.filterJob.cancel();
 		this.refreshCacheJob.cancel();
 		this.refreshProgressMessageJob.cancel();
+		this.searchedItems = null;
+		this.searchedItemsIndex = null;
+		this.searchedItemsFilter = null;
 		if (showViewHandler != null) {
 			IHandlerService service = (IHandlerService) PlatformUI
 					.getWorkbench().getService(IHandlerService.class);
@@ -2055,11 +2075,24 @@ public abstract class FilteredItemsSelectionDialog extends
 	 * filtering is done (last completed filter), is not null, and the new
 	 * filter is a sub-filter ({@link FilteredItemsSelectionDialog.ItemsFilter#isSubFilter(FilteredItemsSelectionDialog.ItemsFilter)})
 	 * of the last, then <code>FilterJob</code> only filters in the cache. If
-	 * it is the first filtering or the new filter isn't a sub-filter of the
-	 * last one, a full search is run.
+	 * the items of the last full search are kept for the new filter ({@link FilteredItemsSelectionDialog.ItemsFilter#hasSameItems(FilteredItemsSelectionDialog.ItemsFilter)}),
+	 * they are matched in parallel <code>MatchJob</code>s, and the matching
+	 * items are shown as soon as each job is done. Otherwise, a full search is
+	 * run.
 	 */
 	private class FilterJob extends Job {
 
+		/**
+		 * Minimum number of items matched by a <code>MatchJob</code>.
+		 */
+		private static final int MATCH_JOB_SIZE = 2000;
+
+		/**
+		 * Minimum delay between the refreshes of the list while matching, in
+		 * milliseconds.
+		 */
+		private static final long REFRESH_DELAY = 200;
+
 		/**
 		 * Filter used during the filtering process.
 		 */
@@ -2164,6 +2197,18 @@ public abstract class FilteredItemsSelectionDialog extends
 					}
 				}
 
+			} else if (searchedItemsFilter != null
+					&& searchedItemsFilter.hasSameItems(this.itemsFilter)) {
+
+				lastCompletedFilter = null;
+				lastCompletedResult = null;
+
+				filterSearchedItems(monitor);
+
+				if (!monitor.isCanceled()) {
+					contentProvider.rememberResult(itemsFilter);
+				}
+
 			} else {
 
 				lastCompletedFilter = null;
@@ -2179,17 +2224,204 @@ public abstract class FilteredItemsSelectionDialog extends
 
 				}
 
-				fillContentProvider(contentProvider, itemsFilter, subMonitor);
+				SearchedItemsCollector collector = null;
+				if (itemsFilter.hasSameItems(itemsFilter)) {
+					collector = new SearchedItemsCollector();
+					fillContentProvider(collector, itemsFilter, subMonitor);
+				} else {
+					fillContentProvider(contentProvider, itemsFilter,
+							subMonitor);
+				}
 
 				if (monitor != null && !monitor.isCanceled()) {
 					monitor.worked(2);
 					contentProvider.rememberResult(itemsFilter);
+					if (collector != null && itemsFilter == filter) {
+						searchedItems = collector.getItems();
+						searchedItemsIndex = null;
+						searchedItemsFilter = itemsFilter;
+					}
 					monitor.worked(3);
 				}
 			}
 
 		}
 
+		/**
+		 * Matches the items of the last full search, looking up their names
+		 * in an index first if the filter allows it.
+		 * 
+		 * @param monitor
+		 *            for monitoring progress
+		 */
+		private void filterSearchedItems(GranualProgressMonitor monitor) {
+			FilteredItemsIndex index = searchedItemsIndex;
+			if (index == null) {
+				Object[] items = searchedItems;
+				if (items == null) {
+					return;
+				}
+				String[] names = new String[items.length];
+				for (int i = 0; i < items.length; i++) {
+					names[i] = getElementName(items[i]);
+				}
+				index = new FilteredItemsIndex(items, names);
+				searchedItemsIndex = index;
+				searchedItems = null;
+			}
+
+			Object[] candidates = itemsFilter.matchesNamesOnly() ? index
+					.getCandidates(itemsFilter.patternMatcher) : index
+					.getItems();
+
+			int processors = Runtime.getRuntime().availableProcessors();
+			int jobSize = Math.max(MATCH_JOB_SIZE, candidates.length
+					/ (processors * 4));
+			MatchJob[] jobs = new MatchJob[(candidates.length + jobSize - 1)
+					/ jobSize];
+			monitor
+					.beginTask(
+							WorkbenchMessages.FilteredItemsSelectionDialog_cacheSearchJob_taskName,
+							jobs.length);
+			for (int i = 0; i < jobs.length; i++) {
+				jobs[i] = new MatchJob(itemsFilter, candidates, i * jobSize,
+						Math.min(candidates.length, (i + 1) * jobSize), monitor);
+			}
+			if (jobs.length == 1) {
+				jobs[0].match(monitor);
+				monitor.worked(1);
+				return;
+			}
+
+			// run as many jobs at once as there are processors, and show the
+			// items matched by the first jobs while the others are running
+			long lastRefresh = System.currentTimeMillis();
+			try {
+				for (int i = 0; i < jobs.length + processors; i++) {
+					if (i >= processors && i - processors < jobs.length) {
+						jobs[i - processors].join();
+						monitor.worked(1);
+						if (monitor.isCanceled()) {
+							break;
+						}
+						long now = System.currentTimeMillis();
+						if (now - lastRefresh >= REFRESH_DELAY) {
+							contentProvider.refresh();
+							lastRefresh = now;
+						}
+					}
+					if (i < jobs.length) {
+						jobs[i].schedule();
+					}
+				}
+			} catch (InterruptedException e) {
+				monitor.setCanceled(true);
+			} finally {
+				for (int i = 0; i < jobs.length; i++) {
+					jobs[i].cancel();
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Matches a range of the items of the last full search and adds the
+	 * matching items to the content provider.
+	 */
+	private class MatchJob extends Job {
+
+		private ItemsFilter itemsFilter;
+
+		private Object[] items;
+
+		private int start;
+
+		private int end;
+
+		private IProgressMonitor filterMonitor;
+
+		/**
+		 * Creates new instance of MatchJob.
+		 * 
+		 * @param itemsFilter
+		 *            the filter
+		 * @param items
+		 *            the items
+		 * @param start
+		 *            the index of the first item to match, inclusive
+		 * @param end
+		 *            the index of the last item to match, exclusive
+		 * @param filterMonitor
+		 *            the progress monitor of the filtering
+		 */
+		public MatchJob(ItemsFilter itemsFilter, Object[] items, int start,
+				int end, IProgressMonitor filterMonitor) {
+			super(WorkbenchMessages.FilteredItemsSelectionDialog_jobLabel);
+			setSystem(true);
+			this.itemsFilter = itemsFilter;
+			this.items = items;
+			this.start = start;
+			this.end = end;
+			this.filterMonitor = filterMonitor;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+		 */
+		protected IStatus run(IProgressMonitor monitor) {
+			match(monitor);
+			return Status.OK_STATUS;
+		}
+
+		/**
+		 * Matches the items.
+		 * 
+		 * @param monitor
+		 *            the monitor which is checked for cancellation
+		 */
+		void match(IProgressMonitor monitor) {
+			for (int i = start; i < end; i++) {
+				if ((i - start) % 500 == 0
+						&& (monitor.isCanceled() || filterMonitor.isCanceled() || itemsFilter != filter)) {
+					return;
+				}
+				contentProvider.add(items[i], itemsFilter);
+			}
+		}
+
+	}
+
+	/**
+	 * Collects the items offered by a full search, for the filters which keep
+	 * them, and adds them to the content provider.
+	 */
+	private class SearchedItemsCollector extends AbstractContentProvider {
+
+		private List items = Collections.synchronizedList(new ArrayList(2048));
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.eclipse.ui.dialogs.FilteredItemsSelectionDialog.AbstractContentProvider#add(java.lang.Object,
+		 *      org.eclipse.ui.dialogs.FilteredItemsSelectionDialog.ItemsFilter)
+		 */
+		public void add(Object item, ItemsFilter itemsFilter) {
+			items.add(item);
+			contentProvider.add(item, itemsFilter);
+		}
+
+		/**
+		 * Returns the collected items.
+		 * 
+		 * @return the items
+		 */
+		public Object[] getItems() {
+			return items.toArray();
+		}
+
 	}
 
 	/**
@@ -2445,6 +2677,58 @@ public abstract class FilteredItemsSelectionDialog extends
 			return false;
 		}
 
+		/**
+		 * Checks whether
+		 * {@link FilteredItemsSelectionDialog#fillContentProvider(FilteredItemsSelectionDialog.AbstractContentProvider, FilteredItemsSelectionDialog.ItemsFilter, IProgressMonitor)}
+		 * offers the same items to the content provider for the given filter
+		 * as for this filter, whatever the patterns of the filters are. If it
+		 * does, the items offered for this filter are kept, and they are
+		 * matched against the given filter instead of running a new search.
+		 * The kept items are matched by several jobs at once, so
+		 * {@link #matchItem(Object)} must be thread safe.
+		 * <p>
+		 * The items are kept for as long as the new filters have the same
+		 * items, so this method must return <code>false</code> when the items
+		 * searched may have changed since this filter was created, for
+		 * instance because the model they come from changed.
+		 * </p>
+		 * <p>
+		 * The default implementation returns <code>false</code>, so that a
+		 * full search is run whenever the new filter is not a sub-filter of
+		 * the last one.
+		 * </p>
+		 * 
+		 * @param filter
+		 *            the filter to be checked
+		 * @return <code>true</code> if the same items are searched for both
+		 *         filters, <code>false</code> otherwise
+		 * 
+		 * @since 3.105
+		 */
+		public boolean hasSameItems(ItemsFilter filter) {
+			return false;
+		}
+
+		/**
+		 * Checks whether this filter only matches items whose name, as
+		 * returned by {@link FilteredItemsSelectionDialog#getElementName(Object)},
+		 * is matched by the <code>SearchPattern</code> of this filter. If it
+		 * does, the items kept for the filters which have the same items are
+		 * looked up in an index of their names before being matched.
+		 * <p>
+		 * The default implementation returns <code>false</code>.
+		 * </p>
+		 * 
+		 * @return <code>true</code> if an item can only match when its name
+		 *         matches the pattern, <code>false</code> otherwise
+		 * 
+		 * @see #hasSameItems(FilteredItemsSelectionDialog.ItemsFilter)
+		 * @since 3.105
+		 */
+		public boolean matchesNamesOnly() {
+			return false;
+		}
+
 		/**
 		 * Checks whether the pattern's match rule is camel case.
 		 * 
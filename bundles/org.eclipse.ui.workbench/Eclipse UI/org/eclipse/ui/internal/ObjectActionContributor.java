@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -51,6 +51,8 @@ public class ObjectActionContributor extends PluginActionBuilder implements
     
     private String objectClass;
 
+    private String nameFilter;
+
     /**
      * The constructor.
      * 
@@ -61,6 +63,7 @@ public class ObjectActionContributor extends PluginActionBuilder implements
         this.adaptable = P_TRUE.equalsIgnoreCase(config
                 .getAttribute(IWorkbenchRegistryConstants.ATT_ADAPTABLE));
         this.objectClass = config.getAttribute(IWorkbenchRegistryConstants.ATT_OBJECTCLASS);
+        this.nameFilter = config.getAttribute(IWorkbenchRegistryConstants.ATT_NAME_FILTER);
     }
 
     /* (non-Javadoc)
@@ -217,6 +220,13 @@ public class ObjectActionContributor extends PluginActionBuilder implements
 			readConfigElement();
 		}
 
+        // Nothing depends on the object itself, the manager already matched
+        // its type. Avoid adapting every element of large selections.
+        if (nameFilter == null
+                && !((ObjectContribution) currentContribution).hasTests()) {
+            return true;
+        }
+
         // Perform all tests with an instance of the objectClass and not
         // the actual selected object.
         if (canAdapt()) {
@@ -284,7 +294,6 @@ public class ObjectActionContributor extends PluginActionBuilder implements
      * Returns whether the current selection matches the contribution name filter.
      */
     private boolean testName(Object object) {
-        String nameFilter = config.getAttribute(IWorkbenchRegistryConstants.ATT_NAME_FILTER);
         if (nameFilter == null) {
 			return true;
 		}
@@ -344,6 +353,16 @@ public class ObjectActionContributor extends PluginActionBuilder implements
             }
         }
 
+        /**
+         * Returns whether the contribution tests the objects it applies to.
+         * 
+         * @return whether there is a visibility, filter or enablement test
+         */
+        public boolean hasTests() {
+            return visibilityTest != null || filterTest != null
+                    || enablement != null;
+        }
+
         /**
          * Returns true if name filter is not specified for the contribution
          * or the current selection matches the filter.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -84,6 +84,13 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
     
     /** Cache of adaptable class contributor search paths; <code>null</code> if none. */
     protected Map adaptableLookup;
+
+    /**
+     * Cache of the contributors to the adapters of an object class, in the
+     * order of {@link #getContributors(Object)}, along with the adapter types
+     * they were computed from; <code>null</code> if none.
+     */
+    private Map classAdapterLookup;
     
     protected Set contributorRecordSet;
 
@@ -96,6 +103,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
         objectLookup = null;
         resourceAdapterLookup = null;
         adaptableLookup = null;
+        classAdapterLookup = null;
         String extensionPointId = getExtensionPointFilter();
         if (extensionPointId != null) {
         	IExtensionPoint extensionPoint = Platform.getExtensionRegistry().getExtensionPoint(
@@ -172,6 +180,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
         objectLookup = null;
         resourceAdapterLookup = null;
         adaptableLookup = null;
+        classAdapterLookup = null;
     }
 
     /**
@@ -379,10 +388,6 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
     	// Determine is the object is a resource
     	Object resource  = LegacyResourceSupport.getAdaptedContributorResource(object);	
     	
-    	// Fetch the unique adapters
-    	List adapters = new ArrayList(Arrays.asList(Platform.getAdapterManager().computeAdapterTypes(object.getClass())));
-    	removeCommonAdapters(adapters, Arrays.asList(new Class[] {object.getClass()}));
-
     	List contributors = new ArrayList();
         
         // Calculate the contributors for this object class
@@ -392,18 +397,70 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
 			addAll(contributors, getResourceContributors(resource.getClass()));
 		}
         // Calculate the contributors for each adapter type
-    	if(adapters != null) {
-    		for (Iterator it = adapters.iterator(); it.hasNext();) {
-				String adapter = (String) it.next();				
-				addAll(contributors, getAdaptableContributors(adapter));
-			}
-    	}
+        addAll(contributors, getClassAdapterContributors(object.getClass()));
     	
         // Remove duplicates.  Note: this -must- maintain the element order to preserve menu order.
         contributors = removeDups(contributors);
 
     	return contributors.isEmpty() ? Collections.EMPTY_LIST : new ArrayList(contributors);
     }
+
+    /**
+     * Returns the contributions to the adapter types of the given class that
+     * are not already in its class search order. Only the adaptable
+     * contributions are returned.
+     * <p>
+     * The adapter types are asked to the adapter manager on every call, since
+     * adapter factories come and go without the registry changing. Only the
+     * contributions found for them are cached, until the adapter types of the
+     * class change or the contributions are flushed.
+     * </p>
+     * 
+     * @param objectClass the class to search for contributions
+     * @return the contributions to the adapters of the given class
+     */
+    private List getClassAdapterContributors(Class objectClass) {
+    	String[] adapterTypes = Platform.getAdapterManager().computeAdapterTypes(objectClass);
+    	ClassAdapterContributors cached = null;
+    	if (classAdapterLookup != null) {
+    		cached = (ClassAdapterContributors) classAdapterLookup.get(objectClass);
+    	}
+    	if (cached != null && Arrays.equals(cached.adapterTypes, adapterTypes)) {
+    		return cached.contributors;
+    	}
+    	// Fetch the unique adapters
+    	List adapters = new ArrayList(Arrays.asList(adapterTypes));
+    	removeCommonAdapters(adapters, Arrays.asList(new Class[] {objectClass}));
+
+    	List adapterList = new ArrayList();
+    	for (Iterator it = adapters.iterator(); it.hasNext();) {
+    		String adapter = (String) it.next();
+    		addAll(adapterList, getAdaptableContributors(adapter));
+    	}
+    	adapterList = adapterList.isEmpty() ? Collections.EMPTY_LIST
+    			: Collections.unmodifiableList(removeDups(adapterList));
+    	if (classAdapterLookup == null) {
+    		classAdapterLookup = new HashMap();
+    	}
+    	classAdapterLookup.put(objectClass, new ClassAdapterContributors(
+    			adapterTypes, adapterList));
+    	return adapterList;
+    }
+
+    /**
+     * The contributions to the adapters of a class, along with the adapter
+     * types they were computed from.
+     */
+    private static class ClassAdapterContributors {
+    	final String[] adapterTypes;
+
+    	final List contributors;
+
+    	ClassAdapterContributors(String[] adapterTypes, List contributors) {
+    		this.adapterTypes = adapterTypes;
+    		this.contributors = contributors;
+    	}
+    }
     
     /**
      * Returns the contributions for the given class. This considers
@@ -584,8 +641,11 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
     protected List getContributors(List elements) {
         // Calculate the common class, interfaces, and adapters registered
         // via the IAdapterManager.
+        // The common types only depend on the classes of the elements, so
+        // they are computed once per class.
         List commonAdapters = new ArrayList();
-        List commonClasses = getCommonClasses(elements, commonAdapters);
+        List commonClasses = getCommonClasses(getClassRepresentatives(elements),
+                commonAdapters);
         
         // Get the resource class. It will be null if any of the
         // elements are resources themselves or do not adapt to
@@ -790,6 +850,25 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
         return results;
     }
 
+    /**
+     * Returns the first element of each class in the given list, in the order
+     * of the list.
+     */
+    private List getClassRepresentatives(List objects) {
+        if (objects == null || allSameClass(objects)) {
+            return objects;
+        }
+        Set classes = new HashSet();
+        List result = new ArrayList();
+        for (int i = 0, size = objects.size(); i < size; ++i) {
+            Object object = objects.get(i);
+            if (classes.add(object.getClass())) {
+                result.add(object);
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns <code>true</code> if all objects in the given list are of the same class,
      * <code>false</code> otherwise.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -46,7 +46,7 @@ public class OverlayIcon extends CompositeImageDescriptor {
      */
     protected void drawCompositeImage(int width, int height) {
         ImageData bg;
-        if (fBase == null || (bg = fBase.getImageData()) == null) {
+        if (fBase == null || (bg = getCachedImageData(fBase)) == null) {
 			bg = DEFAULT_IMAGE_DATA;
 		}
         drawImage(bg, 0, 0);
@@ -65,7 +65,7 @@ public class OverlayIcon extends CompositeImageDescriptor {
 			return;
 		}
         int x = getSize().x;
-        ImageData id = overlay.getImageData();
+        ImageData id = getCachedImageData(overlay);
         x -= id.width;
         drawImage(id, x, 0);
     }
@@ -192,6 +192,7 @@ import org.eclipse.ui.internal.intro.IntroDescriptor;
 import org.eclipse.ui.internal.keys.BindingService;
 import org.eclipse.ui.internal.menus.FocusControlSourceProvider;
 import org.eclipse.ui.internal.menus.WorkbenchMenuService;
+import org.eclipse.ui.internal.misc.MetricsRegistry;
 import org.eclipse.ui.internal.misc.Policy;
 import org.eclipse.ui.internal.misc.StatusUtil;
 import org.eclipse.ui.internal.misc.UIStats;
@@ -1802,6 +1803,17 @@ UIEvents.Context.TOPIC_CONTEXT,
 						}
 					}
 				});
+
+		final MetricsRegistry metrics = MetricsRegistry.getDefault();
+		if (metrics.isEnabled()) {
+			// count the model events by topic, only when they are measured
+			eventBroker.subscribe(UIEvents.UIModelTopicBase + UIEvents.TOPIC_SEP
+					+ UIEvents.ALL_SUB_TOPICS, new EventHandler() {
+				public void handleEvent(org.osgi.service.event.Event event) {
+					metrics.getCounter(event.getTopic()).increment();
+				}
+			});
+		}
 		
 		boolean found = false;
 		List<MPartDescriptor> currentDescriptors = application.getDescriptors();
@@ -2864,6 +2876,7 @@ UIEvents.Context.TOPIC_CONTEXT,
 		if (tracker != null) {
 			tracker.close();
 		}
+		MetricsRegistry.exportDefault();
 	}
 
 	/**
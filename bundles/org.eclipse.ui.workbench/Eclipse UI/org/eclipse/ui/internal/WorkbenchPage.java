@@ -141,6 +141,7 @@ import org.eclipse.ui.internal.e4.compatibility.SelectionService;
 import org.eclipse.ui.internal.menus.MenuHelper;
 import org.eclipse.ui.internal.misc.ExternalEditor;
 import org.eclipse.ui.internal.misc.UIListenerLogging;
+import org.eclipse.ui.internal.misc.UIStats;
 import org.eclipse.ui.internal.registry.ActionSetRegistry;
 import org.eclipse.ui.internal.registry.EditorDescriptor;
 import org.eclipse.ui.internal.registry.IActionSetDescriptor;
@@ -3626,6 +3627,21 @@ public class WorkbenchPage extends CompatibleWorkbenchPage implements
 			return;
 		}
 
+		String label = perspective.getId();
+		if (UIStats.isDebugging(UIStats.SWITCH_PERSPECTIVE)) {
+			UIStats.start(UIStats.SWITCH_PERSPECTIVE, label);
+		}
+		try {
+			busySetPerspective(perspective, lastPerspective);
+		} finally {
+			if (UIStats.isDebugging(UIStats.SWITCH_PERSPECTIVE)) {
+				UIStats.end(UIStats.SWITCH_PERSPECTIVE, perspective, label);
+			}
+		}
+	}
+
+	private void busySetPerspective(IPerspectiveDescriptor perspective,
+			IPerspectiveDescriptor lastPerspective) {
 		MPerspectiveStack perspectives = getPerspectiveStack();
 		for (MPerspective mperspective : perspectives.getChildren()) {
 			if (mperspective.getElementId().equals(perspective.getId())) {
@@ -0,0 +1,381 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.decorators;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jface.viewers.IDecorationContext;
+
+/**
+ * The DecorationResultCache holds the decoration results computed by the
+ * {@link DecorationScheduler}. It is partitioned by decoration context, and
+ * each partition keeps at most a fixed number of results, discarding the least
+ * recently used ones. The partition of the oldest context is discarded when
+ * too many contexts are in use, as the contexts of disposed viewers are never
+ * used again.
+ * <p>
+ * A partition is split into segments by element hash code, each with its own
+ * lock, so that the UI thread reading results and the decoration jobs adding
+ * them seldom wait on each other.
+ * </p>
+ * <p>
+ * Results awaiting a label update are pending: the released results are
+ * discarded before them, as the viewers would otherwise miss them when
+ * notified and queue their elements for decoration again. They are released
+ * once the update is done. Pending results count against the capacity as
+ * well, the oldest ones are discarded when there are too many of them.
+ * </p>
+ * <p>
+ * This class is public for use by the test suites and is not intended to be
+ * referenced outside of the decorators package.
+ * </p>
+ *
+ * @since 3.105
+ */
+public class DecorationResultCache {
+
+	/**
+	 * The default number of results kept for each decoration context.
+	 */
+	static final int DEFAULT_CAPACITY = 4096;
+
+	private static final int SEGMENT_COUNT = 8;
+
+	private static final int MAX_PARTITIONS = 16;
+
+	private final int segmentCapacity;
+
+	// The segments by decoration context. The map is never modified once
+	// published, it is replaced when a context is added or the cache is
+	// cleared.
+	private volatile Map partitions = Collections.EMPTY_MAP;
+
+	// Hits and misses of the segments discarded so far
+	private long clearedHits;
+
+	private long clearedMisses;
+
+	/**
+	 * Create a new instance of the receiver.
+	 *
+	 * @param capacity
+	 *            the maximum number of results kept for each decoration
+	 *            context
+	 */
+	public DecorationResultCache(int capacity) {
+		segmentCapacity = Math.max(1, capacity / SEGMENT_COUNT);
+	}
+
+	/**
+	 * Return the result cached for the element in the context, pending or
+	 * not.
+	 *
+	 * @param element
+	 * @param context
+	 * @return DecorationResult or <code>null</code> if there is none
+	 */
+	public DecorationResult get(Object element, IDecorationContext context) {
+		Segment[] segments = (Segment[]) partitions.get(context);
+		if (segments == null) {
+			// Count the miss in a segment created for the context
+			segments = getSegments(context);
+		}
+		return segments[indexFor(element)].getResult(element);
+	}
+
+	/**
+	 * Return whether a result is cached for the element in the context,
+	 * without counting a hit or a miss or changing its recency.
+	 *
+	 * @param element
+	 * @param context
+	 * @return boolean
+	 */
+	public boolean contains(Object element, IDecorationContext context) {
+		Segment[] segments = (Segment[]) partitions.get(context);
+		return segments != null
+				&& segments[indexFor(element)].containsResult(element);
+	}
+
+	/**
+	 * Cache the result for the element in the context as pending until the
+	 * element is released.
+	 *
+	 * @param element
+	 * @param context
+	 * @param result
+	 * @see #release(Object[])
+	 */
+	public void putPending(Object element, IDecorationContext context,
+			DecorationResult result) {
+		getSegments(context)[indexFor(element)].putPending(element, result);
+	}
+
+	/**
+	 * Make the result cached for the element in the context pending until the
+	 * element is released, if there is one.
+	 *
+	 * @param element
+	 * @param context
+	 * @return <code>true</code> if a result is cached
+	 * @see #release(Object[])
+	 */
+	public boolean markPending(Object element, IDecorationContext context) {
+		Segment[] segments = (Segment[]) partitions.get(context);
+		return segments != null
+				&& segments[indexFor(element)].markPending(element);
+	}
+
+	/**
+	 * Release the pending results of the elements in all the contexts, so
+	 * that they can be discarded once they are the least recently used.
+	 *
+	 * @param elements
+	 */
+	public void release(Object[] elements) {
+		Segment[][] current = (Segment[][]) partitions.values().toArray(
+				new Segment[partitions.size()][]);
+		for (int i = 0; i < elements.length; i++) {
+			int index = indexFor(elements[i]);
+			for (int j = 0; j < current.length; j++) {
+				current[j][index].release(elements[i]);
+			}
+		}
+	}
+
+	/**
+	 * Discard the released results, keeping the pending ones.
+	 */
+	public void clearReleased() {
+		Segment[][] current = (Segment[][]) partitions.values().toArray(
+				new Segment[partitions.size()][]);
+		for (int i = 0; i < current.length; i++) {
+			for (int j = 0; j < current[i].length; j++) {
+				Segment segment = current[i][j];
+				synchronized (segment) {
+					segment.clear();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discard all of the cached results, pending or not.
+	 */
+	public synchronized void clear() {
+		Segment[][] dropped = (Segment[][]) partitions.values().toArray(
+				new Segment[partitions.size()][]);
+		partitions = Collections.EMPTY_MAP;
+		for (int i = 0; i < dropped.length; i++) {
+			countDropped(dropped[i]);
+		}
+	}
+
+	/**
+	 * Keep the counts of segments no longer in use. Must be called while
+	 * synchronized on the receiver.
+	 */
+	private void countDropped(Segment[] segments) {
+		for (int i = 0; i < segments.length; i++) {
+			Segment segment = segments[i];
+			synchronized (segment) {
+				clearedHits += segment.hits;
+				clearedMisses += segment.misses;
+			}
+		}
+	}
+
+	/**
+	 * Return the number of lookups that found a result.
+	 *
+	 * @return long
+	 */
+	public long getHits() {
+		return count(true);
+	}
+
+	/**
+	 * Return the number of lookups that did not find a result.
+	 *
+	 * @return long
+	 */
+	public long getMisses() {
+		return count(false);
+	}
+
+	/**
+	 * Return the number of cached results, pending or not.
+	 *
+	 * @return int
+	 */
+	public int size() {
+		int size = 0;
+		Map current = partitions;
+		Segment[][] segments = (Segment[][]) current.values().toArray(
+				new Segment[current.size()][]);
+		for (int i = 0; i < segments.length; i++) {
+			for (int j = 0; j < segments[i].length; j++) {
+				synchronized (segments[i][j]) {
+					size += segments[i][j].size()
+							+ segments[i][j].pending.size();
+				}
+			}
+		}
+		return size;
+	}
+
+	private synchronized long count(boolean hits) {
+		long count = hits ? clearedHits : clearedMisses;
+		Segment[][] current = (Segment[][]) partitions.values().toArray(
+				new Segment[partitions.size()][]);
+		for (int i = 0; i < current.length; i++) {
+			for (int j = 0; j < current[i].length; j++) {
+				Segment segment = current[i][j];
+				synchronized (segment) {
+					count += hits ? segment.hits : segment.misses;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Return the segments of the context, creating them if required.
+	 */
+	private Segment[] getSegments(IDecorationContext context) {
+		Segment[] segments = (Segment[]) partitions.get(context);
+		if (segments != null) {
+			return segments;
+		}
+		synchronized (this) {
+			segments = (Segment[]) partitions.get(context);
+			if (segments == null) {
+				segments = new Segment[SEGMENT_COUNT];
+				for (int i = 0; i < segments.length; i++) {
+					segments[i] = new Segment(segmentCapacity);
+				}
+				Map newPartitions = new LinkedHashMap(partitions);
+				if (newPartitions.size() >= MAX_PARTITIONS) {
+					Iterator oldest = newPartitions.values().iterator();
+					countDropped((Segment[]) oldest.next());
+					oldest.remove();
+				}
+				newPartitions.put(context, segments);
+				partitions = newPartitions;
+			}
+			return segments;
+		}
+	}
+
+	private static int indexFor(Object element) {
+		int hash = element.hashCode();
+		hash ^= (hash >>> 16);
+		hash ^= (hash >>> 7);
+		return (hash & 0x7fffffff) % SEGMENT_COUNT;
+	}
+
+	/**
+	 * A segment is a map of released results in access order and a map of the
+	 * pending results in the order they were added. Once it is full it drops
+	 * its eldest released result, or its oldest pending result if there is no
+	 * released one left. All access is synchronized on the segment.
+	 */
+	private static class Segment extends LinkedHashMap {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		final Map pending = new LinkedHashMap();
+
+		long hits;
+
+		long misses;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		synchronized DecorationResult getResult(Object element) {
+			DecorationResult result = (DecorationResult) pending.get(element);
+			if (result == null) {
+				result = (DecorationResult) get(element);
+			}
+			if (result == null) {
+				misses++;
+			} else {
+				hits++;
+			}
+			return result;
+		}
+
+		synchronized boolean containsResult(Object element) {
+			return pending.containsKey(element) || containsKey(element);
+		}
+
+		synchronized void putPending(Object element, DecorationResult result) {
+			remove(element);
+			pending.remove(element);
+			pending.put(element, result);
+			trim();
+		}
+
+		synchronized boolean markPending(Object element) {
+			if (pending.containsKey(element)) {
+				return true;
+			}
+			DecorationResult result = (DecorationResult) remove(element);
+			if (result == null) {
+				return false;
+			}
+			pending.put(element, result);
+			trim();
+			return true;
+		}
+
+		synchronized void release(Object element) {
+			DecorationResult result = (DecorationResult) pending
+					.remove(element);
+			if (result != null) {
+				put(element, result);
+			}
+		}
+
+		/**
+		 * Drop the eldest results until the segment is within its capacity.
+		 */
+		private void trim() {
+			Iterator released = keySet().iterator();
+			while (size() + pending.size() > capacity && released.hasNext()) {
+				released.next();
+				released.remove();
+			}
+			Iterator oldest = pending.keySet().iterator();
+			while (pending.size() > capacity && oldest.hasNext()) {
+				oldest.next();
+				oldest.remove();
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+		 */
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() + pending.size() > capacity;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,12 +15,15 @@ package org.eclipse.ui.internal.decorators;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.core.commands.util.Tracing;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -36,12 +39,20 @@ import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.internal.WorkbenchMessages;
+import org.eclipse.ui.internal.misc.Policy;
 import org.eclipse.ui.progress.UIJob;
 import org.eclipse.ui.progress.WorkbenchJob;
 
 /**
  * The DecorationScheduler is the class that handles the decoration of elements
- * using a background thread.
+ * using background jobs.
+ * <p>
+ * The elements awaiting decoration are queued in stripes by element, each
+ * served first by its own decoration job, so that a slow decorator does not
+ * hold up the decoration of all the other elements. The results are kept in a
+ * bounded {@link DecorationResultCache} until their label update is done, and
+ * discarded once no element is awaiting decoration.
+ * </p>
  */
 public class DecorationScheduler {
 
@@ -49,10 +60,14 @@ public class DecorationScheduler {
 
 	// When decorations are computed they are added to this cache via
 	// decorated() method
-	Map resultCache = new HashMap();
+	DecorationResultCache resultCache = new DecorationResultCache(
+			DecorationResultCache.DEFAULT_CAPACITY);
 
-	// Objects that need an icon and text computed for display to the user
-	List awaitingDecoration = new ArrayList();
+	// Objects that need an icon and text computed for display to the user,
+	// striped by element. Each stripe maps the elements to their
+	// DecorationReference in the order they were queued and is guarded by
+	// itself.
+	Map[] awaitingDecoration;
 
 	// Objects that are awaiting a label update.
 	Set pendingUpdate = new HashSet();
@@ -60,13 +75,15 @@ public class DecorationScheduler {
 	// Key to lock write access to the pending update set
 	Object pendingKey = new Object();
 
-	Map awaitingDecorationValues = new HashMap();
-
 	DecoratorManager decoratorManager;
 
-	boolean shutdown = false;
+	volatile boolean shutdown = false;
+
+	// The decoration job serving each stripe first
+	Job[] decorationJobs;
 
-	Job decorationJob;
+	// The largest number of elements awaiting decoration so far
+	private final AtomicInteger maxQueueDepth = new AtomicInteger();
 
 	UIJob updateJob;
 
@@ -81,6 +98,9 @@ public class DecorationScheduler {
 	/** Amount of time to delay the update notification when max reached. */
 	static final int UPDATE_DELAY = 100;
 
+	/** The maximum number of decoration jobs running at once. */
+	static final int MAX_DECORATION_JOBS = 4;
+
 	/**
 	 * Return a new instance of the receiver configured for the supplied
 	 * DecoratorManager.
@@ -89,7 +109,14 @@ public class DecorationScheduler {
 	 */
 	DecorationScheduler(DecoratorManager manager) {
 		decoratorManager = manager;
-		createDecorationJob();
+		int jobCount = Math.max(1, Math.min(MAX_DECORATION_JOBS, Runtime
+				.getRuntime().availableProcessors()));
+		awaitingDecoration = new Map[jobCount];
+		decorationJobs = new Job[jobCount];
+		for (int i = 0; i < jobCount; i++) {
+			awaitingDecoration[i] = new LinkedHashMap();
+			decorationJobs[i] = createDecorationJob(i);
+		}
 	}
 
 	/**
@@ -134,31 +161,51 @@ public class DecorationScheduler {
 	 *            The decoration context
 	 */
 
-	synchronized void queueForDecoration(Object element, Object adaptedElement,
+	void queueForDecoration(Object element, Object adaptedElement,
 			boolean forceUpdate, String undecoratedText,
 			IDecorationContext context) {
 
 		Assert.isNotNull(context);
-		DecorationReference reference = (DecorationReference) awaitingDecorationValues
-				.get(element);
-		if (reference != null) {
-			if (forceUpdate) {// Make sure we don't loose a force
-				reference.setForceUpdate(forceUpdate);
+		int index = stripeFor(element);
+		Map stripe = awaitingDecoration[index];
+		synchronized (stripe) {
+			DecorationReference reference = (DecorationReference) stripe
+					.get(element);
+			if (reference != null) {
+				if (forceUpdate) {// Make sure we don't loose a force
+					reference.setForceUpdate(forceUpdate);
+				}
+				reference.addContext(context);
+				return;
 			}
-			reference.addContext(context);
-		} else {
 			reference = new DecorationReference(element, adaptedElement,
 					context);
 			reference.setForceUpdate(forceUpdate);
 			reference.setUndecoratedText(undecoratedText);
-			awaitingDecorationValues.put(element, reference);
-			awaitingDecoration.add(element);
-			if (shutdown) {
-				return;
-			}
-			decorationJob.schedule();
+			stripe.put(element, reference);
+		}
+		int depth = getQueueDepth();
+		int max;
+		while (depth > (max = maxQueueDepth.get())
+				&& !maxQueueDepth.compareAndSet(max, depth)) {
+			// Another job raised the maximum in the meantime
 		}
+		if (shutdown) {
+			return;
+		}
+		decorationJobs[index].schedule();
+	}
 
+	/**
+	 * Return the index of the stripe the element is queued in.
+	 * 
+	 * @param element
+	 * @return int
+	 */
+	private int stripeFor(Object element) {
+		int hash = element.hashCode();
+		hash ^= (hash >>> 16);
+		return (hash & 0x7fffffff) % awaitingDecoration.length;
 	}
 
 	/**
@@ -219,21 +266,19 @@ public class DecorationScheduler {
 
 	private DecorationResult internalGetResult(Object element,
 			IDecorationContext context) {
-		Map results = (Map) resultCache.get(context);
-		if (results != null) {
-			return (DecorationResult) results.get(element);
-		}
-		return null;
+		return resultCache.get(element, context);
 	}
 
+	/**
+	 * Cache the result of the element and queue the label update of the
+	 * element. The result is kept until the update is done.
+	 */
 	protected void internalPutResult(Object element,
 			IDecorationContext context, DecorationResult result) {
-		Map results = (Map) resultCache.get(context);
-		if (results == null) {
-			results = new HashMap();
-			resultCache.put(context, results);
+		synchronized (pendingKey) {
+			resultCache.putPending(element, context, result);
+			pendingUpdate.add(element);
 		}
-		results.put(element, result);
 	}
 
 	/**
@@ -263,25 +308,101 @@ public class DecorationScheduler {
 	}
 
 	/**
-	 * Get the next resource to be decorated.
+	 * Get the next resource to be decorated, taking it from the given stripe
+	 * first and then from the other ones.
 	 * 
-	 * @return IResource
+	 * @param index
+	 *            the index of the stripe of the calling job
+	 * @return DecorationReference or <code>null</code> if there is none
 	 */
-	synchronized DecorationReference nextElement() {
+	DecorationReference nextElement(int index) {
 
-		if (shutdown || awaitingDecoration.isEmpty()) {
+		if (shutdown) {
 			return null;
 		}
-		Object element = awaitingDecoration.remove(0);
+		for (int i = 0; i < awaitingDecoration.length; i++) {
+			Map stripe = awaitingDecoration[(index + i)
+					% awaitingDecoration.length];
+			synchronized (stripe) {
+				if (!stripe.isEmpty()) {
+					Iterator references = stripe.values().iterator();
+					DecorationReference reference = (DecorationReference) references
+							.next();
+					references.remove();
+					return reference;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return whether or not there are elements awaiting decoration.
+	 * 
+	 * @return boolean
+	 */
+	private boolean isQueueEmpty() {
+		for (int i = 0; i < awaitingDecoration.length; i++) {
+			synchronized (awaitingDecoration[i]) {
+				if (!awaitingDecoration[i].isEmpty()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return the number of elements awaiting decoration.
+	 * 
+	 * @return int
+	 */
+	public int getQueueDepth() {
+		int depth = 0;
+		for (int i = 0; i < awaitingDecoration.length; i++) {
+			synchronized (awaitingDecoration[i]) {
+				depth += awaitingDecoration[i].size();
+			}
+		}
+		return depth;
+	}
+
+	/**
+	 * Return the largest number of elements that awaited decoration at once.
+	 * 
+	 * @return int
+	 */
+	public int getMaxQueueDepth() {
+		return maxQueueDepth.get();
+	}
+
+	/**
+	 * Return the number of decoration results found in the cache.
+	 * 
+	 * @return long
+	 */
+	public long getCacheHits() {
+		return resultCache.getHits();
+	}
 
-		return (DecorationReference) awaitingDecorationValues.remove(element);
+	/**
+	 * Return the number of decoration results not found in the cache.
+	 * 
+	 * @return long
+	 */
+	public long getCacheMisses() {
+		return resultCache.getMisses();
 	}
 
 	/**
-	 * Create the Thread used for running decoration.
+	 * Create a job used for running decoration.
+	 * 
+	 * @param index
+	 *            the index of the stripe the job serves first
+	 * @return Job
 	 */
-	private void createDecorationJob() {
-		decorationJob = new Job(
+	private Job createDecorationJob(final int index) {
+		Job decorationJob = new Job(
 				WorkbenchMessages.DecorationScheduler_CalculationJobName) {
 			/*
 			 * (non-Javadoc)
@@ -290,10 +411,8 @@ public class DecorationScheduler {
 			 */
 			public IStatus run(IProgressMonitor monitor) {
 
-				synchronized (DecorationScheduler.this) {
-					if (shutdown) {
-						return Status.CANCEL_STATUS;
-					}
+				if (shutdown) {
+					return Status.CANCEL_STATUS;
 				}
 
 				while (updatesPending()) {
@@ -314,7 +433,7 @@ public class DecorationScheduler {
 				DecorationReference reference;
 				monitor.worked(5);
 				int workCount = 5;
-				while ((reference = nextElement()) != null) {
+				while ((reference = nextElement(index)) != null) {
 
 					// Count up to 90 to give the appearance of updating
 					if (workCount < 90) {
@@ -333,14 +452,18 @@ public class DecorationScheduler {
 
 					// Only notify listeners when we have exhausted the
 					// queue of decoration requests.
-					synchronized (DecorationScheduler.this) {
-						if (awaitingDecoration.isEmpty()) {
-							decorated();
-						}
+					if (isQueueEmpty()) {
+						decorated();
 					}
 				}
 				monitor.worked(100 - workCount);
 				monitor.done();
+				if (Policy.DEBUG_DECORATORS) {
+					Tracing.printTrace("DECORATORS", "cache hits: " //$NON-NLS-1$ //$NON-NLS-2$
+							+ getCacheHits() + ", misses: " + getCacheMisses() //$NON-NLS-1$
+							+ ", size: " + resultCache.size() //$NON-NLS-1$
+							+ ", max queue depth: " + maxQueueDepth.get()); //$NON-NLS-1$
+				}
 				return Status.OK_STATUS;
 			}
 
@@ -356,12 +479,13 @@ public class DecorationScheduler {
 			 */
 			private void ensureResultCached(Object element, boolean force,
 					IDecorationContext context) {
-				boolean elementIsCached = internalGetResult(element, context) != null;
-				if (elementIsCached) {
-					synchronized (pendingKey) {
+				boolean elementIsCached;
+				synchronized (pendingKey) {
+					// Keep the result until the label update is done
+					elementIsCached = resultCache.markPending(element, context);
+					if (elementIsCached) {
 						pendingUpdate.add(element);
 					}
-
 				}
 
 				if (!elementIsCached) {
@@ -383,18 +507,11 @@ public class DecorationScheduler {
 
 						// Add the decoration even if it's empty in
 						// order to indicate that the decoration is
-						// ready
+						// ready, and add an update for only the original
+						// element to prevent multiple updates.
 						internalPutResult(element, context, cacheResult
 								.createResult());
 
-						// Add an update for only the original element
-						// to
-						// prevent multiple updates and clear the cache.
-						synchronized (pendingKey) {
-							pendingUpdate.add(element);
-						}
-						
-
 					}
 				}
 			}
@@ -421,6 +538,7 @@ public class DecorationScheduler {
 		decorationJob.setSystem(true);
 		decorationJob.setPriority(Job.DECORATE);
 		decorationJob.schedule();
+		return decorationJob;
 	}
 
 	/**
@@ -493,12 +611,13 @@ public class DecorationScheduler {
 
 			ILabelProviderListener[] listeners;
 
+			// The elements of the update, whose results are pending
+			Object[] updatedElements;
+
 			public IStatus runInUIThread(IProgressMonitor monitor) {
 
-				synchronized (DecorationScheduler.this) {
-					if (shutdown) {
-						return Status.CANCEL_STATUS;
-					}
+				if (shutdown) {
+					return Status.CANCEL_STATUS;
 				}
 
 				// If this is the first one check again in case
@@ -560,11 +679,25 @@ public class DecorationScheduler {
             private void resetState() {
                 currentIndex = NEEDS_INIT;// Reset
                 removedListeners.clear();
+                // The results of this update have been applied and can be
+                // discarded, unless they are awaiting another update.
                 // Other decoration requests may have occurred due to
                 // updates or we may have timed out updating listeners.
                 // Only clear the results if there are none pending.
-                if (awaitingDecoration.isEmpty()) {
-                    resultCache.clear();
+                synchronized (pendingKey) {
+                	if (updatedElements != null) {
+                		List released = new ArrayList();
+                		for (int i = 0; i < updatedElements.length; i++) {
+                			if (!pendingUpdate.contains(updatedElements[i])) {
+                				released.add(updatedElements[i]);
+                			}
+                		}
+                		resultCache.release(released.toArray());
+                		updatedElements = null;
+                	}
+                	if (isQueueEmpty()) {
+                		resultCache.clearReleased();
+                	}
                 }
             }
             
@@ -577,6 +710,7 @@ public class DecorationScheduler {
 					Object[] elements = pendingUpdate
 							.toArray(new Object[pendingUpdate.size()]);
 					pendingUpdate.clear();
+					updatedElements = elements;
 					labelProviderChangedEvent = new LabelProviderChangedEvent(
 							decoratorManager, elements);
 				}
@@ -615,7 +749,7 @@ public class DecorationScheduler {
 	 * @return boolean true if the element is ready.
 	 */
 	public boolean isDecorationReady(Object element, IDecorationContext context) {
-		return internalGetResult(element, context) != null;
+		return resultCache.contains(element, context);
 	}
 
 	/**
@@ -684,7 +818,7 @@ public class DecorationScheduler {
 	 * @return boolean
 	 */
 	public boolean processingUpdates() {
-		return !hasPendingUpdates() && !awaitingDecoration.isEmpty();
+		return !hasPendingUpdates() && !isQueueEmpty();
 	}
 
 	/**
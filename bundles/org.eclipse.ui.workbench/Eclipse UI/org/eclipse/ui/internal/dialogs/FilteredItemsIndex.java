@@ -0,0 +1,417 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.dialogs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.ui.dialogs.SearchPattern;
+
+/**
+ * An index of the names of the items of a
+ * {@link org.eclipse.ui.dialogs.FilteredItemsSelectionDialog}, used to find
+ * the items whose name may match a {@link SearchPattern} without matching all
+ * the items.
+ * <p>
+ * The items are kept in an array sorted by case folded name, so that the
+ * items whose name starts with a prefix are found by binary search. Each name
+ * also has a signature of the characters it contains, which rules out most of
+ * the names that cannot match a camel case pattern, and the positions of the
+ * names containing each sequence of three characters are indexed on demand for
+ * the literal parts of wildcard patterns.
+ * </p>
+ * <p>
+ * The candidates returned for a pattern are a superset of the items whose name
+ * is matched by the pattern; they still have to be matched one by one.
+ * </p>
+ */
+public class FilteredItemsIndex {
+
+	private static final char END_SYMBOL = '<';
+
+	private static final char BLANK = ' ';
+
+	private static final char ANY_STRING = '*';
+
+	private static final char ANY_CHAR = '?';
+
+	private static final char ESCAPE = '\\';
+
+	private static final int TRIGRAM = 3;
+
+	/**
+	 * Items sorted by folded name.
+	 */
+	private final Object[] items;
+
+	/**
+	 * Folded names of the items, sorted.
+	 */
+	private final String[] names;
+
+	/**
+	 * Signatures of the characters of the names.
+	 */
+	private final long[] signatures;
+
+	/**
+	 * Items without a name, which are candidates for any pattern.
+	 */
+	private final Object[] unnamedItems;
+
+	/**
+	 * Positions of the names containing a trigram, by trigram. Computed on
+	 * demand.
+	 */
+	private Map trigrams;
+
+	/**
+	 * Creates an index of the given items.
+	 *
+	 * @param items
+	 *            the items
+	 * @param names
+	 *            the names of the items, or <code>null</code> for the items
+	 *            without a name
+	 */
+	public FilteredItemsIndex(Object[] items, String[] names) {
+		List named = new ArrayList(items.length);
+		List unnamed = new ArrayList();
+		for (int i = 0; i < items.length; i++) {
+			if (names[i] == null) {
+				unnamed.add(items[i]);
+			} else {
+				named.add(new Entry(fold(names[i]), items[i]));
+			}
+		}
+		Entry[] entries = (Entry[]) named.toArray(new Entry[named.size()]);
+		Arrays.sort(entries, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				return ((Entry) o1).name.compareTo(((Entry) o2).name);
+			}
+		});
+
+		this.items = new Object[entries.length];
+		this.names = new String[entries.length];
+		this.signatures = new long[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			this.items[i] = entries[i].item;
+			this.names[i] = entries[i].name;
+			this.signatures[i] = signature(entries[i].name);
+		}
+		this.unnamedItems = unnamed.toArray();
+	}
+
+	/**
+	 * Returns the number of indexed items.
+	 *
+	 * @return the number of items
+	 */
+	public int size() {
+		return items.length + unnamedItems.length;
+	}
+
+	/**
+	 * Returns all the indexed items.
+	 *
+	 * @return the items, sorted by name
+	 */
+	public Object[] getItems() {
+		Object[] result = new Object[size()];
+		System.arraycopy(items, 0, result, 0, items.length);
+		System.arraycopy(unnamedItems, 0, result, items.length,
+				unnamedItems.length);
+		return result;
+	}
+
+	/**
+	 * Returns the items whose name may be matched by the given pattern.
+	 *
+	 * @param pattern
+	 *            the search pattern
+	 * @return the candidate items, sorted by name
+	 */
+	public Object[] getCandidates(SearchPattern pattern) {
+		String stringPattern = pattern.getPattern();
+		int matchRule = pattern.getMatchRule();
+		if (stringPattern == null
+				|| matchRule == SearchPattern.RULE_BLANK_MATCH) {
+			return getItems();
+		}
+		if (matchRule == SearchPattern.RULE_PATTERN_MATCH) {
+			return getPatternCandidates(stringPattern);
+		}
+
+		// other rules match the names starting with the pattern, ignoring
+		// case, and camel case patterns also match the names starting with
+		// the same character and containing all the characters of the pattern
+		// in order
+		int length = stringPattern.length();
+		while (length > 0
+				&& (stringPattern.charAt(length - 1) == END_SYMBOL || stringPattern
+						.charAt(length - 1) == BLANK)) {
+			length--;
+		}
+		String key = fold(stringPattern.substring(0, length));
+		if (key.length() == 0) {
+			return getItems();
+		}
+		if (matchRule == SearchPattern.RULE_CAMELCASE_MATCH) {
+			int start = findFirst(key.substring(0, 1));
+			int end = findEnd(key.substring(0, 1), start);
+			return collect(start, end, null, signature(key));
+		}
+		int start = findFirst(key);
+		return collect(start, findEnd(key, start), null, 0);
+	}
+
+	/**
+	 * Returns the candidates of a pattern with wildcards. The literal parts of
+	 * the pattern have to appear in the names, and the first one starts the
+	 * names unless the pattern starts with a wildcard.
+	 */
+	private Object[] getPatternCandidates(String stringPattern) {
+		if (stringPattern.indexOf(ESCAPE) != -1) {
+			return getItems();
+		}
+		List literals = new ArrayList();
+		int literalStart = 0;
+		for (int i = 0; i <= stringPattern.length(); i++) {
+			if (i == stringPattern.length()
+					|| stringPattern.charAt(i) == ANY_STRING
+					|| stringPattern.charAt(i) == ANY_CHAR) {
+				literals.add(fold(stringPattern.substring(literalStart, i)));
+				literalStart = i + 1;
+			}
+		}
+
+		String prefix = (String) literals.get(0);
+		int start = 0;
+		int end = names.length;
+		if (prefix.length() > 0) {
+			start = findFirst(prefix);
+			end = findEnd(prefix, start);
+		}
+
+		long signature = 0;
+		List postings = new ArrayList();
+		for (Iterator i = literals.iterator(); i.hasNext();) {
+			String literal = (String) i.next();
+			signature |= signature(literal);
+			for (int j = 0; j + TRIGRAM <= literal.length(); j++) {
+				int[] positions = getTrigramPositions(literal, j);
+				if (positions.length == 0) {
+					return (Object[]) unnamedItems.clone();
+				}
+				postings.add(positions);
+			}
+		}
+		if (postings.isEmpty()) {
+			return collect(start, end, null, signature);
+		}
+
+		int[][] lists = (int[][]) postings.toArray(new int[postings.size()][]);
+		Arrays.sort(lists, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				return ((int[]) o1).length - ((int[]) o2).length;
+			}
+		});
+		if (lists[0].length >= end - start) {
+			return collect(start, end, null, signature);
+		}
+		return collect(start, end, lists, signature);
+	}
+
+	/**
+	 * Collects the items in the given range of positions which have all the
+	 * bits of the signature and, if position lists are given, whose positions
+	 * are in all of them.
+	 */
+	private Object[] collect(int start, int end, int[][] lists, long signature) {
+		List result = new ArrayList();
+		if (lists == null) {
+			for (int i = start; i < end; i++) {
+				if ((signatures[i] & signature) == signature) {
+					result.add(items[i]);
+				}
+			}
+		} else {
+			int[] smallest = lists[0];
+			next: for (int i = 0; i < smallest.length; i++) {
+				int position = smallest[i];
+				if (position < start || position >= end
+						|| (signatures[position] & signature) != signature) {
+					continue;
+				}
+				for (int j = 1; j < lists.length; j++) {
+					if (Arrays.binarySearch(lists[j], position) < 0) {
+						continue next;
+					}
+				}
+				result.add(items[position]);
+			}
+		}
+		result.addAll(Arrays.asList(unnamedItems));
+		return result.toArray();
+	}
+
+	/**
+	 * Returns the position of the first name which is not less than the
+	 * given prefix.
+	 */
+	private int findFirst(String prefix) {
+		int low = 0;
+		int high = names.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (names[middle].compareTo(prefix) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the position following the last name starting with the given
+	 * prefix, given the position of the first one.
+	 */
+	private int findEnd(String prefix, int start) {
+		int low = start;
+		int high = names.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (names[middle].startsWith(prefix)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the sorted positions of the names containing the trigram at the
+	 * given offset of a folded string.
+	 */
+	private synchronized int[] getTrigramPositions(String string, int offset) {
+		if (trigrams == null) {
+			trigrams = indexTrigrams();
+		}
+		int[] positions = (int[]) trigrams.get(new Long(trigram(string,
+				offset)));
+		return positions == null ? new int[0] : positions;
+	}
+
+	private Map indexTrigrams() {
+		Map postings = new HashMap();
+		for (int i = 0; i < names.length; i++) {
+			String name = names[i];
+			for (int j = 0; j + TRIGRAM <= name.length(); j++) {
+				Long key = new Long(trigram(name, j));
+				Postings positions = (Postings) postings.get(key);
+				if (positions == null) {
+					positions = new Postings();
+					postings.put(key, positions);
+				}
+				positions.add(i);
+			}
+		}
+		Map result = new HashMap(postings.size());
+		for (Iterator i = postings.entrySet().iterator(); i.hasNext();) {
+			Map.Entry entry = (Map.Entry) i.next();
+			result.put(entry.getKey(), ((Postings) entry.getValue()).toArray());
+		}
+		return result;
+	}
+
+	private static long trigram(String string, int offset) {
+		return ((long) string.charAt(offset) << 32)
+				| ((long) string.charAt(offset + 1) << 16)
+				| string.charAt(offset + 2);
+	}
+
+	/**
+	 * Returns a signature with one bit set for each letter or digit of a
+	 * folded string, and bits shared by the other characters.
+	 */
+	private static long signature(String string) {
+		long signature = 0;
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			int bit;
+			if (c >= 'a' && c <= 'z') {
+				bit = c - 'a';
+			} else if (c >= '0' && c <= '9') {
+				bit = 26 + c - '0';
+			} else {
+				bit = 36 + c % 28;
+			}
+			signature |= 1L << bit;
+		}
+		return signature;
+	}
+
+	/**
+	 * Folds the case of a string the way
+	 * {@link String#equalsIgnoreCase(String)} compares characters, keeping its
+	 * length.
+	 */
+	private static String fold(String string) {
+		char[] chars = string.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		}
+		return new String(chars);
+	}
+
+	private static class Entry {
+		final String name;
+		final Object item;
+
+		Entry(String name, Object item) {
+			this.name = name;
+			this.item = item;
+		}
+	}
+
+	/**
+	 * A growing list of positions, in increasing order.
+	 */
+	private static class Postings {
+		private int[] positions = new int[4];
+		private int size;
+
+		void add(int position) {
+			if (size > 0 && positions[size - 1] == position) {
+				return;
+			}
+			if (size == positions.length) {
+				int[] newPositions = new int[size * 2];
+				System.arraycopy(positions, 0, newPositions, 0, size);
+				positions = newPositions;
+			}
+			positions[size++] = position;
+		}
+
+		int[] toArray() {
+			int[] result = new int[size];
+			System.arraycopy(positions, 0, result, 0, size);
+			return result;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -37,6 +37,7 @@ import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferenceConstants;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 import org.eclipse.ui.internal.WorkbenchMessages;
+import org.eclipse.ui.internal.misc.UIStats;
 import org.eclipse.ui.internal.tweaklets.PreferencePageEnhancer;
 import org.eclipse.ui.internal.tweaklets.Tweaklets;
 import org.eclipse.ui.internal.util.PrefUtil;
@@ -81,7 +82,7 @@ public class ViewsPreferencePage extends PreferencePage implements
 
 			public void selectionChanged(SelectionChangedEvent event) {
 				ITheme selection = getSelection();
-				engine.setTheme(selection, false);
+				applyTheme(selection, false);
 				((PreferencePageEnhancer) Tweaklets.get(PreferencePageEnhancer.KEY))
 						.setSelection(selection);
 			}
@@ -147,7 +148,7 @@ public class ViewsPreferencePage extends PreferencePage implements
 				MessageDialog.openWarning(getShell(), WorkbenchMessages.ThemeChangeWarningTitle,
 						WorkbenchMessages.ThemeChangeWarningText);
 			}
-			engine.setTheme(getSelection(), true);
+			applyTheme(getSelection(), true);
 		}
 		IPreferenceStore apiStore = PrefUtil.getAPIPreferenceStore();
 		apiStore.setValue(IWorkbenchPreferenceConstants.ENABLE_ANIMATIONS,
@@ -158,6 +159,17 @@ public class ViewsPreferencePage extends PreferencePage implements
 		return super.performOk();
 	}
 
+	private void applyTheme(ITheme theme, boolean restore) {
+		String label = theme == null ? null : theme.getId();
+		if (UIStats.isDebugging(UIStats.APPLY_THEME)) {
+			UIStats.start(UIStats.APPLY_THEME, label);
+		}
+		engine.setTheme(theme, restore);
+		if (UIStats.isDebugging(UIStats.APPLY_THEME)) {
+			UIStats.end(UIStats.APPLY_THEME, engine, label);
+		}
+	}
+
 	@Override
 	protected void performDefaults() {
 		((PreferencePageEnhancer) Tweaklets.get(PreferencePageEnhancer.KEY)).performDefaults();
@@ -181,7 +193,7 @@ public class ViewsPreferencePage extends PreferencePage implements
 	@Override
 	public boolean performCancel() {
 		if (currentTheme != null) {
-			engine.setTheme(currentTheme, false);
+			applyTheme(currentTheme, false);
 		}
 		return super.performCancel();
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2012 IBM Corporation and others.
+ * Copyright (c) 2010, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -54,6 +54,7 @@ import org.eclipse.ui.internal.ViewSite;
 import org.eclipse.ui.internal.WorkbenchPage;
 import org.eclipse.ui.internal.WorkbenchPartReference;
 import org.eclipse.ui.internal.WorkbenchPlugin;
+import org.eclipse.ui.internal.misc.UIStats;
 import org.eclipse.ui.internal.util.Util;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
@@ -137,7 +138,15 @@ public abstract class CompatibilityPart implements ISelectionChangedListener {
 		IWorkbenchPartSite site = null;
 		try {
 			site = legacyPart.getSite();
+			String label = null;
+			if (UIStats.isDebugging(UIStats.CREATE_PART_CONTROL)) {
+				label = part.getElementId();
+				UIStats.start(UIStats.CREATE_PART_CONTROL, label);
+			}
 			legacyPart.createPartControl(parent);
+			if (UIStats.isDebugging(UIStats.CREATE_PART_CONTROL)) {
+				UIStats.end(UIStats.CREATE_PART_CONTROL, legacyPart, label);
+			}
 		} catch (RuntimeException e) {
 			logger.error(e);
 
@@ -299,9 +308,17 @@ public abstract class CompatibilityPart implements ISelectionChangedListener {
 		WorkbenchPartReference reference = getReference();
 
 		try {
+			String label = null;
+			if (UIStats.isDebugging(UIStats.CREATE_PART)) {
+				label = part.getElementId();
+				UIStats.start(UIStats.CREATE_PART, label);
+			}
 			wrapped = createPart(reference);
 			// invoke init methods
 			reference.initialize(wrapped);
+			if (UIStats.isDebugging(UIStats.CREATE_PART)) {
+				UIStats.end(UIStats.CREATE_PART, wrapped, label);
+			}
 		} catch (PartInitException e) {
 			if (!handlePartInitException(e)) {
 				return;
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.misc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations of a {@link MetricsRegistry}, in nanoseconds.
+ * <p>
+ * The durations are counted in buckets whose width doubles with each power of
+ * two, and which are split into {@link #SUB_BUCKETS} sub-buckets each, so the
+ * values reported are accurate to about 6% over the full range of durations.
+ * Durations can be recorded from any thread without locking, and nothing is
+ * recorded if the registry is disabled.
+ * </p>
+ * <p>
+ * An operation is typically measured with:
+ *
+ * <pre>
+ * long start = histogram.start();
+ * try {
+ * 	// the operation
+ * } finally {
+ * 	histogram.end(start);
+ * }
+ * </pre>
+ *
+ * </p>
+ *
+ * @since 3.105
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+
+	/**
+	 * The number of sub-buckets of each power of two.
+	 */
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Values below SUB_BUCKETS have a bucket each, the other values have
+	 * SUB_BUCKETS buckets for each of the remaining powers of two.
+	 */
+	private static final int BUCKET_COUNT = SUB_BUCKETS + (63 - SUB_BUCKET_BITS)
+			* SUB_BUCKETS;
+
+	private final String name;
+
+	private final boolean enabled;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong total = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	LatencyHistogram(String name, boolean enabled) {
+		this.name = name;
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return the name of this histogram
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return <code>true</code> if durations are recorded, and
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns the start time of an operation to pass to {@link #end(long)}.
+	 *
+	 * @return the current time in nanoseconds, or <code>0</code> if the
+	 *         histogram is disabled
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * Records the duration of an operation started at the provided time.
+	 *
+	 * @param startTime
+	 *            the value returned by {@link #start()}
+	 */
+	public void end(long startTime) {
+		if (enabled) {
+			record(System.nanoTime() - startTime);
+		}
+	}
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param nanos
+	 *            the duration in nanoseconds, negative durations are recorded
+	 *            as <code>0</code>
+	 */
+	public void record(long nanos) {
+		if (!enabled) {
+			return;
+		}
+		long value = Math.max(0, nanos);
+		buckets.incrementAndGet(getBucket(value));
+		count.incrementAndGet();
+		total.addAndGet(value);
+		long currentMax = max.get();
+		while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+			currentMax = max.get();
+		}
+	}
+
+	/**
+	 * @return the number of durations recorded
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the sum of the durations recorded, in nanoseconds
+	 */
+	public long getTotal() {
+		return total.get();
+	}
+
+	/**
+	 * @return the longest duration recorded, in nanoseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the duration below which the provided percentage of the
+	 * recorded durations fall. The duration returned is the upper bound of
+	 * the bucket of that duration, and not more than the maximum.
+	 *
+	 * @param percentile
+	 *            the percentage, between <code>0</code> and <code>100</code>
+	 * @return the duration in nanoseconds, or <code>0</code> if nothing was
+	 *         recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long recorded = 0;
+		long[] counts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+			recorded += counts[i];
+		}
+		if (recorded == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(Math.min(100, Math.max(0, percentile))
+				/ 100 * recorded);
+		rank = Math.max(1, rank);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(getUpperBound(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		total.set(0);
+		max.set(0);
+	}
+
+	static int getBucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+		return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+	}
+
+	static long getUpperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		long lowerBound = (SUB_BUCKETS + subBucket) << shift;
+		return lowerBound + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.misc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A counter of a {@link MetricsRegistry}. The counter can be incremented from
+ * any thread without locking, and does nothing if the registry is disabled.
+ *
+ * @since 3.105
+ */
+public final class MetricCounter {
+
+	private final String name;
+
+	private final boolean enabled;
+
+	private final AtomicLong value = new AtomicLong();
+
+	MetricCounter(String name, boolean enabled) {
+		this.name = name;
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return the name of this counter
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Increments this counter by one.
+	 */
+	public void increment() {
+		if (enabled) {
+			value.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Adds the provided amount to this counter.
+	 *
+	 * @param amount
+	 *            the amount to add
+	 */
+	public void add(long amount) {
+		if (enabled) {
+			value.addAndGet(amount);
+		}
+	}
+
+	/**
+	 * @return the current value of this counter
+	 */
+	public long get() {
+		return value.get();
+	}
+
+	void reset() {
+		value.set(0);
+	}
+}
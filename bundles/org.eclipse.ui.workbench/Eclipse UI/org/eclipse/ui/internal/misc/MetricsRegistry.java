@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.misc;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.statushandlers.StatusManager;
+
+/**
+ * The counters and latency histograms measuring the workbench operations.
+ * <p>
+ * The default registry is enabled by the <code>org.eclipse.ui/perf/metrics</code>
+ * debug option, or by setting the <code>org.eclipse.ui.metrics.file</code>
+ * system property to the file a snapshot of the metrics is exported to when
+ * the workbench shuts down. When the registry is disabled, its counters and
+ * histograms record nothing and cost a field read.
+ * </p>
+ *
+ * @see UIStats
+ * @since 3.105
+ */
+public final class MetricsRegistry {
+
+	/**
+	 * The system property naming the file the default registry is exported to.
+	 */
+	public static final String FILE_PROPERTY = "org.eclipse.ui.metrics.file"; //$NON-NLS-1$
+
+	private static MetricsRegistry defaultRegistry;
+
+	private final boolean enabled;
+
+	private final ConcurrentMap<String, MetricCounter> counters = new ConcurrentHashMap<String, MetricCounter>();
+
+	private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+
+	/**
+	 * Creates a registry.
+	 *
+	 * @param enabled
+	 *            whether the counters and histograms of the registry record
+	 *            anything
+	 */
+	public MetricsRegistry(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return the registry of the workbench
+	 */
+	public static synchronized MetricsRegistry getDefault() {
+		if (defaultRegistry == null) {
+			boolean enabled = System.getProperty(FILE_PROPERTY) != null
+					|| "true".equalsIgnoreCase(Platform.getDebugOption(PlatformUI.PLUGIN_ID //$NON-NLS-1$
+							+ "/perf/metrics")); //$NON-NLS-1$
+			defaultRegistry = new MetricsRegistry(enabled);
+		}
+		return defaultRegistry;
+	}
+
+	/**
+	 * @return <code>true</code> if the metrics are recorded, and
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns the counter with the provided name, creating it if needed.
+	 *
+	 * @param name
+	 *            the name of the counter
+	 * @return the counter
+	 */
+	public MetricCounter getCounter(String name) {
+		MetricCounter counter = counters.get(name);
+		if (counter == null) {
+			counter = new MetricCounter(name, enabled);
+			MetricCounter existing = counters.putIfAbsent(name, counter);
+			if (existing != null) {
+				counter = existing;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * Returns the histogram with the provided name, creating it if needed.
+	 *
+	 * @param name
+	 *            the name of the histogram
+	 * @return the histogram
+	 */
+	public LatencyHistogram getHistogram(String name) {
+		LatencyHistogram histogram = histograms.get(name);
+		if (histogram == null) {
+			histogram = new LatencyHistogram(name, enabled);
+			LatencyHistogram existing = histograms.putIfAbsent(name, histogram);
+			if (existing != null) {
+				histogram = existing;
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Resets all the counters and histograms to zero.
+	 */
+	public void reset() {
+		for (Iterator<MetricCounter> i = counters.values().iterator(); i.hasNext();) {
+			i.next().reset();
+		}
+		for (Iterator<LatencyHistogram> i = histograms.values().iterator(); i.hasNext();) {
+			i.next().reset();
+		}
+	}
+
+	/**
+	 * Writes the current values of the counters and histograms, one per line
+	 * and sorted by name, as comma separated values. Durations are written in
+	 * microseconds.
+	 *
+	 * @param writer
+	 *            the writer
+	 * @throws IOException
+	 *             if the values cannot be written
+	 */
+	public void writeSnapshot(Writer writer) throws IOException {
+		writer.write("# type,name,count,total,p50,p90,p99,max\n"); //$NON-NLS-1$
+		List<String> names = new ArrayList<String>(counters.keySet());
+		Collections.sort(names);
+		for (Iterator<String> i = names.iterator(); i.hasNext();) {
+			MetricCounter counter = counters.get(i.next());
+			writer.write("counter," + counter.getName() + ',' + counter.get() + '\n'); //$NON-NLS-1$
+		}
+		names = new ArrayList<String>(histograms.keySet());
+		Collections.sort(names);
+		for (Iterator<String> i = names.iterator(); i.hasNext();) {
+			LatencyHistogram histogram = histograms.get(i.next());
+			StringBuffer line = new StringBuffer("histogram,"); //$NON-NLS-1$
+			line.append(histogram.getName()).append(',');
+			line.append(histogram.getCount()).append(',');
+			line.append(histogram.getTotal() / 1000).append(',');
+			line.append(histogram.getValueAtPercentile(50) / 1000).append(',');
+			line.append(histogram.getValueAtPercentile(90) / 1000).append(',');
+			line.append(histogram.getValueAtPercentile(99) / 1000).append(',');
+			line.append(histogram.getMax() / 1000).append('\n');
+			writer.write(line.toString());
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the metrics to the provided file, replacing its
+	 * content.
+	 *
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             if the file cannot be written
+	 * @see #writeSnapshot(Writer)
+	 */
+	public void exportSnapshot(File file) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file), "UTF-8")); //$NON-NLS-1$
+		try {
+			writeSnapshot(writer);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Exports the default registry to the file named by the
+	 * {@link #FILE_PROPERTY} system property, if it is set.
+	 */
+	public static void exportDefault() {
+		String fileName = System.getProperty(FILE_PROPERTY);
+		if (fileName == null || fileName.length() == 0) {
+			return;
+		}
+		try {
+			getDefault().exportSnapshot(new File(fileName));
+		} catch (IOException e) {
+			StatusUtil.handleStatus(e, StatusManager.LOG);
+		}
+	}
+}
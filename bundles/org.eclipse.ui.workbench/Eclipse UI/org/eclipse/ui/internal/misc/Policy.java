@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -159,6 +159,13 @@ public class Policy {
      */
     public static boolean DEBUG_WORKING_SETS = DEFAULT;
 
+    /**
+     * Whether or not the decoration cache and queue statistics are reported.
+     * 
+     * @since 3.105
+     */
+    public static boolean DEBUG_DECORATORS = DEFAULT;
+
     static {
         if (getDebugOption("/debug")) { //$NON-NLS-1$
             DEBUG_SWT_GRAPHICS = getDebugOption("/trace/graphics"); //$NON-NLS-1$
@@ -191,6 +198,7 @@ public class Policy {
             EXPERIMENTAL_MENU = getDebugOption("/experimental/menus"); //$NON-NLS-1$
             DEBUG_MPE = getDebugOption("/trace/multipageeditor"); //$NON-NLS-1$
             DEBUG_WORKING_SETS = getDebugOption("/debug/workingSets"); //$NON-NLS-1$
+            DEBUG_DECORATORS = getDebugOption("/trace/decorators"); //$NON-NLS-1$
             
             if(DEBUG_SWT_DEBUG_GLOBAL)
             	Device.DEBUG = true;
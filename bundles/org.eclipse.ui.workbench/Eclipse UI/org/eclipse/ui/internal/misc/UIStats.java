@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,12 @@ import org.eclipse.ui.PlatformUI;
  * This class is used for monitoring performance events.  Each performance
  * event has an associated option in the org.eclipse.ui plugin's .options file
  * that specifies an maximum acceptable duration for that event.
+ * <p>
+ * The durations of the events are also recorded in the latency histograms of
+ * the {@link MetricsRegistry} when it is enabled. Code that does not need to
+ * report to {@link PerformanceStats} should use the histograms directly, since
+ * they do not need to track operations by label.
+ * </p>
  * 
  * @see org.eclipse.core.runtime.PerformanceStats
  */
@@ -57,13 +63,19 @@ public class UIStats {
 	
 	public static final int CONTENT_TYPE_LOOKUP = 14;
 
+	public static final int APPLY_THEME = 15;
+
     /**
      * Change this value when you add a new event constant.
      */
-    public static final int LAST_VALUE = CONTENT_TYPE_LOOKUP;
+    public static final int LAST_VALUE = APPLY_THEME;
 
     private static boolean debug[] = new boolean[LAST_VALUE+1];
 
+    private static boolean stats[] = new boolean[LAST_VALUE+1];
+
+    private static LatencyHistogram[] histograms = new LatencyHistogram[LAST_VALUE+1];
+
     private static String[] events = new String[LAST_VALUE+1];
 
     static {
@@ -82,12 +94,16 @@ public class UIStats {
         events[NOTIFY_PERSPECTIVE_LISTENERS] = PlatformUI.PLUGIN_ID + "/perf/perspective.listeners"; //$NON-NLS-1$
         events[UI_JOB] = PlatformUI.PLUGIN_ID + "/perf/uijob"; //$NON-NLS-1$
 		events[CONTENT_TYPE_LOOKUP] = PlatformUI.PLUGIN_ID + "/perf/contentTypes"; //$NON-NLS-1$
+		events[APPLY_THEME] = PlatformUI.PLUGIN_ID + "/perf/theme.apply"; //$NON-NLS-1$
 
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
         for (int i = 0; i <= LAST_VALUE; i++) {
         	//don't log any performance events if the general performance stats is disabled
         	if (events[i] != null && PerformanceStats.ENABLED) {
-				debug[i] = PerformanceStats.isEnabled(events[i]);
+				stats[i] = PerformanceStats.isEnabled(events[i]);
 			}
+        	histograms[i] = metrics.getHistogram(events[i]);
+        	debug[i] = stats[i] || histograms[i].isEnabled();
         }
     }
 
@@ -110,7 +126,10 @@ public class UIStats {
      */
     public static void start(int event, String label) {
         if (debug[event]) {
-			operations.put(event + label, new Long(System.currentTimeMillis()));
+        	// events can be started from any thread
+        	synchronized (operations) {
+				operations.put(event + label, new Long(System.nanoTime()));
+			}
 		}
     }
 
@@ -124,14 +143,20 @@ public class UIStats {
      */
    	public static void end(int event, Object blame, String label) {
         if (debug[event]) {
-            Long startTime = (Long) operations.remove(event + label);
+            Long startTime;
+            synchronized (operations) {
+            	startTime = (Long) operations.remove(event + label);
+            }
             if (startTime == null) {
 				return;
 			}
-            final long elapsed = System.currentTimeMillis() - startTime.longValue();
+            final long elapsed = System.nanoTime() - startTime.longValue();
+            histograms[event].record(elapsed);
 //			System.out.println("Time - " + //$NON-NLS-1$
 //                    elapsed + events[event] + label);
-            PerformanceStats.getStats(events[event], blame).addRun(elapsed, label);
+            if (stats[event]) {
+            	PerformanceStats.getStats(events[event], blame).addRun(elapsed / 1000000, label);
+            }
         }
     }
    	
@@ -13,6 +13,10 @@ package org.eclipse.ui.internal.quickaccess;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.jface.layout.GridDataFactory;
 import org.eclipse.jface.layout.TableColumnLayout;
@@ -43,6 +47,7 @@ import org.eclipse.swt.graphics.TextLayout;
 import org.eclipse.swt.graphics.TextStyle;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Table;
@@ -80,6 +85,14 @@ public abstract class QuickAccessContents {
 	private boolean showAllMatches = false;
 	protected boolean resized = false;
 
+	/**
+	 * The job matching the filter being typed against the indexes of the
+	 * providers, or <code>null</code> if the table shows the matches of the
+	 * filter.
+	 */
+	private Job matchingJob;
+
+	private String pendingFilter;
 
 	public QuickAccessContents(QuickAccessProvider[] providers) {
 		this.providers = providers;
@@ -97,15 +110,88 @@ public abstract class QuickAccessContents {
 	}
 
 	/**
+	 * Shows the elements matching the provided filter. The elements are
+	 * matched in the background, unless the filter is empty.
 	 * 
+	 * @param filter
+	 *            the lowercase filter
 	 */
 	public void refresh(String filter) {
+		refresh(filter, false);
+	}
+
+	private void refresh(final String filter, boolean synchronous) {
+		if (matchingJob != null) {
+			matchingJob.cancel();
+			matchingJob = null;
+		}
+		pendingFilter = null;
+		if (filter.length() == 0) {
+			showMatches(filter, null);
+			return;
+		}
+
+		// the labels of the elements are read on the UI thread
+		final QuickAccessSearchIndex[] indexes = new QuickAccessSearchIndex[providers.length];
+		for (int i = 0; i < providers.length; i++) {
+			indexes[i] = providers[i].getSearchIndex();
+		}
+		if (synchronous) {
+			showMatches(filter, getMatchingElements(filter, indexes, null));
+			return;
+		}
+
+		final Display display = table.getDisplay();
+		pendingFilter = filter;
+		matchingJob = new Job("Quick Access matching") { //$NON-NLS-1$
+			protected IStatus run(IProgressMonitor monitor) {
+				final QuickAccessElement[][] matches = getMatchingElements(filter, indexes,
+						monitor);
+				if (matches == null) {
+					return Status.CANCEL_STATUS;
+				}
+				final Job job = this;
+				if (!display.isDisposed()) {
+					display.asyncExec(new Runnable() {
+						public void run() {
+							if (matchingJob == job && table != null && !table.isDisposed()) {
+								matchingJob = null;
+								pendingFilter = null;
+								showMatches(filter, matches);
+							}
+						}
+					});
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		matchingJob.setSystem(true);
+		matchingJob.schedule();
+	}
+
+	/**
+	 * Returns the elements of each index matching the filter, or
+	 * <code>null</code> if the monitor was canceled.
+	 */
+	private static QuickAccessElement[][] getMatchingElements(String filter,
+			QuickAccessSearchIndex[] indexes, IProgressMonitor monitor) {
+		QuickAccessElement[][] matches = new QuickAccessElement[indexes.length][];
+		for (int i = 0; i < indexes.length; i++) {
+			if (monitor != null && monitor.isCanceled()) {
+				return null;
+			}
+			matches[i] = indexes[i].getMatchingElements(filter);
+		}
+		return matches;
+	}
+
+	private void showMatches(String filter, QuickAccessElement[][] matches) {
 		int numItems = computeNumberOfItems();
 
 		// perfect match, to be selected in the table if not null
 		QuickAccessElement perfectMatch = getPerfectMatch(filter);
 
-		List[] entries = computeMatchingEntries(filter, perfectMatch, numItems);
+		List[] entries = computeMatchingEntries(filter, perfectMatch, numItems, matches);
 
 		int selectionIndex = refreshTable(perfectMatch, entries);
 
@@ -144,7 +230,7 @@ public abstract class QuickAccessContents {
 
 	public void toggleShowAllMatches() {
 		showAllMatches = !showAllMatches;
-		refresh(filterText.getText().toLowerCase());
+		refresh(filterText.getText().toLowerCase(), true);
 	}
 
 	private int refreshTable(QuickAccessElement perfectMatch, List[] entries) {
@@ -195,8 +281,13 @@ public abstract class QuickAccessContents {
 		return selectionIndex;
 	}
 
+	/**
+	 * @param matches
+	 *            the elements of each provider matching the filter, or
+	 *            <code>null</code> if the filter is empty
+	 */
 	private List[] computeMatchingEntries(String filter,
-			QuickAccessElement perfectMatch, int maxCount) {
+			QuickAccessElement perfectMatch, int maxCount, QuickAccessElement[][] matches) {
 		// collect matches in an array of lists
 		List<QuickAccessEntry>[] entries = new ArrayList[providers.length];
 		int[] indexPerProvider = new int[providers.length];
@@ -223,7 +314,8 @@ public abstract class QuickAccessContents {
 				int count = 0;
 				QuickAccessProvider provider = providers[i];
 				if (filter.length() > 0 || provider.isAlwaysPresent() || showAllMatches) {
-					QuickAccessElement[] sortedElements = provider.getElementsSorted();
+					QuickAccessElement[] sortedElements = matches == null ? provider
+							.getElementsSorted() : matches[i];
 					List<QuickAccessEntry> poorFilterMatches = new ArrayList<QuickAccessEntry>();
 					
 					int j = indexPerProvider[i];
@@ -305,6 +397,10 @@ public abstract class QuickAccessContents {
 	}
 
 	public void doDispose() {
+		if (matchingJob != null) {
+			matchingJob.cancel();
+			matchingJob = null;
+		}
 		if (textLayout != null && !textLayout.isDisposed()) {
 			textLayout.dispose();
 		}
@@ -338,6 +434,10 @@ public abstract class QuickAccessContents {
 	 * 
 	 */
 	private void handleSelection() {
+		if (pendingFilter != null) {
+			// select among the matches of the filter typed
+			refresh(pendingFilter, true);
+		}
 		QuickAccessElement selectedElement = null;
 		String text = filterText.getText().toLowerCase();
 		if (table.getSelectionCount() == 1) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2007 IBM Corporation and others.
+ * Copyright (c) 2006, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,8 @@ public abstract class QuickAccessProvider {
 
 	private QuickAccessElement[] sortedElements;
 
+	private QuickAccessSearchIndex searchIndex;
+
 	/**
 	 * Returns the unique ID of this provider.
 	 * 
@@ -64,6 +66,21 @@ public abstract class QuickAccessProvider {
 		}
 		return sortedElements;
 	}
+
+	/**
+	 * Returns the index of the sorted elements of this provider. Must be
+	 * called from the UI thread.
+	 * 
+	 * @return the index of the elements returned by
+	 *         {@link #getElementsSorted()}
+	 */
+	public QuickAccessSearchIndex getSearchIndex() {
+		QuickAccessElement[] elements = getElementsSorted();
+		if (searchIndex == null || searchIndex.getElements() != elements) {
+			searchIndex = new QuickAccessSearchIndex(this, elements);
+		}
+		return searchIndex;
+	}
 	
 	/**
 	 * Returns the element for the given ID if available, or null if no matching
@@ -81,6 +98,7 @@ public abstract class QuickAccessProvider {
 
 	public void reset() {
 		sortedElements = null;
+		searchIndex = null;
 		doReset();
 	}
 
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.internal.quickaccess;
+
+/**
+ * The strings the elements of a provider are matched against, computed once
+ * from the labels of the elements. The index finds the elements whose
+ * {@link QuickAccessElement#match(String, QuickAccessProvider)} would return an
+ * entry without calling back the elements, so it can be searched from any
+ * thread.
+ * <p>
+ * The matches of the last filter are remembered, and a filter extending it is
+ * only matched against them.
+ * </p>
+ *
+ * @since 3.105
+ */
+public class QuickAccessSearchIndex {
+
+	private static final int[] NO_MATCHES = new int[0];
+
+	private final QuickAccessElement[] elements;
+
+	/**
+	 * The lowercase provider name and label of each element, which contains
+	 * the lowercase label.
+	 */
+	private final String[] combinedLabels;
+
+	private final String[] camelCases;
+
+	private final String[] combinedCamelCases;
+
+	private String lastFilter;
+
+	private int[] lastMatches;
+
+	/**
+	 * Creates the index of the provided elements. Must be called from the UI
+	 * thread, since the labels of the elements are read.
+	 *
+	 * @param provider
+	 *            the provider of the elements
+	 * @param elements
+	 *            the sorted elements of the provider
+	 */
+	public QuickAccessSearchIndex(QuickAccessProvider provider, QuickAccessElement[] elements) {
+		this.elements = elements;
+		combinedLabels = new String[elements.length];
+		camelCases = new String[elements.length];
+		combinedCamelCases = new String[elements.length];
+		String providerName = provider.getName();
+		for (int i = 0; i < elements.length; i++) {
+			String label = elements[i].getLabel();
+			String combinedLabel = providerName + " " + label; //$NON-NLS-1$
+			combinedLabels[i] = combinedLabel.toLowerCase();
+			camelCases[i] = CamelUtil.getCamelCase(label);
+			combinedCamelCases[i] = CamelUtil.getCamelCase(combinedLabel);
+		}
+	}
+
+	/**
+	 * @return the elements of this index
+	 */
+	public QuickAccessElement[] getElements() {
+		return elements;
+	}
+
+	/**
+	 * Returns the elements matching the provided filter, in the order of the
+	 * elements of this index.
+	 *
+	 * @param filter
+	 *            the lowercase filter
+	 * @return the matching elements
+	 */
+	public QuickAccessElement[] getMatchingElements(String filter) {
+		int[] matches = match(filter);
+		QuickAccessElement[] result = new QuickAccessElement[matches.length];
+		for (int i = 0; i < matches.length; i++) {
+			result[i] = elements[matches[i]];
+		}
+		return result;
+	}
+
+	private synchronized int[] match(String filter) {
+		if (filter.equals(lastFilter)) {
+			return lastMatches;
+		}
+		int[] matches;
+		if (lastFilter != null && filter.startsWith(lastFilter)) {
+			// the matches of a longer filter are matches of its prefixes
+			matches = match(filter, lastMatches, lastMatches.length);
+		} else {
+			matches = match(filter, null, elements.length);
+		}
+		lastFilter = filter;
+		lastMatches = matches;
+		return matches;
+	}
+
+	private int[] match(String filter, int[] candidates, int count) {
+		int[] matches = new int[count];
+		int matchCount = 0;
+		for (int i = 0; i < count; i++) {
+			int index = candidates == null ? i : candidates[i];
+			if (combinedLabels[index].indexOf(filter) != -1
+					|| camelCases[index].indexOf(filter) != -1
+					|| combinedCamelCases[index].indexOf(filter) != -1) {
+				matches[matchCount++] = index;
+			}
+		}
+		if (matchCount == 0) {
+			return NO_MATCHES;
+		}
+		if (matchCount < count) {
+			int[] result = new int[matchCount];
+			System.arraycopy(matches, 0, result, 0, matchCount);
+			return result;
+		}
+		return matches;
+	}
+}
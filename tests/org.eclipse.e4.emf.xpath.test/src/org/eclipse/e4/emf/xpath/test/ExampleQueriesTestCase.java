@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 BestSolution.at and others.
+ * Copyright (c) 2010, 2013 BestSolution.at and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,12 +10,18 @@
  ******************************************************************************/
 package org.eclipse.e4.emf.xpath.test;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import org.apache.commons.jxpath.JXPathNotFoundException;
+import org.eclipse.e4.emf.xpath.CompiledXPath;
 import org.eclipse.e4.emf.xpath.EcoreXPathContextFactory;
 import org.eclipse.e4.emf.xpath.XPathContext;
 import org.eclipse.e4.emf.xpath.XPathContextFactory;
+import org.eclipse.e4.emf.xpath.test.model.xpathtest.Root;
 import org.eclipse.e4.emf.xpath.test.model.xpathtest.XpathtestPackage;
 import org.eclipse.e4.emf.xpath.test.model.xpathtest.impl.ExtendedNodeImpl;
 import org.eclipse.e4.emf.xpath.test.model.xpathtest.impl.NodeImpl;
@@ -74,4 +80,97 @@ public class ExampleQueriesTestCase extends TestCase {
 		assertEquals(ExtendedNodeImpl.class,context.getValue("//.[ecore:eClassName(.)='ExtendedNode']").getClass());
 		
 	}
-}
\ No newline at end of file
+
+	public void testCompiledQuery() {
+		Resource resource = loadTestModel();
+
+		XPathContextFactory<EObject> f = EcoreXPathContextFactory.newInstance();
+		XPathContext context = f.newContext(resource.getContents().get(0));
+
+		CompiledXPath xpath = context.compile("/");
+		assertSame(xpath, context.compile("/"));
+		assertSame(RootImpl.class, context.getValue(xpath).getClass());
+		assertSame(RootImpl.class, context.getValue(context.compile(".[@id='root']")).getClass());
+
+		try {
+			context.getValue(context.compile(".[@id='nixda']"));
+			fail("This query should fail with JXPathNotFoundException");
+		} catch (JXPathNotFoundException path) {
+		}
+
+		assertEquals("element1", context.getValue(context.compile("nodes[1]/@id")));
+		assertEquals("val2.2", context.getValue(
+				context.compile("nodes[@id='element2']/children[2]/@value")));
+		assertEquals(NodeImpl.class,
+				context.getValue(context.compile("//.[@id='element2.2']")).getClass());
+		assertEquals(ExtendedNodeImpl.class,
+				context.getValue(context.compile("//.[ecore:eClassName(.)='ExtendedNode']"))
+						.getClass());
+	}
+
+	public void testCompiledQueriesMatchStringQueries() {
+		Resource resource = loadTestModel();
+		Root root = (Root) resource.getContents().get(0);
+		// an attribute without value
+		root.getNodes().get(0).getChildren().get(1).setValue(null);
+
+		XPathContextFactory<EObject> f = EcoreXPathContextFactory.newInstance();
+		XPathContext context = f.newContext(root);
+
+		String[] xpaths = { "/", ".", "nodes", "./nodes", "@nodes", "nodes[1]", "nodes[3]",
+				"nodes[1]/@id", "nodes/id", "nodes/@cat", "nodes/@nixda", "nodes/nixda",
+				"nodes[@id='element1']", "nodes[@id=\"element1\"]", ".[1]", ".[@id='root']",
+				".[@id='nixda']", "nodes/.", "nodes[1]/.", "nodes/children", "nodes[2]/children",
+				"nodes/children[1]", "nodes[1]/@children", "nodes/children/children",
+				"nodes[1]/children/children", "nodes[1]/children[2]/children",
+				"nodes[2]/children/children", "nodes[@id='element2']/children[2]/@value",
+				"nodes[1]/children/@value", "nodes[1]/children[2]/@value",
+				"nodes[1]/children[2]/value", "nodes/children[@value='']",
+				"nodes/children[@value='null']", "nodes/children/@name",
+				"nodes/children[@name='myname']", "nodes/children[2][@id='element2.2']",
+				"nodes/children[@id='element2.2'][1]", "nodes[1]/root", "nodes/root",
+				"nodes[1]/parent", "nodes[1]/@parent", "nodes[1]/parent/@id",
+				"nodes/children/parent", "nodes[1]/children[1]/inrefs",
+				"nodes/children/outrefs", "nodes[2]/children[1]/outrefs[1]/@id", "*",
+				"nodes[1]/*", "//children", "nodes//children", "//.[@id='element2.2']",
+				"//@id" };
+		for (String xpath : xpaths) {
+			CompiledXPath compiled = context.compile(xpath);
+			assertEquals(xpath, toList(context.iterate(xpath)), toList(context.iterate(compiled)));
+			Object value;
+			try {
+				value = context.getValue(xpath);
+			} catch (JXPathNotFoundException e) {
+				try {
+					context.getValue(compiled);
+					fail("The compiled query " + xpath + " should fail with JXPathNotFoundException");
+				} catch (JXPathNotFoundException e2) {
+				}
+				continue;
+			}
+			assertEquals(xpath, value, context.getValue(compiled));
+		}
+	}
+
+	private static List<Object> toList(Iterator<Object> iterator) {
+		List<Object> result = new ArrayList<Object>();
+		while (iterator.hasNext()) {
+			result.add(iterator.next());
+		}
+		return result;
+	}
+
+	private Resource loadTestModel() {
+		ResourceSet resourceSet = new ResourceSetImpl();
+		resourceSet
+				.getResourceFactoryRegistry()
+				.getExtensionToFactoryMap()
+				.put(Resource.Factory.Registry.DEFAULT_EXTENSION,
+						new XMIResourceFactoryImpl());
+		resourceSet.getPackageRegistry().put(XpathtestPackage.eNS_URI,
+				XpathtestPackage.eINSTANCE);
+		URI uri = URI.createPlatformPluginURI(
+				"/org.eclipse.e4.emf.xpath.test/model/Test.xmi", true);
+		return resourceSet.getResource(uri, true);
+	}
+}
@@ -217,6 +217,62 @@ public class KeyDispatcherTest extends TestCase {
 		assertFalse(handler.q2);
 	}
 
+	public void testUnboundKeyStrokeNotConsumed() throws Exception {
+		KeyBindingDispatcher dispatcher = new KeyBindingDispatcher();
+		ContextInjectionFactory.inject(dispatcher, workbenchContext);
+		final Listener listener = dispatcher.getKeyDownFilter();
+		display.addFilter(SWT.KeyDown, listener);
+		display.addFilter(SWT.Traverse, listener);
+
+		Shell shell = new Shell(display, SWT.NONE);
+
+		Event event = new Event();
+		event.type = SWT.KeyDown;
+		event.keyCode = 'a';
+		event.character = 'a';
+		shell.notifyListeners(SWT.KeyDown, event);
+
+		assertTrue(event.doit);
+		assertEquals(SWT.KeyDown, event.type);
+		assertFalse(handler.q2);
+		assertTrue(dispatcher.getBuffer().isEmpty());
+	}
+
+	public void testBindingActivatedAfterKeyStroke() throws Exception {
+		KeyBindingDispatcher dispatcher = new KeyBindingDispatcher();
+		ContextInjectionFactory.inject(dispatcher, workbenchContext);
+		final Listener listener = dispatcher.getKeyDownFilter();
+		display.addFilter(SWT.KeyDown, listener);
+		display.addFilter(SWT.Traverse, listener);
+
+		Shell shell = new Shell(display, SWT.NONE);
+
+		Event event = new Event();
+		event.type = SWT.KeyDown;
+		event.stateMask = SWT.CTRL;
+		event.keyCode = 'B';
+		shell.notifyListeners(SWT.KeyDown, event);
+		assertTrue(event.doit);
+		assertFalse(handler.q2);
+
+		// the binding must be found although CTRL+B was already dispatched
+		EBindingService bs = (EBindingService) workbenchContext
+				.get(EBindingService.class.getName());
+		ECommandService cs = (ECommandService) workbenchContext
+				.get(ECommandService.class.getName());
+		Binding binding = createDefaultBinding(bs, bs.createSequence("CTRL+B"),
+				cs.createCommand(TEST_ID1, null));
+		bs.activateBinding(binding);
+
+		event = new Event();
+		event.type = SWT.KeyDown;
+		event.stateMask = SWT.CTRL;
+		event.keyCode = 'B';
+		shell.notifyListeners(SWT.KeyDown, event);
+		assertFalse(event.doit);
+		assertTrue(handler.q2);
+	}
+
 	public void TODOtestKeyDispatcherReset() throws Exception {
 		KeyBindingDispatcher dispatcher = new KeyBindingDispatcher();
 		ContextInjectionFactory.inject(dispatcher, workbenchContext);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 EclipseSource and others. All rights reserved.
+ * Copyright (c) 2009, 2013 EclipseSource and others. All rights reserved.
  * This program and the accompanying materials are made available under the
  * terms of the Eclipse Public License v1.0 which accompanies this distribution, 
  * and is available at http://www.eclipse.org/legal/epl-v10.html
@@ -13,6 +13,7 @@ import java.io.IOException;
 
 import junit.framework.TestCase;
 
+import org.eclipse.e4.ui.css.core.impl.dom.CSSRuleListImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.DocumentCSSImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.ViewCSSImpl;
 import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
@@ -57,8 +58,58 @@ public class ViewCSSTest extends TestCase {
 		assertEquals( 2, buttonStyle.getLength() );
 	}
 
+	public void testGetComputedStyleAfterElementChange() throws Exception {
+		String css = "Button { color: black; }\n"
+			+ ".special { font-weight: bold; }\n"
+			+ "Button.x.special { color: green; }\n"
+			+ "#myid { color: red; }\n";
+		ViewCSS viewCSS = createViewCss(css);
+
+		TestElement button = new TestElement("Button", engine);
+		CSSStyleDeclaration style = viewCSS.getComputedStyle(button, null);
+		assertEquals( 1, style.getLength() );
+		assertEquals( "black", style.getPropertyCSSValue("color").getCssText() );
+
+		button.setClass("special  x");
+		style = viewCSS.getComputedStyle(button, null);
+		assertEquals( 2, style.getLength() );
+		assertEquals( "green", style.getPropertyCSSValue("color").getCssText() );
+
+		button.setId("myid");
+		style = viewCSS.getComputedStyle(button, null);
+		assertEquals( "red", style.getPropertyCSSValue("color").getCssText() );
+
+		button.setClass(null);
+		button.setId(null);
+		style = viewCSS.getComputedStyle(button, null);
+		assertEquals( 1, style.getLength() );
+		assertEquals( "black", style.getPropertyCSSValue("color").getCssText() );
+	}
+
+	public void testGetComputedStyleAfterStyleSheetChange() throws Exception {
+		CSSStyleSheet styleSheet = ParserTestUtil
+				.parseCss("Button { color: black; }\n");
+		ViewCSS viewCSS = createViewCss(styleSheet);
+
+		TestElement button = new TestElement("Button", engine);
+		CSSStyleDeclaration style = viewCSS.getComputedStyle(button, null);
+		assertEquals( "black", style.getPropertyCSSValue("color").getCssText() );
+
+		// Replace the rule, keeping the number of rules
+		CSSStyleSheet other = ParserTestUtil
+				.parseCss("Button { color: red; }\n");
+		styleSheet.deleteRule(0);
+		((CSSRuleListImpl) styleSheet.getCssRules()).add(other.getCssRules()
+				.item(0));
+		style = viewCSS.getComputedStyle(button, null);
+		assertEquals( "red", style.getPropertyCSSValue("color").getCssText() );
+	}
+
 	private static ViewCSS createViewCss(String css) throws IOException {
-		CSSStyleSheet styleSheet = ParserTestUtil.parseCss(css);
+		return createViewCss(ParserTestUtil.parseCss(css));
+	}
+
+	private static ViewCSS createViewCss(CSSStyleSheet styleSheet) {
 		DocumentCSSImpl docCss = new DocumentCSSImpl();
 		docCss.addStyleSheet(styleSheet);
 		return new ViewCSSImpl(docCss);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2010 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ import org.eclipse.e4.ui.tests.application.UIEventTypesTest;
 import org.eclipse.e4.ui.tests.reconciler.ModelReconcilerTestSuite;
 import org.eclipse.e4.ui.tests.workbench.Bug308317Test;
 import org.eclipse.e4.ui.tests.workbench.ContextTest;
+import org.eclipse.e4.ui.tests.workbench.DeferredStylingEngineTest;
 import org.eclipse.e4.ui.tests.workbench.HandlerTest;
 import org.eclipse.e4.ui.tests.workbench.InjectionEventTest;
 import org.eclipse.e4.ui.tests.workbench.MMenuItemTest;
@@ -53,6 +54,7 @@ public class UIAllTests extends TestSuite {
 		addTestSuite(Bug320857Test.class);
 		addTestSuite(PartRenderingEngineTests.class);
 		addTestSuite(SashRendererTest.class);
+		addTestSuite(DeferredStylingEngineTest.class);
 		addTestSuite(MMenuItemTest.class);
 		addTestSuite(MPartTest.class);
 		addTestSuite(MPartSashContainerTest.class);
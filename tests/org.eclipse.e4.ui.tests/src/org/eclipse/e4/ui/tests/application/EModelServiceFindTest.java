@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2010 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -203,6 +203,68 @@ public class EModelServiceFindTest extends TestCase {
 		assertEquals(badIdAndTypeAndTags.size(), 0);
 	}
 
+	public void testFindElementsAfterModelChanges() {
+		MApplication application = createApplication();
+		EModelService modelService = (EModelService) application.getContext()
+				.get(EModelService.class.getName());
+		assertNotNull(modelService);
+
+		List<MUIElement> elements = modelService.findElements(application,
+				"twoValidIds", null, null);
+		assertEquals(2, elements.size());
+		MPartSashContainer psc = (MPartSashContainer) elements.get(0);
+		MPart part1 = (MPart) elements.get(1);
+
+		// the results follow the order of the model
+		MPart part3 = (MPart) psc.getChildren().get(1);
+		part3.setElementId("twoValidIds");
+		elements = modelService.findElements(application, "twoValidIds",
+				null, null);
+		assertEquals(3, elements.size());
+		assertEquals(psc, elements.get(0));
+		assertEquals(part1, elements.get(1));
+		assertEquals(part3, elements.get(2));
+
+		psc.getChildren().remove(part3);
+		psc.getChildren().add(0, part3);
+		elements = modelService.findElements(application, "twoValidIds",
+				null, null);
+		assertEquals(part3, elements.get(1));
+		assertEquals(part1, elements.get(2));
+
+		part1.setElementId("newId");
+		assertEquals(part1, modelService.find("newId", application));
+		assertEquals(2, modelService.findElements(application, "twoValidIds",
+				null, null).size());
+
+		List<String> tags = new ArrayList<String>();
+		tags.add("newTag");
+		part3.getTags().add("newTag");
+		assertEquals(1, modelService.findElements(application, null, null,
+				tags).size());
+		part3.getTags().remove("newTag");
+		assertEquals(0, modelService.findElements(application, null, null,
+				tags).size());
+
+		// removed elements are no longer found
+		MPartStack stack = (MPartStack) psc.getChildren().get(1);
+		psc.getChildren().remove(stack);
+		assertNull(modelService.find("newId", application));
+
+		// shared elements are found through their placeholders
+		MWindow window = (MWindow) application.getChildren().get(0);
+		window.getSharedElements().add(stack);
+		assertNull(modelService.find("newId", application));
+		MPlaceholder placeholder = AdvancedFactoryImpl.eINSTANCE
+				.createPlaceholder();
+		psc.getChildren().add(placeholder);
+		placeholder.setRef(stack);
+		assertEquals(part1, modelService.find("newId", application));
+		assertEquals(part1, modelService.find("newId", psc));
+		placeholder.setRef(null);
+		assertNull(modelService.find("newId", application));
+	}
+
 	public void testFindElements_NullCheck() {
 		MApplication application = createApplication();
 		EModelService modelService = (EModelService) application.getContext()
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012 Brian de Alwis and others.
+ * Copyright (c) 2012, 2013 Brian de Alwis and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,14 +7,24 @@
  *
  * Contributors:
  *     Brian de Alwis (MTI) - initial API and implementation
+ *     IBM Corporation - local event dispatching
  ******************************************************************************/
 
 package org.eclipse.e4.ui.tests.application;
 
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.services.events.IEventBroker;
+import org.eclipse.e4.ui.services.internal.events.EventBroker;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 
 /**
@@ -104,4 +114,107 @@ public class EventBrokerTest extends UITest {
 		assertEquals("subscription was not removed", 2, seen.get());
 	}
 
+	public void testWildcardSubscription() {
+		IEventBroker eb = context.get(IEventBroker.class);
+		EventHandler handler = new EventHandler() {
+			public void handleEvent(Event event) {
+				seen.incrementAndGet();
+			}
+		};
+
+		eb.subscribe("test/*", handler);
+		eb.send(TEST_TOPIC, new Object());
+		eb.send(TEST_TOPIC + "/sub", new Object());
+		eb.send("test", new Object());
+		eb.send("other/EventBrokerTest", new Object());
+		assertEquals(2, seen.get());
+		eb.unsubscribe(handler);
+	}
+
+	public void testFilteredSubscription() {
+		IEventBroker eb = context.get(IEventBroker.class);
+		EventHandler handler = new EventHandler() {
+			public void handleEvent(Event event) {
+				seen.incrementAndGet();
+			}
+		};
+
+		assertTrue(eb.subscribe(TEST_TOPIC, "(name=match)", handler, true));
+		Map<String, Object> data = new HashMap<String, Object>();
+		data.put("name", "match");
+		eb.send(TEST_TOPIC, data);
+		data.put("name", "other");
+		eb.send(TEST_TOPIC, data);
+		assertEquals(1, seen.get());
+		eb.unsubscribe(handler);
+	}
+
+	public void testHasSubscribers() {
+		IEventBroker eb = context.get(IEventBroker.class);
+		assertTrue(eb instanceof EventBroker);
+		EventBroker broker = (EventBroker) eb;
+		String topic = TEST_TOPIC + "/hasSubscribers";
+		assertFalse(broker.hasSubscribers(topic));
+
+		EventHandler handler = new EventHandler() {
+			public void handleEvent(Event event) {
+				seen.incrementAndGet();
+			}
+		};
+		eb.subscribe(TEST_TOPIC + "/*", handler);
+		assertTrue(broker.hasSubscribers(topic));
+		eb.unsubscribe(handler);
+		assertFalse(broker.hasSubscribers(topic));
+	}
+
+	/**
+	 * ensure event handler services which are not subscribed through a broker
+	 * still receive the events, and that subscribers receive events sent
+	 * through the Event Admin by others
+	 */
+	public void testEventHandlerService() {
+		IEventBroker eb = context.get(IEventBroker.class);
+		final AtomicInteger serviceSeen = new AtomicInteger(0);
+		BundleContext bundleContext = FrameworkUtil.getBundle(getClass())
+				.getBundleContext();
+		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+		properties.put(EventConstants.EVENT_TOPIC, new String[] { TEST_TOPIC });
+		ServiceRegistration<?> registration = bundleContext.registerService(
+				EventHandler.class.getName(), new EventHandler() {
+					public void handleEvent(Event event) {
+						serviceSeen.incrementAndGet();
+					}
+				}, properties);
+		EventHandler handler = new EventHandler() {
+			public void handleEvent(Event event) {
+				seen.incrementAndGet();
+			}
+		};
+		try {
+			eb.subscribe(TEST_TOPIC, handler);
+			assertTrue(((EventBroker) eb).hasSubscribers(TEST_TOPIC));
+			eb.send(TEST_TOPIC, new Object());
+			assertEquals(1, serviceSeen.get());
+			assertEquals(1, seen.get());
+		} finally {
+			registration.unregister();
+			eb.unsubscribe(handler);
+		}
+	}
+
+	public void testPost() throws Exception {
+		IEventBroker eb = context.get(IEventBroker.class);
+		EventHandler handler = new EventHandler() {
+			public void handleEvent(Event event) {
+				seen.incrementAndGet();
+			}
+		};
+		eb.subscribe(TEST_TOPIC, null, handler, true);
+		assertTrue(eb.post(TEST_TOPIC, new Object()));
+		for (int i = 0; i < 100 && seen.get() == 0; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(1, seen.get());
+		eb.unsubscribe(handler);
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2011 IBM Corporation and others.
+ * Copyright (c) 2010, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -52,11 +52,17 @@ public class ResourceHandlerTest extends HeadlessStartupTest {
 	}
 
 	private ResourceHandler createHandler(URI uri) {
+		return createHandler(uri, false);
+	}
+
+	private ResourceHandler createHandler(URI uri, boolean cacheModelAssembly) {
 		IEclipseContext localContext = applicationContext.createChild();
 		localContext.set(E4Workbench.INSTANCE_LOCATION, getInstanceLocation());
 		localContext.set(E4Workbench.PERSIST_STATE, Boolean.TRUE);
 		localContext.set(E4Workbench.CLEAR_PERSISTED_STATE, Boolean.TRUE);
 		localContext.set(E4Workbench.DELTA_RESTORE, Boolean.TRUE);
+		localContext.set(E4Workbench.MODEL_ASSEMBLY_CACHE,
+				Boolean.valueOf(cacheModelAssembly));
 
 		localContext.set(E4Workbench.INITIAL_WORKBENCH_MODEL_URI, uri);
 
@@ -162,4 +168,28 @@ public class ResourceHandlerTest extends HeadlessStartupTest {
 				.getChildren().get(0).getChildren().get(7).getElementId());
 	}
 
+	public void testModelAssemblyCache() {
+		URI uri = URI.createPlatformPluginURI(
+				"org.eclipse.e4.ui.tests/xmi/modelprocessor/base.e4xmi", true);
+
+		// the first handler assembles the model, the second one reads it back
+		Resource assembled = createHandler(uri, true).loadMostRecentModel();
+		MApplication assembledApplication = (MApplication) assembled
+				.getContents().get(0);
+		Resource cached = createHandler(uri, true).loadMostRecentModel();
+		MApplication application = (MApplication) cached.getContents().get(0);
+		assertNotSame(assembledApplication, application);
+
+		assertEquals(assembledApplication.getChildren().size(), application
+				.getChildren().size());
+		assertEquals("fragment.contributedWindow", application.getChildren()
+				.get(1).getElementId());
+		assertEquals("_w4fQ8HVHEd-aXt9fFntEtw",
+				((E4XMIResource) cached).getID((EObject) application
+						.getChildren().get(1))); // Window Id
+		assertEquals("platform:/plugin/org.eclipse.e4.ui.tests", application
+				.getChildren().get(1).getContributorURI());
+		assertEquals(assembledApplication.getChildren().get(0).getChildren()
+				.size(), application.getChildren().get(0).getChildren().size());
+	}
 }
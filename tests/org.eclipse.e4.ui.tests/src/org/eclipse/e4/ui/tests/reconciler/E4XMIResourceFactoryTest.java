@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2010 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,10 @@
 
 package org.eclipse.e4.ui.tests.reconciler;
 
+import java.io.File;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 import org.eclipse.e4.ui.internal.workbench.ModelReconcilingService;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.e4.ui.model.application.commands.MCommand;
@@ -22,6 +25,8 @@ import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
 import org.eclipse.e4.ui.workbench.modeling.IModelReconcilingService;
 import org.eclipse.e4.ui.workbench.modeling.ModelDelta;
 import org.eclipse.e4.ui.workbench.modeling.ModelReconciler;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
 
 public class E4XMIResourceFactoryTest extends ModelReconcilerTest {
 
@@ -107,6 +112,70 @@ public class E4XMIResourceFactoryTest extends ModelReconcilerTest {
 		applyAll(deltas);
 	}
 
+	public void testUniqueIds() {
+		MApplication application = createApplication();
+		for (int i = 0; i < 1000; i++) {
+			MWindow window = createWindow(application);
+			window.getChildren().add(BasicFactoryImpl.eINSTANCE.createPart());
+		}
+
+		Set<String> ids = new HashSet<String>();
+		assertTrue(ids.add(getId(application)));
+		for (MWindow window : application.getChildren()) {
+			assertTrue(ids.add(getId(window)));
+			assertTrue(ids.add(getId(window.getChildren().get(0))));
+		}
+	}
+
+	public void testSaveReplacesFile() {
+		MApplication application = createApplication();
+		MWindow window = createWindow(application);
+		window.setElementId("window1");
+		String windowId = getId(window);
+
+		saveModel();
+		File file = getTemporaryFile();
+		File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+		File backupFile = new File(file.getParentFile(), file.getName() + ".bak");
+		assertTrue(file.exists());
+		assertFalse(tempFile.exists());
+		assertFalse(backupFile.exists());
+
+		window = createWindow(application);
+		window.setElementId("window2");
+		saveModel();
+		assertTrue(file.exists());
+		assertFalse(tempFile.exists());
+		assertFalse(backupFile.exists());
+
+		application = createApplication();
+		assertEquals(2, application.getChildren().size());
+		assertEquals("window1", application.getChildren().get(0).getElementId());
+		assertEquals("window2", application.getChildren().get(1).getElementId());
+		assertEquals(windowId, getId(application.getChildren().get(0)));
+	}
+
+	public void testLoadRestoresBackup() throws Exception {
+		MApplication application = createApplication();
+		MWindow window = createWindow(application);
+		window.setElementId("window1");
+		saveModel();
+
+		// Interrupted while replacing the file with the saved model
+		File file = getTemporaryFile();
+		File backupFile = new File(file.getParentFile(), file.getName() + ".bak");
+		assertTrue(file.renameTo(backupFile));
+
+		Resource resource = createFactory().createResource(
+				URI.createFileURI(file.getAbsolutePath()));
+		resource.load(null);
+		assertTrue(file.exists());
+		assertFalse(backupFile.exists());
+		application = (MApplication) resource.getContents().get(0);
+		assertEquals(1, application.getChildren().size());
+		assertEquals("window1", application.getChildren().get(0).getElementId());
+	}
+
 	@Override
 	protected IModelReconcilingService getModelReconcilingService() {
 		return new ModelReconcilingService();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2010 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -59,6 +59,10 @@ public abstract class ModelResourceTest extends TestCase {
 		temporaryURI = null;
 	}
 
+	protected File getTemporaryFile() {
+		return temporaryFile;
+	}
+
 	protected String getId(MApplicationElement applicationElement) {
 		return getId((EObject) applicationElement);
 	}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.tests.workbench;
+
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import org.eclipse.e4.ui.internal.workbench.swt.DeferredStylingEngine;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Widget;
+import org.w3c.dom.css.CSSStyleDeclaration;
+
+public class DeferredStylingEngineTest extends TestCase {
+
+	private Display display;
+	private Shell shell;
+	private List<Widget> styled;
+	private DeferredStylingEngine engine;
+
+	@Override
+	protected void setUp() throws Exception {
+		display = Display.getDefault();
+		shell = new Shell(display);
+		styled = new ArrayList<Widget>();
+		engine = new DeferredStylingEngine(display) {
+			@Override
+			protected void applyStyles(Widget widget) {
+				styled.add(widget);
+			}
+
+			public CSSStyleDeclaration getStyle(Object widget) {
+				return null;
+			}
+		};
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		engine.dispose();
+		shell.dispose();
+	}
+
+	public void testSubtreeStyledOnce() {
+		Composite composite = new Composite(shell, SWT.NONE);
+		Button button = new Button(composite, SWT.PUSH);
+
+		engine.setClassname(button, "button");
+		engine.setClassname(composite, "composite");
+		engine.setId(shell, "shell");
+		assertTrue(styled.isEmpty());
+
+		engine.flush();
+		assertEquals(1, styled.size());
+		assertSame(shell, styled.get(0));
+		assertEquals(3, engine.getLastFrameRequestCount());
+		assertEquals(1, engine.getLastFrameStyledCount());
+	}
+
+	public void testSiblingsStyled() {
+		Composite composite = new Composite(shell, SWT.NONE);
+		Button buttonA = new Button(composite, SWT.PUSH);
+		Button buttonB = new Button(composite, SWT.PUSH);
+
+		engine.setClassname(buttonA, "a");
+		engine.setClassname(buttonB, "b");
+		engine.flush();
+		assertEquals(2, styled.size());
+		assertTrue(styled.contains(buttonA));
+		assertTrue(styled.contains(buttonB));
+	}
+
+	public void testStyleAppliesImmediately() {
+		Button button = new Button(shell, SWT.PUSH);
+
+		engine.style(button);
+		assertEquals(1, styled.size());
+		assertSame(button, styled.get(0));
+	}
+
+	public void testDisposedWidgetSkipped() {
+		Button button = new Button(shell, SWT.PUSH);
+
+		engine.setClassname(button, "button");
+		button.dispose();
+		engine.flush();
+		assertTrue(styled.isEmpty());
+	}
+
+	public void testFlushedOnEventLoop() {
+		Button button = new Button(shell, SWT.PUSH);
+
+		engine.setClassname(button, "button");
+		while (display.readAndDispatch()) {
+			// process the pending flush
+		}
+		assertEquals(1, styled.size());
+	}
+
+	public void testFlushedBeforeShow() {
+		Button button = new Button(shell, SWT.PUSH);
+
+		engine.setClassname(button, "button");
+		shell.open();
+		assertFalse(styled.isEmpty());
+		assertSame(button, styled.get(0));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2010 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,30 +12,63 @@
 package org.eclipse.e4.ui.tests.workbench;
 
 import junit.framework.TestCase;
+import org.eclipse.e4.core.commands.CommandServiceAddon;
+import org.eclipse.e4.core.commands.EHandlerService;
+import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.di.annotations.CanExecute;
+import org.eclipse.e4.core.di.annotations.Execute;
+import org.eclipse.e4.ui.bindings.BindingServiceAddon;
 import org.eclipse.e4.ui.internal.workbench.E4Workbench;
 import org.eclipse.e4.ui.internal.workbench.swt.E4Application;
 import org.eclipse.e4.ui.internal.workbench.swt.PartRenderingEngine;
 import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.commands.MCommand;
+import org.eclipse.e4.ui.model.application.commands.impl.CommandsFactoryImpl;
 import org.eclipse.e4.ui.model.application.impl.ApplicationFactoryImpl;
 import org.eclipse.e4.ui.model.application.ui.basic.MTrimBar;
 import org.eclipse.e4.ui.model.application.ui.basic.MTrimmedWindow;
 import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
 import org.eclipse.e4.ui.model.application.ui.menu.ItemType;
+import org.eclipse.e4.ui.model.application.ui.menu.MHandledToolItem;
 import org.eclipse.e4.ui.model.application.ui.menu.MToolBar;
 import org.eclipse.e4.ui.model.application.ui.menu.MToolItem;
 import org.eclipse.e4.ui.model.application.ui.menu.impl.MenuFactoryImpl;
+import org.eclipse.e4.ui.services.ContextServiceAddon;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.ToolItem;
 
 public class MToolItemTest extends TestCase {
+	public static class EnablementHandler {
+		boolean enabled;
+		int evaluations = 0;
+
+		public EnablementHandler(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		@CanExecute
+		public boolean canExecute() {
+			evaluations++;
+			return enabled;
+		}
+
+		@Execute
+		public void execute() {
+		}
+	}
+
 	protected IEclipseContext appContext;
 	protected E4Workbench wb;
 
 	@Override
 	protected void setUp() throws Exception {
 		appContext = E4Application.createDefaultContext();
+		ContextInjectionFactory.make(CommandServiceAddon.class, appContext);
+		ContextInjectionFactory.make(ContextServiceAddon.class, appContext);
+		ContextInjectionFactory.make(BindingServiceAddon.class, appContext);
 		appContext.set(E4Workbench.PRESENTATION_URI_ARG,
 				PartRenderingEngine.engineURI);
 	}
@@ -259,4 +292,122 @@ public class MToolItemTest extends TestCase {
 		toolItem2.setSelected(true);
 		assertTrue(toolItemWidget2.getSelection());
 	}
+
+	public void testMHandledToolItem_Enablement() {
+		MTrimmedWindow window = BasicFactoryImpl.eINSTANCE
+				.createTrimmedWindow();
+		MTrimBar trimBar = BasicFactoryImpl.eINSTANCE.createTrimBar();
+		MToolBar toolBar = MenuFactoryImpl.eINSTANCE.createToolBar();
+		MHandledToolItem toolItem = MenuFactoryImpl.eINSTANCE
+				.createHandledToolItem();
+		MCommand command = CommandsFactoryImpl.eINSTANCE.createCommand();
+
+		command.setElementId("commandId");
+		toolItem.setCommand(command);
+
+		window.getTrimBars().add(trimBar);
+		trimBar.getChildren().add(toolBar);
+		toolBar.getChildren().add(toolItem);
+
+		MApplication application = ApplicationFactoryImpl.eINSTANCE
+				.createApplication();
+		application.getChildren().add(window);
+		application.setContext(appContext);
+		appContext.set(MApplication.class.getName(), application);
+
+		wb = new E4Workbench(window, appContext);
+		wb.createAndRunUI(window);
+
+		Object widget = toolItem.getWidget();
+		assertNotNull(widget);
+		assertTrue(widget instanceof ToolItem);
+
+		ToolItem toolItemWidget = (ToolItem) widget;
+
+		// no handler yet
+		processEvents();
+		assertFalse(toolItemWidget.getEnabled());
+
+		EHandlerService service = appContext.get(EHandlerService.class);
+		EnablementHandler handler = new EnablementHandler(true);
+		service.activateHandler("commandId", handler);
+		processEvents();
+		assertTrue(toolItem.isEnabled());
+		assertTrue(toolItemWidget.getEnabled());
+
+		// nothing changed, the enablement must not be evaluated again
+		int evaluations = handler.evaluations;
+		processEvents();
+		assertEquals(evaluations, handler.evaluations);
+
+		service.activateHandler("commandId", new EnablementHandler(false));
+		processEvents();
+		assertFalse(toolItem.isEnabled());
+		assertFalse(toolItemWidget.getEnabled());
+	}
+
+	public void testMHandledToolItem_UntrackedEnablement() {
+		MTrimmedWindow window = BasicFactoryImpl.eINSTANCE
+				.createTrimmedWindow();
+		MTrimBar trimBar = BasicFactoryImpl.eINSTANCE.createTrimBar();
+		MToolBar toolBar = MenuFactoryImpl.eINSTANCE.createToolBar();
+		MHandledToolItem toolItem = MenuFactoryImpl.eINSTANCE
+				.createHandledToolItem();
+		MCommand command = CommandsFactoryImpl.eINSTANCE.createCommand();
+
+		command.setElementId("commandId");
+		toolItem.setCommand(command);
+
+		window.getTrimBars().add(trimBar);
+		trimBar.getChildren().add(toolBar);
+		toolBar.getChildren().add(toolItem);
+
+		MApplication application = ApplicationFactoryImpl.eINSTANCE
+				.createApplication();
+		application.getChildren().add(window);
+		application.setContext(appContext);
+		appContext.set(MApplication.class.getName(), application);
+
+		wb = new E4Workbench(window, appContext);
+		wb.createAndRunUI(window);
+
+		ToolItem toolItemWidget = (ToolItem) toolItem.getWidget();
+
+		EHandlerService service = appContext.get(EHandlerService.class);
+		EnablementHandler handler = new EnablementHandler(true);
+		service.activateHandler("commandId", handler);
+		processEvents();
+		assertTrue(toolItemWidget.getEnabled());
+
+		// the handler changes its enablement without any context change
+		handler.enabled = false;
+		waitForEnablement(toolItemWidget, false);
+		assertFalse(toolItem.isEnabled());
+		assertFalse(toolItemWidget.getEnabled());
+
+		handler.enabled = true;
+		waitForEnablement(toolItemWidget, true);
+		assertTrue(toolItem.isEnabled());
+		assertTrue(toolItemWidget.getEnabled());
+	}
+
+	private void waitForEnablement(ToolItem toolItemWidget, boolean enabled) {
+		Display display = Display.getCurrent();
+		long stop = System.currentTimeMillis() + 5000;
+		while (toolItemWidget.getEnabled() != enabled
+				&& System.currentTimeMillis() < stop) {
+			if (!display.readAndDispatch()) {
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+				}
+			}
+		}
+	}
+
+	private void processEvents() {
+		Display display = Display.getCurrent();
+		while (display.readAndDispatch())
+			;
+	}
 }
@@ -14,6 +14,7 @@ package org.eclipse.core.tests.databinding.observable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import junit.framework.TestCase;
@@ -256,8 +257,65 @@ public class Diffs_ListDiffTests extends TestCase {
 				Arrays.asList(new Object[] { "c", "a", "b" }));
 	}
 
+	public void testComputeListDiff_Indexed() {
+		String[][] lists = { {}, { "a" }, { "b" }, { "a", "b" }, { "b", "a" },
+				{ "a", "b", "c" }, { "c", "b", "a" }, { "b", "c", "a" },
+				{ "a", null, "c" }, { "a", "a", "b" }, { "b", "a", "a", "c" } };
+		for (int i = 0; i < lists.length; i++) {
+			for (int j = 0; j < lists.length; j++) {
+				checkComputedListDiff(Arrays.asList(lists[i]), Arrays
+						.asList(lists[j]), true);
+			}
+		}
+	}
+
+	public void testComputeListDiff_IndexedReportsMoves() {
+		ListDiff diff = Diffs.computeListDiff(Arrays.asList(new Object[] { "a",
+				"b", "c", "d" }), Arrays.asList(new Object[] { "b", "c", "d",
+				"a" }), true);
+		assertEquals(2, diff.getDifferences().length);
+		assertEntry(diff.getDifferences()[0], false, 0, "a");
+		assertEntry(diff.getDifferences()[1], true, 3, "a");
+	}
+
+	public void testComputeListDiff_IndexedReportsReplace() {
+		ListDiff diff = Diffs.computeListDiff(Arrays.asList(new Object[] { "a",
+				"b", "c" }), Arrays.asList(new Object[] { "a", "x", "c" }), true);
+		assertEquals(2, diff.getDifferences().length);
+		assertEntry(diff.getDifferences()[0], false, 1, "b");
+		assertEntry(diff.getDifferences()[1], true, 1, "x");
+	}
+
+	public void testComputeListDiff_LargeLists() {
+		List oldList = new ArrayList();
+		for (int i = 0; i < 1000; i++) {
+			oldList.add(new Integer(i % 300));
+		}
+		List newList = new ArrayList(oldList);
+		Collections.reverse(newList.subList(100, 200));
+		newList.remove(500);
+		newList.add(700, "x");
+		newList.add(newList.remove(10));
+		newList.subList(900, 950).clear();
+		checkComputedListDiff(oldList, newList);
+		checkComputedListDiff(newList, oldList);
+		checkComputedListDiff(oldList, newList, true);
+		checkComputedListDiff(oldList, newList, false);
+	}
+
 	private static void checkComputedListDiff(List oldList, List newList) {
-		ListDiff diff = Diffs.computeListDiff(oldList, newList);
+		checkComputedListDiff(Diffs.computeListDiff(oldList, newList), oldList,
+				newList);
+	}
+
+	private static void checkComputedListDiff(List oldList, List newList,
+			boolean indexed) {
+		checkComputedListDiff(Diffs.computeListDiff(oldList, newList, indexed),
+				oldList, newList);
+	}
+
+	private static void checkComputedListDiff(ListDiff diff, List oldList,
+			List newList) {
 
 		final List list = new ArrayList(oldList);
 		diff.accept(new ListDiffVisitor() {
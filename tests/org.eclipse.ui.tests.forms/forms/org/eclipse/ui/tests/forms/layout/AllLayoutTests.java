@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,7 @@ public class AllLayoutTests {
 		//$JUnit-BEGIN$
 		suite.addTestSuite(TestTableWrapLayout.class);
 		suite.addTestSuite(TestColumnWrapLayout.class);
+		suite.addTestSuite(TestFormTextLayout.class);
 		//$JUnit-END$
 		return suite;
 	}
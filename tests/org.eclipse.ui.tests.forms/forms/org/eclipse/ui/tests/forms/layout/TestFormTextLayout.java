@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.tests.forms.layout;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.forms.widgets.FormText;
+
+public class TestFormTextLayout extends TestCase {
+
+	private static final String TEXT = "<form><p>Some text that is long enough to wrap "
+			+ "when the form text is narrow, with a <b>bold</b> word.</p>"
+			+ "<li>A bullet</li><p>An image <img href=\"image\"/> in a paragraph.</p></form>";
+
+	private Display display;
+
+	private Shell shell;
+
+	private FormText formText;
+
+	protected void setUp() throws Exception {
+		display = PlatformUI.getWorkbench().getDisplay();
+		shell = new Shell(display);
+		shell.setSize(400, 300);
+		shell.setLayout(new FillLayout());
+		formText = new FormText(shell, SWT.NONE);
+	}
+
+	protected void tearDown() throws Exception {
+		shell.dispose();
+	}
+
+	/**
+	 * Test that the cached sizes are the sizes computed for the width hint.
+	 */
+	public void testComputeSizeForWidth() {
+		formText.setText(TEXT, true, false);
+		Point wide = formText.computeSize(SWT.DEFAULT, SWT.DEFAULT);
+		Point narrow = formText.computeSize(100, SWT.DEFAULT);
+		assertTrue(narrow.y > wide.y);
+		assertEquals(wide, formText.computeSize(SWT.DEFAULT, SWT.DEFAULT));
+		assertEquals(narrow, formText.computeSize(100, SWT.DEFAULT));
+	}
+
+	/**
+	 * Test that registering an image changes the size of the paragraphs using
+	 * it.
+	 */
+	public void testSetImage() {
+		formText.setText(TEXT, true, false);
+		Point before = formText.computeSize(SWT.DEFAULT, SWT.DEFAULT);
+		Image image = new Image(display, 40, 200);
+		try {
+			formText.setImage("image", image);
+			Point after = formText.computeSize(SWT.DEFAULT, SWT.DEFAULT);
+			assertTrue(after.y >= before.y + 150);
+		} finally {
+			image.dispose();
+		}
+	}
+
+	/**
+	 * Test that the text parsed in the background is rendered, unless another
+	 * text is set in the meantime.
+	 */
+	public void testSetTextInBackground() {
+		formText.setText(TEXT, true, false);
+		Point expected = formText.computeSize(200, SWT.DEFAULT);
+		formText.setText("", false, false);
+		Point empty = formText.computeSize(200, SWT.DEFAULT);
+
+		formText.setTextInBackground(TEXT, true, false);
+		waitFor(expected);
+		assertEquals(expected, formText.computeSize(200, SWT.DEFAULT));
+
+		formText.setTextInBackground(TEXT, true, false);
+		formText.setText("", false, false);
+		waitFor(expected);
+		assertEquals(empty, formText.computeSize(200, SWT.DEFAULT));
+	}
+
+	private void waitFor(Point size) {
+		long stop = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < stop
+				&& !size.equals(formText.computeSize(200, SWT.DEFAULT))) {
+			if (!display.readAndDispatch()) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+				}
+			}
+		}
+	}
+}
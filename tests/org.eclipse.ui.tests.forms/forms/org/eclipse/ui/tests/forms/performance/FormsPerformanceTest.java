@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007 IBM Corporation and others.
+ * Copyright (c) 2007, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -92,6 +92,51 @@ public class FormsPerformanceTest extends PerformanceTestCase {
 		assertPerformance();
 	}
 	
+	public void test_resizeFormText() {
+		tagAsSummary("Resize Form Text", Dimension.ELAPSED_PROCESS);
+
+		Display display = PlatformUI.getWorkbench().getDisplay();
+		FormToolkit toolkit = new FormToolkit(display);
+		Shell shell = new Shell(display);
+		shell.setSize(600, 400);
+		shell.setLayout(new FillLayout());
+		ScrolledForm form = toolkit.createScrolledForm(shell);
+		form.getBody().setLayout(new TableWrapLayout());
+		FormText formText = toolkit.createFormText(form.getBody(), false);
+		formText.setLayoutData(new TableWrapData(TableWrapData.FILL_GRAB));
+		StringBuffer buf = new StringBuffer();
+		buf.append("<form>");
+		for (int i = 0; i < 200; i++) {
+			buf.append("<p>Paragraph ").append(i);
+			buf.append(" has some <b>bold</b> text and a <a href=\"link\">link</a>, ");
+			buf.append("and is long enough to wrap a few times when the form gets narrow.</p>");
+			buf.append("<li>A bullet with some more text.</li>");
+		}
+		buf.append("</form>");
+		formText.setText(buf.toString(), true, false);
+		shell.open();
+		form.reflow(true);
+		while(display.readAndDispatch()){/*empty*/}
+
+		for(int samples = 0; samples < 20; samples++) {
+			startMeasuring();
+			for (int width = 600; width >= 300; width -= 10) {
+				shell.setSize(width, 400);
+				form.reflow(true);
+			}
+			for (int width = 300; width <= 600; width += 10) {
+				shell.setSize(width, 400);
+				form.reflow(true);
+			}
+			stopMeasuring();
+			while(display.readAndDispatch()){/*empty*/}
+		}
+		shell.dispose();
+		toolkit.dispose();
+		commitMeasurements();
+		assertPerformance();
+	}
+
 	public void createPartControl(Composite parent, FormToolkit toolkit) {
 		//Label l = new Label(parent, SWT.NULL);
 		//l.setText ("a label");
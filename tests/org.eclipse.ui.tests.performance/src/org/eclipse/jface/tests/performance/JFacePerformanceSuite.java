@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2009 IBM Corporation and others.
+ * Copyright (c) 2005, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -40,6 +40,9 @@ public class JFacePerformanceSuite extends FilteredTestSuite {
 		addTest(new ComboViewerRefreshTest("testRefreshSmall"));
 		addTest(new FastTableViewerRefreshTest("testRefreshMultiple"));
 		addTest(new FastTableViewerRefreshTest("testUpdateMultiple"));
+		addTest(new TableViewerSelectionTest("testSetSelection"));
+		addTest(new TableViewerSelectionTest("testReveal"));
+		addTest(new TableViewerSelectionTest("testUpdate"));
 		addTest(new FastTreeTest("testAddTenTenTimes"));
 		addTest(new FastTreeTest("testAddFiftyTenTimes"));
 		addTest(new TreeAddTest("testAddThousand"));
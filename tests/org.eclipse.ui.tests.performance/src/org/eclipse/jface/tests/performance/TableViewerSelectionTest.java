@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.tests.performance;
+
+import org.eclipse.jface.viewers.StructuredSelection;
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.tests.performance.TestRunnable;
+
+/**
+ * The TableViewerSelectionTest tests selecting, revealing and updating
+ * elements of a large TableViewer that does not use hash lookup.
+ *
+ * @since 3.9
+ */
+public class TableViewerSelectionTest extends ViewerTest {
+
+	private static final int SELECTION_SIZE = 1000;
+
+	TableViewer viewer;
+
+	public TableViewerSelectionTest(String testName, int tagging) {
+		super(testName, tagging);
+	}
+
+	public TableViewerSelectionTest(String testName) {
+		super(testName);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.tests.performance.ViewerTest#openBrowser()
+	 */
+	protected void openBrowser() {
+		// Same as ViewerTest but without hash lookup
+		Display display = Display.getCurrent();
+		if (display == null) {
+			display = new Display();
+		}
+		browserShell = new Shell(display);
+		browserShell.setSize(500, 500);
+		browserShell.setLayout(new FillLayout());
+		createViewer(browserShell);
+		viewer.setInput(getInitialInput());
+		browserShell.open();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.tests.performance.ViewerTest#createViewer(org.eclipse.swt.widgets.Shell)
+	 */
+	protected StructuredViewer createViewer(Shell shell) {
+		viewer = new TableViewer(shell);
+		viewer.setContentProvider(new RefreshTestContentProvider(
+				RefreshTestContentProvider.ELEMENT_COUNT));
+		viewer.setLabelProvider(getLabelProvider());
+		return viewer;
+	}
+
+	/**
+	 * Return every tenth element of the table.
+	 *
+	 * @return Object[]
+	 */
+	private Object[] getSelectedElements() {
+		Object[] elements = new Object[SELECTION_SIZE];
+		int step = RefreshTestContentProvider.ELEMENT_COUNT / SELECTION_SIZE;
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = RefreshTestContentProvider.allElements[i * step];
+		}
+		return elements;
+	}
+
+	/**
+	 * Test the time for selecting many elements without revealing them.
+	 *
+	 * @throws Throwable
+	 */
+	public void testSetSelection() throws Throwable {
+		openBrowser();
+		final StructuredSelection selection = new StructuredSelection(
+				getSelectedElements());
+
+		exercise(new TestRunnable() {
+			public void run() {
+				viewer.setSelection(StructuredSelection.EMPTY);
+				processEvents();
+				startMeasuring();
+				viewer.setSelection(selection);
+				processEvents();
+				stopMeasuring();
+			}
+		}, MIN_ITERATIONS, slowGTKIterations(),
+				JFacePerformanceSuite.MAX_TIME);
+
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Test the time for selecting and revealing single elements.
+	 *
+	 * @throws Throwable
+	 */
+	public void testReveal() throws Throwable {
+		openBrowser();
+		final Object[] elements = getSelectedElements();
+
+		exercise(new TestRunnable() {
+			public void run() {
+				startMeasuring();
+				for (int i = elements.length - 1; i >= 0; i -= 10) {
+					viewer.setSelection(new StructuredSelection(elements[i]),
+							true);
+				}
+				processEvents();
+				stopMeasuring();
+			}
+		}, MIN_ITERATIONS, slowGTKIterations(),
+				JFacePerformanceSuite.MAX_TIME);
+
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Test the time for updating many elements.
+	 *
+	 * @throws Throwable
+	 */
+	public void testUpdate() throws Throwable {
+		openBrowser();
+		final Object[] elements = getSelectedElements();
+
+		exercise(new TestRunnable() {
+			public void run() {
+				startMeasuring();
+				viewer.update(elements, null);
+				processEvents();
+				stopMeasuring();
+			}
+		}, MIN_ITERATIONS, slowGTKIterations(),
+				JFacePerformanceSuite.MAX_TIME);
+
+		commitMeasurements();
+		assertPerformance();
+	}
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.ui.internal.wizards.datatransfer.ArchiveFileExportOperation;
+
+/**
+ * Measures the throughput of exporting a project with many files to zip and
+ * tar archives, with and without compression.
+ *
+ * @since 3.9
+ */
+public class ArchiveExportPerformanceTest extends BasicPerformanceTest {
+
+	private static final String PROJECT_NAME = "ArchiveExportPerformance";
+
+	private static final int SEED = 1001001;
+
+	private static final int FOLDER_COUNT = 50;
+
+	private static final int FILES_PER_FOLDER = 200;
+
+	/**
+	 * A file larger than what the zip exporter compresses in memory.
+	 */
+	private static final int LARGE_FILE_SIZE = 4 * 1024 * 1024;
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite("Archive export performance");
+		suite.addTest(new ArchiveExportPerformanceTest(false, true));
+		suite.addTest(new ArchiveExportPerformanceTest(false, false));
+		suite.addTest(new ArchiveExportPerformanceTest(true, true));
+		suite.addTest(new ArchiveExportPerformanceTest(true, false));
+		return suite;
+	}
+
+	private final boolean tar;
+
+	private final boolean compress;
+
+	public ArchiveExportPerformanceTest(boolean tar, boolean compress) {
+		super("testArchiveExport:" + (tar ? "tar" : "zip")
+				+ (compress ? ", compressed" : ", uncompressed"));
+		this.tar = tar;
+		this.compress = compress;
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		createProject();
+	}
+
+	protected void runTest() throws Throwable {
+		final IProject project = ResourcesPlugin.getWorkspace().getRoot()
+				.getProject(PROJECT_NAME);
+		final File archive = File.createTempFile("export", tar ? ".tar.gz"
+				: ".zip");
+		try {
+			exercise(new TestRunnable() {
+				public void run() throws Exception {
+					archive.delete();
+					ArchiveFileExportOperation operation = new ArchiveFileExportOperation(
+							project, archive.getAbsolutePath());
+					operation.setUseTarFormat(tar);
+					operation.setUseCompression(compress);
+					startMeasuring();
+					operation.run(new NullProgressMonitor());
+					stopMeasuring();
+					assertTrue(operation.getStatus().isOK());
+				}
+			});
+		} finally {
+			archive.delete();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Creates the exported project once. The files are partly random so that
+	 * they do not all compress equally well.
+	 */
+	private static void createProject() throws CoreException {
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(
+				PROJECT_NAME);
+		if (project.exists()) {
+			return;
+		}
+		project.create(new NullProgressMonitor());
+		project.open(new NullProgressMonitor());
+		Random random = new Random(SEED);
+		for (int i = 0; i < FOLDER_COUNT; i++) {
+			IFolder folder = project.getFolder("folder" + i);
+			folder.create(true, true, new NullProgressMonitor());
+			for (int j = 0; j < FILES_PER_FOLDER; j++) {
+				StringBuffer contents = new StringBuffer();
+				int lines = 10 + random.nextInt(200);
+				for (int line = 0; line < lines; line++) {
+					contents.append("line ").append(line).append(": ")
+							.append(Long.toString(random.nextLong(), 36))
+							.append('\n');
+				}
+				IFile file = folder.getFile("file" + j + ".txt");
+				file.create(new ByteArrayInputStream(contents.toString()
+						.getBytes()), true, new NullProgressMonitor());
+			}
+		}
+		byte[] large = new byte[LARGE_FILE_SIZE];
+		random.nextBytes(large);
+		project.getFile("large.bin").create(new ByteArrayInputStream(large),
+				true, new NullProgressMonitor());
+	}
+}
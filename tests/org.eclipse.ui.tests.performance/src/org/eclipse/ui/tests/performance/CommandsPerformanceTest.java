@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -450,6 +450,39 @@ public final class CommandsPerformanceTest extends BasicPerformanceTest {
 		assertPerformance();
 	}
 
+	/**
+	 * <p>
+	 * Tests how long it takes to switch between sets of active contexts that
+	 * are not cached, as happens when parts with different contexts are
+	 * activated. Each switch computes the active bindings of a new set of
+	 * contexts.
+	 * </p>
+	 * 
+	 * @throws ParseException
+	 *             If "CTRL+F" can't be parsed for some strange reason.
+	 */
+	public final void testBindingCacheMissContextSwitch() throws ParseException {
+		// Constants
+		final KeySequence keySequence = KeySequence.getInstance("CTRL+F");
+
+		// Compute once, so that only the context changes are measured.
+		final List contextList = new ArrayList(contextManager
+				.getActiveContextIds());
+		bindingManager.getPartialMatches(keySequence);
+
+		// Time how long it takes to solve each set of contexts.
+		startMeasuring();
+		for (int i = 0; i < contextList.size(); i++) {
+			final Set contextSet = new HashSet(contextList);
+			contextSet.remove(contextList.get(i));
+			contextManager.setActiveContextIds(contextSet);
+			bindingManager.getPartialMatches(keySequence);
+		}
+		stopMeasuring();
+		commitMeasurements();
+		assertPerformance();
+	}
+
 	/**
 	 * <p>
 	 * Tests how long it takes to do a full computation (i.e., a cache miss) on
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.e4.core.services.events.IEventBroker;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.workbench.UIEvents;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * Measures the time to deliver events through the {@link IEventBroker},
+ * compared to sending them through the Event Admin to event handler services,
+ * and the time spent publishing the events of model changes.
+ *
+ * @since 3.9
+ */
+public class EventBrokerPerformanceTest extends BasicPerformanceTest {
+
+	private static final String TOPIC = "org/eclipse/ui/tests/performance/EventBrokerPerformanceTest"; //$NON-NLS-1$
+
+	private static final String TAG = "EventBrokerPerformanceTest"; //$NON-NLS-1$
+
+	private static final int EVENTS = 10000;
+
+	private static final int MODEL_CHANGES = 1000;
+
+	private static final int[] SUBSCRIBERS = { 0, 1, 10 };
+
+	private static final int EVENT_BROKER = 0;
+	private static final int EVENT_ADMIN = 1;
+	private static final int MODEL = 2;
+
+	private static final String[] MODE_NAMES = { "event broker", //$NON-NLS-1$
+			"event admin", "model changes" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite("Event broker performance"); //$NON-NLS-1$
+		for (int i = 0; i < SUBSCRIBERS.length; i++) {
+			suite.addTest(new EventBrokerPerformanceTest(EVENT_BROKER,
+					SUBSCRIBERS[i]));
+			suite.addTest(new EventBrokerPerformanceTest(EVENT_ADMIN,
+					SUBSCRIBERS[i]));
+		}
+		suite.addTest(new EventBrokerPerformanceTest(MODEL, 0));
+		return suite;
+	}
+
+	private final int mode;
+
+	private final int subscribers;
+
+	private int received;
+
+	private final EventHandler handler = new EventHandler() {
+		public void handleEvent(Event event) {
+			received++;
+		}
+	};
+
+	public EventBrokerPerformanceTest(int mode, int subscribers) {
+		super("testEvents:" + MODE_NAMES[mode] //$NON-NLS-1$
+				+ (mode == MODEL ? "" : ", " + subscribers + " subscribers")); //$NON-NLS-1$ //$NON-NLS-2$
+		this.mode = mode;
+		this.subscribers = subscribers;
+	}
+
+	protected void runTest() throws Throwable {
+		switch (mode) {
+		case EVENT_BROKER:
+			runEventBrokerTest();
+			break;
+		case EVENT_ADMIN:
+			runEventAdminTest();
+			break;
+		case MODEL:
+			runModelTest();
+			break;
+		}
+	}
+
+	private void runEventBrokerTest() throws Throwable {
+		final IEventBroker broker = (IEventBroker) fWorkbench
+				.getService(IEventBroker.class);
+		List handlers = new ArrayList();
+		for (int i = 0; i < subscribers; i++) {
+			EventHandler subscriber = new EventHandler() {
+				public void handleEvent(Event event) {
+					handler.handleEvent(event);
+				}
+			};
+			broker.subscribe(TOPIC, null, subscriber, true);
+			handlers.add(subscriber);
+		}
+		try {
+			received = 0;
+			exercise(new TestRunnable() {
+				public void run() throws Exception {
+					startMeasuring();
+					for (int i = 0; i < EVENTS; i++) {
+						Map data = new HashMap();
+						data.put(UIEvents.EventTags.ELEMENT, TAG);
+						broker.send(TOPIC, data);
+					}
+					stopMeasuring();
+				}
+			});
+			commitMeasurements();
+			assertPerformance();
+		} finally {
+			for (Iterator i = handlers.iterator(); i.hasNext();) {
+				broker.unsubscribe((EventHandler) i.next());
+			}
+		}
+		assertEquals(0, received % EVENTS);
+	}
+
+	private void runEventAdminTest() throws Throwable {
+		BundleContext context = UIPerformancePlugin.getDefault().getContext();
+		ServiceReference reference = context
+				.getServiceReference(EventAdmin.class.getName());
+		assertNotNull(reference);
+		final EventAdmin eventAdmin = (EventAdmin) context
+				.getService(reference);
+		List registrations = new ArrayList();
+		for (int i = 0; i < subscribers; i++) {
+			Dictionary properties = new Hashtable();
+			properties.put(EventConstants.EVENT_TOPIC, new String[] { TOPIC });
+			registrations.add(context.registerService(EventHandler.class
+					.getName(), new EventHandler() {
+				public void handleEvent(Event event) {
+					handler.handleEvent(event);
+				}
+			}, properties));
+		}
+		try {
+			received = 0;
+			exercise(new TestRunnable() {
+				public void run() throws Exception {
+					startMeasuring();
+					for (int i = 0; i < EVENTS; i++) {
+						Map data = new HashMap();
+						data.put(UIEvents.EventTags.ELEMENT, TAG);
+						Dictionary properties = new Hashtable(2);
+						properties.put(EventConstants.EVENT_TOPIC, TOPIC);
+						properties.put(IEventBroker.DATA, data);
+						eventAdmin.sendEvent(new Event(TOPIC, properties));
+					}
+					stopMeasuring();
+				}
+			});
+			commitMeasurements();
+			assertPerformance();
+		} finally {
+			for (Iterator i = registrations.iterator(); i.hasNext();) {
+				((ServiceRegistration) i.next()).unregister();
+			}
+			context.ungetService(reference);
+		}
+		assertEquals(0, received % EVENTS);
+	}
+
+	private void runModelTest() throws Throwable {
+		final MApplication application = (MApplication) fWorkbench
+				.getService(MApplication.class);
+		exercise(new TestRunnable() {
+			public void run() throws Exception {
+				startMeasuring();
+				for (int i = 0; i < MODEL_CHANGES; i++) {
+					application.getTags().add(TAG);
+					application.getTags().remove(TAG);
+				}
+				stopMeasuring();
+			}
+		});
+		commitMeasurements();
+		assertPerformance();
+	}
+}
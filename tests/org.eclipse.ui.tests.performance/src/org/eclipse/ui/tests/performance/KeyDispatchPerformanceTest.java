@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Shell;
+
+/**
+ * Measures the typing latency in a text widget of the workbench, where every
+ * key down event passes through the key binding dispatcher before it reaches
+ * the widget. None of the key strokes typed are bound.
+ *
+ * @since 3.9
+ */
+public class KeyDispatchPerformanceTest extends BasicPerformanceTest {
+
+	private static final int KEY_STROKES = 10000;
+
+	private static final String TYPED = "abcdefghijklmnopqrstuvwxyz0123456789 .,;ABCDEFGHIJKLMNOPQRSTUVWXYZ(){}"; //$NON-NLS-1$
+
+	public KeyDispatchPerformanceTest(String testName) {
+		super(testName);
+	}
+
+	public void testTyping() throws Throwable {
+		final Shell shell = new Shell(fWorkbench.getDisplay());
+		try {
+			shell.setLayout(new FillLayout());
+			final StyledText text = new StyledText(shell, SWT.MULTI
+					| SWT.V_SCROLL);
+			shell.setBounds(100, 100, 400, 300);
+			shell.open();
+			text.setFocus();
+			processEvents();
+
+			exercise(new TestRunnable() {
+				public void run() throws Exception {
+					text.setText(""); //$NON-NLS-1$
+					startMeasuring();
+					for (int i = 0; i < KEY_STROKES; i++) {
+						type(text, TYPED.charAt(i % TYPED.length()));
+					}
+					stopMeasuring();
+					processEvents();
+				}
+			});
+			commitMeasurements();
+			assertPerformance();
+			assertTrue(text.getCharCount() >= KEY_STROKES);
+		} finally {
+			shell.dispose();
+		}
+	}
+
+	private static void type(StyledText text, char character) {
+		Event event = new Event();
+		event.type = SWT.KeyDown;
+		event.character = character;
+		event.keyCode = Character.toLowerCase(character);
+		if (Character.isUpperCase(character) || "(){}".indexOf(character) >= 0) { //$NON-NLS-1$
+			event.stateMask = SWT.SHIFT;
+		}
+		text.notifyListeners(SWT.KeyDown, event);
+	}
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.core.databinding.observable.Diffs;
+
+/**
+ * Compares the indexed and the non-indexed algorithms of
+ * {@link Diffs#computeListDiff(List, List, boolean)} on lists of different
+ * sizes and with different edit patterns.
+ *
+ * @since 3.9
+ */
+public class ListDiffPerformanceTest extends BasicPerformanceTest {
+
+	private static final int SEED = 1001001;
+
+	private static final int[] SIZES = { 1000, 10000, 100000 };
+
+	/**
+	 * The non-indexed algorithm is quadratic, it is only measured up to this
+	 * size.
+	 */
+	private static final int MAX_NON_INDEXED_SIZE = 10000;
+
+	private static final int SCATTERED_EDITS = 0;
+	private static final int SHUFFLE = 1;
+	private static final int REVERSE = 2;
+	private static final int REPLACE_ALL = 3;
+
+	private static final String[] PATTERN_NAMES = { "scattered edits",
+			"shuffle", "reverse", "replace all" };
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite("List diff performance");
+		for (int pattern = 0; pattern < PATTERN_NAMES.length; pattern++) {
+			for (int i = 0; i < SIZES.length; i++) {
+				suite.addTest(new ListDiffPerformanceTest(SIZES[i], pattern,
+						true));
+				if (SIZES[i] <= MAX_NON_INDEXED_SIZE) {
+					suite.addTest(new ListDiffPerformanceTest(SIZES[i],
+							pattern, false));
+				}
+			}
+		}
+		return suite;
+	}
+
+	private final int size;
+
+	private final int pattern;
+
+	private final boolean indexed;
+
+	public ListDiffPerformanceTest(int size, int pattern, boolean indexed) {
+		super("testListDiff:" + (indexed ? "indexed" : "non-indexed") + ", "
+				+ PATTERN_NAMES[pattern] + ", " + size + " elements");
+		this.size = size;
+		this.pattern = pattern;
+		this.indexed = indexed;
+	}
+
+	protected void runTest() throws Throwable {
+		final List oldList = new ArrayList(size);
+		for (int i = 0; i < size; i++) {
+			oldList.add("element" + i);
+		}
+		final List newList = createNewList(oldList, new Random(SEED));
+
+		exercise(new TestRunnable() {
+			public void run() throws Exception {
+				startMeasuring();
+				Diffs.computeListDiff(oldList, newList, indexed);
+				stopMeasuring();
+			}
+		});
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private List createNewList(List oldList, Random random) {
+		List newList = new ArrayList(oldList);
+		switch (pattern) {
+		case SCATTERED_EDITS:
+			for (int i = 0; i < size / 100; i++) {
+				newList.remove(random.nextInt(newList.size()));
+				newList.add(random.nextInt(newList.size()), "added" + i);
+				newList.add(random.nextInt(newList.size()), newList
+						.remove(random.nextInt(newList.size())));
+			}
+			break;
+		case SHUFFLE:
+			Collections.shuffle(newList, random);
+			break;
+		case REVERSE:
+			Collections.reverse(newList);
+			break;
+		case REPLACE_ALL:
+			for (int i = 0; i < size; i++) {
+				newList.set(i, "replacement" + i);
+			}
+			break;
+		}
+		return newList;
+	}
+}
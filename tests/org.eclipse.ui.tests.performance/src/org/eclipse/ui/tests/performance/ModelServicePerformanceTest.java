@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.impl.ApplicationFactoryImpl;
+import org.eclipse.e4.ui.model.application.ui.advanced.MArea;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPerspective;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPerspectiveStack;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPlaceholder;
+import org.eclipse.e4.ui.model.application.ui.advanced.impl.AdvancedFactoryImpl;
+import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartSashContainer;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
+import org.eclipse.e4.ui.model.application.ui.basic.MTrimmedWindow;
+import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
+import org.eclipse.e4.ui.workbench.modeling.EModelService;
+
+/**
+ * Measures the time to look up elements in a model of about 5000 elements
+ * through the {@link EModelService}.
+ *
+ * @since 3.9
+ */
+public class ModelServicePerformanceTest extends BasicPerformanceTest {
+
+	private static final int PERSPECTIVES = 10;
+
+	private static final int STACKS = 20;
+
+	private static final int PARTS = 24;
+
+	private static final int LOOKUPS = 1000;
+
+	private static final int FIND_BY_ID = 0;
+	private static final int FIND_BY_TYPE = 1;
+	private static final int FIND_BY_TAG = 2;
+	private static final int FIND_IN_SHARED_AREA = 3;
+
+	private static final String[] MODE_NAMES = { "find by id", //$NON-NLS-1$
+			"find by type", "find by tag", "find in shared area" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite("Model service performance"); //$NON-NLS-1$
+		for (int i = 0; i < MODE_NAMES.length; i++) {
+			suite.addTest(new ModelServicePerformanceTest(i));
+		}
+		return suite;
+	}
+
+	private final int mode;
+
+	private MApplication application;
+
+	private MTrimmedWindow window;
+
+	public ModelServicePerformanceTest(int mode) {
+		super("testFindElements:" + MODE_NAMES[mode]); //$NON-NLS-1$
+		this.mode = mode;
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		application = createApplication();
+	}
+
+	protected void doTearDown() throws Exception {
+		application = null;
+		window = null;
+		super.doTearDown();
+	}
+
+	/**
+	 * Creates an application with a window containing perspectives of part
+	 * stacks, and a shared area referenced by all the perspectives.
+	 */
+	private MApplication createApplication() {
+		MApplication application = ApplicationFactoryImpl.eINSTANCE
+				.createApplication();
+		window = BasicFactoryImpl.eINSTANCE.createTrimmedWindow();
+		application.getChildren().add(window);
+
+		MArea area = AdvancedFactoryImpl.eINSTANCE.createArea();
+		area.setElementId("area"); //$NON-NLS-1$
+		MPartStack editorStack = BasicFactoryImpl.eINSTANCE.createPartStack();
+		area.getChildren().add(editorStack);
+		for (int i = 0; i < PARTS; i++) {
+			MPart editor = BasicFactoryImpl.eINSTANCE.createPart();
+			editor.setElementId("editor." + i); //$NON-NLS-1$
+			editorStack.getChildren().add(editor);
+		}
+		window.getSharedElements().add(area);
+
+		MPerspectiveStack perspectiveStack = AdvancedFactoryImpl.eINSTANCE
+				.createPerspectiveStack();
+		window.getChildren().add(perspectiveStack);
+		for (int p = 0; p < PERSPECTIVES; p++) {
+			MPerspective perspective = AdvancedFactoryImpl.eINSTANCE
+					.createPerspective();
+			perspective.setElementId("perspective." + p); //$NON-NLS-1$
+			perspectiveStack.getChildren().add(perspective);
+
+			MPartSashContainer sash = BasicFactoryImpl.eINSTANCE
+					.createPartSashContainer();
+			perspective.getChildren().add(sash);
+			MPlaceholder placeholder = AdvancedFactoryImpl.eINSTANCE
+					.createPlaceholder();
+			placeholder.setRef(area);
+			sash.getChildren().add(placeholder);
+
+			for (int s = 0; s < STACKS; s++) {
+				MPartStack stack = BasicFactoryImpl.eINSTANCE.createPartStack();
+				stack.getTags().add("tag." + s); //$NON-NLS-1$
+				sash.getChildren().add(stack);
+				for (int i = 0; i < PARTS; i++) {
+					MPart part = BasicFactoryImpl.eINSTANCE.createPart();
+					part.setElementId("part." + p + '.' + s + '.' + i); //$NON-NLS-1$
+					stack.getChildren().add(part);
+				}
+			}
+		}
+		perspectiveStack.setSelectedElement((MPerspective) perspectiveStack
+				.getChildren().get(0));
+		return application;
+	}
+
+	protected void runTest() throws Throwable {
+		final EModelService modelService = (EModelService) fWorkbench
+				.getService(EModelService.class);
+		assertTrue(modelService.findElements(application, null, null, null)
+				.size() >= 5000);
+
+		exercise(new TestRunnable() {
+			public void run() throws Exception {
+				startMeasuring();
+				for (int i = 0; i < LOOKUPS; i++) {
+					lookUp(modelService, i);
+				}
+				stopMeasuring();
+			}
+		});
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private void lookUp(EModelService modelService, int i) {
+		switch (mode) {
+		case FIND_BY_ID:
+			String id = "part." + (i % PERSPECTIVES) + '.' + (i % STACKS) + '.' + (i % PARTS); //$NON-NLS-1$
+			assertNotNull(modelService.find(id, application));
+			break;
+		case FIND_BY_TYPE:
+			assertEquals(PERSPECTIVES * STACKS + 1, modelService.findElements(
+					application, null, MPartStack.class, null).size());
+			break;
+		case FIND_BY_TAG:
+			List tags = Collections.singletonList("tag." + (i % STACKS)); //$NON-NLS-1$
+			assertEquals(PERSPECTIVES, modelService.findElements(application,
+					null, null, tags).size());
+			break;
+		case FIND_IN_SHARED_AREA:
+			assertEquals(PARTS, modelService.findElements(window, null,
+					MPart.class, null, EModelService.GLOBAL).size());
+			break;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.e4.emf.xpath.CompiledXPath;
+import org.eclipse.e4.emf.xpath.EcoreXPathContextFactory;
+import org.eclipse.e4.emf.xpath.XPathContext;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.MApplicationFactory;
+import org.eclipse.e4.ui.model.application.ui.basic.MBasicFactory;
+import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
+import org.eclipse.e4.ui.model.application.ui.basic.MTrimmedWindow;
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * Measures the time to query a large application model with xpaths passed as
+ * strings, which are evaluated by JXPath, and with compiled xpaths. The
+ * compiled path is evaluated directly on the model, the compiled descendant
+ * query is still evaluated by JXPath.
+ *
+ * @since 3.9
+ */
+public class XPathPerformanceTest extends BasicPerformanceTest {
+
+	private static final int WINDOWS = 10;
+
+	private static final int STACKS = 20;
+
+	private static final int PARTS = 50;
+
+	private static final String PART_ID = "part.5.10.25"; //$NON-NLS-1$
+
+	private static final String[] QUERIES = {
+			"children[@elementId='window.5']/children[@elementId='stack.5.10']/children[@elementId='" + PART_ID + "']", //$NON-NLS-1$ //$NON-NLS-2$
+			"//children[@elementId='" + PART_ID + "']" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static final String[] QUERY_NAMES = { "path", "descendants" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static final int[] QUERY_COUNTS = { 1000, 20 };
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite("XPath performance"); //$NON-NLS-1$
+		for (int i = 0; i < QUERIES.length; i++) {
+			suite.addTest(new XPathPerformanceTest(i, false));
+			suite.addTest(new XPathPerformanceTest(i, true));
+		}
+		return suite;
+	}
+
+	private final int query;
+
+	private final boolean compiled;
+
+	public XPathPerformanceTest(int query, boolean compiled) {
+		super("testXPath:" + QUERY_NAMES[query] //$NON-NLS-1$
+				+ (compiled ? ", compiled" : ", string")); //$NON-NLS-1$ //$NON-NLS-2$
+		this.query = query;
+		this.compiled = compiled;
+	}
+
+	protected void runTest() throws Throwable {
+		final MApplication application = createApplication();
+		final XPathContext context = EcoreXPathContextFactory.newInstance()
+				.newContext((EObject) application);
+		final String xpath = QUERIES[query];
+		final int count = QUERY_COUNTS[query];
+		final Object[] result = new Object[1];
+		exercise(new TestRunnable() {
+			public void run() throws Exception {
+				startMeasuring();
+				if (compiled) {
+					for (int i = 0; i < count; i++) {
+						CompiledXPath expression = context.compile(xpath);
+						result[0] = context.getValue(expression);
+					}
+				} else {
+					for (int i = 0; i < count; i++) {
+						result[0] = context.getValue(xpath);
+					}
+				}
+				stopMeasuring();
+			}
+		});
+		commitMeasurements();
+		assertPerformance();
+		assertTrue(result[0] instanceof MPart);
+		assertEquals(PART_ID, ((MPart) result[0]).getElementId());
+	}
+
+	private static MApplication createApplication() {
+		MApplication application = MApplicationFactory.INSTANCE
+				.createApplication();
+		application.setElementId("application"); //$NON-NLS-1$
+		for (int w = 0; w < WINDOWS; w++) {
+			MTrimmedWindow window = MBasicFactory.INSTANCE
+					.createTrimmedWindow();
+			window.setElementId("window." + w); //$NON-NLS-1$
+			application.getChildren().add(window);
+			for (int s = 0; s < STACKS; s++) {
+				MPartStack stack = MBasicFactory.INSTANCE.createPartStack();
+				stack.setElementId("stack." + w + '.' + s); //$NON-NLS-1$
+				window.getChildren().add(stack);
+				for (int p = 0; p < PARTS; p++) {
+					MPart part = MBasicFactory.INSTANCE.createPart();
+					part.setElementId("part." + w + '.' + s + '.' + p); //$NON-NLS-1$
+					part.setLabel("Part " + p); //$NON-NLS-1$
+					stack.getChildren().add(part);
+				}
+			}
+		}
+		return application;
+	}
+}
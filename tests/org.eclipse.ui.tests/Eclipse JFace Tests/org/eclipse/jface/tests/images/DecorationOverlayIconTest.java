@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.images;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.internal.ImageDataCache;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.jface.resource.LocalResourceManager;
+import org.eclipse.jface.viewers.DecorationOverlayIcon;
+import org.eclipse.jface.viewers.IDecoration;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * @since 3.9
+ */
+public class DecorationOverlayIconTest extends TestCase {
+
+	private Image base;
+
+	private LocalResourceManager resourceManager;
+
+	/**
+	 * An overlay that counts how often its image data is decoded.
+	 */
+	private static class CountingDescriptor extends ImageDescriptor {
+		int decodeCount = 0;
+
+		public ImageData getImageData() {
+			decodeCount++;
+			return new ImageData(4, 4, 24, new PaletteData(0xFF, 0xFF00,
+					0xFF0000));
+		}
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		base = new Image(Display.getDefault(), 16, 16);
+		resourceManager = new LocalResourceManager(JFaceResources
+				.getResources());
+	}
+
+	protected void tearDown() throws Exception {
+		resourceManager.dispose();
+		base.dispose();
+		super.tearDown();
+	}
+
+	public void testOverlayDecodedOnce() {
+		CountingDescriptor overlay = new CountingDescriptor();
+		long hits = ImageDataCache.getHitCount();
+		for (int i = 0; i < 10; i++) {
+			new DecorationOverlayIcon(base, overlay, IDecoration.TOP_LEFT)
+					.getImageData();
+		}
+		assertEquals(1, overlay.decodeCount);
+		assertEquals(hits + 9, ImageDataCache.getHitCount());
+	}
+
+	public void testEqualIconsShareImage() {
+		CountingDescriptor overlay = new CountingDescriptor();
+		Image first = resourceManager.createImage(new DecorationOverlayIcon(
+				base, overlay, IDecoration.BOTTOM_RIGHT));
+		Image second = resourceManager.createImage(new DecorationOverlayIcon(
+				base, overlay, IDecoration.BOTTOM_RIGHT));
+		assertSame(first, second);
+	}
+
+	public void testSizeDistinguishesIcons() {
+		CountingDescriptor overlay = new CountingDescriptor();
+		ImageDescriptor[] overlays = new ImageDescriptor[] { overlay, null,
+				null, null, null };
+		DecorationOverlayIcon small = new DecorationOverlayIcon(base,
+				overlays, new Point(16, 16));
+		DecorationOverlayIcon large = new DecorationOverlayIcon(base,
+				overlays, new Point(20, 16));
+		assertFalse(small.equals(large));
+		assertEquals(new DecorationOverlayIcon(base, overlays, new Point(16,
+				16)), small);
+	}
+}
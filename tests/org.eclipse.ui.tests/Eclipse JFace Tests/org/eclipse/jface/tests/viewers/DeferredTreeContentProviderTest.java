@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.viewers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.deferred.DeferredTreeContentProvider;
+import org.eclipse.jface.viewers.deferred.IConcurrentModel;
+import org.eclipse.jface.viewers.deferred.IConcurrentModelListener;
+import org.eclipse.jface.viewers.deferred.IConcurrentTreeModel;
+import org.eclipse.jface.viewers.deferred.SetModel;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
+
+/**
+ * Tests TreeViewer's VIRTUAL support with a DeferredTreeContentProvider.
+ *
+ * @since 3.9
+ */
+public class DeferredTreeContentProviderTest extends ViewerTestCase {
+	private static final int NUM_ROOTS = 100;
+	private static final int NUM_CHILDREN = 20;
+	private static final int DEPTH = 2;
+	private static final long TIMEOUT = 10000;
+
+	/**
+	 * Sorts the elements in decreasing order, so that the order of the tree
+	 * can only come from the content provider.
+	 */
+	private static final Comparator REVERSE_ORDER = new Comparator() {
+		public int compare(Object o1, Object o2) {
+			return ((String) o2).compareTo((String) o1);
+		}
+	};
+
+	private TestTreeModel model;
+
+	private class ChildrenModel extends SetModel {
+		boolean released = false;
+
+		public void removeListener(IConcurrentModelListener listener) {
+			released = true;
+			super.removeListener(listener);
+		}
+	}
+
+	/**
+	 * A tree of strings where the children of "R-1" are "R-1-00" to "R-1-19".
+	 */
+	private class TestTreeModel implements IConcurrentTreeModel {
+		Map requested = new HashMap();
+
+		public IConcurrentModel getChildren(Object parent) {
+			String prefix = parent == this ? "R" : (String) parent;
+			int count = parent == this ? NUM_ROOTS : NUM_CHILDREN;
+			List children = new ArrayList();
+			for (int i = 0; i < count; i++) {
+				children.add(prefix + "-" + (i < 10 ? "0" : "") + i);
+			}
+			Collections.shuffle(children);
+			ChildrenModel result = new ChildrenModel();
+			result.addAll(children);
+			requested.put(parent, result);
+			return result;
+		}
+
+		public boolean hasChildren(Object element) {
+			return getDepth(element) < DEPTH;
+		}
+
+		public Object getParent(Object element) {
+			String string = (String) element;
+			if (getDepth(element) == 1) {
+				return this;
+			}
+			return string.substring(0, string.lastIndexOf('-'));
+		}
+
+		private int getDepth(Object element) {
+			String string = (String) element;
+			int depth = 0;
+			for (int i = 0; i < string.length(); i++) {
+				if (string.charAt(i) == '-') {
+					depth++;
+				}
+			}
+			return depth;
+		}
+	}
+
+	public DeferredTreeContentProviderTest(String name) {
+		super(name);
+	}
+
+	public TreeViewer getTreeViewer() {
+		return (TreeViewer) fViewer;
+	}
+
+	/**
+	 * Checks if the virtual tree functionality can be tested in the current
+	 * settings. See https://bugs.eclipse.org/bugs/show_bug.cgi?id=118919 .
+	 */
+	protected boolean setDataCalled = false;
+
+	public void setUp() {
+		super.setUp();
+		processEvents(); // run events for SetData precondition test
+	}
+
+	protected void setInput() {
+		model = new TestTreeModel();
+		getTreeViewer().setInput(model);
+	}
+
+	protected StructuredViewer createViewer(Composite parent) {
+		Tree tree = new Tree(fShell, SWT.VIRTUAL | SWT.MULTI);
+		TreeViewer treeViewer = new TreeViewer(tree);
+		treeViewer.setContentProvider(new DeferredTreeContentProvider(
+				REVERSE_ORDER));
+		tree.addListener(SWT.SetData, new Listener() {
+			public void handleEvent(Event event) {
+				setDataCalled = true;
+			}
+		});
+		return treeViewer;
+	}
+
+	public void testTopLevelSorted() {
+		if (!setDataCalled) {
+			System.err.println("SWT.SetData is not received. Cancelled test " + getName());
+			return;
+		}
+		Tree tree = getTreeViewer().getTree();
+		waitForText(tree.getItem(0), "R-99");
+		assertEquals(NUM_ROOTS, tree.getItemCount());
+		waitForText(tree.getItem(1), "R-98");
+		assertEquals("only the top-level elements are requested", 1,
+				model.requested.size());
+	}
+
+	public void testExpand() {
+		if (!setDataCalled) {
+			System.err.println("SWT.SetData is not received. Cancelled test " + getName());
+			return;
+		}
+		Tree tree = getTreeViewer().getTree();
+		waitForText(tree.getItem(0), "R-99");
+		assertTrue(tree.getItem(0).getItemCount() > 0);
+
+		expandAndNotify(tree.getItem(0));
+		waitForItemCount(tree.getItem(0), NUM_CHILDREN);
+		waitForText(tree.getItem(0).getItem(0), "R-99-19");
+		assertTrue(model.requested.containsKey("R-99"));
+		assertEquals("leaves have no children", 0, tree.getItem(0).getItem(0)
+				.getItemCount());
+	}
+
+	public void testCollapseReleasesChildren() {
+		if (!setDataCalled) {
+			System.err.println("SWT.SetData is not received. Cancelled test " + getName());
+			return;
+		}
+		Tree tree = getTreeViewer().getTree();
+		waitForText(tree.getItem(0), "R-99");
+		expandAndNotify(tree.getItem(0));
+		waitForItemCount(tree.getItem(0), NUM_CHILDREN);
+
+		getTreeViewer().collapseAll();
+		Event event = new Event();
+		event.item = tree.getItem(0);
+		tree.notifyListeners(SWT.Collapse, event);
+		assertTrue(((ChildrenModel) model.requested.get("R-99")).released);
+		assertFalse(((ChildrenModel) model.requested.get(model)).released);
+	}
+
+	private void expandAndNotify(TreeItem treeItem) {
+		Tree tree = treeItem.getParent();
+		tree.setRedraw(false);
+		treeItem.setExpanded(true);
+		try {
+			Event event = new Event();
+			event.item = treeItem;
+			event.type = SWT.Expand;
+			tree.notifyListeners(SWT.Expand, event);
+		} finally {
+			tree.setRedraw(true);
+		}
+	}
+
+	private void waitForText(TreeItem item, String expected) {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (!expected.equals(item.getText())
+				&& System.currentTimeMillis() < end) {
+			sleepAndProcessEvents();
+		}
+		assertEquals(expected, item.getText());
+	}
+
+	private void waitForItemCount(TreeItem item, int expected) {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (item.getItemCount() != expected
+				&& System.currentTimeMillis() < end) {
+			sleepAndProcessEvents();
+		}
+		assertEquals(expected, item.getItemCount());
+	}
+
+	private void sleepAndProcessEvents() {
+		processEvents();
+		try {
+			Thread.sleep(10);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,10 +12,14 @@ package org.eclipse.jface.tests.viewers;
 
 import java.lang.reflect.Method;
 
+import org.eclipse.jface.viewers.ArrayContentProvider;
 import org.eclipse.jface.viewers.ColumnLayoutData;
 import org.eclipse.jface.viewers.ColumnViewer;
 import org.eclipse.jface.viewers.ColumnWeightData;
+import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.ITableLabelProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.jface.viewers.StructuredViewer;
 import org.eclipse.jface.viewers.TableLayout;
 import org.eclipse.jface.viewers.TableViewer;
@@ -183,6 +187,61 @@ public class TableViewerTest extends StructuredItemViewerTest {
 
 	}
 
+	/**
+	 * Elements whose hash code changed after they were added must still be
+	 * found in a table large enough to be indexed.
+	 */
+	public void testFindItemOfChangedElement() {
+		MutableElement[] elements = new MutableElement[2000];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = new MutableElement(i);
+		}
+		TableViewer viewer = new TableViewer(fShell);
+		viewer.setContentProvider(new ArrayContentProvider());
+		viewer.setLabelProvider(new LabelProvider());
+		viewer.setInput(elements);
+
+		MutableElement changed = elements[1500];
+		assertNotNull(viewer.testFindItem(changed));
+		changed.value = -1;
+		assertNotNull("Changed element not found", viewer.testFindItem(changed));
+
+		viewer.setSelection(new StructuredSelection(changed));
+		IStructuredSelection selection = (IStructuredSelection) viewer
+				.getSelection();
+		assertEquals(1, selection.size());
+		assertSame(changed, selection.getFirstElement());
+
+		viewer.setSelection(new StructuredSelection(changed), true);
+		selection = (IStructuredSelection) viewer.getSelection();
+		assertEquals(1, selection.size());
+		assertSame(changed, selection.getFirstElement());
+	}
+
+	/**
+	 * An element whose hash code depends on mutable state, but equal only to
+	 * itself.
+	 */
+	private static class MutableElement {
+		int value;
+
+		MutableElement(int value) {
+			this.value = value;
+		}
+
+		public int hashCode() {
+			return value;
+		}
+
+		public boolean equals(Object obj) {
+			return obj == this;
+		}
+
+		public String toString() {
+			return String.valueOf(value);
+		}
+	}
+
 	
 
 }
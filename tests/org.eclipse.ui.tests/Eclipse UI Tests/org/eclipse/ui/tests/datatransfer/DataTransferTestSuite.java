@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -34,6 +34,8 @@ public class DataTransferTestSuite extends TestSuite {
         addTest(new TestSuite(ImportArchiveOperationTest.class)); 
         addTest(new TestSuite(ExportFileSystemOperationTest.class));
         addTest(new TestSuite(ExportArchiveFileOperationTest.class));
+        addTest(new TestSuite(ZipArchiveOutputStreamTest.class));
+        addTest(new TestSuite(ProjectDirectoryScannerTest.class));
         addTest(ImportExistingProjectsWizardTest.suite());
         addTest(new TestSuite(ImportExportWizardsCategoryTests.class));
     }
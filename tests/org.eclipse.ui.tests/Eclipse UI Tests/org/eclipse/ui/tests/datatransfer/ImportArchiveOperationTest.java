@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,13 +10,18 @@
  *******************************************************************************/
 package org.eclipse.ui.tests.datatransfer;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -30,8 +35,10 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.ui.dialogs.IOverwriteQuery;
+import org.eclipse.ui.internal.wizards.datatransfer.TarEntry;
 import org.eclipse.ui.internal.wizards.datatransfer.TarFile;
 import org.eclipse.ui.internal.wizards.datatransfer.TarLeveledStructureProvider;
+import org.eclipse.ui.internal.wizards.datatransfer.TarOutputStream;
 import org.eclipse.ui.internal.wizards.datatransfer.ZipLeveledStructureProvider;
 import org.eclipse.ui.tests.TestPlugin;
 import org.eclipse.ui.tests.harness.util.FileUtil;
@@ -58,6 +65,8 @@ public class ImportArchiveOperationTest extends UITestCase implements IOverwrite
     private URL zipFileURL;
     
     private URL tarFileURL;
+
+    private File tempFile;
     
     public ImportArchiveOperationTest(String testName) {
         super(testName);
@@ -79,15 +88,21 @@ public class ImportArchiveOperationTest extends UITestCase implements IOverwrite
     protected void doTearDown() throws Exception {
         super.doTearDown();
         try {
-            project.delete(true, true, null);
+        	if (project != null) {
+        		project.delete(true, true, null);
+        	}
         } catch (CoreException e) {
             fail(e.toString());
         }
         finally{
+        	if (tempFile != null) {
+        		tempFile.delete();
+        	}
         	localDirectory = null;
         	project = null;
         	zipFileURL = null;
         	tarFileURL = null;
+        	tempFile = null;
         }
     }
 
@@ -278,6 +293,164 @@ public class ImportArchiveOperationTest extends UITestCase implements IOverwrite
     
     }
     
+    public void testTarLongLinkNames() throws Exception {
+    	String longName = "folder/";
+    	while (longName.length() < 150) {
+    		longName += "long_name_";
+    	}
+    	longName += ".txt";
+    	String[] names = { "before.txt", longName, "after.txt" };
+    	byte[][] contents = createContents(names.length);
+    	tempFile = writeTar(names, contents, false);
+
+    	TarFile tarFile = new TarFile(tempFile);
+    	try {
+    		TarEntry[] entries = getTarEntries(tarFile);
+    		assertEquals(names.length, entries.length);
+    		for (int i = 0; i < names.length; i++) {
+    			assertEquals(names[i], entries[i].getName());
+    			assertEquals(contents[i].length, entries[i].getSize());
+    		}
+    		// read the entry after the long name first
+    		assertContents(contents[2], tarFile.getInputStream(entries[2]));
+    		assertContents(contents[1], tarFile.getInputStream(entries[1]));
+    		assertContents(contents[0], tarFile.getInputStream(entries[0]));
+    	} finally {
+    		tarFile.close();
+    	}
+    }
+
+    public void testTarReadOutOfOrder() throws Exception {
+    	readOutOfOrder(false);
+    }
+
+    public void testCompressedTarReadOutOfOrder() throws Exception {
+    	readOutOfOrder(true);
+    }
+
+    public void testTarReadSingleBytes() throws Exception {
+    	String[] names = { "first.txt", "second.txt" };
+    	byte[][] contents = createContents(names.length);
+    	tempFile = writeTar(names, contents, false);
+
+    	TarFile tarFile = new TarFile(tempFile);
+    	try {
+    		TarEntry[] entries = getTarEntries(tarFile);
+    		InputStream in = tarFile.getInputStream(entries[1]);
+    		for (int i = 0; i < contents[1].length; i++) {
+    			assertEquals(contents[1][i] & 0xff, in.read());
+    		}
+    		assertEquals(-1, in.read());
+    	} finally {
+    		tarFile.close();
+    	}
+    }
+
+    /**
+     * Reads the files of an archive in another order than the archive order,
+     * and some of them more than once.
+     */
+    private void readOutOfOrder(boolean compressed) throws Exception {
+    	String[] names = { "a.txt", "b/b.txt", "b/c.txt", "d.txt", "e.txt" };
+    	byte[][] contents = createContents(names.length);
+    	tempFile = writeTar(names, contents, compressed);
+
+    	TarFile tarFile = new TarFile(tempFile);
+    	try {
+    		assertEquals(compressed, tarFile.isCompressed());
+    		TarEntry[] entries = getTarEntries(tarFile);
+    		assertEquals(names.length, entries.length);
+    		// the entries are indexed, enumerating them again gives the same
+    		assertEquals(entries.length, getTarEntries(tarFile).length);
+    		int[] order = { 4, 0, 2, 1, 3, 0, 4 };
+    		for (int i = 0; i < order.length; i++) {
+    			TarEntry entry = entries[order[i]];
+    			assertEquals(names[order[i]], entry.getName());
+    			assertContents(contents[order[i]], tarFile.getInputStream(entry));
+    		}
+    	} finally {
+    		tarFile.close();
+    	}
+    }
+
+    /**
+     * Creates contents of different sizes, some of them spanning several tar
+     * blocks.
+     */
+    private static byte[][] createContents(int count) {
+    	byte[][] contents = new byte[count][];
+    	for (int i = 0; i < count; i++) {
+    		contents[i] = new byte[i * 700 + 10];
+    		for (int j = 0; j < contents[i].length; j++) {
+    			contents[i][j] = (byte) (i * 31 + j);
+    		}
+    	}
+    	return contents;
+    }
+
+    /**
+     * Writes a tar file of the given files. The names longer than the name
+     * field of the header are written with the GNU @LongLink extension.
+     */
+    private static File writeTar(String[] names, byte[][] contents,
+    		boolean compressed) throws IOException {
+    	File file = File.createTempFile("ImportArchiveOperationTest",
+    			compressed ? ".tar.gz" : ".tar");
+    	OutputStream out = new FileOutputStream(file);
+    	if (compressed) {
+    		out = new GZIPOutputStream(out);
+    	}
+    	TarOutputStream tarOut = new TarOutputStream(out);
+    	try {
+    		for (int i = 0; i < names.length; i++) {
+    			String name = names[i];
+    			byte[] nameBytes = name.getBytes("UTF8");
+    			if (nameBytes.length > 99) {
+    				TarEntry longLink = new TarEntry("././@LongLink");
+    				longLink.setFileType('L');
+    				longLink.setSize(nameBytes.length + 1);
+    				tarOut.putNextEntry(longLink);
+    				tarOut.write(nameBytes, 0, nameBytes.length);
+    				tarOut.write(new byte[1], 0, 1);
+    				tarOut.closeEntry();
+    				name = name.substring(0, 99);
+    			}
+    			TarEntry entry = new TarEntry(name);
+    			entry.setSize(contents[i].length);
+    			tarOut.putNextEntry(entry);
+    			tarOut.write(contents[i], 0, contents[i].length);
+    			tarOut.closeEntry();
+    		}
+    	} finally {
+    		tarOut.close();
+    	}
+    	return file;
+    }
+
+    private static TarEntry[] getTarEntries(TarFile tarFile) {
+    	List entries = new ArrayList();
+    	Enumeration tarEntries = tarFile.entries();
+    	while (tarEntries.hasMoreElements()) {
+    		entries.add(tarEntries.nextElement());
+    	}
+    	return (TarEntry[]) entries.toArray(new TarEntry[entries.size()]);
+    }
+
+    private static void assertContents(byte[] expected, InputStream in)
+    		throws IOException {
+    	ByteArrayOutputStream out = new ByteArrayOutputStream();
+    	byte[] buffer = new byte[1000];
+    	int n;
+    	while ((n = in.read(buffer)) > 0) {
+    		out.write(buffer, 0, n);
+    	}
+    	byte[] actual = out.toByteArray();
+    	assertEquals(expected.length, actual.length);
+    	for (int i = 0; i < expected.length; i++) {
+    		assertEquals(expected[i], actual[i]);
+    	}
+    }
+
     /**
      * Verifies that all files were imported.
      * 
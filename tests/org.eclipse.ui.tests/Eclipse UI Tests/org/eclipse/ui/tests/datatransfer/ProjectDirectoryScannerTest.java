@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.datatransfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.ui.internal.wizards.datatransfer.ProjectDirectoryScanner;
+
+/**
+ * Tests the search of project description files in a directory tree.
+ */
+public class ProjectDirectoryScannerTest extends TestCase {
+
+	private static final String[] PROJECTS = { "a", "a/nested",
+			"a/nested/deeper", "b/c", "d/e/f/g" };
+
+	private static final String[] SKIPPED = { ".git/h", ".metadata/i",
+			"j/CVS" };
+
+	private File root;
+
+	public ProjectDirectoryScannerTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		root = File.createTempFile("ProjectDirectoryScannerTest", "");
+		root.delete();
+		root.mkdir();
+		for (int i = 0; i < PROJECTS.length; i++) {
+			createProject(PROJECTS[i]);
+		}
+		for (int i = 0; i < SKIPPED.length; i++) {
+			createProject(SKIPPED[i]);
+		}
+		new File(root, "k/l").mkdirs();
+	}
+
+	protected void tearDown() throws Exception {
+		delete(root);
+		super.tearDown();
+	}
+
+	public void testScan() {
+		ProjectDirectoryScanner scanner = new ProjectDirectoryScanner(root,
+				false);
+		assertTrue(scanner.scan(new NullProgressMonitor()));
+		assertProjects(new String[] { "a", "b/c", "d/e/f/g" }, scanner
+				.getProjectFiles());
+	}
+
+	public void testScanNested() {
+		ProjectDirectoryScanner scanner = new ProjectDirectoryScanner(root,
+				true);
+		assertTrue(scanner.scan(new NullProgressMonitor()));
+		assertProjects(PROJECTS, scanner.getProjectFiles());
+	}
+
+	public void testProjectFileFound() {
+		final List found = Collections.synchronizedList(new ArrayList());
+		ProjectDirectoryScanner scanner = new ProjectDirectoryScanner(root,
+				true) {
+			protected void projectFileFound(File projectFile) {
+				found.add(projectFile);
+			}
+		};
+		assertTrue(scanner.scan(new NullProgressMonitor()));
+		File[] files = (File[]) found.toArray(new File[found.size()]);
+		Arrays.sort(files);
+		assertProjects(PROJECTS, files);
+	}
+
+	public void testCanceled() {
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		ProjectDirectoryScanner scanner = new ProjectDirectoryScanner(root,
+				true);
+		assertFalse(scanner.scan(monitor));
+	}
+
+	public void testMissingDirectory() {
+		ProjectDirectoryScanner scanner = new ProjectDirectoryScanner(new File(
+				root, "missing"), true);
+		assertFalse(scanner.scan(new NullProgressMonitor()));
+		assertEquals(0, scanner.getProjectFiles().length);
+	}
+
+	public void testDirectoryStamps() throws IOException {
+		ProjectDirectoryScanner scanner = new ProjectDirectoryScanner(root,
+				false);
+		assertTrue(scanner.scan(new NullProgressMonitor()));
+		Map stamps = scanner.getDirectoryStamps();
+		assertTrue(ProjectDirectoryScanner.isUnchanged(stamps));
+
+		// the directories inside of projects are not searched
+		touch(new File(root, "a/nested"));
+		assertTrue(ProjectDirectoryScanner.isUnchanged(stamps));
+
+		// a project added deep in the tree leaves the root unchanged
+		createProject("k/l/m");
+		touch(new File(root, "k/l"));
+		assertFalse(ProjectDirectoryScanner.isUnchanged(stamps));
+
+		scanner = new ProjectDirectoryScanner(root, false);
+		assertTrue(scanner.scan(new NullProgressMonitor()));
+		assertProjects(new String[] { "a", "b/c", "d/e/f/g", "k/l/m" },
+				scanner.getProjectFiles());
+		assertTrue(ProjectDirectoryScanner.isUnchanged(scanner
+				.getDirectoryStamps()));
+	}
+
+	private void createProject(String path) throws IOException {
+		File directory = new File(root, path);
+		directory.mkdirs();
+		new File(directory, ".project").createNewFile();
+	}
+
+	/**
+	 * Changes the modification time of the directory, whatever the resolution
+	 * of the file system.
+	 */
+	private static void touch(File directory) {
+		directory.setLastModified(directory.lastModified() - 10000);
+	}
+
+	private void assertProjects(String[] expected, File[] projectFiles) {
+		assertEquals(expected.length, projectFiles.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(new File(new File(root, expected[i]), ".project"),
+					projectFiles[i]);
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (int i = 0; i < children.length; i++) {
+				delete(children[i]);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.datatransfer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ui.internal.wizards.datatransfer.ZipArchiveOutputStream;
+
+/**
+ * Tests that the archives written by {@link ZipArchiveOutputStream} are read
+ * back by <code>java.util.zip</code>.
+ */
+public class ZipArchiveOutputStreamTest extends TestCase {
+
+	private static final String[] NAMES = { "dir/", "dir/deflated.txt",
+			"dir/stored.txt", "streamed/deflated.txt", "streamed/stored.txt",
+			"dir/\u00e9t\u00e9.txt" };
+
+	private File file;
+
+	private byte[][] contents;
+
+	public ZipArchiveOutputStreamTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		file = File.createTempFile("ZipArchiveOutputStreamTest", ".zip");
+		contents = new byte[NAMES.length][];
+		contents[0] = new byte[0];
+		for (int i = 1; i < NAMES.length; i++) {
+			StringBuffer buffer = new StringBuffer();
+			for (int j = 0; j < 1000 * i; j++) {
+				buffer.append(NAMES[i]).append(j);
+			}
+			contents[i] = buffer.toString().getBytes("UTF8");
+		}
+	}
+
+	protected void tearDown() throws Exception {
+		file.delete();
+		super.tearDown();
+	}
+
+	public void testRoundTrip() throws IOException {
+		ZipArchiveOutputStream out = new ZipArchiveOutputStream(
+				new FileOutputStream(file));
+		long time = System.currentTimeMillis();
+		out.putEntry(NAMES[0], time, ZipEntry.STORED, contents[0], 0, 0, 0);
+		byte[] deflated = deflate(contents[1]);
+		out.putEntry(NAMES[1], time, ZipEntry.DEFLATED, deflated,
+				deflated.length, crc(contents[1]), contents[1].length);
+		out.putEntry(NAMES[2], time, ZipEntry.STORED, contents[2],
+				contents[2].length, crc(contents[2]), contents[2].length);
+		out.putNextEntry(NAMES[3], time, ZipEntry.DEFLATED, 0, -1);
+		out.write(contents[3], 0, contents[3].length);
+		out.putNextEntry(NAMES[4], time, ZipEntry.STORED, crc(contents[4]),
+				contents[4].length);
+		out.write(contents[4], 0, contents[4].length);
+		out.closeEntry();
+		out.putNextEntry(NAMES[5], time, ZipEntry.DEFLATED, 0,
+				contents[5].length);
+		out.write(contents[5], 0, contents[5].length);
+		out.close();
+
+		ZipFile zipFile = new ZipFile(file);
+		try {
+			assertEquals(NAMES.length, zipFile.size());
+			for (int i = 0; i < NAMES.length; i++) {
+				ZipEntry entry = zipFile.getEntry(NAMES[i]);
+				assertNotNull(NAMES[i], entry);
+				assertEquals(NAMES[i], contents[i].length, entry.getSize());
+				assertEquals(NAMES[i], crc(contents[i]), entry.getCrc());
+				assertContents(NAMES[i], contents[i], zipFile
+						.getInputStream(entry));
+			}
+		} finally {
+			zipFile.close();
+		}
+
+		ZipInputStream in = new ZipInputStream(new FileInputStream(
+				file));
+		try {
+			for (int i = 0; i < NAMES.length; i++) {
+				ZipEntry entry = in.getNextEntry();
+				assertNotNull(NAMES[i], entry);
+				assertEquals(NAMES[i], entry.getName());
+				assertContents(NAMES[i], contents[i], in);
+			}
+			assertNull(in.getNextEntry());
+		} finally {
+			in.close();
+		}
+	}
+
+	public void testStoredEntryOfWrongSize() throws IOException {
+		ZipArchiveOutputStream out = new ZipArchiveOutputStream(
+				new ByteArrayOutputStream());
+		out.putNextEntry(NAMES[2], 0, ZipEntry.STORED, crc(contents[2]),
+				contents[2].length + 1);
+		out.write(contents[2], 0, contents[2].length);
+		try {
+			out.closeEntry();
+			fail("The wrong size was not detected");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	public void testExpectedLargeEntry() throws IOException {
+		ZipArchiveOutputStream out = new ZipArchiveOutputStream(
+				new FileOutputStream(file));
+		// the data descriptor has zip64 sizes
+		out.putNextEntry(NAMES[3], 0, ZipEntry.DEFLATED, 0, 5L << 30);
+		out.write(contents[3], 0, contents[3].length);
+		out.putNextEntry(NAMES[4], 0, ZipEntry.STORED, crc(contents[4]),
+				contents[4].length);
+		out.write(contents[4], 0, contents[4].length);
+		out.close();
+
+		ZipFile zipFile = new ZipFile(file);
+		try {
+			assertEquals(2, zipFile.size());
+			for (int i = 3; i <= 4; i++) {
+				ZipEntry entry = zipFile.getEntry(NAMES[i]);
+				assertEquals(NAMES[i], contents[i].length, entry.getSize());
+				assertContents(NAMES[i], contents[i], zipFile
+						.getInputStream(entry));
+			}
+		} finally {
+			zipFile.close();
+		}
+	}
+
+	public void testManyEntries() throws IOException {
+		ZipArchiveOutputStream out = new ZipArchiveOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)));
+		// more entries than the end of central directory record can count
+		int count = 0x10000 + 10;
+		for (int i = 0; i < count; i++) {
+			out.putEntry("entry" + i, 0, ZipEntry.STORED, contents[0], 0, 0, 0);
+		}
+		out.close();
+
+		ZipFile zipFile = new ZipFile(file);
+		try {
+			assertEquals(count, zipFile.size());
+			assertNotNull(zipFile.getEntry("entry" + (count - 1)));
+		} finally {
+			zipFile.close();
+		}
+	}
+
+	private static byte[] deflate(byte[] data) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(data);
+		deflater.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		while (!deflater.finished()) {
+			int n = deflater.deflate(buffer);
+			out.write(buffer, 0, n);
+		}
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	private static long crc(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		return crc.getValue();
+	}
+
+	private static void assertContents(String name, byte[] expected,
+			InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int n;
+		while ((n = in.read(buffer)) > 0) {
+			out.write(buffer, 0, n);
+		}
+		byte[] actual = out.toByteArray();
+		assertEquals(name, expected.length, actual.length);
+		assertEquals(name, new String(expected, "UTF8"), new String(actual,
+				"UTF8"));
+		assertEquals(name, crc(expected), crc(actual));
+	}
+}
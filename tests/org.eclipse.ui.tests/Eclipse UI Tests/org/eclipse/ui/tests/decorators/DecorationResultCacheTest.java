@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.decorators;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.viewers.DecorationContext;
+import org.eclipse.jface.viewers.IDecorationContext;
+import org.eclipse.ui.internal.WorkbenchPlugin;
+import org.eclipse.ui.internal.decorators.DecorationResult;
+import org.eclipse.ui.internal.decorators.DecorationResultCache;
+
+/**
+ * Tests that the results awaiting a label update are discarded last by the
+ * bounded decoration result cache.
+ *
+ * @since 3.5
+ */
+public class DecorationResultCacheTest extends TestCase {
+
+	private static final int CAPACITY = 16;
+
+	private static final int COUNT = 200;
+
+	private final IDecorationContext context = DecorationContext.DEFAULT_CONTEXT;
+
+	private DecorationResultCache cache;
+
+	private DecorationResult result;
+
+	private Object[] elements;
+
+	public DecorationResultCacheTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		cache = new DecorationResultCache(CAPACITY);
+		result = WorkbenchPlugin.getDefault().getDecoratorManager()
+				.getLightweightManager().getDecorationResult(new Object());
+		elements = new Object[COUNT];
+		for (int i = 0; i < COUNT; i++) {
+			elements[i] = new Integer(i);
+		}
+	}
+
+	public void testReleasedResultsAreBounded() {
+		for (int i = 0; i < COUNT; i++) {
+			cache.putPending(elements[i], context, result);
+		}
+		cache.release(elements);
+		assertTrue("Too many results kept: " + cache.size(),
+				cache.size() <= CAPACITY);
+		assertNotNull("The most recent result was discarded", cache.get(
+				elements[COUNT - 1], context));
+	}
+
+	public void testPendingResultsAreBounded() {
+		for (int i = 0; i < COUNT; i++) {
+			cache.putPending(elements[i], context, result);
+		}
+		assertTrue("Too many pending results kept: " + cache.size(),
+				cache.size() <= CAPACITY);
+		assertSame("The most recent pending result was discarded", result,
+				cache.get(elements[COUNT - 1], context));
+	}
+
+	public void testReleasedResultsAreEvictedFirst() {
+		for (int i = 1; i < COUNT; i++) {
+			cache.putPending(elements[i], context, result);
+		}
+		cache.release(elements);
+		cache.putPending(elements[0], context, result);
+		assertTrue(cache.contains(elements[0], context));
+		assertTrue("Too many results kept: " + cache.size(),
+				cache.size() <= CAPACITY);
+	}
+
+	public void testClearReleasedKeepsPendingResults() {
+		cache.putPending(elements[0], context, result);
+		cache.putPending(elements[1], context, result);
+		cache.release(new Object[] { elements[1] });
+		cache.clearReleased();
+		assertEquals(1, cache.size());
+		assertSame(result, cache.get(elements[0], context));
+		assertNull(cache.get(elements[1], context));
+	}
+
+	public void testEvictionWhileResultPending() {
+		cache.putPending(elements[0], context, result);
+		// Fill the cache with released results while the first one awaits
+		// its update
+		for (int i = 1; i < COUNT; i++) {
+			cache.putPending(elements[i], context, result);
+			cache.release(new Object[] { elements[i] });
+		}
+		assertTrue(cache.contains(elements[0], context));
+		assertSame(result, cache.get(elements[0], context));
+
+		// Once released it is discarded like any other result
+		cache.release(new Object[] { elements[0] });
+		for (int i = 1; i < COUNT; i++) {
+			cache.putPending(elements[i], context, result);
+			cache.release(new Object[] { elements[i] });
+		}
+		assertFalse(cache.contains(elements[0], context));
+	}
+
+	public void testMarkPending() {
+		cache.putPending(elements[0], context, result);
+		cache.release(new Object[] { elements[0] });
+		assertTrue(cache.markPending(elements[0], context));
+		assertFalse(cache.markPending(elements[1], context));
+		for (int i = 1; i < COUNT; i++) {
+			cache.putPending(elements[i], context, result);
+			cache.release(new Object[] { elements[i] });
+		}
+		assertSame(result, cache.get(elements[0], context));
+	}
+
+	public void testClearDiscardsPendingResults() {
+		cache.putPending(elements[0], context, result);
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNull(cache.get(elements[0], context));
+	}
+}
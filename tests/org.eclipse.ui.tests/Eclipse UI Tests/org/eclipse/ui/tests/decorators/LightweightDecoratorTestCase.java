@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@ package org.eclipse.ui.tests.decorators;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jface.viewers.ILabelProviderListener;
+import org.eclipse.ui.internal.decorators.LightweightDecoratorManager;
 
 /**
  * @version 	1.0
@@ -42,4 +43,32 @@ public class LightweightDecoratorTestCase extends DecoratorEnablementTestCase
 
     }
 
+    /**
+     * Test that a lightweight decorator is not called concurrently when
+     * several decoration jobs decorate at once.
+     */
+    public void testDecoratorNotCalledConcurrently() throws Exception {
+        definition.setEnabled(true);
+        getDecoratorManager().updateForEnablementChange();
+        final LightweightDecoratorManager manager = getDecoratorManager()
+                .getLightweightManager();
+        TestLightweightDecoratorContributor.calledConcurrently = false;
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < 200; j++) {
+                        manager.getDecorationResult(testFile);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertFalse("The decorator was called concurrently",
+                TestLightweightDecoratorContributor.calledConcurrently);
+    }
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2006 IBM Corporation and others.
+ * Copyright (c) 2004, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,6 +36,13 @@ public class TestLightweightDecoratorContributor implements
 
     public static String DECORATOR_PREFIX = "PREFIX_";
 
+    /**
+     * Whether decorate has been called while another call was running.
+     */
+    public static boolean calledConcurrently = false;
+
+    private static int running = 0;
+
     private ImageDescriptor descriptor;
 
     public TestLightweightDecoratorContributor() {
@@ -109,9 +116,22 @@ public class TestLightweightDecoratorContributor implements
      * @see org.eclipse.jface.viewers.ILightweightLabelDecorator#decorate(java.lang.Object, org.eclipse.jface.viewers.IDecoration)
      */
     public void decorate(Object element, IDecoration decoration) {
-        decoration.addOverlay(getOverlay(element));
-        decoration.addPrefix(DECORATOR_PREFIX);
-        decoration.addSuffix(DECORATOR_SUFFIX);
+        synchronized (TestLightweightDecoratorContributor.class) {
+            if (running > 0) {
+                calledConcurrently = true;
+            }
+            running++;
+        }
+        try {
+            decoration.addOverlay(getOverlay(element));
+            decoration.addPrefix(DECORATOR_PREFIX);
+            decoration.addSuffix(DECORATOR_SUFFIX);
+            Thread.yield();
+        } finally {
+            synchronized (TestLightweightDecoratorContributor.class) {
+                running--;
+            }
+        }
     }
 
 }
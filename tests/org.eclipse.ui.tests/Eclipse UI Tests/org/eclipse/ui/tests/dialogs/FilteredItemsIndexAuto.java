@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.tests.dialogs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ui.dialogs.SearchPattern;
+import org.eclipse.ui.internal.dialogs.FilteredItemsIndex;
+
+/**
+ * Tests that the index of the items of a filtered items selection dialog
+ * returns all the items whose name matches a pattern.
+ * 
+ * @since 3.9
+ */
+public class FilteredItemsIndexAuto extends TestCase {
+
+	private static final String[] WORDS = { "Filtered", "Items", "Selection",
+			"Dialog", "Search", "Pattern", "a", "b", "X", "_", "1" };
+
+	private static final String[] EXTENSIONS = { "", ".java", ".xml", ".Java" };
+
+	private Object[] items;
+
+	private String[] names;
+
+	private FilteredItemsIndex index;
+
+	public FilteredItemsIndexAuto(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		List nameList = new ArrayList();
+		for (int i = 0; i < WORDS.length; i++) {
+			for (int j = 0; j < WORDS.length; j++) {
+				for (int k = 0; k < EXTENSIONS.length; k++) {
+					nameList.add(WORDS[i] + WORDS[j] + EXTENSIONS[k]);
+				}
+			}
+		}
+		nameList.add(null);
+		names = (String[]) nameList.toArray(new String[nameList.size()]);
+		items = new Object[names.length];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = new Integer(i);
+		}
+		index = new FilteredItemsIndex(items, names);
+	}
+
+	public void testSize() {
+		assertEquals(items.length, index.size());
+		assertEquals(new HashSet(Arrays.asList(items)), new HashSet(Arrays
+				.asList(index.getItems())));
+	}
+
+	public void testBlankMatch() {
+		assertCandidates("", SearchPattern.RULE_BLANK_MATCH);
+	}
+
+	public void testExactMatch() {
+		assertCandidates("itemsdialog ", SearchPattern.RULE_EXACT_MATCH);
+		assertCandidates("searchpattern.java<", SearchPattern.RULE_EXACT_MATCH);
+	}
+
+	public void testPrefixMatch() {
+		assertCandidates("sel", SearchPattern.RULE_PREFIX_MATCH);
+		assertCandidates("patternx", SearchPattern.RULE_PREFIX_MATCH);
+		assertCandidates("unknown", SearchPattern.RULE_PREFIX_MATCH);
+	}
+
+	public void testPatternMatch() {
+		assertCandidates("*dialog", SearchPattern.RULE_PATTERN_MATCH);
+		assertCandidates("*a*.jav?", SearchPattern.RULE_PATTERN_MATCH);
+		assertCandidates("fil*sel*", SearchPattern.RULE_PATTERN_MATCH);
+		assertCandidates("?tems*", SearchPattern.RULE_PATTERN_MATCH);
+		assertCandidates("*.XML", SearchPattern.RULE_PATTERN_MATCH);
+		assertCandidates("*\\*", SearchPattern.RULE_PATTERN_MATCH);
+		assertCandidates("*unknown", SearchPattern.RULE_PATTERN_MATCH);
+	}
+
+	public void testCamelCaseMatch() {
+		assertCandidates("FI", SearchPattern.RULE_CAMELCASE_MATCH);
+		assertCandidates("SeaPa", SearchPattern.RULE_CAMELCASE_MATCH);
+		assertCandidates("DS ", SearchPattern.RULE_CAMELCASE_MATCH);
+		assertCandidates("X_", SearchPattern.RULE_CAMELCASE_MATCH);
+		assertCandidates("SearchPattern.java<",
+				SearchPattern.RULE_CAMELCASE_MATCH);
+	}
+
+	/**
+	 * Checks that the candidates of the pattern contain the items whose name
+	 * matches, and only a part of the items when the pattern is selective.
+	 */
+	private void assertCandidates(String patternText, int matchRule) {
+		SearchPattern pattern = new SearchPattern();
+		pattern.setPattern(patternText);
+		assertEquals(matchRule, pattern.getMatchRule());
+
+		Set candidates = new HashSet(Arrays.asList(index
+				.getCandidates(pattern)));
+		int matches = 0;
+		for (int i = 0; i < items.length; i++) {
+			if (names[i] == null || pattern.matches(names[i])) {
+				assertTrue(patternText + " does not find " + names[i],
+						candidates.contains(items[i]));
+				matches++;
+			}
+		}
+		if (matches < items.length / 10 && patternText.indexOf('\\') == -1) {
+			assertTrue(patternText + " finds too many candidates", candidates
+					.size() < items.length / 2);
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.internal;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ui.internal.misc.LatencyHistogram;
+import org.eclipse.ui.internal.misc.MetricCounter;
+import org.eclipse.ui.internal.misc.MetricsRegistry;
+
+/**
+ * @since 3.9
+ */
+public class MetricsRegistryTest extends TestCase {
+
+	public MetricsRegistryTest(String name) {
+		super(name);
+	}
+
+	public void testCounter() {
+		MetricsRegistry registry = new MetricsRegistry(true);
+		MetricCounter counter = registry.getCounter("counter");
+		assertSame(counter, registry.getCounter("counter"));
+		counter.increment();
+		counter.add(41);
+		assertEquals(42, counter.get());
+		registry.reset();
+		assertEquals(0, counter.get());
+	}
+
+	public void testDisabled() {
+		MetricsRegistry registry = new MetricsRegistry(false);
+		MetricCounter counter = registry.getCounter("counter");
+		counter.increment();
+		assertEquals(0, counter.get());
+		LatencyHistogram histogram = registry.getHistogram("histogram");
+		assertEquals(0, histogram.start());
+		histogram.record(1000);
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getValueAtPercentile(50));
+	}
+
+	public void testHistogram() {
+		MetricsRegistry registry = new MetricsRegistry(true);
+		LatencyHistogram histogram = registry.getHistogram("histogram");
+		assertSame(histogram, registry.getHistogram("histogram"));
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500500000L, histogram.getTotal());
+		assertEquals(1000000L, histogram.getMax());
+		assertAccurate(500000L, histogram.getValueAtPercentile(50));
+		assertAccurate(990000L, histogram.getValueAtPercentile(99));
+		assertEquals(1000000L, histogram.getValueAtPercentile(100));
+	}
+
+	public void testHistogramSmallValues() {
+		MetricsRegistry registry = new MetricsRegistry(true);
+		LatencyHistogram histogram = registry.getHistogram("histogram");
+		histogram.record(-5);
+		histogram.record(3);
+		assertEquals(2, histogram.getCount());
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		assertEquals(3, histogram.getValueAtPercentile(100));
+	}
+
+	public void testHistogramConcurrent() throws InterruptedException {
+		MetricsRegistry registry = new MetricsRegistry(true);
+		final LatencyHistogram histogram = registry.getHistogram("histogram");
+		final MetricCounter counter = registry.getCounter("counter");
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						histogram.record(j);
+						counter.increment();
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+		assertEquals(40000, histogram.getCount());
+		assertEquals(40000, counter.get());
+		assertEquals(9999, histogram.getMax());
+	}
+
+	public void testSnapshot() throws IOException {
+		MetricsRegistry registry = new MetricsRegistry(true);
+		registry.getCounter("b.counter").add(3);
+		registry.getCounter("a.counter").increment();
+		registry.getHistogram("histogram").record(2000000L);
+		StringWriter writer = new StringWriter();
+		registry.writeSnapshot(writer);
+		String[] lines = writer.toString().split("\n");
+		assertEquals(4, lines.length);
+		assertTrue(lines[0].startsWith("#"));
+		assertEquals("counter,a.counter,1", lines[1]);
+		assertEquals("counter,b.counter,3", lines[2]);
+		assertEquals("histogram,histogram,1,2000,2000,2000,2000,2000", lines[3]);
+	}
+
+	private static void assertAccurate(long expected, long actual) {
+		assertTrue("expected about " + expected + " but was " + actual,
+				Math.abs(actual - expected) <= expected / 16);
+	}
+}
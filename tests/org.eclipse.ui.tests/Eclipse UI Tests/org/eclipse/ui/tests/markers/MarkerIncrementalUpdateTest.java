@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.markers;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.ui.tests.harness.util.FileUtil;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+import org.eclipse.ui.views.markers.MarkerItem;
+
+/**
+ * Tests that the markers view applies the markers added, changed and removed
+ * while it is open.
+ * 
+ * @since 3.5
+ */
+public class MarkerIncrementalUpdateTest extends UITestCase {
+
+	private static final String PROBLEM_MARKER = "org.eclipse.core.resources.problemmarker";
+
+	private static final long TIMEOUT = 30000;
+
+	private IProject project;
+
+	private MarkersTestMarkersView view;
+
+	/**
+	 * Create a new instance of the receiver.
+	 * 
+	 * @param testName
+	 */
+	public MarkerIncrementalUpdateTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		project = FileUtil.createProject("MarkerIncrementalUpdateTest");
+		view = (MarkersTestMarkersView) getWorkbench()
+				.getActiveWorkbenchWindow().getActivePage().showView(
+						"org.eclipse.ui.tests.markerTests");
+	}
+
+	protected void doTearDown() throws Exception {
+		if (view != null) {
+			view.getSite().getPage().hideView(view);
+		}
+		FileUtil.deleteProject(project);
+		super.doTearDown();
+	}
+
+	public void testAddChangeRemove() throws CoreException {
+		IMarker marker = createMarker("added");
+		waitForMessage(marker, "added");
+
+		marker.setAttribute(IMarker.MESSAGE, "changed");
+		waitForMessage(marker, "changed");
+
+		marker.delete();
+		waitForRemoval(marker);
+	}
+
+	public void testRemoveAmongOthers() throws CoreException {
+		IMarker[] markers = new IMarker[10];
+		for (int i = 0; i < markers.length; i++) {
+			markers[i] = createMarker("marker " + i);
+		}
+		for (int i = 0; i < markers.length; i++) {
+			waitForMessage(markers[i], "marker " + i);
+		}
+
+		markers[4].delete();
+		waitForRemoval(markers[4]);
+		for (int i = 0; i < markers.length; i++) {
+			if (i != 4) {
+				assertNotNull("Marker " + i + " was removed", view
+						.getCurrentMarkerItem(markers[i]));
+			}
+		}
+
+		markers[7].setAttribute(IMarker.MESSAGE, "changed");
+		markers[0].delete();
+		IMarker added = createMarker("added");
+		waitForMessage(markers[7], "changed");
+		waitForRemoval(markers[0]);
+		waitForMessage(added, "added");
+		for (int i = 1; i < markers.length; i++) {
+			if (i != 4 && i != 7) {
+				waitForMessage(markers[i], "marker " + i);
+			}
+		}
+	}
+
+	private IMarker createMarker(String message) throws CoreException {
+		IMarker marker = project.createMarker(PROBLEM_MARKER);
+		marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
+		marker.setAttribute(IMarker.MESSAGE, message);
+		return marker;
+	}
+
+	private void waitForMessage(final IMarker marker, final String message) {
+		assertTrue("The marker view does not show " + message,
+				processEventsUntil(new Condition() {
+					public boolean compute() {
+						MarkerItem item = view.getCurrentMarkerItem(marker);
+						return item != null
+								&& message.equals(item.getAttributeValue(
+										IMarker.MESSAGE, ""));
+					}
+				}, TIMEOUT));
+	}
+
+	private void waitForRemoval(final IMarker marker) {
+		assertTrue("The marker view still shows a deleted marker",
+				processEventsUntil(new Condition() {
+					public boolean compute() {
+						return view.getCurrentMarkerItem(marker) == null;
+					}
+				}, TIMEOUT));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2008 IBM Corporation and others.
+ * Copyright (c) 2007, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,7 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.swt.widgets.TreeColumn;
 import org.eclipse.ui.internal.views.markers.ExtendedMarkersView;
+import org.eclipse.ui.views.markers.MarkerItem;
 import org.eclipse.ui.views.markers.MarkerSupportView;
 import org.eclipse.ui.views.markers.internal.MarkerSupportRegistry;
 
@@ -72,6 +73,36 @@ public class MarkersTestMarkersView extends MarkerSupportView {
 		return new IMarker[0];
 	}
 
+	/**
+	 * Get the item currently shown for the marker.
+	 * 
+	 * @param marker
+	 * @return the item, or <code>null</code> if the marker is not shown
+	 */
+	public MarkerItem getCurrentMarkerItem(IMarker marker) {
+		try {
+			Method method = ExtendedMarkersView.class.getDeclaredMethod(
+					"getActiveViewerInputClone", new Class[0]);
+			method.setAccessible(true);
+			Object markers = method.invoke(this, new Object[0]);
+			method = markers.getClass().getDeclaredMethod("getMarkerItem",
+					new Class[] { IMarker.class });
+			method.setAccessible(true);
+			return (MarkerItem) method.invoke(markers, new Object[] { marker });
+		} catch (SecurityException e) {
+			e.printStackTrace();
+		} catch (NoSuchMethodException e) {
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+		} catch (IllegalAccessException e) {
+			e.printStackTrace();
+		} catch (InvocationTargetException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
 	/**
 	 * Add a listener for the end of the update.
 	 * 
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.quickaccess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.ui.internal.quickaccess.QuickAccessElement;
+import org.eclipse.ui.internal.quickaccess.QuickAccessProvider;
+import org.eclipse.ui.internal.quickaccess.QuickAccessSearchIndex;
+
+public class QuickAccessSearchIndexTest extends TestCase {
+
+	private static final String[] LABELS = { "Open Type", "Open Resource",
+			"Java Editor", "Show View", "CamelCase Example", "-leading separator",
+			"New Java Project - Create a Java project", "Team Synchronizing" };
+
+	private static final String[] FILTERS = { "o", "op", "open", "open t",
+			"ot", "or", "je", "cce", "s", "sh", "test", "test j", "tj", "t",
+			"tes", "ls", "-", "xyz" };
+
+	private TestProvider provider;
+
+	protected void setUp() throws Exception {
+		provider = new TestProvider();
+	}
+
+	/**
+	 * Test that the index finds the elements matching a filter.
+	 */
+	public void testMatchingElements() {
+		QuickAccessSearchIndex index = provider.getSearchIndex();
+		for (int i = 0; i < FILTERS.length; i++) {
+			assertEquals(FILTERS[i], getMatches(FILTERS[i]),
+					Arrays.asList(index.getMatchingElements(FILTERS[i])));
+		}
+	}
+
+	/**
+	 * Test that the matches of a growing filter are narrowed from the previous
+	 * matches, and not only when the filter grows.
+	 */
+	public void testNarrowing() {
+		QuickAccessSearchIndex index = provider.getSearchIndex();
+		for (int i = 0; i < FILTERS.length; i++) {
+			for (int j = 0; j < FILTERS.length; j++) {
+				index.getMatchingElements(FILTERS[i]);
+				assertEquals(FILTERS[i] + " then " + FILTERS[j], getMatches(FILTERS[j]),
+						Arrays.asList(index.getMatchingElements(FILTERS[j])));
+			}
+		}
+	}
+
+	/**
+	 * Test that the index is rebuilt when the provider is reset.
+	 */
+	public void testReset() {
+		QuickAccessSearchIndex index = provider.getSearchIndex();
+		assertSame(index, provider.getSearchIndex());
+		provider.reset();
+		assertNotSame(index, provider.getSearchIndex());
+	}
+
+	private List getMatches(String filter) {
+		List result = new ArrayList();
+		QuickAccessElement[] elements = provider.getElementsSorted();
+		for (int i = 0; i < elements.length; i++) {
+			if (elements[i].match(filter, provider) != null) {
+				result.add(elements[i]);
+			}
+		}
+		return result;
+	}
+
+	private static class TestProvider extends QuickAccessProvider {
+
+		public String getId() {
+			return "test";
+		}
+
+		public String getName() {
+			return "Test";
+		}
+
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		public QuickAccessElement[] getElements() {
+			QuickAccessElement[] elements = new QuickAccessElement[LABELS.length];
+			for (int i = 0; i < LABELS.length; i++) {
+				elements[i] = new TestElement(this, LABELS[i]);
+			}
+			return elements;
+		}
+
+		public QuickAccessElement getElementForId(String id) {
+			return null;
+		}
+
+		protected void doReset() {
+			// nothing to reset
+		}
+	}
+
+	private static class TestElement extends QuickAccessElement {
+
+		private final String label;
+
+		TestElement(QuickAccessProvider provider, String label) {
+			super(provider);
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		public String getId() {
+			return label;
+		}
+
+		public void execute() {
+			// nothing to execute
+		}
+	}
+}